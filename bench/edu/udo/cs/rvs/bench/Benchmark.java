@@ -0,0 +1,75 @@
+package edu.udo.cs.rvs.bench;
+
+/**
+ * Ein Benchmark für den {@link BenchmarkRunner}. Eine Operation wird wiederholt ausgeführt und die mittlere
+ * Zeit pro Operation gemessen.
+ */
+public interface Benchmark {
+
+    /**
+     * Gibt den Namen des Benchmarks zurück, z.B. "DateFormatter.parseRfc1123"
+     *
+     * @return Name
+     */
+    String getName();
+
+    /**
+     * Bereitet den Benchmark vor, wird einmal vor den Messungen aufgerufen
+     *
+     * @throws Exception Wird geworfen falls die Vorbereitung fehlschlägt
+     */
+    default void setUp() throws Exception {
+    }
+
+    /**
+     * Führt eine Operation aus
+     *
+     * @return Beliebiges Ergebnis der Operation, damit die JVM die Arbeit nicht entfernt
+     *
+     * @throws Exception Wird geworfen falls die Operation fehlschlägt
+     */
+    long run() throws Exception;
+
+    /**
+     * Räumt nach den Messungen auf
+     */
+    default void tearDown() {
+    }
+
+    /**
+     * Operation eines Benchmarks ohne Vorbereitung
+     */
+    interface Operation {
+
+        /**
+         * Führt die Operation aus
+         *
+         * @return Beliebiges Ergebnis der Operation
+         *
+         * @throws Exception Wird geworfen falls die Operation fehlschlägt
+         */
+        long run() throws Exception;
+    }
+
+    /**
+     * Erstellt einen Benchmark ohne Vorbereitung
+     *
+     * @param name Name des Benchmarks
+     * @param operation Gemessene Operation
+     *
+     * @return Benchmark
+     */
+    static Benchmark of(String name, Operation operation) {
+        return new Benchmark() {
+            @Override
+            public String getName() {
+                return name;
+            }
+
+            @Override
+            public long run() throws Exception {
+                return operation.run();
+            }
+        };
+    }
+}
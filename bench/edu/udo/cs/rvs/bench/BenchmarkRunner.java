@@ -0,0 +1,274 @@
+package edu.udo.cs.rvs.bench;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Startet die Benchmarks und schreibt die Ergebnisse als JSON im Format der JMH Ergebnisdateien, so dass Läufe
+ * verglichen werden können. Wie bei JMH wird zuerst in Aufwärmrunden gemessen, deren Ergebnisse verworfen werden.
+ * Die Einstellungen werden über System Properties gesetzt (siehe README.txt), das optionale Argument ist ein
+ * regulärer Ausdruck für die Namen der auszuführenden Benchmarks.
+ */
+public class BenchmarkRunner {
+
+    /**
+     * Anzahl der Aufwärmrunden
+     */
+    private static final int WARMUP_ITERATIONS = Integer.getInteger("rvs.bench.warmup", 5);
+
+    /**
+     * Anzahl der gemessenen Runden
+     */
+    private static final int MEASUREMENT_ITERATIONS = Integer.getInteger("rvs.bench.iterations", 10);
+
+    /**
+     * Dauer einer Runde in Millisekunden
+     */
+    private static final int ITERATION_TIME = Integer.getInteger("rvs.bench.time", 1000);
+
+    /**
+     * Datei der Ergebnisse
+     */
+    private static final String RESULT_FILE = System.getProperty("rvs.bench.result", "bench-result.json");
+
+    /**
+     * Quantil der Standardnormalverteilung für ein Konfidenzintervall von 99,9%
+     */
+    private static final double Z_999 = 3.291;
+
+    /**
+     * Ergebnisse der Operationen, verhindert dass die JVM die gemessene Arbeit entfernt
+     */
+    private static volatile long sink;
+
+    /**
+     * Ergebnis eines Benchmarks
+     */
+    private static class Result {
+
+        /**
+         * Name des Benchmarks
+         */
+        private final String name;
+
+        /**
+         * Nanosekunden pro Operation jeder gemessenen Runde
+         */
+        private final double[] scores;
+
+        /**
+         * Erstellt das Ergebnis
+         *
+         * @param name Name des Benchmarks
+         * @param scores Nanosekunden pro Operation jeder Runde
+         */
+        private Result(String name, double[] scores) {
+            this.name = name;
+            this.scores = scores;
+        }
+
+        /**
+         * Berechnet den Mittelwert der Runden
+         *
+         * @return Mittelwert in Nanosekunden pro Operation
+         */
+        private double mean() {
+            double sum = 0;
+
+            for (double score : scores){
+                sum += score;
+            }
+
+            return sum / scores.length;
+        }
+
+        /**
+         * Berechnet die halbe Breite des Konfidenzintervalls von 99,9%
+         *
+         * @return Fehler in Nanosekunden pro Operation
+         */
+        private double error() {
+            if (scores.length < 2){
+                return Double.NaN;
+            }
+
+            double mean = mean();
+            double squares = 0;
+
+            for (double score : scores){
+                squares += (score - mean) * (score - mean);
+            }
+
+            return Z_999 * Math.sqrt(squares / (scores.length - 1)) / Math.sqrt(scores.length);
+        }
+    }
+
+    /**
+     * Startet die Benchmarks
+     *
+     * @param arguments Optionaler regulärer Ausdruck für die Namen der Benchmarks
+     *
+     * @throws Exception Wird geworfen falls ein Benchmark fehlschlägt
+     */
+    public static void main(String[] arguments) throws Exception {
+        Pattern filter = Pattern.compile(arguments.length > 0 ? arguments[0] : ".*");
+        List<Result> results = new ArrayList<>();
+
+        for (Benchmark benchmark : createBenchmarks()){
+            if (!filter.matcher(benchmark.getName()).find()){
+                continue;
+            }
+
+            Result result = measure(benchmark);
+            results.add(result);
+
+            System.out.println(String.format(Locale.ROOT, "%-45s %12.1f +- %8.1f ns/op", result.name, result.mean(), result.error()));
+        }
+
+        writeJson(results);
+
+        System.out.println("Results written to " + RESULT_FILE + ".");
+    }
+
+    /**
+     * Erstellt alle Benchmarks
+     *
+     * @return Benchmarks in der Reihenfolge der Ausführung
+     */
+    private static List<Benchmark> createBenchmarks() {
+        List<Benchmark> benchmarks = new ArrayList<>();
+
+        RequestBenchmarks.addTo(benchmarks);
+        ResponseBenchmarks.addTo(benchmarks);
+        DateFormatterBenchmarks.addTo(benchmarks);
+        PathBenchmarks.addTo(benchmarks);
+        benchmarks.add(new LoopbackBenchmark());
+
+        return benchmarks;
+    }
+
+    /**
+     * Misst einen Benchmark
+     *
+     * @param benchmark Benchmark
+     *
+     * @return Ergebnis der gemessenen Runden
+     *
+     * @throws Exception Wird geworfen falls der Benchmark fehlschlägt
+     */
+    private static Result measure(Benchmark benchmark) throws Exception {
+        benchmark.setUp();
+
+        try {
+            for (int i = 0; i < WARMUP_ITERATIONS; i++){
+                iteration(benchmark);
+            }
+
+            double[] scores = new double[MEASUREMENT_ITERATIONS];
+
+            for (int i = 0; i < MEASUREMENT_ITERATIONS; i++){
+                scores[i] = iteration(benchmark);
+            }
+
+            return new Result(benchmark.getName(), scores);
+        } finally {
+            benchmark.tearDown();
+        }
+    }
+
+    /**
+     * Führt eine Runde aus. Die Zeit wird nur alle paar Operationen gelesen, damit kurze Operationen nicht
+     * von {@link System#nanoTime()} dominiert werden.
+     *
+     * @param benchmark Benchmark
+     *
+     * @return Nanosekunden pro Operation
+     *
+     * @throws Exception Wird geworfen falls der Benchmark fehlschlägt
+     */
+    private static double iteration(Benchmark benchmark) throws Exception {
+        long budget = ITERATION_TIME * 1_000_000L;
+        long start = System.nanoTime();
+        long elapsed;
+        long operations = 0;
+        long result = 0;
+        int batch = 1;
+
+        do {
+            for (int i = 0; i < batch; i++){
+                result += benchmark.run();
+            }
+
+            operations += batch;
+            elapsed = System.nanoTime() - start;
+
+            if (batch < 1024){
+                batch <<= 1;
+            }
+        } while (elapsed < budget);
+
+        sink += result;
+
+        return (double) elapsed / operations;
+    }
+
+    /**
+     * Schreibt die Ergebnisse im Format der JMH Ergebnisdateien (-rf json)
+     *
+     * @param results Ergebnisse
+     *
+     * @throws IOException Wird geworfen falls die Datei nicht geschrieben werden kann
+     */
+    private static void writeJson(List<Result> results) throws IOException {
+        try (Writer writer = Files.newBufferedWriter(Paths.get(RESULT_FILE), StandardCharsets.UTF_8)) {
+            writer.write("[\n");
+
+            for (int r = 0; r < results.size(); r++){
+                Result result = results.get(r);
+
+                writer.write("    {\n");
+                writer.write("        \"benchmark\" : \"" + result.name + "\",\n");
+                writer.write("        \"mode\" : \"avgt\",\n");
+                writer.write("        \"threads\" : 1,\n");
+                writer.write("        \"warmupIterations\" : " + WARMUP_ITERATIONS + ",\n");
+                writer.write("        \"warmupTime\" : \"" + ITERATION_TIME + " ms\",\n");
+                writer.write("        \"measurementIterations\" : " + MEASUREMENT_ITERATIONS + ",\n");
+                writer.write("        \"measurementTime\" : \"" + ITERATION_TIME + " ms\",\n");
+                writer.write("        \"jvm\" : \"" + System.getProperty("java.home").replace("\\", "\\\\") + "\",\n");
+                writer.write("        \"vmVersion\" : \"" + System.getProperty("java.vm.version") + "\",\n");
+                writer.write("        \"primaryMetric\" : {\n");
+                writer.write("            \"score\" : " + number(result.mean()) + ",\n");
+                writer.write("            \"scoreError\" : " + number(result.error()) + ",\n");
+                writer.write("            \"scoreUnit\" : \"ns/op\",\n");
+                writer.write("            \"rawData\" : [\n                [\n");
+
+                for (int i = 0; i < result.scores.length; i++){
+                    writer.write("                    " + number(result.scores[i]) + (i + 1 < result.scores.length ? ",\n" : "\n"));
+                }
+
+                writer.write("                ]\n            ]\n        }\n");
+                writer.write(r + 1 < results.size() ? "    },\n" : "    }\n");
+            }
+
+            writer.write("]\n");
+        }
+    }
+
+    /**
+     * Formatiert eine Zahl für JSON
+     *
+     * @param value Zahl
+     *
+     * @return Zahl als String, "NaN" als String falls die Zahl nicht definiert ist
+     */
+    private static String number(double value) {
+        return Double.isNaN(value) ? "\"NaN\"" : String.format(Locale.ROOT, "%.3f", value);
+    }
+}
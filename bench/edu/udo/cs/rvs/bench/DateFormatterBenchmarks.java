@@ -0,0 +1,41 @@
+package edu.udo.cs.rvs.bench;
+
+import edu.udo.cs.rvs.DateFormatter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Benchmarks für {@link DateFormatter} mit den drei Datumsformaten von HTTP
+ */
+class DateFormatterBenchmarks {
+
+    /**
+     * Fügt die Benchmarks hinzu
+     *
+     * @param benchmarks Liste der Benchmarks
+     */
+    static void addTo(List<Benchmark> benchmarks) {
+        benchmarks.add(parse("DateFormatter.parseRfc1123", "Sun, 06 Nov 1994 08:49:37 GMT"));
+        benchmarks.add(parse("DateFormatter.parseRfc850", "Sunday, 06-Nov-94 08:49:37 GMT"));
+        benchmarks.add(parse("DateFormatter.parseAsctime", "Sun Nov  6 08:49:37 1994"));
+        benchmarks.add(parse("DateFormatter.parseInvalid", "yesterday around noon"));
+
+        long[] millis = {784111777000L};
+        benchmarks.add(Benchmark.of("DateFormatter.format", () -> DateFormatter.formatDate(millis[0] += 1000).length()));
+    }
+
+    /**
+     * Erstellt einen Benchmark für ein Datum
+     *
+     * @param name Name des Benchmarks
+     * @param date Datum als Text
+     *
+     * @return Benchmark
+     */
+    private static Benchmark parse(String name, String date) {
+        byte[] buffer = date.getBytes(StandardCharsets.ISO_8859_1);
+
+        return Benchmark.of(name, () -> DateFormatter.parseDate(buffer, 0, buffer.length));
+    }
+}
@@ -0,0 +1,159 @@
+package edu.udo.cs.rvs.bench;
+
+import edu.udo.cs.rvs.server.ServerEngine;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Misst eine vollständige Anfrage über Loopback gegen die in rvs.engine gewählte Engine, welche den Beispiel
+ * wwwroot ausliefert. Die Verbindung bleibt offen und wird nur neu aufgebaut wenn der Server sie schließt.
+ */
+class LoopbackBenchmark implements Benchmark {
+
+    /**
+     * Gesendete Anfrage
+     */
+    private static final byte[] REQUEST = "GET /index.html HTTP/1.1\r\nHost: localhost\r\nConnection: keep-alive\r\n\r\n"
+            .getBytes(StandardCharsets.ISO_8859_1);
+
+    /**
+     * Laufende Engine
+     */
+    private ServerEngine engine;
+
+    /**
+     * Port der Engine
+     */
+    private int port;
+
+    /**
+     * Verbindung zum Server
+     */
+    private Socket socket;
+
+    /**
+     * Eingabe der Verbindung
+     */
+    private InputStream in;
+
+    /**
+     * Ausgabe der Verbindung
+     */
+    private OutputStream out;
+
+    /**
+     * Puffer für Kopf und Körper der Antwort
+     */
+    private final byte[] buffer = new byte[64 * 1024];
+
+    @Override
+    public String getName() {
+        return "Loopback.getIndex";
+    }
+
+    @Override
+    public void setUp() throws Exception {
+        try (ServerSocket probe = new ServerSocket(0)) {
+            port = probe.getLocalPort();
+        }
+
+        engine = ServerEngine.create();
+        engine.start(port);
+    }
+
+    @Override
+    public long run() throws Exception {
+        if (socket == null){
+            connect();
+        }
+
+        out.write(REQUEST);
+        out.flush();
+
+        return readResponse();
+    }
+
+    /**
+     * Baut die Verbindung zum Server auf
+     *
+     * @throws IOException Wird geworfen falls die Verbindung nicht aufgebaut werden kann
+     */
+    private void connect() throws IOException {
+        socket = new Socket();
+        socket.setTcpNoDelay(true);
+        socket.connect(new InetSocketAddress("127.0.0.1", port));
+
+        in = socket.getInputStream();
+        out = socket.getOutputStream();
+    }
+
+    /**
+     * Liest eine Antwort anhand ihres Content-Length Headers
+     *
+     * @return Anzahl der gelesenen Bytes
+     *
+     * @throws IOException Wird geworfen falls die Antwort unvollständig ist
+     */
+    private long readResponse() throws IOException {
+        int length = 0;
+        int headEnd = -1;
+
+        while (headEnd == -1){
+            int read = in.read(buffer, length, buffer.length - length);
+
+            if (read == -1){
+                throw new IOException("Connection closed before end of response head");
+            }
+
+            for (int i = Math.max(3, length - 3); i < length + read; i++){
+                if (buffer[i - 3] == '\r' && buffer[i - 2] == '\n' && buffer[i - 1] == '\r' && buffer[i] == '\n'){
+                    headEnd = i + 1;
+                    break;
+                }
+            }
+
+            length += read;
+        }
+
+        String head = new String(buffer, 0, headEnd, StandardCharsets.ISO_8859_1);
+        int start = head.indexOf("Content-Length: ") + "Content-Length: ".length();
+        long remaining = Long.parseLong(head.substring(start, head.indexOf('\r', start))) - (length - headEnd);
+
+        while (remaining > 0){
+            int read = in.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+
+            if (read == -1){
+                throw new IOException("Connection closed before end of response body");
+            }
+
+            remaining -= read;
+        }
+
+        if (head.contains("Connection: close")){
+            //Maximale Anzahl an Anfragen der Verbindung erreicht
+            socket.close();
+            socket = null;
+        }
+
+        return headEnd;
+    }
+
+    @Override
+    public void tearDown() {
+        try {
+            if (socket != null){
+                socket.close();
+            }
+        } catch (IOException e) {
+            //Verbindung ist bereits geschlossen
+        }
+
+        engine.stop();
+    }
+}
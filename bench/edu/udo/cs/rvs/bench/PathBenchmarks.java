@@ -0,0 +1,43 @@
+package edu.udo.cs.rvs.bench;
+
+import edu.udo.cs.rvs.cache.ResolvedPathCache;
+import edu.udo.cs.rvs.request.PathNormalizer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Benchmarks für die Prüfung der Ziele von Anfragen. Die frühere Prüfung checkPathForSecurity ist in
+ * {@link PathNormalizer} und {@link ResolvedPathCache} aufgegangen, gemessen werden daher diese beiden.
+ */
+class PathBenchmarks {
+
+    /**
+     * Fügt die Benchmarks hinzu
+     *
+     * @param benchmarks Liste der Benchmarks
+     */
+    static void addTo(List<Benchmark> benchmarks) {
+        benchmarks.add(normalize("PathNormalizer.plain", "/subfolder/aufgabenstellung.pdf"));
+        benchmarks.add(normalize("PathNormalizer.encodedDotSegments", "/a/./b/../subfolder/%61ufgabe%20stellung.pdf?x=1"));
+        benchmarks.add(normalize("PathNormalizer.escape", "/subfolder/../../unreachable.html"));
+
+        benchmarks.add(Benchmark.of("ResolvedPathCache.hit", () ->
+                ResolvedPathCache.getInstance().resolve("/subfolder/aufgabenstellung.pdf").getKey().length()));
+    }
+
+    /**
+     * Erstellt einen Benchmark für ein Ziel
+     *
+     * @param name Name des Benchmarks
+     * @param target Ziel der Anfrage
+     *
+     * @return Benchmark
+     */
+    private static Benchmark normalize(String name, String target) {
+        byte[] in = target.getBytes(StandardCharsets.ISO_8859_1);
+        byte[] out = new byte[in.length + 1];
+
+        return Benchmark.of(name, () -> PathNormalizer.normalize(in, 0, in.length, out));
+    }
+}
@@ -0,0 +1,73 @@
+package edu.udo.cs.rvs.bench;
+
+import edu.udo.cs.rvs.ServerConfig;
+import edu.udo.cs.rvs.request.Request;
+import edu.udo.cs.rvs.request.RequestParser;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Benchmarks für das Lesen von Anfragen: direkt aus einem Byte Puffer wie in den Engines und über den
+ * {@link BufferedReader} Konstruktor von {@link Request}
+ */
+class RequestBenchmarks {
+
+    /**
+     * Typische Anfrage eines Browsers
+     */
+    static final String BROWSER_REQUEST = "GET /index.html HTTP/1.1\r\n"
+            + "Host: localhost:8080\r\n"
+            + "User-Agent: Mozilla/5.0 (X11; Linux x86_64; rv:109.0) Gecko/20100101 Firefox/115.0\r\n"
+            + "Accept: text/html,application/xhtml+xml,application/xml;q=0.9,image/avif,image/webp,*/*;q=0.8\r\n"
+            + "Accept-Language: de,en-US;q=0.7,en;q=0.3\r\n"
+            + "Accept-Encoding: gzip, deflate, br\r\n"
+            + "Connection: keep-alive\r\n"
+            + "If-Modified-Since: Fri, 11 Jan 2019 15:16:33 GMT\r\n"
+            + "\r\n";
+
+    /**
+     * Kleinste gültige Anfrage
+     */
+    static final String MINIMAL_REQUEST = "GET / HTTP/1.1\r\nHost: x\r\n\r\n";
+
+    /**
+     * Fügt die Benchmarks hinzu
+     *
+     * @param benchmarks Liste der Benchmarks
+     */
+    static void addTo(List<Benchmark> benchmarks) {
+        benchmarks.add(parse("RequestParser.parseBrowser", BROWSER_REQUEST));
+        benchmarks.add(parse("RequestParser.parseMinimal", MINIMAL_REQUEST));
+
+        benchmarks.add(Benchmark.of("Request.fromBufferedReader", () -> {
+            Request request = new Request(new BufferedReader(new StringReader(BROWSER_REQUEST)));
+
+            return request.getRequestedPath().length();
+        }));
+    }
+
+    /**
+     * Erstellt einen Benchmark welcher eine Anfrage aus einem Byte Puffer liest
+     *
+     * @param name Name des Benchmarks
+     * @param head Anfragekopf
+     *
+     * @return Benchmark
+     */
+    private static Benchmark parse(String name, String head) {
+        byte[] buffer = head.getBytes(StandardCharsets.ISO_8859_1);
+        RequestParser parser = new RequestParser(ServerConfig.MAX_REQUEST_LINE, ServerConfig.MAX_HEADER_SIZE);
+
+        return Benchmark.of(name, () -> {
+            parser.reset(0);
+            parser.parse(buffer, buffer.length);
+
+            Request request = new Request(buffer, parser);
+
+            return request.isKeepAlive() ? 1 : 0;
+        });
+    }
+}
@@ -0,0 +1,117 @@
+package edu.udo.cs.rvs.bench;
+
+import edu.udo.cs.rvs.ServerConfig;
+import edu.udo.cs.rvs.request.Request;
+import edu.udo.cs.rvs.request.RequestParser;
+import edu.udo.cs.rvs.response.Response;
+import edu.udo.cs.rvs.response.ResponseBuffer;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Benchmarks für das Erstellen und Senden von Antworten aus dem Zwischenspeicher des Servers. Die Anfragen
+ * werden einmal gelesen, gemessen wird nur {@link Response}.
+ */
+class ResponseBenchmarks {
+
+    /**
+     * Ausgabe welche alle Bytes verwirft
+     */
+    private static class NullOutputStream extends OutputStream {
+
+        /**
+         * Anzahl der geschriebenen Bytes
+         */
+        private long written;
+
+        @Override
+        public void write(int b) {
+            written++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            written += len;
+        }
+    }
+
+    /**
+     * Fügt die Benchmarks hinzu
+     *
+     * @param benchmarks Liste der Benchmarks
+     */
+    static void addTo(List<Benchmark> benchmarks) {
+        benchmarks.add(header("Response.headerOnly", "HEAD /index.html HTTP/1.1\r\nHost: x\r\n\r\n"));
+        benchmarks.add(header("Response.notModified", "GET /index.html HTTP/1.1\r\nHost: x\r\n"
+                + "If-Modified-Since: Fri, 01 Jan 2100 00:00:00 GMT\r\n\r\n"));
+        benchmarks.add(header("Response.notFound", "GET /nope.html HTTP/1.1\r\nHost: x\r\n\r\n"));
+        benchmarks.add(send("Response.sendIndexToStream", "GET /index.html HTTP/1.1\r\nHost: x\r\n\r\n"));
+        benchmarks.add(send("Response.sendGzipToStream", "GET /index.html HTTP/1.1\r\nHost: x\r\nAccept-Encoding: gzip\r\n\r\n"));
+    }
+
+    /**
+     * Erstellt einen Benchmark welcher Antworten in einen wiederverwendeten {@link ResponseBuffer} schreibt,
+     * wie die nicht blockierende Engine
+     *
+     * @param name Name des Benchmarks
+     * @param head Anfragekopf
+     *
+     * @return Benchmark
+     */
+    private static Benchmark header(String name, String head) {
+        Request request = parse(head);
+        ResponseBuffer out = new ResponseBuffer();
+
+        return Benchmark.of(name, () -> {
+            out.reset();
+
+            Response response = new Response(request, out, true);
+            response.setDeferChannelBody(true);
+            response.sendResponse();
+
+            return out.size();
+        });
+    }
+
+    /**
+     * Erstellt einen Benchmark welcher Antworten vollständig in einen Ausgabestrom schreibt, wie die
+     * blockierende Engine
+     *
+     * @param name Name des Benchmarks
+     * @param head Anfragekopf
+     *
+     * @return Benchmark
+     */
+    private static Benchmark send(String name, String head) {
+        Request request = parse(head);
+        NullOutputStream out = new NullOutputStream();
+
+        return Benchmark.of(name, () -> {
+            new Response(request, out, true).sendResponse();
+
+            return out.written;
+        });
+    }
+
+    /**
+     * Liest eine Anfrage
+     *
+     * @param head Anfragekopf
+     *
+     * @return Anfrage
+     */
+    private static Request parse(String head) {
+        byte[] buffer = head.getBytes(StandardCharsets.ISO_8859_1);
+        RequestParser parser = new RequestParser(ServerConfig.MAX_REQUEST_LINE, ServerConfig.MAX_HEADER_SIZE);
+
+        try {
+            parser.parse(buffer, buffer.length);
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Invalid request head: " + head, e);
+        }
+
+        return new Request(buffer, parser);
+    }
+}
@@ -1,68 +1,231 @@
 package edu.udo.cs.rvs;
 
-import java.util.Date;
-
 /**
- * Klasse welche einen String in ein Datum konvertiert
+ * Klasse welche HTTP Datumsangaben (RFC 7231) liest und schreibt. Gelesen werden die Formate RFC 1123
+ * ("Sun, 06 Nov 1994 08:49:37 GMT"), RFC 850 ("Sunday, 06-Nov-94 08:49:37 GMT") und asctime
+ * ("Sun Nov  6 08:49:37 1994"). Alle Zeiten sind in GMT. Die Methoden haben keinen Zustand, sind daher
+ * threadsicher und das Lesen erzeugt keine Objekte.
  */
 public class DateFormatter {
 
     /**
-     * Konvertiert einen String in ein Datum Objekt
+     * Wert für ein ungültiges Datum
+     */
+    public static final long INVALID = -1;
+
+    /**
+     * Namen der Monate in der Reihenfolge Januar bis Dezember
+     */
+    private static final String[] MONTHS = {"Jan", "Feb", "Mar", "Apr", "May", "Jun", "Jul", "Aug", "Sep", "Oct", "Nov", "Dec"};
+
+    /**
+     * Namen der Wochentage beginnend mit Donnerstag (1.1.1970)
+     */
+    private static final String[] DAYS = {"Thu", "Fri", "Sat", "Sun", "Mon", "Tue", "Wed"};
+
+    /**
+     * Konvertiert ein Datum aus einem Bereich eines Byte Arrays
      *
-     * @param dateString String des Datums
+     * @param buf Puffer mit dem Datum
+     * @param start Beginn des Datums
+     * @param end Ende des Datums
      *
-     * @return Datum Objekt erzeugt aus dem String
+     * @return Datum in Millisekunden oder {@link #INVALID} falls das Datum ungültig ist
      */
-    @SuppressWarnings("deprecation")
-    public static Date parseDate(String dateString){
-        Date date = new Date();
+    public static long parseDate(byte[] buf, int start, int end){
+        int comma = indexOf(buf, start, end, ',');
 
-        dateString = dateString.replace(":", " ");
-        String[] dateParts = dateString.split(" ");
+        if (comma != -1){
+            int p = comma + 1;
+            while (p < end && buf[p] == ' '){
+                p++;
+            }
 
-        date.setDate(Integer.parseInt(dateParts[1]));
-        date.setMonth(decodeMonth(dateParts[2]));
-        date.setYear(Integer.parseInt(dateParts[3])-1900);
-        date.setHours(Integer.parseInt(dateParts[4]));
-        date.setMinutes(Integer.parseInt(dateParts[5]));
-        date.setSeconds(Integer.parseInt(dateParts[6]));
+            if (p + 2 < end && buf[p + 2] == '-'){
+                //RFC 850: 06-Nov-94 08:49:37 GMT
+                if (end - p != 22 || buf[p + 6] != '-' || buf[p + 9] != ' ' || buf[p + 18] != ' ' || !isGmt(buf, p + 19)){
+                    return INVALID;
+                }
 
-        return date;
+                int year = number(buf, p + 7, 2);
+                if (year != -1){
+                    year += year < 70 ? 2000 : 1900;
+                }
+
+                return toMillis(year, decodeMonth(buf, p + 3), number(buf, p, 2), buf, p + 10);
+            }
+
+            //RFC 1123: 06 Nov 1994 08:49:37 GMT
+            if (end - p != 24 || buf[p + 2] != ' ' || buf[p + 6] != ' ' || buf[p + 11] != ' ' || buf[p + 20] != ' ' || !isGmt(buf, p + 21)){
+                return INVALID;
+            }
+
+            return toMillis(number(buf, p + 7, 4), decodeMonth(buf, p + 3), number(buf, p, 2), buf, p + 12);
+        }
+
+        //asctime: Sun Nov  6 08:49:37 1994
+        if (end - start != 24 || buf[start + 3] != ' ' || buf[start + 7] != ' ' || buf[start + 10] != ' ' || buf[start + 19] != ' '){
+            return INVALID;
+        }
+
+        int day = buf[start + 8] == ' ' ? number(buf, start + 9, 1) : number(buf, start + 8, 2);
+
+        return toMillis(number(buf, start + 20, 4), decodeMonth(buf, start + 4), day, buf, start + 11);
     }
 
     /**
-     * Wandelt einen Monats String zu einer Zahl des Monats
+     * Wandelt ein Datum in das Format RFC 1123 um, z.B. "Sun, 06 Nov 1994 08:49:37 GMT"
+     *
+     * @param millis Datum in Millisekunden
      *
-     * @param month String des Monats (3 Zeichern lang)
-     * @return Zahl 0-11 (0: Januar, 11: Dezember)
+     * @return Datum als String
      */
-    private static int decodeMonth(String month){
-        switch (month){
-            case "Jan":
-                return 0;
-            case "Feb":
-                return 1;
-            case "Mar":
-                return 2;
-            case "Apr":
-                return 3;
-            case "May":
-                return 4;
-            case "Jun":
-                return 5;
-            case "Jul":
-                return 6;
-            case "Aug":
-                return 7;
-            case "Sep":
-                return 8;
-            case "Oct":
-                return 9;
-            case "Nov":
-                return 10;
-            case "Dec":
-                return 11;
+    public static String formatDate(long millis){
+        long seconds = Math.floorDiv(millis, 1000);
+        long days = Math.floorDiv(seconds, 86400);
+        int secondOfDay = (int) (seconds - days * 86400);
+
+        //Umrechnung der Tage seit 1970 in ein Datum des gregorianischen Kalenders
+        long z = days + 719468;
+        long era = Math.floorDiv(z, 146097);
+        long dayOfEra = z - era * 146097;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long mp = (5 * dayOfYear + 2) / 153;
+        int day = (int) (dayOfYear - (153 * mp + 2) / 5 + 1);
+        int month = (int) (mp < 10 ? mp + 3 : mp - 9);
+        long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+
+        StringBuilder builder = new StringBuilder(29);
+
+        builder.append(DAYS[(int) Math.floorMod(days, 7L)]).append(", ");
+        appendTwoDigits(builder, day).append(' ').append(MONTHS[month - 1]).append(' ').append(year).append(' ');
+        appendTwoDigits(builder, secondOfDay / 3600).append(':');
+        appendTwoDigits(builder, secondOfDay / 60 % 60).append(':');
+        appendTwoDigits(builder, secondOfDay % 60).append(" GMT");
+
+        return builder.toString();
+    }
+
+    /**
+     * Hängt eine Zahl zweistellig an
+     *
+     * @param builder Ziel
+     * @param value Zahl zwischen 0 und 99
+     *
+     * @return Ziel
+     */
+    private static StringBuilder appendTwoDigits(StringBuilder builder, int value){
+        return builder.append((char) ('0' + value / 10)).append((char) ('0' + value % 10));
+    }
+
+    /**
+     * Berechnet die Millisekunden eines Datums und liest dabei die Uhrzeit im Format HH:MM:SS
+     *
+     * @param year Jahr
+     * @param month Monat 0-11
+     * @param day Tag des Monats
+     * @param buf Puffer mit der Uhrzeit
+     * @param time Beginn der Uhrzeit
+     *
+     * @return Datum in Millisekunden oder {@link #INVALID} falls ein Teil ungültig ist
+     */
+    private static long toMillis(int year, int month, int day, byte[] buf, int time){
+        if (buf[time + 2] != ':' || buf[time + 5] != ':'){
+            return INVALID;
+        }
+
+        int hours = number(buf, time, 2);
+        int minutes = number(buf, time + 3, 2);
+        int seconds = number(buf, time + 6, 2);
+
+        if (year < 1970 || month == -1 || day < 1 || day > 31 || hours == -1 || hours > 23
+                || minutes == -1 || minutes > 59 || seconds == -1 || seconds > 60){
+            return INVALID;
+        }
+
+        //Tage seit 1970 für ein Datum des gregorianischen Kalenders
+        int y = month < 2 ? year - 1 : year;
+        int m = month < 2 ? month + 13 : month + 1;
+        long era = y / 400;
+        long yearOfEra = y - era * 400;
+        long dayOfYear = (153L * (m - 3) + 2) / 5 + day - 1;
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        long days = era * 146097 + dayOfEra - 719468;
+
+        return ((days * 24 + hours) * 60 + minutes) * 60000L + seconds * 1000L;
+    }
+
+    /**
+     * Liest eine Dezimalzahl fester Länge
+     *
+     * @param buf Puffer
+     * @param start Beginn der Zahl
+     * @param length Anzahl der Ziffern
+     *
+     * @return Zahl oder -1 falls ein Zeichen keine Ziffer ist
+     */
+    private static int number(byte[] buf, int start, int length){
+        int value = 0;
+
+        for (int i = start; i < start + length; i++){
+            if (buf[i] < '0' || buf[i] > '9'){
+                return -1;
+            }
+
+            value = value * 10 + buf[i] - '0';
+        }
+
+        return value;
+    }
+
+    /**
+     * Prüft ob an einer Position "GMT" steht
+     *
+     * @param buf Puffer
+     * @param start Position
+     *
+     * @return Wahr wenn "GMT" an der Position steht
+     */
+    private static boolean isGmt(byte[] buf, int start){
+        return buf[start] == 'G' && buf[start + 1] == 'M' && buf[start + 2] == 'T';
+    }
+
+    /**
+     * Sucht ein Zeichen in einem Bereich
+     *
+     * @param buf Puffer
+     * @param start Beginn des Bereichs
+     * @param end Ende des Bereichs
+     * @param c Gesuchtes Zeichen
+     *
+     * @return Position des Zeichens oder -1
+     */
+    private static int indexOf(byte[] buf, int start, int end, char c){
+        for (int i = start; i < end; i++){
+            if (buf[i] == c){
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * Wandelt einen Monats Namen zu einer Zahl des Monats
+     *
+     * @param buf Puffer mit dem Namen des Monats (3 Zeichen lang)
+     * @param start Beginn des Namens
+     *
+     * @return Zahl 0-11 (0: Januar, 11: Dezember) oder -1
+     */
+    private static int decodeMonth(byte[] buf, int start){
+        for (int i = 0; i < MONTHS.length; i++){
+            String month = MONTHS[i];
+
+            if (buf[start] == month.charAt(0) && buf[start + 1] == month.charAt(1) && buf[start + 2] == month.charAt(2)){
+                return i;
+            }
         }
 
         return -1;
@@ -1,7 +1,12 @@
 package edu.udo.cs.rvs;
 
-import edu.udo.cs.rvs.request.Request;
-import edu.udo.cs.rvs.response.Response;
+import edu.udo.cs.rvs.cache.ContentCache;
+import edu.udo.cs.rvs.cache.MetadataIndex;
+import edu.udo.cs.rvs.limit.ClientLimiter;
+import edu.udo.cs.rvs.log.AccessLog;
+import edu.udo.cs.rvs.metrics.ServerMetrics;
+import edu.udo.cs.rvs.response.MimeRegistry;
+import edu.udo.cs.rvs.server.ServerEngine;
 
 import java.io.*;
 import java.lang.*;
@@ -33,9 +38,9 @@ public class HttpServer
     private int port;
 
     /**
-     * Socket welcher auf ankommende Verbindungen wartet.
+     * Engine welche die Verbindungen annimmt und verarbeitet.
      */
-    private ServerSocket serverSocket;
+    private ServerEngine engine;
 
     /**
      * Server ist online.
@@ -69,117 +74,74 @@ public class HttpServer
 
             System.exit(1);
         }
-        try {
-            serverSocket = new ServerSocket();
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
+
+        engine = ServerEngine.create();
     }
 
     /**
      * Diese Methode oeffnet einen Port, auf dem der HTTP-Server lauscht.
-     * Eingehende Verbindungen werden in einem eigenen Thread behandelt und verarbeitet.
+     * Eingehende Verbindungen werden von der beim Start gewaehlten Engine behandelt und verarbeitet.
      */
     public void startServer()
     {
         System.out.println("Starting Server on Port " + port);
-        if(!available(port)){
+
+        try {
+            //Der Port wird direkt gebunden, statt ihn vorher mit Test-Sockets zu prüfen
+            engine.start(port);
+        } catch (BindException e) {
             System.out.println("Server start failed: " + port + " is already in use by another application");
             online = false;
             return;
+        } catch (IOException e) {
+            e.printStackTrace();
+            online = false;
+            return;
         }
-        
-        online = true;
-
-        initCommands();
-
-        try {
-            serverSocket.bind(new InetSocketAddress(port));
 
-            Thread thread = new Thread(() -> {
-                while (online){
-                    try {
-                        Socket client = serverSocket.accept();
-
-                        System.out.println("Client connected from " + client.getRemoteSocketAddress().toString() + " connected.");
-
-                        PrintWriter out = new PrintWriter(client.getOutputStream(), true);
-
-                        BufferedReader in = new BufferedReader(new InputStreamReader(client.getInputStream()));
-
-                        Thread clientThread = new Thread(() -> {
-                            try {
-                                Request request = new Request(in);
-
-                                Response response = new Response(request, client.getOutputStream());
-
-                                response.sendResponse();
-
-                                client.close();
-
-                            } catch (Exception e) {
-                                //Unerwarteter Fehler aufgetreten
-
-                                Response.sendErrorResponse(out, e);
-                            }
-                        });
+        online = true;
 
-                        clientThread.start();
+        System.out.println("Using " + engine.getName() + " engine.");
 
-                    } catch (SocketException e){
-                        //Fehler welcher beim beenden des Serves auftritt.
-                    } catch (IOException e) {
-                        //Fehler beim annehmen eines Nutzers
+        //MIME-Typen beim Start statt bei der ersten Anfrage lesen
+        MimeRegistry.getInstance();
 
-                        e.printStackTrace();
-                    }
-                }
-            });
-            thread.start();
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
+        initCommands();
     }
-    
-    
-    /**
-     * Überprüft, ob der übergebene Port frei ist
 
+    /**
+     * Wechselt den Port ohne Unterbrechung. Der neue Port wird gebunden bevor der alte geschlossen wird,
+     * bestehende Verbindungen bleiben offen.
+     *
      * @param port
-     *            der zu überprüfende Port
+     *              der neue Port
      */
-    public static boolean available(int port){
-    if (port < 0 || port > 65535) {
-        //throw new IllegalArgumentException("Given Port is out of range " + port);
-
-        return false;
-    }
+    private void changePort(int port){
+        if(port < 0 || port > 65535){
+            System.out.println("Given Port was out of Range.");
+            return;
+        }
 
-    ServerSocket ss = null;
-    DatagramSocket ds = null;
-    try {
-        ss = new ServerSocket(port);
-        ss.setReuseAddress(true);
-        ds = new DatagramSocket(port);
-        ds.setReuseAddress(true);
-        return true;
-    } catch (IOException e) {
-    } finally {
-        if (ds != null) {
-            ds.close();
+        if (port == this.port){
+            System.out.println("Server already connected to Port " + port + ".");
+            return;
         }
 
-        if (ss != null) {
-            try {
-                ss.close();
-            } catch (IOException e) {
-                /* should not be thrown */
-            }
+        try {
+            engine.rebind(port, ServerConfig.REBIND_WINDOW);
+        } catch (BindException e) {
+            System.out.println("Port change failed: " + port + " is already in use by another application");
+            return;
+        } catch (IOException e) {
+            System.out.println("Port change failed: " + e.getMessage());
+            return;
         }
-    }
 
-    return false;
-}
+        System.out.println("Server connected to Port " + port + ". Port " + this.port + " accepts connections for another "
+                + ServerConfig.REBIND_WINDOW + " ms.");
+
+        this.port = port;
+    }
 
     /**
      * Initialisierung der verfügabren Kommados
@@ -209,16 +171,23 @@ public class HttpServer
                     System.out.println("help        List all available commands.");
                     System.out.println("port        Print current Port.");
                     System.out.println("port <Int>  Change Port to <Int>.");
+                    System.out.println("workers     Print active workers, queue depth and accepted connections per acceptor.");
+                    System.out.println("cache       Print cache hits, misses and evictions and the number of indexed files.");
+                    System.out.println("stats       Print requests per method and status code, bytes sent, connections, latency percentiles, timeouts, rejections, errors, client limits and access log counters.");
+                }else if (input.equalsIgnoreCase("cache")){
+                    System.out.println(ContentCache.getInstance().describe());
+                    System.out.println(MetadataIndex.getInstance().describe());
+                }else if (input.equalsIgnoreCase("stats")){
+                    System.out.println(ServerMetrics.getInstance().describe());
+                    System.out.println(ClientLimiter.getInstance().describe());
+                    System.out.println(AccessLog.getInstance().describe());
+                }else if (input.equalsIgnoreCase("workers")){
+                    System.out.println(engine.describe());
                 }else if (splits[0].equalsIgnoreCase("port") && (splits.length == 1 || (splits.length == 2 && port != -1))){
                     if (splits.length == 1){
                         System.out.println("Server connected to Port " + this.port + ".");
                     }else{
-                        dispose();
-
-                        init(port);
-                        startServer();
-
-                        return;
+                        changePort(port);
                     }
                 }else {
                     System.out.println("Unkown Command: " + input + ". Type help for known commands.");
@@ -229,19 +198,20 @@ public class HttpServer
     }
 
     /**
-     * Beenden des Serves
+     * Beenden des Serves. Laufende Anfragen werden bis zur Frist {@link ServerConfig#DRAIN_TIMEOUT} noch beantwortet.
      */
     private void dispose()
     {
-        System.out.println("Stopping Server.");
+        System.out.println("Stopping Server. Waiting up to " + ServerConfig.DRAIN_TIMEOUT + " ms for open requests.");
 
         online = false;
 
-        try {
-            serverSocket.close();
-
-        } catch (IOException e) {
-            e.printStackTrace();
+        if (!engine.shutdown(ServerConfig.DRAIN_TIMEOUT)){
+            System.out.println("Drain timeout reached. Remaining connections were closed.");
         }
+
+        AccessLog.getInstance().close();
+
+        System.out.println("Server stopped.");
     }
 }
@@ -0,0 +1,263 @@
+package edu.udo.cs.rvs;
+
+/**
+ * Konfiguration des Servers. Da die Start-Klasse {@link Main} nicht veraendert werden darf,
+ * werden alle Einstellungen beim Start ueber System Properties (-Drvs.xyz=...) gesetzt.
+ */
+public class ServerConfig {
+
+    /**
+     * Name der Server Engine (blocking oder nio)
+     */
+    public static final String ENGINE = System.getProperty("rvs.engine", "blocking");
+
+    /**
+     * Anzahl der Event-Loop Threads der NIO Engine
+     */
+    public static final int NIO_LOOPS = getInt("rvs.nio.loops", Runtime.getRuntime().availableProcessors());
+
+    /**
+     * Ausführungsmodus der blockierenden Engine (thread, pool oder virtual)
+     */
+    public static final String EXECUTOR = System.getProperty("rvs.executor", "thread");
+
+    /**
+     * Anzahl der Threads im Modus pool
+     */
+    public static final int POOL_SIZE = getInt("rvs.pool.size", Runtime.getRuntime().availableProcessors() * 8);
+
+    /**
+     * Länge der Warteschlange im Modus pool
+     */
+    public static final int POOL_QUEUE = getInt("rvs.pool.queue", 256);
+
+    /**
+     * Verhalten bei vollem Pool (503 oder caller)
+     */
+    public static final String POOL_REJECT = System.getProperty("rvs.pool.reject", "503");
+
+    /**
+     * Anzahl der Kanäle welche mit SO_REUSEPORT auf den gleichen Port gebunden werden, jeder mit eigenem Acceptor
+     */
+    public static final int ACCEPTORS = getInt("rvs.acceptors", 1);
+
+    /**
+     * Länge der Warteschlange des Betriebssystems für noch nicht angenommene Verbindungen
+     */
+    public static final int BACKLOG = getInt("rvs.backlog", 1024);
+
+    /**
+     * Wenn wahr, dann wird TCP_NODELAY auf den Verbindungen gesetzt und kleine Antworten nicht verzögert
+     */
+    public static final boolean TCP_NO_DELAY = Boolean.parseBoolean(System.getProperty("rvs.tcp.nodelay", "true"));
+
+    /**
+     * Größe des Sendepuffers einer Verbindung in Bytes (0 nutzt den Standard des Betriebssystems)
+     */
+    public static final int SEND_BUFFER = getInt("rvs.socket.sndbuf", 0);
+
+    /**
+     * Größe des Empfangspuffers einer Verbindung in Bytes (0 nutzt den Standard des Betriebssystems)
+     */
+    public static final int RECEIVE_BUFFER = getInt("rvs.socket.rcvbuf", 0);
+
+    /**
+     * Wenn wahr, dann wird jede angenommene Verbindung auf der Konsole ausgegeben
+     */
+    public static final boolean LOG_CONNECTIONS = Boolean.parseBoolean(System.getProperty("rvs.log.connections", "false"));
+
+    /**
+     * Maximale Anzahl gleichzeitiger Verbindungen pro Adresse eines Nutzers, weitere werden mit 503 abgelehnt
+     * (0 deaktiviert die Grenze)
+     */
+    public static final int LIMIT_CONNECTIONS = getInt("rvs.limit.connections", 0);
+
+    /**
+     * Anfragen pro Sekunde pro Adresse eines Nutzers, weitere werden mit 429 beantwortet (0 deaktiviert die Grenze)
+     */
+    public static final int LIMIT_RATE = getInt("rvs.limit.rate", 0);
+
+    /**
+     * Anzahl an Anfragen welche eine Adresse ohne Pause stellen darf (0 entspricht {@link #LIMIT_RATE})
+     */
+    public static final int LIMIT_BURST = getInt("rvs.limit.burst", 0);
+
+    /**
+     * Wenn wahr, dann wird HTTP/2 über Klartext (h2c) mit Präfix oder "Upgrade: h2c" angenommen
+     */
+    public static final boolean HTTP2 = Boolean.parseBoolean(System.getProperty("rvs.http2", "true"));
+
+    /**
+     * Maximale Anzahl gleichzeitiger Streams einer HTTP/2 Verbindung
+     */
+    public static final int HTTP2_MAX_STREAMS = getInt("rvs.http2.streams", 100);
+
+    /**
+     * Maximale Länge der Anfragezeile in Bytes
+     */
+    public static final int MAX_REQUEST_LINE = getInt("rvs.requestline.max", 8 * 1024);
+
+    /**
+     * Maximale Größe des Anfragekopfes in Bytes
+     */
+    public static final int MAX_HEADER_SIZE = getInt("rvs.header.max", 16 * 1024);
+
+    /**
+     * Maximale Größe eines Anfragekörpers in Bytes
+     */
+    public static final int MAX_BODY_SIZE = getInt("rvs.body.max", 10 * 1024 * 1024);
+
+    /**
+     * Anfragekörper bis zu dieser Größe in Bytes bleiben im Speicher, größere werden in eine temporäre Datei geschrieben
+     */
+    public static final int BODY_MEMORY_SIZE = getInt("rvs.body.memory", 64 * 1024);
+
+    /**
+     * Zeit in Millisekunden in der nach einem Wechsel des Ports der alte Port weiter Verbindungen annimmt
+     */
+    public static final int REBIND_WINDOW = getInt("rvs.rebind.window", 2000);
+
+    /**
+     * Frist in Millisekunden in der beim Beenden laufende Anfragen noch beantwortet werden
+     */
+    public static final int DRAIN_TIMEOUT = getInt("rvs.drain.timeout", 10000);
+
+    /**
+     * Zeit in Millisekunden nach der eine offene Verbindung ohne neue Anfrage geschlossen wird
+     */
+    public static final int KEEP_ALIVE_TIMEOUT = getInt("rvs.keepalive.timeout", 5000);
+
+    /**
+     * Frist in Millisekunden ab dem ersten Byte einer Anfrage bis ihr Kopf vollständig gelesen ist
+     */
+    public static final int HEADER_TIMEOUT = getInt("rvs.timeout.header", 10000);
+
+    /**
+     * Grundfrist in Millisekunden für das Lesen eines Anfragekörpers, verlängert um die Zeit bei {@link #MIN_RATE}
+     */
+    public static final int BODY_TIMEOUT = getInt("rvs.timeout.body", 10000);
+
+    /**
+     * Grundfrist in Millisekunden für das Senden einer Antwort, verlängert um die Zeit bei {@link #MIN_RATE}
+     */
+    public static final int WRITE_TIMEOUT = getInt("rvs.timeout.write", 10000);
+
+    /**
+     * Mindestrate in Bytes pro Sekunde mit der ein Nutzer Körper sendet bzw. Antworten liest (0 deaktiviert die Regel)
+     */
+    public static final int MIN_RATE = getInt("rvs.timeout.minrate", 1024);
+
+    /**
+     * Maximale Anzahl an Anfragen pro Verbindung (1 deaktiviert persistente Verbindungen)
+     */
+    public static final int KEEP_ALIVE_MAX = getInt("rvs.keepalive.max", 100);
+
+    /**
+     * Dateien ab dieser Größe in Bytes werden mit FileChannel.transferTo statt aus dem Speicher gesendet
+     */
+    public static final int ZERO_COPY_THRESHOLD = getInt("rvs.zerocopy.threshold", 64 * 1024);
+
+    /**
+     * Größe eines Teils eines gestreamten Körpers in Bytes, der nächste Teil wird erst nach dem Senden erzeugt
+     */
+    public static final int STREAM_BUFFER_SIZE = getInt("rvs.stream.buffer", 16 * 1024);
+
+    /**
+     * Wenn wahr, dann werden komprimierbare Dateien ab {@link #ZERO_COPY_THRESHOLD} beim Senden komprimiert
+     */
+    public static final boolean STREAM_COMPRESSION = Boolean.parseBoolean(System.getProperty("rvs.compress.stream", "true"));
+
+    /**
+     * Budget des Datei Zwischenspeichers in Bytes (0 deaktiviert den Zwischenspeicher)
+     */
+    public static final int CACHE_SIZE = getInt("rvs.cache.size", 32 * 1024 * 1024);
+
+    /**
+     * Maximale Anzahl gleichzeitig gemappter Dateien für Range Anfragen
+     */
+    public static final int MMAP_MAX = getInt("rvs.mmap.max", 64);
+
+    /**
+     * Maximale Anzahl an Dateien deren Entity Tag und Last-Modified im Speicher gehalten werden
+     */
+    public static final int METADATA_MAX = getInt("rvs.metadata.max", 10000);
+
+    /**
+     * Maximale Anzahl an Ordnern deren Index Datei bzw. Auflistung im Speicher gehalten wird
+     */
+    public static final int DIRECTORY_INDEX_MAX = getInt("rvs.dirindex.max", 1000);
+
+    /**
+     * Pfad der Datei mit den MIME-Typen im Format von mime.types
+     */
+    public static final String MIME_TYPES = System.getProperty("rvs.mime.types", "mime.types");
+
+    /**
+     * Maximale Anzahl an aufgelösten Zielen von Anfragen im Speicher
+     */
+    public static final int PATH_CACHE_MAX = getInt("rvs.pathcache.max", 10000);
+
+    /**
+     * Wenn wahr, dann wird für Ordner ohne Index Datei eine HTML Auflistung statt 204 gesendet
+     */
+    public static final boolean DIRECTORY_LISTING = Boolean.parseBoolean(System.getProperty("rvs.listing", "false"));
+
+    /**
+     * Reservierter Pfad unter dem die Kennzahlen des Servers als Text abgerufen werden (leer deaktiviert den Abruf)
+     */
+    public static final String STATS_PATH = System.getProperty("rvs.stats.path", "/server-stats");
+
+    /**
+     * Reservierter Pfad unter dem der Zustand des Servers als JSON abgerufen wird (leer deaktiviert den Abruf)
+     */
+    public static final String HEALTH_PATH = System.getProperty("rvs.health.path", "/server-health");
+
+    /**
+     * Datei des Zugriffsprotokolls, "-" für die Konsole (leer deaktiviert das Protokoll)
+     */
+    public static final String ACCESS_LOG = System.getProperty("rvs.accesslog", "");
+
+    /**
+     * Format des Zugriffsprotokolls (common oder combined)
+     */
+    public static final String ACCESS_LOG_FORMAT = System.getProperty("rvs.accesslog.format", "combined");
+
+    /**
+     * Anzahl der Einträge im Ringpuffer des Zugriffsprotokolls, weitere Einträge werden verworfen
+     */
+    public static final int ACCESS_LOG_BUFFER = getInt("rvs.accesslog.buffer", 8192);
+
+    /**
+     * Größe in Bytes ab der die Datei des Zugriffsprotokolls rotiert wird
+     */
+    public static final int ACCESS_LOG_MAX_SIZE = getInt("rvs.accesslog.maxsize", 10 * 1024 * 1024);
+
+    /**
+     * Anzahl der aufbewahrten rotierten Dateien des Zugriffsprotokolls
+     */
+    public static final int ACCESS_LOG_FILES = getInt("rvs.accesslog.files", 5);
+
+    /**
+     * Liest eine Zahl aus den System Properties
+     *
+     * @param key Name der Property
+     * @param defaultValue Wert falls die Property nicht gesetzt oder ungültig ist
+     *
+     * @return Wert der Property
+     */
+    public static int getInt(String key, int defaultValue){
+        String value = System.getProperty(key);
+
+        if (value == null){
+            return defaultValue;
+        }
+
+        try {
+            return Integer.parseInt(value.trim());
+        }catch (NumberFormatException e){
+            System.out.println("Invalid value for " + key + ": " + value + ". Using " + defaultValue + ".");
+
+            return defaultValue;
+        }
+    }
+}
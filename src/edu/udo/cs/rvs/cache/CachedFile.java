@@ -0,0 +1,181 @@
+package edu.udo.cs.rvs.cache;
+
+import java.nio.file.Path;
+
+/**
+ * Eintrag des {@link ContentCache}: Metadaten und bei kleinen Dateien der Inhalt einer Datei
+ */
+public class CachedFile {
+
+    /**
+     * Zusätzliche Bytes welche ein Eintrag unabhängig vom Inhalt im Budget belegt
+     */
+    static final int ENTRY_OVERHEAD = 128;
+
+    /**
+     * Pfad der Datei
+     */
+    private final Path path;
+
+    /**
+     * Inhalt der Datei oder null falls die Datei zu groß für den Speicher ist
+     */
+    private final byte[] content;
+
+    /**
+     * Größe der Datei in Bytes
+     */
+    private final long size;
+
+    /**
+     * Zeitpunkt der letzten Änderung in Millisekunden
+     */
+    private final long lastModified;
+
+    /**
+     * Wenn wahr, dann liegt neben der Datei eine vorkomprimierte .gz Datei
+     */
+    private final boolean gzipSibling;
+
+    /**
+     * Mit gzip komprimierter Inhalt, ein leeres Array falls sich die Komprimierung nicht lohnt, oder null
+     */
+    private volatile byte[] gzipContent;
+
+    /**
+     * Mit deflate komprimierter Inhalt, ein leeres Array falls sich die Komprimierung nicht lohnt, oder null
+     */
+    private volatile byte[] deflateContent;
+
+    /**
+     * Zeitstempel des letzten Zugriffs für die LRU Verdrängung
+     */
+    private volatile long lastAccess;
+
+    /**
+     * Erstellt einen Eintrag
+     *
+     * @param path Pfad der Datei
+     * @param content Inhalt oder null
+     * @param size Größe der Datei in Bytes
+     * @param lastModified Zeitpunkt der letzten Änderung
+     * @param gzipSibling Wahr wenn eine vorkomprimierte .gz Datei existiert
+     */
+    CachedFile(Path path, byte[] content, long size, long lastModified, boolean gzipSibling) {
+        this.path = path;
+        this.content = content;
+        this.size = size;
+        this.lastModified = lastModified;
+        this.gzipSibling = gzipSibling;
+    }
+
+    /**
+     * Gibt den Pfad der Datei zurück
+     *
+     * @return Pfad
+     */
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * Gibt den Inhalt der Datei zurück
+     *
+     * @return Inhalt oder null falls die Datei direkt aus dem Dateisystem gesendet werden muss
+     */
+    public byte[] getContent() {
+        return content;
+    }
+
+    /**
+     * Gibt die Größe der Datei zurück
+     *
+     * @return Größe in Bytes
+     */
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * Gibt den Zeitpunkt der letzten Änderung zurück
+     *
+     * @return Zeitpunkt in Millisekunden
+     */
+    public long getLastModified() {
+        return lastModified;
+    }
+
+    /**
+     * Gibt zurück ob neben der Datei eine vorkomprimierte .gz Datei liegt
+     *
+     * @return Wahr wenn eine .gz Datei existiert
+     */
+    public boolean hasGzipSibling() {
+        return gzipSibling;
+    }
+
+    /**
+     * Gibt den Pfad der vorkomprimierten .gz Datei zurück
+     *
+     * @return Pfad der .gz Datei
+     */
+    public Path getGzipSiblingPath() {
+        return path.resolveSibling(path.getFileName() + ".gz");
+    }
+
+    /**
+     * Gibt den komprimierten Inhalt zurück
+     *
+     * @param encoding Kodierung
+     *
+     * @return Komprimierter Inhalt, leeres Array falls sich die Komprimierung nicht lohnt, oder null falls noch nicht berechnet
+     */
+    byte[] getEncodedContent(String encoding) {
+        return Compression.GZIP.equals(encoding) ? gzipContent : deflateContent;
+    }
+
+    /**
+     * Setzt den komprimierten Inhalt
+     *
+     * @param encoding Kodierung
+     * @param encoded Komprimierter Inhalt
+     */
+    void setEncodedContent(String encoding, byte[] encoded) {
+        if (Compression.GZIP.equals(encoding)){
+            gzipContent = encoded;
+        }else {
+            deflateContent = encoded;
+        }
+    }
+
+    /**
+     * Gibt die Anzahl der Bytes zurück welche der Eintrag im Budget belegt
+     *
+     * @return Belegte Bytes
+     */
+    long getWeight() {
+        byte[] gzip = gzipContent;
+        byte[] deflate = deflateContent;
+
+        return ENTRY_OVERHEAD + (content != null ? content.length : 0)
+                + (gzip != null ? gzip.length : 0) + (deflate != null ? deflate.length : 0);
+    }
+
+    /**
+     * Gibt den Zeitstempel des letzten Zugriffs zurück
+     *
+     * @return Zeitstempel
+     */
+    long getLastAccess() {
+        return lastAccess;
+    }
+
+    /**
+     * Setzt den Zeitstempel des letzten Zugriffs
+     *
+     * @param lastAccess Zeitstempel
+     */
+    void setLastAccess(long lastAccess) {
+        this.lastAccess = lastAccess;
+    }
+}
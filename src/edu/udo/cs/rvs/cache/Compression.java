@@ -0,0 +1,74 @@
+package edu.udo.cs.rvs.cache;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Komprimierung von Antwortkörpern für den Content-Encoding Header
+ */
+public class Compression {
+
+    /**
+     * Name der gzip Kodierung
+     */
+    public static final String GZIP = "gzip";
+
+    /**
+     * Name der deflate Kodierung (zlib Format nach RFC 1950)
+     */
+    public static final String DEFLATE = "deflate";
+
+    /**
+     * Prüft ob sich ein MIME-Typ für die Komprimierung eignet
+     *
+     * @param contentType MIME-Typ samt Parametern
+     *
+     * @return Wahr wenn der Typ komprimiert werden soll
+     */
+    public static boolean isCompressible(String contentType) {
+        return contentType != null && (contentType.startsWith("text/")
+                || contentType.startsWith("application/javascript")
+                || contentType.startsWith("application/json")
+                || contentType.startsWith("application/xml")
+                || contentType.startsWith("image/svg+xml"));
+    }
+
+    /**
+     * Komprimiert Bytes mit der angegebenen Kodierung
+     *
+     * @param content Unkomprimierte Bytes
+     * @param encoding {@link #GZIP} oder {@link #DEFLATE}
+     *
+     * @return Komprimierte Bytes
+     */
+    public static byte[] compress(byte[] content, String encoding) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(content.length / 2 + 64);
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION, false);
+
+        try {
+            if (GZIP.equals(encoding)){
+                try (GZIPOutputStream gzip = new GZIPOutputStream(out) {
+                    {
+                        def.setLevel(Deflater.BEST_COMPRESSION);
+                    }
+                }) {
+                    gzip.write(content);
+                }
+            }else {
+                try (DeflaterOutputStream deflate = new DeflaterOutputStream(out, deflater)) {
+                    deflate.write(content);
+                }
+            }
+        } catch (IOException e) {
+            //Kann bei einem ByteArrayOutputStream nicht auftreten
+            throw new IllegalStateException(e);
+        } finally {
+            deflater.end();
+        }
+
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,463 @@
+package edu.udo.cs.rvs.cache;
+
+import edu.udo.cs.rvs.ServerConfig;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Nebenläufiger Zwischenspeicher für Dateien unter wwwroot. Der Speicher ist durch ein Budget in Bytes begrenzt
+ * und verdrängt die am längsten nicht genutzten Einträge (LRU). Gleichzeitige Fehlzugriffe auf die gleiche Datei
+ * lesen diese nur einmal. Einträge werden über den {@link FileWatcher} bei Änderungen ungültig.
+ * Ist der Zwischenspeicher deaktiviert, so werden nur die wenigen zuletzt komprimierten Dateien behalten, damit nicht
+ * jede Anfrage erneut komprimiert. Diese werden bei jedem Zugriff mit Größe und Zeitpunkt der Datei verglichen.
+ */
+public class ContentCache {
+
+    /**
+     * Maximale Anzahl komprimierter Dateien bei deaktiviertem Zwischenspeicher
+     */
+    private static final int MAX_ENCODED_VARIANTS = 64;
+
+    /**
+     * Zwischenspeicher des Servers
+     */
+    private static ContentCache instance;
+
+    /**
+     * Budget in Bytes, bei 0 wird nichts gespeichert
+     */
+    private final long maxBytes;
+
+    /**
+     * Dateien bis zu dieser Größe werden mit Inhalt gespeichert, größere nur mit Metadaten
+     */
+    private final long maxContentSize;
+
+    /**
+     * Einträge nach absolutem, normalisiertem Pfad
+     */
+    private final Map<Path, CachedFile> entries = new ConcurrentHashMap<>();
+
+    /**
+     * Aktuell laufende Ladevorgänge für das gemeinsame Laden bei gleichzeitigen Fehlzugriffen
+     */
+    private final Map<Path, CompletableFuture<CachedFile>> loading = new ConcurrentHashMap<>();
+
+    /**
+     * Einträge mit komprimierten Varianten bei deaktiviertem Zwischenspeicher
+     */
+    private final Map<Path, CachedFile> encodedVariants = new ConcurrentHashMap<>();
+
+    /**
+     * Aktuell belegte Bytes
+     */
+    private final AtomicLong usedBytes = new AtomicLong();
+
+    /**
+     * Uhr für die Zugriffszeitstempel der LRU Verdrängung
+     */
+    private final AtomicLong clock = new AtomicLong();
+
+    /**
+     * Wird bei jeder Invalidierung erhöht, damit während einer Invalidierung geladene Einträge verworfen werden
+     */
+    private final AtomicLong invalidations = new AtomicLong();
+
+    /**
+     * Treffer
+     */
+    private final LongAdder hits = new LongAdder();
+
+    /**
+     * Fehlzugriffe
+     */
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * Verdrängte Einträge
+     */
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Durch Änderungen im Dateisystem entfernte Einträge
+     */
+    private final LongAdder invalidated = new LongAdder();
+
+    /**
+     * Anzahl der komprimierten Varianten
+     */
+    private final LongAdder compressions = new LongAdder();
+
+    /**
+     * Erstellt den Zwischenspeicher
+     *
+     * @param maxBytes Budget in Bytes
+     * @param maxContentSize Maximale Dateigröße für Einträge mit Inhalt
+     * @param watcher Überwachung des Dateisystems oder null
+     */
+    public ContentCache(long maxBytes, long maxContentSize, FileWatcher watcher) {
+        this.maxBytes = maxBytes;
+        this.maxContentSize = maxContentSize;
+
+        if (watcher != null){
+            watcher.addListener(this::invalidate);
+        }
+    }
+
+    /**
+     * Gibt den Zwischenspeicher des Servers zurück und erstellt ihn beim ersten Aufruf
+     *
+     * @return Zwischenspeicher
+     */
+    public static synchronized ContentCache getInstance() {
+        if (instance == null){
+            FileWatcher watcher = ServerConfig.CACHE_SIZE > 0 ? FileWatcher.getInstance() : null;
+
+            //Ohne Überwachung des Dateisystems würden Änderungen nie sichtbar
+            long maxBytes = watcher != null && watcher.isActive() ? ServerConfig.CACHE_SIZE : 0;
+
+            instance = new ContentCache(maxBytes, ServerConfig.ZERO_COPY_THRESHOLD - 1, watcher);
+        }
+
+        return instance;
+    }
+
+    /**
+     * Gibt den Eintrag einer Datei zurück und lädt ihn bei einem Fehlzugriff
+     *
+     * @param path Absoluter, normalisierter Pfad der Datei
+     *
+     * @return Eintrag oder null falls keine lesbare Datei existiert
+     *
+     * @throws IOException Wird geworfen falls die Datei nicht gelesen werden kann
+     */
+    public CachedFile get(Path path) throws IOException {
+        CachedFile entry = entries.get(path);
+
+        if (entry != null){
+            hits.increment();
+            entry.setLastAccess(clock.incrementAndGet());
+
+            return entry;
+        }
+
+        misses.increment();
+
+        if (maxBytes <= 0){
+            CachedFile variant = encodedVariants.get(path);
+
+            //Ohne Überwachung des Dateisystems wird die Version bei jedem Zugriff geprüft
+            if (variant != null && isCurrent(variant)){
+                variant.setLastAccess(clock.incrementAndGet());
+
+                return variant;
+            }
+
+            return load(path);
+        }
+
+        CompletableFuture<CachedFile> future = new CompletableFuture<>();
+        CompletableFuture<CachedFile> running = loading.putIfAbsent(path, future);
+
+        if (running != null){
+            //Datei wird bereits von einem anderen Thread gelesen
+            return await(running);
+        }
+
+        try {
+            long generation = invalidations.get();
+
+            entry = load(path);
+
+            if (entry != null && invalidations.get() == generation){
+                put(entry);
+            }
+
+            future.complete(entry);
+
+            return entry;
+        } catch (IOException | RuntimeException e) {
+            future.completeExceptionally(e);
+
+            throw e;
+        } finally {
+            loading.remove(path, future);
+        }
+    }
+
+    /**
+     * Wartet auf einen Ladevorgang eines anderen Threads
+     *
+     * @param future Ladevorgang
+     *
+     * @return Geladener Eintrag
+     *
+     * @throws IOException Wird geworfen falls der Ladevorgang fehlgeschlagen ist
+     */
+    private static CachedFile await(CompletableFuture<CachedFile> future) throws IOException {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException){
+                throw (IOException) e.getCause();
+            }
+
+            throw e;
+        }
+    }
+
+    /**
+     * Liest eine Datei aus dem Dateisystem
+     *
+     * @param path Pfad der Datei
+     *
+     * @return Neuer Eintrag oder null falls keine lesbare Datei existiert
+     *
+     * @throws IOException Wird geworfen falls die Datei nicht gelesen werden kann
+     */
+    private CachedFile load(Path path) throws IOException {
+        File file = path.toFile();
+
+        if (!file.isFile() || !file.canRead()){
+            return null;
+        }
+
+        long size = file.length();
+        long lastModified = file.lastModified();
+
+        byte[] content = null;
+        if (size <= maxContentSize && size + CachedFile.ENTRY_OVERHEAD <= Math.max(maxBytes, maxContentSize)){
+            content = Files.readAllBytes(path);
+            size = content.length;
+        }
+
+        boolean gzipSibling = !path.getFileName().toString().endsWith(".gz")
+                && Files.isRegularFile(path.resolveSibling(path.getFileName() + ".gz"));
+
+        CachedFile entry = new CachedFile(path, content, size, lastModified, gzipSibling);
+        entry.setLastAccess(clock.incrementAndGet());
+
+        return entry;
+    }
+
+    /**
+     * Prüft ob ein Eintrag noch zur Datei im Dateisystem passt
+     *
+     * @param entry Eintrag
+     *
+     * @return Wahr wenn Größe und Zeitpunkt der letzten Änderung unverändert sind
+     */
+    private static boolean isCurrent(CachedFile entry) {
+        File file = entry.getPath().toFile();
+
+        return file.lastModified() == entry.getLastModified() && file.length() == entry.getSize();
+    }
+
+    /**
+     * Behält bei deaktiviertem Zwischenspeicher einen Eintrag mit komprimierter Variante. Ist die maximale Anzahl
+     * erreicht, so wird der am längsten nicht genutzte Eintrag verdrängt.
+     *
+     * @param entry Eintrag mit komprimierter Variante
+     */
+    private void putEncodedVariant(CachedFile entry) {
+        CachedFile previous = encodedVariants.put(entry.getPath(), entry);
+
+        if (previous == null && encodedVariants.size() > MAX_ENCODED_VARIANTS){
+            synchronized (encodedVariants){
+                CachedFile oldest = null;
+
+                for (CachedFile candidate : encodedVariants.values()){
+                    if (oldest == null || candidate.getLastAccess() < oldest.getLastAccess()){
+                        oldest = candidate;
+                    }
+                }
+
+                if (oldest != null && encodedVariants.size() > MAX_ENCODED_VARIANTS && encodedVariants.remove(oldest.getPath(), oldest)){
+                    evictions.increment();
+                }
+            }
+        }
+    }
+
+    /**
+     * Speichert einen Eintrag und verdrängt bei Bedarf alte Einträge
+     *
+     * @param entry Neuer Eintrag
+     */
+    private void put(CachedFile entry) {
+        if (entry.getWeight() > maxBytes){
+            return;
+        }
+
+        //getEncoded zählt eine neue Variante nur für Einträge in der Tabelle und unter der Sperre des Eintrags.
+        //Ersetzen und Zählen erfolgen daher unter den Sperren des neuen und des ersetzten Eintrags,
+        //wie in remove, sonst wird eine gleichzeitig gespeicherte Variante doppelt oder gar nicht gezählt.
+        synchronized (entry){
+            while (true){
+                CachedFile previous = entries.putIfAbsent(entry.getPath(), entry);
+
+                if (previous == null){
+                    usedBytes.addAndGet(entry.getWeight());
+
+                    break;
+                }
+
+                synchronized (previous){
+                    if (entries.replace(entry.getPath(), previous, entry)){
+                        usedBytes.addAndGet(entry.getWeight() - previous.getWeight());
+
+                        break;
+                    }
+                }
+            }
+        }
+
+        if (usedBytes.get() > maxBytes){
+            evict();
+        }
+    }
+
+    /**
+     * Verdrängt die am längsten nicht genutzten Einträge, bis ein Achtel des Budgets frei ist. So wird nicht
+     * bei jedem Fehlzugriff nach Erreichen des Budgets erneut sortiert.
+     */
+    private synchronized void evict() {
+        //Threads welche auf die Sperre gewartet haben finden das Budget bereits eingehalten vor
+        if (usedBytes.get() <= maxBytes){
+            return;
+        }
+
+        long target = maxBytes - maxBytes / 8;
+
+        List<CachedFile> candidates = new ArrayList<>(entries.values());
+        candidates.sort(Comparator.comparingLong(CachedFile::getLastAccess));
+
+        for (CachedFile candidate : candidates){
+            if (usedBytes.get() <= target){
+                break;
+            }
+
+            if (remove(candidate)){
+                evictions.increment();
+            }
+        }
+    }
+
+    /**
+     * Entfernt einen Pfad und alle darunter liegenden Pfade
+     *
+     * @param changed Geänderter Pfad oder null um alles zu entfernen
+     */
+    public void invalidate(Path changed) {
+        invalidations.incrementAndGet();
+
+        //Eine neue oder gelöschte .gz Datei ändert den Eintrag der unkomprimierten Datei
+        Path original = null;
+        if (changed != null && changed.getFileName().toString().endsWith(".gz")){
+            String name = changed.getFileName().toString();
+            original = changed.resolveSibling(name.substring(0, name.length() - 3));
+        }
+
+        for (CachedFile entry : entries.values()){
+            if (changed == null || entry.getPath().startsWith(changed) || entry.getPath().equals(original)){
+                if (remove(entry)){
+                    invalidated.increment();
+                }
+            }
+        }
+    }
+
+    /**
+     * Entfernt einen Eintrag und gibt seine Bytes im Budget frei
+     *
+     * @param entry Zu entfernender Eintrag
+     *
+     * @return Wahr wenn der Eintrag entfernt wurde
+     */
+    private boolean remove(CachedFile entry) {
+        synchronized (entry){
+            if (entries.remove(entry.getPath(), entry)){
+                usedBytes.addAndGet(-entry.getWeight());
+
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Gibt den komprimierten Inhalt eines Eintrags zurück. Der Inhalt wird pro Version der Datei
+     * nur einmal komprimiert und danach mit dem Eintrag gespeichert.
+     *
+     * @param entry Eintrag mit Inhalt
+     * @param encoding {@link Compression#GZIP} oder {@link Compression#DEFLATE}
+     *
+     * @return Komprimierter Inhalt oder null falls dieser nicht kleiner als der Inhalt ist
+     */
+    public byte[] getEncoded(CachedFile entry, String encoding) {
+        byte[] encoded = entry.getEncodedContent(encoding);
+
+        if (encoded == null){
+            synchronized (entry){
+                encoded = entry.getEncodedContent(encoding);
+
+                if (encoded == null){
+                    encoded = Compression.compress(entry.getContent(), encoding);
+
+                    if (encoded.length >= entry.getContent().length){
+                        encoded = new byte[0];
+                    }
+
+                    entry.setEncodedContent(encoding, encoded);
+                    compressions.increment();
+
+                    if (entries.get(entry.getPath()) == entry){
+                        usedBytes.addAndGet(encoded.length);
+                    }
+                }
+            }
+
+            if (maxBytes <= 0){
+                putEncodedVariant(entry);
+                return encoded.length > 0 ? encoded : null;
+            }
+
+            //Außerhalb der Sperre des Eintrags, da die Verdrängung selbst Einträge sperrt
+            if (usedBytes.get() > maxBytes){
+                evict();
+            }
+        }
+
+        return encoded.length > 0 ? encoded : null;
+    }
+
+    /**
+     * Beschreibt den Zustand für die Konsole
+     *
+     * @return Zustand als String
+     */
+    public String describe() {
+        if (maxBytes <= 0){
+            return "Cache disabled. Misses: " + misses.sum() + ", files with compressed variants: " + encodedVariants.size()
+                    + ", compressed variants: " + compressions.sum();
+        }
+
+        return "Cache: " + entries.size() + " entries, " + usedBytes.get() + " of " + maxBytes + " bytes"
+                + ", hits: " + hits.sum() + ", misses: " + misses.sum()
+                + ", evictions: " + evictions.sum() + ", invalidations: " + invalidated.sum()
+                + ", compressed variants: " + compressions.sum();
+    }
+}
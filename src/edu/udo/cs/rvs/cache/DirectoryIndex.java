@@ -0,0 +1,330 @@
+package edu.udo.cs.rvs.cache;
+
+import edu.udo.cs.rvs.ServerConfig;
+
+import java.io.File;
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Zwischenspeicher für Ordner: die Index Datei eines Ordners und bei Bedarf eine HTML Auflistung des Inhalts.
+ * Der Ordner wird dafür nur einmal gelesen statt bei jeder Anfrage. Einträge werden über den {@link FileWatcher}
+ * bei Änderungen im Ordner ungültig, ohne Überwachung wird der Zeitpunkt der letzten Änderung des Ordners geprüft.
+ */
+public class DirectoryIndex {
+
+    /**
+     * Namen der Index Dateien in absteigender Priorität. Andere "index.*" Dateien folgen alphabetisch.
+     */
+    private static final String[] INDEX_NAMES = {"index.html", "index.htm"};
+
+    /**
+     * Index des Servers
+     */
+    private static DirectoryIndex instance;
+
+    /**
+     * Wurzel der Webserver Dateien, Grundlage der Links in Auflistungen
+     */
+    private final Path root;
+
+    /**
+     * Maximale Anzahl an Einträgen
+     */
+    private final int maxEntries;
+
+    /**
+     * Wenn wahr, dann werden Änderungen vom {@link FileWatcher} gemeldet
+     */
+    private final boolean watched;
+
+    /**
+     * Einträge nach absolutem, normalisiertem Pfad des Ordners
+     */
+    private final Map<Path, Entry> entries = new ConcurrentHashMap<>();
+
+    /**
+     * Anzahl der bisherigen Invalidierungen, verhindert das Speichern veralteter Einträge
+     */
+    private final AtomicLong invalidations = new AtomicLong();
+
+    /**
+     * Gelesener Zustand eines Ordners
+     */
+    private static class Entry {
+
+        /**
+         * Zeitpunkt der letzten Änderung des Ordners beim Lesen
+         */
+        private final long lastModified;
+
+        /**
+         * Dateien und Unterordner des Ordners, sortiert
+         */
+        private final File[] files;
+
+        /**
+         * Index Datei oder null
+         */
+        private final Path indexFile;
+
+        /**
+         * HTML Auflistung, wird erst bei Bedarf erstellt
+         */
+        private volatile byte[] listing;
+
+        /**
+         * Erstellt einen Eintrag
+         *
+         * @param lastModified Zeitpunkt der letzten Änderung des Ordners
+         * @param files Inhalt des Ordners
+         * @param indexFile Index Datei oder null
+         */
+        private Entry(long lastModified, File[] files, Path indexFile) {
+            this.lastModified = lastModified;
+            this.files = files;
+            this.indexFile = indexFile;
+        }
+    }
+
+    /**
+     * Erstellt den Index
+     *
+     * @param root Wurzel der Webserver Dateien
+     * @param maxEntries Maximale Anzahl an Einträgen
+     * @param watcher Überwachung des Dateisystems oder null
+     */
+    public DirectoryIndex(Path root, int maxEntries, FileWatcher watcher) {
+        this.root = root;
+        this.maxEntries = maxEntries;
+        this.watched = watcher != null && watcher.isActive();
+
+        if (watched){
+            watcher.addListener(this::invalidate);
+        }
+    }
+
+    /**
+     * Gibt den Index des Servers zurück und erstellt ihn beim ersten Aufruf
+     *
+     * @return Index
+     */
+    public static synchronized DirectoryIndex getInstance() {
+        if (instance == null){
+            FileWatcher watcher = FileWatcher.getInstance();
+
+            instance = new DirectoryIndex(watcher.getRoot(), ServerConfig.DIRECTORY_INDEX_MAX, watcher);
+        }
+
+        return instance;
+    }
+
+    /**
+     * Gibt die Index Datei eines Ordners zurück
+     *
+     * @param directory Absoluter, normalisierter Pfad des Ordners
+     *
+     * @return Index Datei oder null falls der Ordner keine hat
+     */
+    public Path getIndexFile(Path directory) {
+        Entry entry = get(directory);
+
+        return entry != null ? entry.indexFile : null;
+    }
+
+    /**
+     * Gibt die HTML Auflistung eines Ordners zurück und erstellt sie beim ersten Aufruf
+     *
+     * @param directory Absoluter, normalisierter Pfad des Ordners
+     *
+     * @return Auflistung als UTF-8 Bytes oder null falls der Ordner nicht gelesen werden kann
+     */
+    public byte[] getListing(Path directory) {
+        Entry entry = get(directory);
+
+        if (entry == null){
+            return null;
+        }
+
+        byte[] listing = entry.listing;
+
+        if (listing == null){
+            //Gleichzeitige Aufrufe erstellen die gleiche Auflistung und sind daher unschädlich
+            listing = renderListing(directory, entry.files);
+            entry.listing = listing;
+        }
+
+        return listing;
+    }
+
+    /**
+     * Gibt den Eintrag eines Ordners zurück und liest den Ordner falls nötig
+     *
+     * @param directory Absoluter, normalisierter Pfad des Ordners
+     *
+     * @return Eintrag oder null falls der Ordner nicht gelesen werden kann
+     */
+    private Entry get(Path directory) {
+        Entry entry = entries.get(directory);
+
+        if (entry != null && (watched || entry.lastModified == directory.toFile().lastModified())){
+            return entry;
+        }
+
+        long generation = invalidations.get();
+
+        entry = load(directory);
+
+        if (entry != null && invalidations.get() == generation){
+            if (entries.size() >= maxEntries){
+                entries.clear();
+            }
+
+            entries.put(directory, entry);
+        }
+
+        return entry;
+    }
+
+    /**
+     * Liest einen Ordner und bestimmt seine Index Datei
+     *
+     * @param directory Pfad des Ordners
+     *
+     * @return Neuer Eintrag oder null falls der Ordner nicht gelesen werden kann
+     */
+    private static Entry load(Path directory) {
+        File dir = directory.toFile();
+        long lastModified = dir.lastModified();
+        File[] files = dir.listFiles();
+
+        if (files == null){
+            return null;
+        }
+
+        //Ordner zuerst, danach alphabetisch
+        Arrays.sort(files, Comparator.comparing((File f) -> !f.isDirectory()).thenComparing(File::getName));
+
+        File index = null;
+        int priority = Integer.MAX_VALUE;
+
+        for (File file : files){
+            String name = file.getName();
+
+            if (!name.startsWith("index.") || !file.isFile()){
+                continue;
+            }
+
+            int filePriority = INDEX_NAMES.length;
+            for (int i = 0; i < INDEX_NAMES.length; i++){
+                if (INDEX_NAMES[i].equals(name)){
+                    filePriority = i;
+                }
+            }
+
+            //Bei gleicher Priorität gewinnt die alphabetisch erste Datei
+            if (filePriority < priority){
+                index = file;
+                priority = filePriority;
+            }
+        }
+
+        return new Entry(lastModified, files, index != null ? index.toPath() : null);
+    }
+
+    /**
+     * Erstellt die HTML Auflistung eines Ordners. Versteckte Dateien werden nicht aufgelistet.
+     *
+     * @param directory Pfad des Ordners
+     * @param files Sortierter Inhalt des Ordners
+     *
+     * @return Auflistung als UTF-8 Bytes
+     */
+    private byte[] renderListing(Path directory, File[] files) {
+        StringBuilder href = new StringBuilder("/");
+        for (Path part : root.relativize(directory)){
+            if (!part.toString().isEmpty()){
+                href.append(encode(part.toString())).append('/');
+            }
+        }
+
+        String title = "Index of " + escape(href.toString());
+
+        StringBuilder builder = new StringBuilder();
+        builder.append("<!DOCTYPE html>\n<html>\n<head><meta charset=\"utf-8\"><title>").append(title).append("</title></head>\n");
+        builder.append("<body>\n<h1>").append(title).append("</h1>\n<ul>\n");
+
+        if (!directory.equals(root)){
+            builder.append("<li><a href=\"../\">../</a></li>\n");
+        }
+
+        for (File file : files){
+            String name = file.getName();
+
+            if (name.startsWith(".")){
+                continue;
+            }
+
+            String suffix = file.isDirectory() ? "/" : "";
+
+            builder.append("<li><a href=\"").append(href).append(encode(name)).append(suffix).append("\">")
+                    .append(escape(name)).append(suffix).append("</a></li>\n");
+        }
+
+        builder.append("</ul>\n</body>\n</html>\n");
+
+        return builder.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Kodiert einen Namen für die Verwendung in einem Link
+     *
+     * @param name Name einer Datei oder eines Ordners
+     *
+     * @return Prozentkodierter Name
+     */
+    private static String encode(String name) {
+        try {
+            return URLEncoder.encode(name, "UTF-8").replace("+", "%20");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Maskiert Sonderzeichen für HTML
+     *
+     * @param text Text
+     *
+     * @return Maskierter Text
+     */
+    private static String escape(String text) {
+        return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+    }
+
+    /**
+     * Entfernt die Einträge eines geänderten Pfades. Da neue oder gelöschte Dateien den übergeordneten Ordner
+     * ändern, wird auch dessen Eintrag entfernt.
+     *
+     * @param changed Geänderter Pfad oder null um alles zu entfernen
+     */
+    public void invalidate(Path changed) {
+        invalidations.incrementAndGet();
+
+        if (changed == null){
+            entries.clear();
+            return;
+        }
+
+        Path parent = changed.getParent();
+
+        entries.keySet().removeIf(path -> path.startsWith(changed) || path.equals(parent));
+    }
+}
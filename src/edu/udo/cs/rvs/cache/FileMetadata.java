@@ -0,0 +1,203 @@
+package edu.udo.cs.rvs.cache;
+
+import edu.udo.cs.rvs.DateFormatter;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+/**
+ * Eintrag des {@link MetadataIndex}: Validatoren einer Version einer Datei. Entity Tag und Last-Modified
+ * werden einmal pro Version berechnet und danach für jede Antwort wiederverwendet. Bis die Prüfsumme des Inhalts
+ * berechnet ist, wird das Entity Tag aus Größe und Zeitpunkt der letzten Änderung gebildet. Dieses wird auch danach
+ * noch erkannt, damit Nutzer mit dem vorläufigen Tag weiterhin 304 erhalten.
+ */
+public class FileMetadata {
+
+    /**
+     * Pfad der Datei
+     */
+    private final Path path;
+
+    /**
+     * Größe der Datei in Bytes
+     */
+    private final long size;
+
+    /**
+     * Zeitpunkt der letzten Änderung in Millisekunden
+     */
+    private final long lastModified;
+
+    /**
+     * Starkes Entity Tag des unkodierten Inhalts inklusive Anführungszeichen
+     */
+    private final String entityTag;
+
+    /**
+     * Entity Tag des mit gzip kodierten Inhalts
+     */
+    private final String gzipEntityTag;
+
+    /**
+     * Entity Tag des mit deflate kodierten Inhalts
+     */
+    private final String deflateEntityTag;
+
+    /**
+     * Entity Tag aus Größe und Zeitpunkt der letzten Änderung ohne Anführungszeichen
+     */
+    private final String statTag;
+
+    /**
+     * Wenn wahr, dann basieren die Entity Tags auf der Prüfsumme des Inhalts
+     */
+    private final boolean hashed;
+
+    /**
+     * Kodierter Last-Modified Header inklusive Zeilenende
+     */
+    private final byte[] lastModifiedLine;
+
+    /**
+     * Zeitstempel des letzten Zugriffs für die LRU Verdrängung
+     */
+    private volatile long lastAccess;
+
+    /**
+     * Erstellt einen Eintrag
+     *
+     * @param path Pfad der Datei
+     * @param size Größe der Datei in Bytes
+     * @param lastModified Zeitpunkt der letzten Änderung
+     * @param hash Prüfsumme des Inhalts oder null falls diese noch nicht berechnet ist
+     */
+    FileMetadata(Path path, long size, long lastModified, String hash) {
+        this.path = path;
+        this.size = size;
+        this.lastModified = lastModified;
+
+        statTag = Long.toHexString(lastModified) + "-" + Long.toHexString(size);
+        hashed = hash != null;
+
+        if (hash == null){
+            hash = statTag;
+        }
+
+        entityTag = "\"" + hash + "\"";
+        gzipEntityTag = "\"" + hash + "-" + Compression.GZIP + "\"";
+        deflateEntityTag = "\"" + hash + "-" + Compression.DEFLATE + "\"";
+        lastModifiedLine = ("Last-Modified: " + DateFormatter.formatDate(lastModified) + "\r\n").getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Gibt den Pfad der Datei zurück
+     *
+     * @return Pfad
+     */
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * Gibt die Größe der Datei zurück
+     *
+     * @return Größe in Bytes
+     */
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * Gibt den Zeitpunkt der letzten Änderung zurück
+     *
+     * @return Zeitpunkt in Millisekunden
+     */
+    public long getLastModified() {
+        return lastModified;
+    }
+
+    /**
+     * Gibt das Entity Tag einer Kodierung des Inhalts zurück. Jede Kodierung hat ein eigenes starkes Entity Tag.
+     *
+     * @param encoding Kodierung des Körpers oder null für den unkodierten Inhalt
+     *
+     * @return Entity Tag inklusive Anführungszeichen
+     */
+    public String getEntityTag(String encoding) {
+        if (Compression.GZIP.equals(encoding)){
+            return gzipEntityTag;
+        }else if (Compression.DEFLATE.equals(encoding)){
+            return deflateEntityTag;
+        }
+
+        return entityTag;
+    }
+
+    /**
+     * Sucht ein Entity Tag einer beliebigen Kodierung dieser Version
+     *
+     * @param opaqueTag Entity Tag inklusive Anführungszeichen, ohne "W/"
+     *
+     * @return Gefundenes Entity Tag oder null falls keine Kodierung dieses Tag hat
+     */
+    public String findEntityTag(String opaqueTag) {
+        if (entityTag.equals(opaqueTag)){
+            return entityTag;
+        }else if (gzipEntityTag.equals(opaqueTag)){
+            return gzipEntityTag;
+        }else if (deflateEntityTag.equals(opaqueTag)){
+            return deflateEntityTag;
+        }
+
+        //Vorläufiges Tag der gleichen Version, geantwortet wird mit dem Tag der Prüfsumme
+        if (hashed && opaqueTag.length() > statTag.length() + 1 && opaqueTag.charAt(0) == '"' && opaqueTag.startsWith(statTag, 1)){
+            String suffix = opaqueTag.substring(statTag.length() + 1);
+
+            if (suffix.equals("\"")){
+                return entityTag;
+            }else if (suffix.equals("-" + Compression.GZIP + "\"")){
+                return gzipEntityTag;
+            }else if (suffix.equals("-" + Compression.DEFLATE + "\"")){
+                return deflateEntityTag;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Prüft ob die Entity Tags auf der Prüfsumme des Inhalts basieren
+     *
+     * @return Wahr wenn die Prüfsumme berechnet ist, falsch für das vorläufige Tag aus Größe und Zeitpunkt
+     */
+    public boolean isHashed() {
+        return hashed;
+    }
+
+    /**
+     * Gibt den kodierten Last-Modified Header zurück
+     *
+     * @return Header mit Datum im Format RFC 1123 inklusive Zeilenende, darf nicht verändert werden
+     */
+    public byte[] getLastModifiedLine() {
+        return lastModifiedLine;
+    }
+
+    /**
+     * Gibt den Zeitstempel des letzten Zugriffs zurück
+     *
+     * @return Zeitstempel
+     */
+    long getLastAccess() {
+        return lastAccess;
+    }
+
+    /**
+     * Setzt den Zeitstempel des letzten Zugriffs
+     *
+     * @param lastAccess Zeitstempel
+     */
+    void setLastAccess(long lastAccess) {
+        this.lastAccess = lastAccess;
+    }
+}
@@ -0,0 +1,167 @@
+package edu.udo.cs.rvs.cache;
+
+import edu.udo.cs.rvs.HttpServer;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Überwacht einen Ordner samt Unterordnern mit einem {@link WatchService} und meldet geänderte Pfade
+ * an alle registrierten Empfänger.
+ */
+public class FileWatcher {
+
+    /**
+     * Überwachung des Ordners {@link HttpServer#wwwroot}
+     */
+    private static FileWatcher instance;
+
+    /**
+     * Überwachter Ordner
+     */
+    private final Path root;
+
+    /**
+     * Empfänger der Änderungen. Ein Pfad von null bedeutet, dass Ereignisse verloren gingen und alles ungültig ist.
+     */
+    private final List<Consumer<Path>> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Dienst des Dateisystems oder null falls die Überwachung nicht gestartet werden konnte
+     */
+    private WatchService watchService;
+
+    /**
+     * Erstellt die Überwachung und startet den Thread
+     *
+     * @param root Zu überwachender Ordner
+     */
+    public FileWatcher(Path root) {
+        this.root = root;
+
+        try {
+            watchService = root.getFileSystem().newWatchService();
+
+            registerTree(root);
+
+            Thread thread = new Thread(this::run, "file-watcher");
+            thread.setDaemon(true);
+            thread.start();
+        } catch (IOException e) {
+            System.out.println("File watching not available: " + e.getMessage());
+
+            watchService = null;
+        }
+    }
+
+    /**
+     * Gibt die Überwachung des Ordners {@link HttpServer#wwwroot} zurück und startet sie beim ersten Aufruf
+     *
+     * @return Überwachung von wwwroot
+     */
+    public static synchronized FileWatcher getInstance() {
+        if (instance == null){
+            instance = new FileWatcher(HttpServer.wwwroot.getAbsoluteFile().toPath().normalize());
+        }
+
+        return instance;
+    }
+
+    /**
+     * Registriert einen Empfänger für Änderungen
+     *
+     * @param listener Empfänger des geänderten Pfades
+     */
+    public void addListener(Consumer<Path> listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Gibt zurück ob Änderungen gemeldet werden
+     *
+     * @return Wahr wenn die Überwachung läuft
+     */
+    public boolean isActive() {
+        return watchService != null;
+    }
+
+    /**
+     * Registriert einen Ordner und alle Unterordner beim {@link WatchService}
+     *
+     * @param dir Ordner
+     *
+     * @throws IOException Wird geworfen falls ein Ordner nicht registriert werden kann
+     */
+    private void registerTree(Path dir) throws IOException {
+        Files.walkFileTree(dir, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path d, BasicFileAttributes attrs) throws IOException {
+                d.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_DELETE,
+                        StandardWatchEventKinds.ENTRY_MODIFY);
+
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    /**
+     * Wartet auf Ereignisse und meldet sie an die Empfänger
+     */
+    private void run() {
+        while (true){
+            WatchKey key;
+            try {
+                key = watchService.take();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+
+            Path dir = (Path) key.watchable();
+
+            for (WatchEvent<?> event : key.pollEvents()){
+                if (event.kind() == StandardWatchEventKinds.OVERFLOW){
+                    notifyListeners(null);
+                    continue;
+                }
+
+                Path changed = dir.resolve((Path) event.context());
+
+                if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(changed)){
+                    try {
+                        registerTree(changed);
+                    } catch (IOException e) {
+                        //Ordner wurde bereits wieder gelöscht
+                    }
+                }
+
+                notifyListeners(changed);
+            }
+
+            key.reset();
+        }
+    }
+
+    /**
+     * Meldet eine Änderung an alle Empfänger
+     *
+     * @param changed Geänderter Pfad oder null
+     */
+    private void notifyListeners(Path changed) {
+        for (Consumer<Path> listener : listeners){
+            listener.accept(changed);
+        }
+    }
+
+    /**
+     * Gibt den überwachten Ordner zurück
+     *
+     * @return Ordner
+     */
+    public Path getRoot() {
+        return root;
+    }
+}
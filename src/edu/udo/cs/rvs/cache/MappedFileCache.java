@@ -0,0 +1,177 @@
+package edu.udo.cs.rvs.cache;
+
+import edu.udo.cs.rvs.ServerConfig;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Gemeinsame {@link MappedByteBuffer} von Dateien. Gleichzeitige Anfragen auf die gleiche Datei nutzen die
+ * gleiche Abbildung und erhalten nur eigene Ausschnitte, so dass für einen Bereich nie die ganze Datei
+ * gelesen wird. Abbildungen werden über den {@link FileWatcher} bei Änderungen entfernt und zusätzlich bei jedem
+ * Zugriff mit Größe und Zeitpunkt der letzten Änderung der Datei verglichen. Das Lesen einer Abbildung hinter dem
+ * Ende einer gekürzten Datei wirft einen {@link InternalError}.
+ */
+public class MappedFileCache {
+
+    /**
+     * Abbildungen des Servers
+     */
+    private static MappedFileCache instance;
+
+    /**
+     * Maximale Anzahl gleichzeitig gespeicherter Abbildungen
+     */
+    private final int maxMappings;
+
+    /**
+     * Abbildungen nach absolutem, normalisiertem Pfad
+     */
+    private final Map<Path, Mapping> mappings = new ConcurrentHashMap<>();
+
+    /**
+     * Abbildung einer Version einer Datei
+     */
+    private static class Mapping {
+
+        /**
+         * Abgebildeter Inhalt der Datei
+         */
+        private final MappedByteBuffer buffer;
+
+        /**
+         * Zeitpunkt der letzten Änderung der abgebildeten Version
+         */
+        private final long lastModified;
+
+        /**
+         * Erstellt die Abbildung
+         *
+         * @param buffer Abgebildeter Inhalt
+         * @param lastModified Zeitpunkt der letzten Änderung
+         */
+        private Mapping(MappedByteBuffer buffer, long lastModified) {
+            this.buffer = buffer;
+            this.lastModified = lastModified;
+        }
+    }
+
+    /**
+     * Erstellt den Speicher der Abbildungen
+     *
+     * @param maxMappings Maximale Anzahl gleichzeitig gespeicherter Abbildungen
+     * @param watcher Überwachung des Dateisystems oder null
+     */
+    public MappedFileCache(int maxMappings, FileWatcher watcher) {
+        this.maxMappings = maxMappings;
+
+        if (watcher != null){
+            watcher.addListener(this::invalidate);
+        }
+    }
+
+    /**
+     * Gibt die Abbildungen des Servers zurück und erstellt sie beim ersten Aufruf
+     *
+     * @return Abbildungen
+     */
+    public static synchronized MappedFileCache getInstance() {
+        if (instance == null){
+            instance = new MappedFileCache(ServerConfig.MMAP_MAX, FileWatcher.getInstance());
+        }
+
+        return instance;
+    }
+
+    /**
+     * Gibt einen Ausschnitt einer Datei zurück
+     *
+     * @param file Eintrag der Datei mit Größe und Zeitpunkt der letzten Änderung
+     * @param first Erstes Byte des Ausschnitts
+     * @param length Länge des Ausschnitts
+     *
+     * @return Eigener Puffer des Ausschnitts oder null falls die Datei zu groß zum Abbilden ist
+     *
+     * @throws IOException Wird geworfen falls die Datei nicht abgebildet werden kann oder nicht mehr zum Eintrag passt
+     */
+    public ByteBuffer slice(CachedFile file, long first, long length) throws IOException {
+        if (file.getSize() > Integer.MAX_VALUE){
+            return null;
+        }
+
+        Path path = file.getPath();
+        Mapping mapping = mappings.get(path);
+
+        //Der Eintrag kann veraltet sein, wenn der FileWatcher die Änderung noch nicht gemeldet hat
+        File onDisk = path.toFile();
+        long size = onDisk.length();
+        long lastModified = onDisk.lastModified();
+
+        if (mapping != null && (mapping.lastModified != lastModified || mapping.buffer.capacity() != size)){
+            mappings.remove(path, mapping);
+            mapping = null;
+        }
+
+        if (size != file.getSize() || lastModified != file.getLastModified()){
+            throw new IOException("File changed: " + path);
+        }
+
+        if (mapping == null){
+            mapping = map(file);
+        }
+
+        //Eigene Sicht auf die gemeinsame Abbildung, der Inhalt wird nicht kopiert
+        ByteBuffer view = mapping.buffer.duplicate();
+        view.position((int) first);
+        view.limit((int) (first + length));
+
+        return view.slice();
+    }
+
+    /**
+     * Bildet eine Datei ab und speichert die Abbildung
+     *
+     * @param file Eintrag der Datei
+     *
+     * @return Neue Abbildung
+     *
+     * @throws IOException Wird geworfen falls die Datei nicht abgebildet werden kann
+     */
+    private Mapping map(CachedFile file) throws IOException {
+        Mapping mapping;
+
+        try (FileChannel channel = FileChannel.open(file.getPath(), StandardOpenOption.READ)) {
+            mapping = new Mapping(channel.map(FileChannel.MapMode.READ_ONLY, 0, file.getSize()), file.getLastModified());
+        }
+
+        if (mappings.size() >= maxMappings){
+            //Abbildungen werden vom Garbage Collector freigegeben sobald keine Anfrage sie mehr nutzt
+            mappings.clear();
+        }
+
+        mappings.put(file.getPath(), mapping);
+
+        return mapping;
+    }
+
+    /**
+     * Entfernt die Abbildungen eines Pfades und aller darunter liegenden Pfade
+     *
+     * @param changed Geänderter Pfad oder null um alles zu entfernen
+     */
+    public void invalidate(Path changed) {
+        if (changed == null){
+            mappings.clear();
+            return;
+        }
+
+        mappings.keySet().removeIf(path -> path.startsWith(changed));
+    }
+}
@@ -0,0 +1,317 @@
+package edu.udo.cs.rvs.cache;
+
+import edu.udo.cs.rvs.ServerConfig;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Index der Validatoren ({@link FileMetadata}) aller angefragten Dateien. Bedingte Anfragen werden damit
+ * beantwortet, ohne den Inhalt der Datei zu lesen. Die Prüfsumme einer Datei wird nur einmal pro Version und
+ * nie im Thread der Anfrage berechnet, sondern von einem eigenen Thread. Bis sie vorliegt, gilt ein vorläufiges
+ * Entity Tag aus Größe und Zeitpunkt der letzten Änderung. Einträge werden über den {@link FileWatcher} bei
+ * Änderungen ungültig, ohne Überwachung wird bei jedem Zugriff Größe und Zeitpunkt der letzten Änderung geprüft.
+ * Bei voller Kapazität werden die am längsten nicht genutzten Einträge verdrängt.
+ */
+public class MetadataIndex {
+
+    /**
+     * Anzahl der Bytes der Prüfsumme welche in das Entity Tag übernommen werden
+     */
+    private static final int HASH_BYTES = 12;
+
+    /**
+     * Index des Servers
+     */
+    private static MetadataIndex instance;
+
+    /**
+     * Maximale Anzahl an Einträgen
+     */
+    private final int maxEntries;
+
+    /**
+     * Wenn wahr, dann werden Änderungen vom {@link FileWatcher} gemeldet
+     */
+    private final boolean watched;
+
+    /**
+     * Einträge nach absolutem, normalisiertem Pfad
+     */
+    private final Map<Path, FileMetadata> entries = new ConcurrentHashMap<>();
+
+    /**
+     * Aktuell laufende Berechnungen von Prüfsummen, jede Datei wird nur einmal gleichzeitig gelesen
+     */
+    private final Map<Path, Boolean> hashing = new ConcurrentHashMap<>();
+
+    /**
+     * Thread welcher die Prüfsummen berechnet
+     */
+    private final ExecutorService hasher = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "metadata-hasher");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Uhr für die Zugriffszeitstempel der LRU Verdrängung
+     */
+    private final AtomicLong clock = new AtomicLong();
+
+    /**
+     * Anzahl der bisherigen Invalidierungen, verhindert das Speichern veralteter Einträge
+     */
+    private final AtomicLong invalidations = new AtomicLong();
+
+    /**
+     * Anzahl berechneter Prüfsummen
+     */
+    private final LongAdder hashes = new LongAdder();
+
+    /**
+     * Verdrängte Einträge
+     */
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Erstellt den Index
+     *
+     * @param maxEntries Maximale Anzahl an Einträgen
+     * @param watcher Überwachung des Dateisystems oder null
+     */
+    public MetadataIndex(int maxEntries, FileWatcher watcher) {
+        this.maxEntries = maxEntries;
+        this.watched = watcher != null && watcher.isActive();
+
+        if (watched){
+            watcher.addListener(this::invalidate);
+        }
+    }
+
+    /**
+     * Gibt den Index des Servers zurück und erstellt ihn beim ersten Aufruf
+     *
+     * @return Index
+     */
+    public static synchronized MetadataIndex getInstance() {
+        if (instance == null){
+            instance = new MetadataIndex(ServerConfig.METADATA_MAX, FileWatcher.getInstance());
+        }
+
+        return instance;
+    }
+
+    /**
+     * Gibt die Validatoren einer Datei zurück. Fehlt die Prüfsumme, so wird ihre Berechnung gestartet und
+     * ohne zu warten der Eintrag mit vorläufigem Entity Tag zurückgegeben.
+     *
+     * @param path Absoluter, normalisierter Pfad der Datei
+     *
+     * @return Eintrag oder null falls keine lesbare Datei existiert
+     */
+    public FileMetadata get(Path path) {
+        FileMetadata entry = entries.get(path);
+
+        if (entry == null || !watched && !isCurrent(entry)){
+            File file = path.toFile();
+
+            if (!file.isFile() || !file.canRead()){
+                return null;
+            }
+
+            long generation = invalidations.get();
+
+            entry = new FileMetadata(path, file.length(), file.lastModified(), null);
+
+            if (invalidations.get() == generation){
+                put(entry);
+            }
+        }
+
+        entry.setLastAccess(clock.incrementAndGet());
+
+        if (!entry.isHashed()){
+            startHashing(entry);
+        }
+
+        return entry;
+    }
+
+    /**
+     * Prüft ob ein Eintrag noch zur Datei im Dateisystem passt
+     *
+     * @param entry Eintrag
+     *
+     * @return Wahr wenn Größe und Zeitpunkt der letzten Änderung unverändert sind
+     */
+    private static boolean isCurrent(FileMetadata entry) {
+        File file = entry.getPath().toFile();
+
+        return file.lastModified() == entry.getLastModified() && file.length() == entry.getSize();
+    }
+
+    /**
+     * Speichert einen Eintrag und verdrängt bei Bedarf alte Einträge
+     *
+     * @param entry Neuer Eintrag
+     */
+    private void put(FileMetadata entry) {
+        entries.put(entry.getPath(), entry);
+
+        if (entries.size() > maxEntries){
+            evict();
+        }
+    }
+
+    /**
+     * Verdrängt die am längsten nicht genutzten Einträge, bis ein Achtel der Kapazität frei ist. So wird nicht
+     * bei jedem neuen Eintrag erneut sortiert.
+     */
+    private synchronized void evict() {
+        int target = maxEntries - maxEntries / 8;
+
+        if (entries.size() <= target){
+            return;
+        }
+
+        List<FileMetadata> candidates = new ArrayList<>(entries.values());
+        candidates.sort(Comparator.comparingLong(FileMetadata::getLastAccess));
+
+        for (FileMetadata candidate : candidates){
+            if (entries.size() <= target){
+                break;
+            }
+
+            if (entries.remove(candidate.getPath(), candidate)){
+                evictions.increment();
+            }
+        }
+    }
+
+    /**
+     * Startet die Berechnung der Prüfsumme eines Eintrags, falls diese nicht bereits läuft
+     *
+     * @param entry Eintrag mit vorläufigem Entity Tag
+     */
+    private void startHashing(FileMetadata entry) {
+        Path path = entry.getPath();
+
+        if (hashing.putIfAbsent(path, Boolean.TRUE) != null){
+            return;
+        }
+
+        long generation = invalidations.get();
+
+        try {
+            hasher.execute(() -> {
+                try {
+                    FileMetadata hashed = load(entry);
+
+                    //Während der Berechnung geänderte oder verdrängte Einträge werden nicht ersetzt
+                    if (hashed != null && invalidations.get() == generation){
+                        entries.replace(path, entry, hashed);
+                    }
+                } catch (IOException e) {
+                    //Datei wurde gelöscht oder ist nicht lesbar, der vorläufige Eintrag bleibt
+                } finally {
+                    hashing.remove(path);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            hashing.remove(path);
+        }
+    }
+
+    /**
+     * Berechnet die Prüfsumme einer Datei
+     *
+     * @param entry Eintrag mit vorläufigem Entity Tag
+     *
+     * @return Neuer Eintrag oder null falls sich die Datei seit dem vorläufigen Eintrag geändert hat
+     *
+     * @throws IOException Wird geworfen falls die Datei nicht gelesen werden kann
+     */
+    private FileMetadata load(FileMetadata entry) throws IOException {
+        Path path = entry.getPath();
+
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+
+        long size = 0;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+
+            while (channel.read(buffer) != -1){
+                buffer.flip();
+                size += buffer.remaining();
+                digest.update(buffer);
+                buffer.clear();
+            }
+        }
+
+        hashes.increment();
+
+        //Die Prüfsumme gehört nur zur Version des Eintrags, wenn sich die Datei beim Lesen nicht geändert hat
+        if (size != entry.getSize() || !isCurrent(entry)){
+            return null;
+        }
+
+        byte[] hash = Arrays.copyOf(digest.digest(), HASH_BYTES);
+
+        FileMetadata hashed = new FileMetadata(path, size, entry.getLastModified(), Base64.getUrlEncoder().withoutPadding().encodeToString(hash));
+        hashed.setLastAccess(entry.getLastAccess());
+
+        return hashed;
+    }
+
+    /**
+     * Entfernt die Einträge eines Pfades und aller darunter liegenden Pfade
+     *
+     * @param changed Geänderter Pfad oder null um alles zu entfernen
+     */
+    public void invalidate(Path changed) {
+        invalidations.incrementAndGet();
+
+        if (changed == null){
+            entries.clear();
+            return;
+        }
+
+        entries.keySet().removeIf(path -> path.startsWith(changed));
+    }
+
+    /**
+     * Beschreibt den Zustand für die Konsole
+     *
+     * @return Zustand als String
+     */
+    public String describe() {
+        long provisional = entries.values().stream().filter(entry -> !entry.isHashed()).count();
+
+        return "Metadata: " + entries.size() + " entries (" + provisional + " without hash), hashed file versions: "
+                + hashes.sum() + ", evictions: " + evictions.sum();
+    }
+}
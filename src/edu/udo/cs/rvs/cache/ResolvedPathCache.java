@@ -0,0 +1,182 @@
+package edu.udo.cs.rvs.cache;
+
+import edu.udo.cs.rvs.HttpServer;
+import edu.udo.cs.rvs.ServerConfig;
+import edu.udo.cs.rvs.request.PathNormalizer;
+import edu.udo.cs.rvs.response.ResponseCode;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Begrenzter Zwischenspeicher vom Ziel einer Anfrage zum normalisierten Pfad unter wwwroot. Die Auflösung hängt
+ * nur vom Ziel ab und muss daher nie invalidiert werden. Häufig angefragte Ziele werden so ohne erneutes
+ * Normalisieren und ohne Aufbau eines {@link Path} aufgelöst.
+ */
+public class ResolvedPathCache {
+
+    /**
+     * Zwischenspeicher des Servers
+     */
+    private static ResolvedPathCache instance;
+
+    /**
+     * Puffer für das Normalisieren pro Thread
+     */
+    private static final ThreadLocal<byte[]> SCRATCH = ThreadLocal.withInitial(() -> new byte[256]);
+
+    /**
+     * Absoluter, normalisierter Pfad von wwwroot
+     */
+    private final Path root;
+
+    /**
+     * Maximale Anzahl an Einträgen
+     */
+    private final int maxEntries;
+
+    /**
+     * Auflösungen nach Ziel der Anfrage
+     */
+    private final Map<String, Resolution> entries = new ConcurrentHashMap<>();
+
+    /**
+     * Ergebnis der Auflösung eines Ziels
+     */
+    public static class Resolution {
+
+        /**
+         * Normalisierter Pfad relativ zu wwwroot, beginnend mit "/", oder null bei einem Fehler
+         */
+        private final String key;
+
+        /**
+         * Absoluter Pfad der Datei oder null bei einem Fehler
+         */
+        private final Path path;
+
+        /**
+         * Status Code falls das Ziel ungültig ist, sonst null
+         */
+        private final ResponseCode error;
+
+        /**
+         * Erstellt eine Auflösung
+         *
+         * @param key Normalisierter Pfad oder null
+         * @param path Absoluter Pfad oder null
+         * @param error Status Code eines Fehlers oder null
+         */
+        private Resolution(String key, Path path, ResponseCode error) {
+            this.key = key;
+            this.path = path;
+            this.error = error;
+        }
+
+        /**
+         * Gibt den normalisierten Pfad relativ zu wwwroot zurück
+         *
+         * @return Pfad beginnend mit "/" oder null bei einem Fehler
+         */
+        public String getKey() {
+            return key;
+        }
+
+        /**
+         * Gibt den absoluten Pfad zurück
+         *
+         * @return Pfad unter wwwroot oder null bei einem Fehler
+         */
+        public Path getPath() {
+            return path;
+        }
+
+        /**
+         * Gibt den Status Code eines ungültigen Ziels zurück
+         *
+         * @return Status Code oder null falls das Ziel gültig ist
+         */
+        public ResponseCode getError() {
+            return error;
+        }
+    }
+
+    /**
+     * Erstellt den Zwischenspeicher
+     *
+     * @param root Absoluter, normalisierter Pfad von wwwroot
+     * @param maxEntries Maximale Anzahl an Einträgen
+     */
+    public ResolvedPathCache(Path root, int maxEntries) {
+        this.root = root;
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Gibt den Zwischenspeicher des Servers zurück und erstellt ihn beim ersten Aufruf
+     *
+     * @return Zwischenspeicher
+     */
+    public static synchronized ResolvedPathCache getInstance() {
+        if (instance == null){
+            instance = new ResolvedPathCache(HttpServer.wwwroot.toPath().toAbsolutePath().normalize(), ServerConfig.PATH_CACHE_MAX);
+        }
+
+        return instance;
+    }
+
+    /**
+     * Löst das Ziel einer Anfrage auf
+     *
+     * @param target Ziel der Anfrage, z.B. "/subfolder/../index.html?x=1"
+     *
+     * @return Auflösung
+     */
+    public Resolution resolve(String target) {
+        Resolution resolution = entries.get(target);
+
+        if (resolution == null){
+            resolution = normalize(target);
+
+            if (entries.size() >= maxEntries){
+                entries.clear();
+            }
+
+            entries.put(target, resolution);
+        }
+
+        return resolution;
+    }
+
+    /**
+     * Normalisiert ein Ziel und bildet den absoluten Pfad
+     *
+     * @param target Ziel der Anfrage
+     *
+     * @return Neue Auflösung
+     */
+    private Resolution normalize(String target) {
+        byte[] in = target.getBytes(StandardCharsets.ISO_8859_1);
+        byte[] out = SCRATCH.get();
+
+        if (out.length <= in.length){
+            out = new byte[in.length + 1];
+            SCRATCH.set(out);
+        }
+
+        int length = PathNormalizer.normalize(in, 0, in.length, out);
+
+        if (length == PathNormalizer.BAD_REQUEST){
+            return new Resolution(null, null, ResponseCode.BAD_REQUEST_400);
+        }else if (length == PathNormalizer.FORBIDDEN){
+            return new Resolution(null, null, ResponseCode.FORBIDDEN_403);
+        }
+
+        String key = new String(out, 0, length, StandardCharsets.UTF_8);
+        Path path = length == 1 ? root : root.resolve(key.substring(1));
+
+        return new Resolution(key, path, null);
+    }
+}
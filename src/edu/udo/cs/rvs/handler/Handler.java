@@ -0,0 +1,23 @@
+package edu.udo.cs.rvs.handler;
+
+import edu.udo.cs.rvs.request.Request;
+import edu.udo.cs.rvs.response.Response;
+
+/**
+ * Beantwortet Anfragen unter einem Pfad, welcher beim {@link Router} registriert ist. Ein Handler setzt nur Status
+ * Code, Header und Körper der {@link Response}, Kopf, Länge und Verbindung werden von der Antwort selbst erstellt.
+ * Ein Handler wird von allen Verbindungen gleichzeitig genutzt und darf daher keinen Zustand einer Anfrage halten.
+ */
+@FunctionalInterface
+public interface Handler {
+
+    /**
+     * Beantwortet eine Anfrage
+     *
+     * @param request Anfrage, ein Körper ist bereits vollständig gelesen
+     * @param response Antwort welche nach dem Aufruf gesendet wird
+     *
+     * @throws Exception Wird geworfen falls es zu einem unerwarteten Fehler kommt, gesendet wird dann 500
+     */
+    void handle(Request request, Response response) throws Exception;
+}
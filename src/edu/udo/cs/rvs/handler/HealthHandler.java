@@ -0,0 +1,23 @@
+package edu.udo.cs.rvs.handler;
+
+import edu.udo.cs.rvs.request.Request;
+import edu.udo.cs.rvs.response.Response;
+
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Meldet unter {@link edu.udo.cs.rvs.ServerConfig#HEALTH_PATH} als JSON, dass der Server Anfragen beantwortet,
+ * z.B. für Load Balancer oder Container Orchestrierung
+ */
+public class HealthHandler implements Handler {
+
+    @Override
+    public void handle(Request request, Response response) {
+        long uptime = ManagementFactory.getRuntimeMXBean().getUptime() / 1000;
+
+        response.setContentType("application/json; charset=utf-8");
+        response.setBody(("{\"status\":\"up\",\"uptimeSeconds\":" + uptime + "}").getBytes(StandardCharsets.UTF_8));
+        response.addHeader("Cache-Control", "no-store");
+    }
+}
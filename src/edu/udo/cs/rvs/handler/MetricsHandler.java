@@ -0,0 +1,20 @@
+package edu.udo.cs.rvs.handler;
+
+import edu.udo.cs.rvs.metrics.ServerMetrics;
+import edu.udo.cs.rvs.request.Request;
+import edu.udo.cs.rvs.response.Response;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Liefert die Kennzahlen des Servers im Textformat von Prometheus unter {@link edu.udo.cs.rvs.ServerConfig#STATS_PATH}
+ */
+public class MetricsHandler implements Handler {
+
+    @Override
+    public void handle(Request request, Response response) {
+        response.setContentType("text/plain; version=0.0.4; charset=utf-8");
+        response.setBody(ServerMetrics.getInstance().render().getBytes(StandardCharsets.UTF_8));
+        response.addHeader("Cache-Control", "no-store");
+    }
+}
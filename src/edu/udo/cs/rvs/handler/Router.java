@@ -0,0 +1,346 @@
+package edu.udo.cs.rvs.handler;
+
+import edu.udo.cs.rvs.ServerConfig;
+import edu.udo.cs.rvs.request.RequestMethod;
+import edu.udo.cs.rvs.response.ResponseCode;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Wählt den {@link Handler} einer Anfrage anhand des normalisierten Pfades und der Methode. Die Pfade der Handler
+ * liegen in einem Radix Trie, in dem sich Kanten gemeinsame Präfixe teilen. Die Suche läuft einmal den Pfad
+ * entlang, ihre Dauer hängt daher nur von der Länge des Pfades ab und nicht von der Anzahl der Handler.
+ * <p>
+ * Ein Handler ist für ein Präfix registriert und erhält alle Pfade, die diesem Präfix bis zu einer Grenze ("/" oder
+ * Ende des Pfades) folgen, "/api" also "/api" und "/api/x", aber nicht "/apix". Der längste passende Präfix gewinnt.
+ * Passt der Pfad, aber nicht die Methode, so wird 405 gesendet, bei einer Methode ohne jeden Handler 501.
+ */
+public class Router {
+
+    /**
+     * Router des Servers, wird bei jeder Anfrage ohne Sperre gelesen
+     */
+    private static volatile Router instance;
+
+    /**
+     * Antwortet falls kein Präfix passt
+     */
+    private static final Handler NOT_FOUND = (request, response) -> response.setError(ResponseCode.NOT_FOUND_404);
+
+    /**
+     * Antwortet falls kein Handler die Methode der Anfrage unterstützt
+     */
+    private static final Handler NOT_IMPLEMENTED = (request, response) -> response.setError(ResponseCode.NOT_IMPLEMENTED_501);
+
+    /**
+     * Registrierte Routen in der Reihenfolge der Registrierung
+     */
+    private final List<Route> routes = new ArrayList<>();
+
+    /**
+     * Wurzel des Trie, wird bei jeder Registrierung neu aufgebaut und danach nicht mehr verändert
+     */
+    private volatile Node root = new Node("");
+
+    /**
+     * Methoden mit mindestens einem Handler, nach {@link RequestMethod#ordinal()}
+     */
+    private volatile boolean[] implemented = new boolean[RequestMethod.values().length];
+
+    /**
+     * Gibt den Router des Servers zurück und erstellt ihn beim ersten Aufruf mit den eingebauten Handlern:
+     * Kennzahlen und Zustand unter ihren reservierten Pfaden, alle übrigen Pfade als Dateien aus wwwroot.
+     *
+     * @return Router
+     */
+    public static Router getInstance() {
+        Router router = instance;
+
+        if (router != null){
+            return router;
+        }
+
+        synchronized (Router.class){
+            if (instance == null){
+                router = new Router();
+                router.register("/", new StaticFileHandler(), RequestMethod.GET, RequestMethod.HEAD, RequestMethod.POST);
+
+                if (!ServerConfig.STATS_PATH.isEmpty()){
+                    router.register(ServerConfig.STATS_PATH, new MetricsHandler(), RequestMethod.GET, RequestMethod.HEAD);
+                }
+
+                if (!ServerConfig.HEALTH_PATH.isEmpty()){
+                    router.register(ServerConfig.HEALTH_PATH, new HealthHandler(), RequestMethod.GET, RequestMethod.HEAD);
+                }
+
+                instance = router;
+            }
+
+            return instance;
+        }
+    }
+
+    /**
+     * Registriert einen Handler für ein Präfix. Ein bereits registrierter Handler für Präfix und Methode wird ersetzt.
+     * Laufende Anfragen sehen entweder den alten oder den neuen Trie.
+     *
+     * @param prefix Normalisierter Pfad beginnend mit "/", z.B. "/api"
+     * @param handler Handler
+     * @param methods Methoden welche der Handler beantwortet
+     */
+    public synchronized void register(String prefix, Handler handler, RequestMethod... methods) {
+        if (!prefix.startsWith("/") || methods.length == 0){
+            throw new IllegalArgumentException("Invalid route: " + prefix + " " + Arrays.toString(methods));
+        }
+
+        routes.add(new Route(prefix, handler, methods));
+
+        Node built = new Node("");
+        boolean[] methodsInUse = new boolean[RequestMethod.values().length];
+
+        for (Route route : routes){
+            Node node = built.insert(route.prefix);
+
+            for (RequestMethod method : route.methods){
+                node.handlers[method.ordinal()] = route.handler;
+                methodsInUse[method.ordinal()] = true;
+            }
+        }
+
+        built.finish();
+
+        implemented = methodsInUse;
+        root = built;
+    }
+
+    /**
+     * Wählt den Handler einer Anfrage
+     *
+     * @param path Normalisierter Pfad beginnend mit "/"
+     * @param method Methode der Anfrage oder null falls die Methode unbekannt ist, z.B. OPTIONS
+     *
+     * @return Handler, bei fehlender Route ein Handler welcher 404, 405 oder 501 sendet
+     */
+    public Handler route(String path, RequestMethod method) {
+        if (method == null || !implemented[method.ordinal()]){
+            return NOT_IMPLEMENTED;
+        }
+
+        Node node = root;
+        Node match = null;
+        int position = 0;
+
+        while (node != null){
+            if (!path.startsWith(node.label, position)){
+                break;
+            }
+
+            position += node.label.length();
+
+            //Ein Präfix passt nur bis zu einer Grenze des Pfades
+            if (node.hasHandlers && (position == path.length() || path.charAt(position) == '/' || path.charAt(position - 1) == '/')){
+                match = node;
+            }
+
+            if (position == path.length()){
+                break;
+            }
+
+            node = node.child(path.charAt(position));
+        }
+
+        if (match == null){
+            return NOT_FOUND;
+        }
+
+        Handler handler = match.handlers[method.ordinal()];
+
+        return handler != null ? handler : match.methodNotAllowed;
+    }
+
+    /**
+     * Registrierter Handler eines Präfixes
+     */
+    private static class Route {
+
+        /**
+         * Präfix des Pfades
+         */
+        private final String prefix;
+
+        /**
+         * Handler
+         */
+        private final Handler handler;
+
+        /**
+         * Methoden welche der Handler beantwortet
+         */
+        private final RequestMethod[] methods;
+
+        /**
+         * Erstellt eine Route
+         *
+         * @param prefix Präfix des Pfades
+         * @param handler Handler
+         * @param methods Methoden welche der Handler beantwortet
+         */
+        private Route(String prefix, Handler handler, RequestMethod[] methods) {
+            this.prefix = prefix;
+            this.handler = handler;
+            this.methods = methods.clone();
+        }
+    }
+
+    /**
+     * Knoten des Radix Trie. Die Kante zum Knoten trägt einen Teil des Pfades, die Kinder unterscheiden sich
+     * im ersten Zeichen ihrer Kante.
+     */
+    private static class Node {
+
+        /**
+         * Teil des Pfades auf der Kante zu diesem Knoten
+         */
+        private String label;
+
+        /**
+         * Erstes Zeichen der Kante jedes Kindes
+         */
+        private char[] indices = new char[0];
+
+        /**
+         * Kinder in der Reihenfolge von {@link #indices}
+         */
+        private Node[] children = new Node[0];
+
+        /**
+         * Handler nach {@link RequestMethod#ordinal()}, null für nicht unterstützte Methoden
+         */
+        private Handler[] handlers = new Handler[RequestMethod.values().length];
+
+        /**
+         * Wenn wahr, dann endet an diesem Knoten ein registriertes Präfix
+         */
+        private boolean hasHandlers;
+
+        /**
+         * Antwortet mit 405 und den unterstützten Methoden im Allow Header
+         */
+        private Handler methodNotAllowed;
+
+        /**
+         * Erstellt einen Knoten
+         *
+         * @param label Teil des Pfades auf der Kante
+         */
+        private Node(String label) {
+            this.label = label;
+        }
+
+        /**
+         * Gibt das Kind zurück, dessen Kante mit einem Zeichen beginnt
+         *
+         * @param c Erstes Zeichen
+         *
+         * @return Kind oder null
+         */
+        private Node child(char c) {
+            for (int i = 0; i < indices.length; i++){
+                if (indices[i] == c){
+                    return children[i];
+                }
+            }
+
+            return null;
+        }
+
+        /**
+         * Fügt einen Pfad unterhalb dieses Knotens ein. Teilt sich der Pfad nur einen Teil einer Kante, so wird
+         * diese am Ende des gemeinsamen Präfixes geteilt.
+         *
+         * @param path Restlicher Pfad nach der Kante dieses Knotens
+         *
+         * @return Knoten an dem der Pfad endet
+         */
+        private Node insert(String path) {
+            if (path.isEmpty()){
+                return this;
+            }
+
+            Node child = child(path.charAt(0));
+
+            if (child == null){
+                child = new Node(path);
+                addChild(child);
+
+                return child;
+            }
+
+            int common = 0;
+            int max = Math.min(path.length(), child.label.length());
+
+            while (common < max && path.charAt(common) == child.label.charAt(common)){
+                common++;
+            }
+
+            if (common < child.label.length()){
+                //Kante teilen, der bisherige Knoten rückt mit dem Rest seiner Kante eine Ebene tiefer
+                Node split = new Node(child.label.substring(common));
+                split.indices = child.indices;
+                split.children = child.children;
+                split.handlers = child.handlers;
+
+                child.label = child.label.substring(0, common);
+                child.indices = new char[0];
+                child.children = new Node[0];
+                child.handlers = new Handler[RequestMethod.values().length];
+                child.addChild(split);
+            }
+
+            return child.insert(path.substring(common));
+        }
+
+        /**
+         * Hängt ein Kind an
+         *
+         * @param child Kind
+         */
+        private void addChild(Node child) {
+            indices = Arrays.copyOf(indices, indices.length + 1);
+            children = Arrays.copyOf(children, children.length + 1);
+
+            indices[indices.length - 1] = child.label.charAt(0);
+            children[children.length - 1] = child;
+        }
+
+        /**
+         * Berechnet nach dem Aufbau für diesen Knoten und alle Kinder die Antwort für nicht unterstützte Methoden
+         */
+        private void finish() {
+            StringBuilder allow = new StringBuilder();
+
+            for (RequestMethod method : RequestMethod.values()){
+                if (handlers[method.ordinal()] != null){
+                    allow.append(allow.length() == 0 ? "" : ", ").append(method.name());
+                }
+            }
+
+            hasHandlers = allow.length() > 0;
+
+            if (hasHandlers){
+                String methods = allow.toString();
+
+                methodNotAllowed = (request, response) -> {
+                    response.setError(ResponseCode.METHOD_NOT_ALLOWED_405);
+                    response.addHeader("Allow", methods);
+                };
+            }
+
+            for (Node child : children){
+                child.finish();
+            }
+        }
+    }
+}
@@ -0,0 +1,396 @@
+package edu.udo.cs.rvs.handler;
+
+import edu.udo.cs.rvs.DateFormatter;
+import edu.udo.cs.rvs.ServerConfig;
+import edu.udo.cs.rvs.cache.CachedFile;
+import edu.udo.cs.rvs.cache.Compression;
+import edu.udo.cs.rvs.cache.ContentCache;
+import edu.udo.cs.rvs.cache.DirectoryIndex;
+import edu.udo.cs.rvs.cache.FileMetadata;
+import edu.udo.cs.rvs.cache.MappedFileCache;
+import edu.udo.cs.rvs.cache.MetadataIndex;
+import edu.udo.cs.rvs.request.ByteRange;
+import edu.udo.cs.rvs.request.Request;
+import edu.udo.cs.rvs.request.RequestMethod;
+import edu.udo.cs.rvs.request.RequestParser;
+import edu.udo.cs.rvs.response.BufferBody;
+import edu.udo.cs.rvs.response.CompressingFileProducer;
+import edu.udo.cs.rvs.response.FileBody;
+import edu.udo.cs.rvs.response.HeaderTemplates;
+import edu.udo.cs.rvs.response.MimeRegistry;
+import edu.udo.cs.rvs.response.MimeType;
+import edu.udo.cs.rvs.response.Response;
+import edu.udo.cs.rvs.response.ResponseCode;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Liefert Dateien aus wwwroot aus, inklusive Ordnern mit Index Datei, bedingten Anfragen, Bereichen und
+ * komprimierten Kodierungen. Dateien werden über die Zwischenspeicher aus {@link edu.udo.cs.rvs.cache} gefunden.
+ */
+public class StaticFileHandler implements Handler {
+
+    /**
+     * Trennzeichen der Teile einer multipart/byteranges Antwort
+     */
+    private static final String BOUNDARY = "rvs-" + Long.toHexString(ThreadLocalRandom.current().nextLong());
+
+    @Override
+    public void handle(Request request, Response response) throws Exception {
+        try {
+            Path path = response.getResolution().getPath();
+
+            //Bekannte Dateien werden ohne Zugriff auf das Dateisystem gefunden
+            FileMetadata metadata = MetadataIndex.getInstance().get(path);
+
+            if (metadata == null && path.toFile().isDirectory()){
+                Path index = DirectoryIndex.getInstance().getIndexFile(path);
+
+                if (index == null){
+                    byte[] listing = ServerConfig.DIRECTORY_LISTING ? DirectoryIndex.getInstance().getListing(path) : null;
+
+                    if (listing == null){
+                        //Pfad führt zu einem Ordner und nicht zu einer Datei
+
+                        response.setError(ResponseCode.NO_CONTENT_204);
+
+                        return;
+                    }
+
+                    response.setContentType("text/html; charset=utf-8");
+                    response.setBody(listing);
+
+                    return;
+                }
+
+                path = index;
+                metadata = MetadataIndex.getInstance().get(path);
+            }
+
+            File file = path.toFile();
+
+            //Bedingte Anfragen werden nur mit den Validatoren beantwortet, ohne den Inhalt zu lesen
+            if (metadata == null){
+                decodeMissingFile(response, file);
+
+                return;
+            }
+
+            response.setValidators(metadata, null);
+
+            if (isNotModified(request, response, metadata)){
+                response.setError(ResponseCode.NOT_MODIFIED_304);
+
+                return;
+            }
+
+            CachedFile cached = ContentCache.getInstance().get(path);
+
+            if (cached == null){
+                response.setValidators(null, null);
+                decodeMissingFile(response, file);
+
+                return;
+            }
+
+            MimeType mimeType = MimeRegistry.getInstance().getType(path);
+            String contentType = mimeType.getContentType();
+
+            response.setContentType(mimeType);
+            response.setVaryEncoding(cached.hasGzipSibling() || Compression.isCompressible(contentType));
+            response.addHeader("Accept-Ranges", "bytes");
+
+            List<ByteRange> ranges = decodeRanges(request, cached, metadata);
+
+            if (ranges != null){
+                if (ranges.isEmpty()){
+                    //Kein Bereich liegt innerhalb der Datei
+
+                    response.setError(ResponseCode.RANGE_NOT_SATISFIABLE_416);
+                    response.addHeader("Content-Range", "bytes */" + cached.getSize());
+
+                    return;
+                }
+
+                if (buildRangeBody(response, cached, ranges, contentType)){
+                    return;
+                }
+            }
+
+            if (!chooseEncoding(request, response, cached, contentType)){
+                return;
+            }
+
+            if (cached.getContent() == null){
+                //Große Dateien werden beim Senden direkt aus der Datei übertragen
+                response.setBody(new FileBody(path, 0, cached.getSize()));
+
+                return;
+            }
+
+            response.setBody(cached.getContent());
+
+        } catch (NoSuchFileException e){
+            //Keine Datei unter diesem Pfad gefunden. Datei Existiert nicht
+
+            response.setValidators(null, null);
+            response.setError(ResponseCode.NOT_FOUND_404);
+        }
+    }
+
+    /**
+     * Wählt die Kodierung des Körpers anhand des Accept-Encoding Headers. Eine vorkomprimierte .gz Datei wird
+     * direkt gesendet, sonst wird der Inhalt komprimierbarer Typen einmal komprimiert und zwischengespeichert.
+     * Dateien außerhalb des Zwischenspeichers werden beim Senden komprimiert.
+     *
+     * @param request Anfrage
+     * @param response Antwort
+     * @param cached Eintrag der angefragten Datei
+     * @param contentType MIME-Typ der Datei
+     *
+     * @return Falsch wenn der Körper bereits gesetzt wurde
+     *
+     * @throws IOException Wird geworfen falls die .gz Datei nicht gelesen werden kann
+     */
+    private boolean chooseEncoding(Request request, Response response, CachedFile cached, String contentType) throws IOException {
+        if (request.acceptsEncoding(Compression.GZIP) && cached.hasGzipSibling()){
+            CachedFile gzip = ContentCache.getInstance().get(cached.getGzipSiblingPath());
+
+            if (gzip != null && gzip.getLastModified() >= cached.getLastModified()){
+                response.setContentEncoding(Compression.GZIP);
+
+                if (gzip.getContent() == null){
+                    response.setBody(new FileBody(gzip.getPath(), 0, gzip.getSize()));
+                }else {
+                    response.setBody(gzip.getContent());
+                }
+
+                return false;
+            }
+        }
+
+        if (!Compression.isCompressible(contentType)){
+            return true;
+        }
+
+        String encoding = null;
+        if (request.acceptsEncoding(Compression.GZIP)){
+            encoding = Compression.GZIP;
+        }else if (request.acceptsEncoding(Compression.DEFLATE)){
+            encoding = Compression.DEFLATE;
+        }
+
+        if (encoding != null && cached.getContent() == null){
+            if (!ServerConfig.STREAM_COMPRESSION){
+                return true;
+            }
+
+            //Große Dateien werden beim Senden komprimiert, ohne das Ergebnis zwischenzuspeichern
+            response.setContentEncoding(encoding);
+            response.setBody(new CompressingFileProducer(cached.getPath(), encoding));
+
+            return false;
+        }
+
+        if (encoding != null){
+            byte[] encoded = ContentCache.getInstance().getEncoded(cached, encoding);
+
+            if (encoded != null){
+                response.setContentEncoding(encoding);
+                response.setBody(encoded);
+
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Setzt den Status Code für eine Datei welche nicht gelesen werden konnte
+     *
+     * @param response Antwort
+     * @param file Angefragte Datei
+     */
+    private void decodeMissingFile(Response response, File file) {
+        if (!file.isFile()){
+            //Keine Datei unter diesem Pfad gefunden
+
+            response.setError(ResponseCode.NOT_FOUND_404);
+        }else {
+            //Datei darf nicht gelesen werden
+
+            response.setError(ResponseCode.FORBIDDEN_403);
+        }
+    }
+
+    /**
+     * Prüft die Bedingungen der Anfrage (RFC 7232). If-None-Match wird mit den Entity Tags aller Kodierungen
+     * verglichen (schwacher Vergleich), If-Modified-Since nur ohne If-None-Match beachtet.
+     *
+     * @param request Anfrage
+     * @param response Antwort, erhält das passende Entity Tag
+     * @param metadata Validatoren der angefragten Datei
+     *
+     * @return Wahr wenn eine 304 Antwort gesendet werden soll
+     */
+    private boolean isNotModified(Request request, Response response, FileMetadata metadata) {
+        String ifNoneMatch = request.getKnownHeader(RequestParser.IF_NONE_MATCH);
+
+        if (ifNoneMatch != null){
+            if (request.getRequestMethod() != RequestMethod.GET && request.getRequestMethod() != RequestMethod.HEAD){
+                return false;
+            }
+
+            for (String tag : ifNoneMatch.split(",")){
+                tag = tag.trim();
+
+                if (tag.equals("*")){
+                    return true;
+                }
+
+                if (tag.startsWith("W/")){
+                    tag = tag.substring(2);
+                }
+
+                String matching = metadata.findEntityTag(tag);
+
+                if (matching != null){
+                    //Die 304 Antwort enthält das Entity Tag der Kodierung welche der Nutzer bereits hat
+                    response.setValidators(metadata, matching);
+
+                    return true;
+                }
+            }
+
+            return false;
+        }
+
+        long ifModifiedSince = request.getIsModifiedSinceDate();
+
+        return ifModifiedSince != -1 && metadata.getLastModified() / 1000 <= ifModifiedSince / 1000;
+    }
+
+    /**
+     * Liest die angefragten Bereiche aus dem Range Header. Der Header wird nur bei GET beachtet und ignoriert,
+     * wenn ein If-Range Header nicht zur aktuellen Version der Datei passt.
+     *
+     * @param request Anfrage
+     * @param cached Eintrag der angefragten Datei
+     * @param metadata Validatoren der angefragten Datei
+     *
+     * @return Erfüllbare Bereiche, eine leere Liste für 416 oder null falls die ganze Datei gesendet wird
+     */
+    private List<ByteRange> decodeRanges(Request request, CachedFile cached, FileMetadata metadata) {
+        String range = request.getRequestMethod() == RequestMethod.GET ? request.getKnownHeader(RequestParser.RANGE) : null;
+
+        if (range == null){
+            return null;
+        }
+
+        String ifRange = request.getKnownHeader(RequestParser.IF_RANGE);
+
+        if (ifRange != null){
+            if (ifRange.startsWith("\"") || ifRange.startsWith("W/")){
+                //Starker Vergleich mit dem Entity Tag des unkodierten Inhalts (auch dem vorläufigen), schwache Tags passen nie
+                if (!metadata.getEntityTag(null).equals(metadata.findEntityTag(ifRange))){
+                    return null;
+                }
+            }else {
+                //Datum muss sekundengenau zur letzten Änderung passen
+                long date = request.getKnownHeaderDate(RequestParser.IF_RANGE);
+
+                if (date == DateFormatter.INVALID || date / 1000 != metadata.getLastModified() / 1000){
+                    return null;
+                }
+            }
+        }
+
+        return ByteRange.parse(range, cached.getSize());
+    }
+
+    /**
+     * Erstellt den Körper einer 206 Antwort. Ein einzelner Bereich wird direkt gesendet, mehrere Bereiche als
+     * multipart/byteranges. Die Bereiche werden ohne Kopie aus dem Zwischenspeicher oder gemeinsamen
+     * Abbildungen der Datei gesendet.
+     *
+     * @param response Antwort
+     * @param cached Eintrag der angefragten Datei
+     * @param ranges Erfüllbare Bereiche
+     * @param contentType MIME-Typ der Datei für die Köpfe der Teile
+     *
+     * @return Falsch wenn die Bereiche nicht gesendet werden können und die ganze Datei gesendet wird
+     *
+     * @throws IOException Wird geworfen falls die Datei nicht abgebildet werden kann
+     */
+    private boolean buildRangeBody(Response response, CachedFile cached, List<ByteRange> ranges, String contentType) throws IOException {
+        long size = cached.getSize();
+
+        if (ranges.size() == 1){
+            ByteRange range = ranges.get(0);
+            ByteBuffer buffer = sliceRange(cached, range);
+
+            response.setResponseCode(ResponseCode.PARTIAL_CONTENT_206);
+            response.addHeader("Content-Range", "bytes " + range.getFirst() + "-" + range.getLast() + "/" + size);
+
+            if (buffer == null){
+                //Zu große Dateien werden nicht abgebildet und direkt aus der Datei gesendet
+                response.setBody(new FileBody(cached.getPath(), range.getFirst(), range.getLength()));
+            }else {
+                response.setBody(new BufferBody(buffer));
+            }
+
+            return true;
+        }
+
+        ByteBuffer[] buffers = new ByteBuffer[ranges.size() * 2 + 1];
+
+        for (int i = 0; i < ranges.size(); i++){
+            ByteRange range = ranges.get(i);
+            ByteBuffer buffer = sliceRange(cached, range);
+
+            if (buffer == null){
+                return false;
+            }
+
+            String partHeader = "\r\n--" + BOUNDARY + "\r\n"
+                    + "Content-Type: " + contentType + "\r\n"
+                    + "Content-Range: bytes " + range.getFirst() + "-" + range.getLast() + "/" + size + "\r\n\r\n";
+
+            buffers[i * 2] = ByteBuffer.wrap(HeaderTemplates.ascii(partHeader));
+            buffers[i * 2 + 1] = buffer;
+        }
+
+        buffers[buffers.length - 1] = ByteBuffer.wrap(HeaderTemplates.ascii("\r\n--" + BOUNDARY + "--\r\n"));
+
+        response.setResponseCode(ResponseCode.PARTIAL_CONTENT_206);
+        response.setContentType("multipart/byteranges; boundary=" + BOUNDARY);
+        response.setBody(new BufferBody(buffers));
+
+        return true;
+    }
+
+    /**
+     * Gibt einen Bereich der Datei als Puffer zurück, ohne den Inhalt zu kopieren
+     *
+     * @param cached Eintrag der angefragten Datei
+     * @param range Bereich der Datei
+     *
+     * @return Puffer des Bereichs oder null falls die Datei zu groß zum Abbilden ist
+     *
+     * @throws IOException Wird geworfen falls die Datei nicht abgebildet werden kann
+     */
+    private ByteBuffer sliceRange(CachedFile cached, ByteRange range) throws IOException {
+        if (cached.getContent() != null){
+            return ByteBuffer.wrap(cached.getContent(), (int) range.getFirst(), (int) range.getLength()).slice();
+        }
+
+        return MappedFileCache.getInstance().slice(cached, range.getFirst(), range.getLength());
+    }
+}
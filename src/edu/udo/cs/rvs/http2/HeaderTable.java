@@ -0,0 +1,261 @@
+package edu.udo.cs.rvs.http2;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Tabelle von HPACK (RFC 7541 Abschnitt 2.3) aus der statischen Tabelle (Index 1 bis 61) und der dynamischen
+ * Tabelle dahinter. Die dynamische Tabelle ist ein Ringpuffer, der neueste Eintrag hat den kleinsten Index.
+ */
+final class HeaderTable {
+
+    /**
+     * Statische Tabelle aus RFC 7541 Anhang A
+     */
+    private static final String[][] STATIC = {
+            {":authority", ""}, {":method", "GET"}, {":method", "POST"}, {":path", "/"}, {":path", "/index.html"},
+            {":scheme", "http"}, {":scheme", "https"}, {":status", "200"}, {":status", "204"}, {":status", "206"},
+            {":status", "304"}, {":status", "400"}, {":status", "404"}, {":status", "500"}, {"accept-charset", ""},
+            {"accept-encoding", "gzip, deflate"}, {"accept-language", ""}, {"accept-ranges", ""}, {"accept", ""},
+            {"access-control-allow-origin", ""}, {"age", ""}, {"allow", ""}, {"authorization", ""},
+            {"cache-control", ""}, {"content-disposition", ""}, {"content-encoding", ""}, {"content-language", ""},
+            {"content-length", ""}, {"content-location", ""}, {"content-range", ""}, {"content-type", ""},
+            {"cookie", ""}, {"date", ""}, {"etag", ""}, {"expect", ""}, {"expires", ""}, {"from", ""}, {"host", ""},
+            {"if-match", ""}, {"if-modified-since", ""}, {"if-none-match", ""}, {"if-range", ""},
+            {"if-unmodified-since", ""}, {"last-modified", ""}, {"link", ""}, {"location", ""}, {"max-forwards", ""},
+            {"proxy-authenticate", ""}, {"proxy-authorization", ""}, {"range", ""}, {"referer", ""}, {"refresh", ""},
+            {"retry-after", ""}, {"server", ""}, {"set-cookie", ""}, {"strict-transport-security", ""},
+            {"transfer-encoding", ""}, {"user-agent", ""}, {"vary", ""}, {"via", ""}, {"www-authenticate", ""}
+    };
+
+    /**
+     * Anzahl der Einträge der statischen Tabelle
+     */
+    static final int STATIC_LENGTH = STATIC.length;
+
+    /**
+     * Zusätzliche Größe eines Eintrags zu Name und Wert
+     */
+    private static final int ENTRY_OVERHEAD = 32;
+
+    /**
+     * Erster Index jedes Namens der statischen Tabelle
+     */
+    private static final Map<String, Integer> STATIC_NAMES = new HashMap<>();
+
+    /**
+     * Index der Einträge der statischen Tabelle mit Wert, Schlüssel ist Name und Wert getrennt durch ein Null Zeichen
+     */
+    private static final Map<String, Integer> STATIC_FIELDS = new HashMap<>();
+
+    static {
+        for (int i = STATIC.length - 1; i >= 0; i--){
+            STATIC_NAMES.put(STATIC[i][0], i + 1);
+
+            if (!STATIC[i][1].isEmpty()){
+                STATIC_FIELDS.put(STATIC[i][0] + '\0' + STATIC[i][1], i + 1);
+            }
+        }
+    }
+
+    /**
+     * Namen der dynamischen Einträge
+     */
+    private String[] names = new String[16];
+
+    /**
+     * Werte der dynamischen Einträge
+     */
+    private String[] values = new String[16];
+
+    /**
+     * Position des neuesten dynamischen Eintrags im Ringpuffer
+     */
+    private int head;
+
+    /**
+     * Anzahl der dynamischen Einträge
+     */
+    private int count;
+
+    /**
+     * Größe der dynamischen Einträge nach RFC 7541 Abschnitt 4.1
+     */
+    private int size;
+
+    /**
+     * Maximale Größe der dynamischen Einträge
+     */
+    private int maxSize;
+
+    /**
+     * Erstellt eine Tabelle
+     *
+     * @param maxSize Maximale Größe der dynamischen Einträge
+     */
+    HeaderTable(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Gibt den Namen eines Eintrags zurück
+     *
+     * @param index Index ab 1
+     *
+     * @return Name
+     *
+     * @throws Http2Exception Wird geworfen falls der Index nicht existiert
+     */
+    String getName(int index) throws Http2Exception {
+        return index <= STATIC_LENGTH ? STATIC[checkIndex(index) - 1][0] : names[position(checkIndex(index))];
+    }
+
+    /**
+     * Gibt den Wert eines Eintrags zurück
+     *
+     * @param index Index ab 1
+     *
+     * @return Wert
+     *
+     * @throws Http2Exception Wird geworfen falls der Index nicht existiert
+     */
+    String getValue(int index) throws Http2Exception {
+        return index <= STATIC_LENGTH ? STATIC[checkIndex(index) - 1][1] : values[position(checkIndex(index))];
+    }
+
+    /**
+     * Prüft ob ein Index existiert
+     *
+     * @param index Index ab 1
+     *
+     * @return Index
+     *
+     * @throws Http2Exception Wird geworfen falls der Index nicht existiert
+     */
+    private int checkIndex(int index) throws Http2Exception {
+        if (index < 1 || index > STATIC_LENGTH + count){
+            throw new Http2Exception(Http2Exception.COMPRESSION_ERROR, "Invalid header index " + index);
+        }
+
+        return index;
+    }
+
+    /**
+     * Gibt die Position eines dynamischen Eintrags im Ringpuffer zurück
+     *
+     * @param index Index ab {@link #STATIC_LENGTH} + 1
+     *
+     * @return Position
+     */
+    private int position(int index) {
+        return (head + index - STATIC_LENGTH - 1) % names.length;
+    }
+
+    /**
+     * Sucht einen Eintrag für das Kodieren
+     *
+     * @param name Name in Kleinbuchstaben
+     * @param value Wert
+     *
+     * @return Index des Eintrags mit Name und Wert, sonst der negative Index eines Eintrags mit dem Namen oder 0
+     */
+    int find(String name, String value) {
+        Integer index = STATIC_FIELDS.get(name + '\0' + value);
+
+        if (index != null){
+            return index;
+        }
+
+        Integer nameIndex = STATIC_NAMES.get(name);
+        int result = nameIndex != null ? -nameIndex : 0;
+
+        for (int i = 0; i < count; i++){
+            int position = (head + i) % names.length;
+
+            if (names[position].equals(name)){
+                if (values[position].equals(value)){
+                    return STATIC_LENGTH + i + 1;
+                }
+
+                if (result == 0){
+                    result = -(STATIC_LENGTH + i + 1);
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Fügt einen Eintrag am Anfang der dynamischen Tabelle ein und entfernt die ältesten Einträge bis er passt.
+     * Ist der Eintrag größer als die Tabelle, bleibt die Tabelle leer.
+     *
+     * @param name Name
+     * @param value Wert
+     */
+    void add(String name, String value) {
+        int entrySize = name.length() + value.length() + ENTRY_OVERHEAD;
+
+        evict(maxSize - entrySize);
+
+        if (entrySize > maxSize){
+            return;
+        }
+
+        if (count == names.length){
+            String[] newNames = new String[names.length * 2];
+            String[] newValues = new String[values.length * 2];
+
+            for (int i = 0; i < count; i++){
+                newNames[i] = names[(head + i) % names.length];
+                newValues[i] = values[(head + i) % values.length];
+            }
+
+            names = newNames;
+            values = newValues;
+            head = 0;
+        }
+
+        head = (head - 1 + names.length) % names.length;
+        names[head] = name;
+        values[head] = value;
+        count++;
+        size += entrySize;
+    }
+
+    /**
+     * Setzt die maximale Größe der dynamischen Einträge und entfernt die ältesten Einträge welche nicht mehr passen
+     *
+     * @param maxSize Maximale Größe
+     */
+    void setMaxSize(int maxSize) {
+        this.maxSize = maxSize;
+
+        evict(maxSize);
+    }
+
+    /**
+     * Gibt die maximale Größe der dynamischen Einträge zurück
+     *
+     * @return Maximale Größe
+     */
+    int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Entfernt die ältesten Einträge bis die Größe höchstens der Grenze entspricht
+     *
+     * @param limit Grenze, bei einem negativen Wert werden alle Einträge entfernt
+     */
+    private void evict(int limit) {
+        while (count > 0 && size > limit){
+            int position = (head + count - 1) % names.length;
+
+            size -= names[position].length() + values[position].length() + ENTRY_OVERHEAD;
+            names[position] = null;
+            values[position] = null;
+            count--;
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package edu.udo.cs.rvs.http2;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Dekodiert Header Blöcke nach HPACK (RFC 7541). Namen und Werte werden als ISO-8859-1 Strings zurückgegeben,
+ * so wie sie auch aus dem Kopf einer HTTP/1.x Anfrage gelesen werden.
+ */
+final class HpackDecoder {
+
+    /**
+     * Größe der dynamischen Tabelle welche der Server erlaubt (Standard aus RFC 7540 Abschnitt 6.5.2)
+     */
+    static final int MAX_TABLE_SIZE = 4096;
+
+    /**
+     * Tabelle der Verbindung
+     */
+    private final HeaderTable table = new HeaderTable(MAX_TABLE_SIZE);
+
+    /**
+     * Aktuelle Position im Block
+     */
+    private int position;
+
+    /**
+     * Dekodiert einen vollständigen Header Block
+     *
+     * @param buf Puffer
+     * @param start Beginn des Blocks
+     * @param end Ende des Blocks
+     * @param fields Erhält abwechselnd Name und Wert jedes Headers
+     *
+     * @throws Http2Exception Wird geworfen falls der Block fehlerhaft ist, die Verbindung ist danach unbrauchbar
+     */
+    void decode(byte[] buf, int start, int end, List<String> fields) throws Http2Exception {
+        position = start;
+        boolean first = true;
+
+        while (position < end){
+            int b = buf[position] & 0xff;
+
+            if ((b & 0x80) != 0){
+                //Indexierter Header
+                int index = readInt(buf, end, 7);
+
+                if (index == 0){
+                    throw new Http2Exception(Http2Exception.COMPRESSION_ERROR, "Header index 0");
+                }
+
+                fields.add(table.getName(index));
+                fields.add(table.getValue(index));
+            }else if ((b & 0xc0) == 0x40){
+                //Literal mit Aufnahme in die dynamische Tabelle
+                String name = readName(buf, end, 6);
+                String value = readString(buf, end);
+
+                table.add(name, value);
+
+                fields.add(name);
+                fields.add(value);
+            }else if ((b & 0xe0) == 0x20){
+                //Änderung der Tabellengröße, nur am Anfang eines Blocks erlaubt
+                int size = readInt(buf, end, 5);
+
+                if (!first || size > MAX_TABLE_SIZE){
+                    throw new Http2Exception(Http2Exception.COMPRESSION_ERROR, "Invalid table size update");
+                }
+
+                table.setMaxSize(size);
+
+                continue;
+            }else {
+                //Literal ohne Aufnahme (0000) bzw. niemals aufzunehmen (0001)
+                String name = readName(buf, end, 4);
+
+                fields.add(name);
+                fields.add(readString(buf, end));
+            }
+
+            first = false;
+        }
+    }
+
+    /**
+     * Liest den Namen eines Literals, entweder als Index oder als String
+     *
+     * @param buf Puffer
+     * @param end Ende des Blocks
+     * @param prefixBits Anzahl der Bits des Index im ersten Byte
+     *
+     * @return Name
+     *
+     * @throws Http2Exception Wird geworfen falls der Name fehlerhaft ist
+     */
+    private String readName(byte[] buf, int end, int prefixBits) throws Http2Exception {
+        int index = readInt(buf, end, prefixBits);
+
+        return index == 0 ? readString(buf, end) : table.getName(index);
+    }
+
+    /**
+     * Liest einen String, Huffman kodiert oder direkt
+     *
+     * @param buf Puffer
+     * @param end Ende des Blocks
+     *
+     * @return String
+     *
+     * @throws Http2Exception Wird geworfen falls der String fehlerhaft ist oder über das Ende hinausgeht
+     */
+    private String readString(byte[] buf, int end) throws Http2Exception {
+        if (position >= end){
+            throw new Http2Exception(Http2Exception.COMPRESSION_ERROR, "Truncated header block");
+        }
+
+        boolean huffman = (buf[position] & 0x80) != 0;
+        int length = readInt(buf, end, 7);
+
+        if (length > end - position){
+            throw new Http2Exception(Http2Exception.COMPRESSION_ERROR, "Truncated header block");
+        }
+
+        String value = huffman ? Huffman.decode(buf, position, position + length)
+                : new String(buf, position, length, StandardCharsets.ISO_8859_1);
+
+        position += length;
+
+        return value;
+    }
+
+    /**
+     * Liest eine Zahl nach RFC 7541 Abschnitt 5.1
+     *
+     * @param buf Puffer
+     * @param end Ende des Blocks
+     * @param prefixBits Anzahl der Bits der Zahl im ersten Byte
+     *
+     * @return Zahl
+     *
+     * @throws Http2Exception Wird geworfen falls die Zahl unvollständig ist oder nicht in einen int passt
+     */
+    private int readInt(byte[] buf, int end, int prefixBits) throws Http2Exception {
+        int max = (1 << prefixBits) - 1;
+        long value = buf[position++] & max;
+
+        if (value < max){
+            return (int) value;
+        }
+
+        int shift = 0;
+        int b;
+
+        do {
+            if (position >= end || shift > 28){
+                throw new Http2Exception(Http2Exception.COMPRESSION_ERROR, "Invalid integer in header block");
+            }
+
+            b = buf[position++] & 0xff;
+            value += (long) (b & 0x7f) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+
+        if (value > Integer.MAX_VALUE){
+            throw new Http2Exception(Http2Exception.COMPRESSION_ERROR, "Invalid integer in header block");
+        }
+
+        return (int) value;
+    }
+}
@@ -0,0 +1,159 @@
+package edu.udo.cs.rvs.http2;
+
+import edu.udo.cs.rvs.response.ResponseBuffer;
+
+import java.util.Set;
+
+/**
+ * Kodiert die Header der Antworten nach HPACK (RFC 7541). Wiederkehrende Header (z.B. Content-Type) werden in
+ * die dynamische Tabelle aufgenommen und danach als ein Byte gesendet. Header deren Wert sich mit jeder Antwort
+ * ändert werden ohne Aufnahme gesendet, damit sie die wiederkehrenden nicht aus der Tabelle verdrängen.
+ */
+final class HpackEncoder {
+
+    /**
+     * Header welche nicht in die dynamische Tabelle aufgenommen werden
+     */
+    private static final Set<String> NOT_INDEXED = Set.of("date", "content-length", "etag", "last-modified", "content-range");
+
+    /**
+     * Index von ":status: 200" in der statischen Tabelle, die Indizes bis 14 folgen für 204, 206, 304, 400, 404 und 500
+     */
+    private static final int STATUS_200 = 8;
+
+    /**
+     * Status Codes der statischen Tabelle ab {@link #STATUS_200}
+     */
+    private static final int[] STATIC_STATUS = {200, 204, 206, 304, 400, 404, 500};
+
+    /**
+     * Tabelle der Verbindung
+     */
+    private final HeaderTable table = new HeaderTable(HpackDecoder.MAX_TABLE_SIZE);
+
+    /**
+     * Wenn wahr, dann muss die geänderte Größe der Tabelle am Anfang des nächsten Blocks gemeldet werden
+     */
+    private boolean sizeChanged;
+
+    /**
+     * Setzt die Größe der Tabelle entsprechend SETTINGS_HEADER_TABLE_SIZE des Nutzers, höchstens jedoch
+     * {@link HpackDecoder#MAX_TABLE_SIZE}
+     *
+     * @param size Vom Nutzer erlaubte Größe
+     */
+    void setMaxTableSize(long size) {
+        int maxSize = (int) Math.min(size, HpackDecoder.MAX_TABLE_SIZE);
+
+        if (maxSize != table.getMaxSize()){
+            table.setMaxSize(maxSize);
+            sizeChanged = true;
+        }
+    }
+
+    /**
+     * Beginnt einen neuen Header Block
+     *
+     * @param out Ziel
+     */
+    void beginBlock(ResponseBuffer out) {
+        if (sizeChanged){
+            writeInt(out, 5, 0x20, table.getMaxSize());
+            sizeChanged = false;
+        }
+    }
+
+    /**
+     * Kodiert den Status Code
+     *
+     * @param out Ziel
+     * @param code Status Code
+     */
+    void status(ResponseBuffer out, int code) {
+        for (int i = 0; i < STATIC_STATUS.length; i++){
+            if (STATIC_STATUS[i] == code){
+                writeInt(out, 7, 0x80, STATUS_200 + i);
+                return;
+            }
+        }
+
+        writeInt(out, 4, 0x00, STATUS_200);
+        writeString(out, Integer.toString(code));
+    }
+
+    /**
+     * Kodiert einen Header
+     *
+     * @param out Ziel
+     * @param name Name in Kleinbuchstaben
+     * @param value Wert
+     */
+    void header(ResponseBuffer out, String name, String value) {
+        int index = table.find(name, value);
+
+        if (index > 0){
+            writeInt(out, 7, 0x80, index);
+            return;
+        }
+
+        boolean indexed = !NOT_INDEXED.contains(name);
+
+        if (indexed){
+            writeInt(out, 6, 0x40, -index);
+            table.add(name, value);
+        }else {
+            writeInt(out, 4, 0x00, -index);
+        }
+
+        if (index == 0){
+            writeString(out, name);
+        }
+
+        writeString(out, value);
+    }
+
+    /**
+     * Schreibt einen String, Huffman kodiert falls dieser dadurch kürzer wird
+     *
+     * @param out Ziel
+     * @param value String aus ISO-8859-1 Zeichen
+     */
+    private static void writeString(ResponseBuffer out, String value) {
+        int encodedLength = Huffman.encodedLength(value);
+
+        if (encodedLength < value.length()){
+            writeInt(out, 7, 0x80, encodedLength);
+            Huffman.encode(value, out);
+        }else {
+            writeInt(out, 7, 0x00, value.length());
+            out.writeAscii(value);
+        }
+    }
+
+    /**
+     * Schreibt eine Zahl nach RFC 7541 Abschnitt 5.1
+     *
+     * @param out Ziel
+     * @param prefixBits Anzahl der Bits der Zahl im ersten Byte
+     * @param flags Übrige Bits des ersten Bytes
+     * @param value Zahl
+     */
+    private static void writeInt(ResponseBuffer out, int prefixBits, int flags, int value) {
+        int max = (1 << prefixBits) - 1;
+
+        if (value < max){
+            out.write(flags | value);
+            return;
+        }
+
+        out.write(flags | max);
+        value -= max;
+
+        while (value >= 0x80){
+            out.write((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+
+        out.write(value);
+    }
+}
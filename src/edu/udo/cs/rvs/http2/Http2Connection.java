@@ -0,0 +1,1676 @@
+package edu.udo.cs.rvs.http2;
+
+import edu.udo.cs.rvs.HTTPVersion;
+import edu.udo.cs.rvs.ServerConfig;
+import edu.udo.cs.rvs.limit.ClientLimiter;
+import edu.udo.cs.rvs.log.AccessLog;
+import edu.udo.cs.rvs.metrics.ServerMetrics;
+import edu.udo.cs.rvs.request.Request;
+import edu.udo.cs.rvs.request.RequestBody;
+import edu.udo.cs.rvs.request.RequestMethod;
+import edu.udo.cs.rvs.request.RequestParseException;
+import edu.udo.cs.rvs.request.RequestParser;
+import edu.udo.cs.rvs.response.BufferBody;
+import edu.udo.cs.rvs.response.ChannelBody;
+import edu.udo.cs.rvs.response.HeaderTemplates;
+import edu.udo.cs.rvs.response.Response;
+import edu.udo.cs.rvs.response.ResponseBuffer;
+import edu.udo.cs.rvs.response.ResponseCode;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * HTTP/2 Verbindung über Klartext (h2c, RFC 7540), unabhängig von der Engine. Die Engine übergibt empfangene Bytes
+ * an {@link #receive(ByteBuffer)} und sendet danach die Bytes aus {@link #output()} bis diese null zurückgibt.
+ * Eine Verbindung darf nur von einem Thread gleichzeitig genutzt werden.
+ * <p>
+ * Jeder Stream wird über die gleiche Pipeline wie eine HTTP/1.x Anfrage beantwortet: Aus den Headern wird ein
+ * Anfragekopf erstellt und mit dem {@link RequestParser} gelesen, die {@link Response} schreibt ihren Kopf in einen
+ * Puffer und die Header daraus werden mit HPACK kodiert. Die Körper der Streams werden abwechselnd in DATA Frames
+ * gesendet, jeweils begrenzt durch die Fenster der Flusskontrolle von Verbindung und Stream. Da jeder Frame einen
+ * eigenen Kopf hat, werden auch Dateien über den Ausgabepuffer kopiert statt mit sendfile gesendet.
+ */
+public class Http2Connection {
+
+    /**
+     * Präfix mit dem der Nutzer eine HTTP/2 Verbindung beginnt (RFC 7540 Abschnitt 3.5)
+     */
+    public static final byte[] PREFACE = "PRI * HTTP/2.0\r\n\r\nSM\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1);
+
+    /**
+     * Länge eines Frame Kopfes
+     */
+    private static final int FRAME_HEADER_SIZE = 9;
+
+    /**
+     * Maximale Länge des Inhalts eines Frames, der Server erhöht SETTINGS_MAX_FRAME_SIZE nicht
+     */
+    private static final int MAX_FRAME_SIZE = 16384;
+
+    /**
+     * Größe eines Eingabepuffers der das Präfix und zwei Frames maximaler Länge aufnimmt
+     */
+    public static final int INPUT_BUFFER_SIZE = PREFACE.length + 2 * (FRAME_HEADER_SIZE + MAX_FRAME_SIZE);
+
+    /**
+     * Größe des Ausgabepuffers, vier DATA Frames maximaler Länge
+     */
+    private static final int OUTPUT_BUFFER_SIZE = 4 * (FRAME_HEADER_SIZE + MAX_FRAME_SIZE);
+
+    /**
+     * Startgröße der Fenster der Flusskontrolle
+     */
+    private static final int DEFAULT_WINDOW = 65535;
+
+    /**
+     * Maximale Größe eines Fensters der Flusskontrolle
+     */
+    private static final long MAX_WINDOW = Integer.MAX_VALUE;
+
+    //Frame Typen (RFC 7540 Abschnitt 6)
+    private static final int DATA = 0x0;
+    private static final int HEADERS = 0x1;
+    private static final int PRIORITY = 0x2;
+    private static final int RST_STREAM = 0x3;
+    private static final int SETTINGS = 0x4;
+    private static final int PUSH_PROMISE = 0x5;
+    private static final int PING = 0x6;
+    private static final int GOAWAY = 0x7;
+    private static final int WINDOW_UPDATE = 0x8;
+    private static final int CONTINUATION = 0x9;
+
+    //Flags der Frames
+    private static final int FLAG_END_STREAM = 0x1;
+    private static final int FLAG_ACK = 0x1;
+    private static final int FLAG_END_HEADERS = 0x4;
+    private static final int FLAG_PADDED = 0x8;
+    private static final int FLAG_PRIORITY = 0x20;
+
+    //Parameter des SETTINGS Frames
+    private static final int SETTINGS_HEADER_TABLE_SIZE = 0x1;
+    private static final int SETTINGS_ENABLE_PUSH = 0x2;
+    private static final int SETTINGS_MAX_CONCURRENT_STREAMS = 0x3;
+    private static final int SETTINGS_INITIAL_WINDOW_SIZE = 0x4;
+    private static final int SETTINGS_MAX_FRAME_SIZE = 0x5;
+    private static final int SETTINGS_MAX_HEADER_LIST_SIZE = 0x6;
+
+    /**
+     * Antwort auf eine Anfrage mit "Upgrade: h2c", danach folgen die Frames des Servers
+     */
+    private static final byte[] SWITCHING_PROTOCOLS = ("HTTP/1.1 101 Switching Protocols\r\n"
+            + "Connection: Upgrade\r\nUpgrade: h2c\r\n\r\n").getBytes(StandardCharsets.ISO_8859_1);
+
+    /**
+     * Header welche nur für eine HTTP/1.x Verbindung gelten und in HTTP/2 nicht gesendet werden
+     */
+    private static final Set<String> CONNECTION_HEADERS = Set.of("connection", "keep-alive", "proxy-connection",
+            "transfer-encoding", "upgrade");
+
+    /**
+     * Zustand eines Streams vom Empfang der Header bis zum Ende der Antwort
+     */
+    private static class Stream {
+
+        /**
+         * ID des Streams
+         */
+        private final int id;
+
+        /**
+         * Fenster in dem der Server Bytes des Körpers senden darf
+         */
+        private long window;
+
+        /**
+         * Wenn wahr, dann sendet der Nutzer noch den Körper der Anfrage
+         */
+        private boolean receiving;
+
+        /**
+         * Wenn wahr, dann wartet der Stream auf ein WINDOW_UPDATE und ist nicht in der Warteschlange
+         */
+        private boolean blocked;
+
+        /**
+         * Aus den Headern erstellter Anfragekopf bis die Anfrage beantwortet wird
+         */
+        private byte[] head;
+
+        /**
+         * Fehler der Header bis die Anfrage beantwortet wird oder null
+         */
+        private RequestParseException malformed;
+
+        /**
+         * Bisher empfangener Körper der Anfrage bis die Antwort gesendet ist oder null
+         */
+        private RequestBody requestBody;
+
+        /**
+         * Noch zu sendender Körper oder null
+         */
+        private ChannelBody body;
+
+        /**
+         * Zeitpunkt ({@link System#nanoTime()}) an dem die Anfrage vollständig empfangen war
+         */
+        private long start;
+
+        /**
+         * Methode der Anfrage oder null falls sie nicht gelesen werden konnte
+         */
+        private RequestMethod method;
+
+        /**
+         * Ziel der Anfrage für das Zugriffsprotokoll
+         */
+        private String target;
+
+        /**
+         * HTTP Version der Anfrage für das Zugriffsprotokoll
+         */
+        private HTTPVersion version = HTTPVersion.HTTP_2_0;
+
+        /**
+         * Referer Header für das Zugriffsprotokoll
+         */
+        private String referer;
+
+        /**
+         * User-Agent Header für das Zugriffsprotokoll
+         */
+        private String userAgent;
+
+        /**
+         * Status Code der Antwort
+         */
+        private ResponseCode code;
+
+        /**
+         * Wenn wahr, dann wird die Antwort am Ende in den Kennzahlen aufgezeichnet, vorab erstellte Antworten
+         * werden bereits beim Erstellen gezählt
+         */
+        private boolean record;
+
+        /**
+         * Anzahl der gesendeten Bytes inklusive der Frame Köpfe
+         */
+        private long length;
+
+        /**
+         * Erstellt einen Stream
+         *
+         * @param id ID des Streams
+         * @param window Startgröße des Fensters
+         */
+        private Stream(int id, long window) {
+            this.id = id;
+            this.window = window;
+        }
+    }
+
+    /**
+     * Kanal welcher die Bytes eines Körpers bis zu einer Grenze in den Ausgabepuffer kopiert
+     */
+    private static class FrameSink implements WritableByteChannel {
+
+        /**
+         * Ausgabepuffer
+         */
+        private ByteBuffer target;
+
+        /**
+         * Anzahl der Bytes welche noch in den aktuellen Frame passen
+         */
+        private int remaining;
+
+        @Override
+        public int write(ByteBuffer src) {
+            int n = Math.min(src.remaining(), remaining);
+            int limit = src.limit();
+
+            src.limit(src.position() + n);
+            target.put(src);
+            src.limit(limit);
+
+            remaining -= n;
+
+            return n;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    /**
+     * Adresse des Nutzers
+     */
+    private final InetAddress client;
+
+    /**
+     * Dekodiert die Header der Anfragen
+     */
+    private final HpackDecoder decoder = new HpackDecoder();
+
+    /**
+     * Kodiert die Header der Antworten
+     */
+    private final HpackEncoder encoder = new HpackEncoder();
+
+    /**
+     * Offene Streams nach ID
+     */
+    private final Map<Integer, Stream> streams = new HashMap<>();
+
+    /**
+     * Streams mit Körper welche senden dürfen, der Reihe nach
+     */
+    private final ArrayDeque<Stream> sending = new ArrayDeque<>();
+
+    /**
+     * Noch zu sendende Frames außer DATA, diese werden vor allen Körpern gesendet
+     */
+    private final ResponseBuffer control = new ResponseBuffer();
+
+    /**
+     * Anzahl der bereits in den Ausgabepuffer übernommenen Bytes von {@link #control}
+     */
+    private int controlPosition;
+
+    /**
+     * Header Block der Anfrage welcher aus HEADERS und CONTINUATION Frames zusammengesetzt wird
+     */
+    private final ResponseBuffer requestBlock = new ResponseBuffer();
+
+    /**
+     * Header Block der aktuellen Antwort
+     */
+    private final ResponseBuffer responseBlock = new ResponseBuffer();
+
+    /**
+     * Dekodierte Header, abwechselnd Name und Wert
+     */
+    private final List<String> fields = new ArrayList<>();
+
+    /**
+     * Puffer für den Anfragekopf welcher aus den Headern erstellt wird
+     */
+    private final ResponseBuffer requestHead = new ResponseBuffer();
+
+    /**
+     * Puffer in den die {@link Response} ihren Kopf schreibt
+     */
+    private final ResponseBuffer scratch = new ResponseBuffer();
+
+    /**
+     * Ausgabepuffer, zwischen Position und Limit liegen die noch zu sendenden Bytes
+     */
+    private final ByteBuffer output = ByteBuffer.allocate(OUTPUT_BUFFER_SIZE);
+
+    /**
+     * Kopiert Körper in den Ausgabepuffer
+     */
+    private final FrameSink sink = new FrameSink();
+
+    /**
+     * Wenn wahr, dann wurde das Präfix des Nutzers bereits empfangen
+     */
+    private boolean prefaceReceived;
+
+    /**
+     * Stream dessen Header Block gerade empfangen wird oder 0
+     */
+    private int blockStream;
+
+    /**
+     * Wenn wahr, dann war im HEADERS Frame des aktuellen Header Blocks END_STREAM gesetzt
+     */
+    private boolean blockEndStream;
+
+    /**
+     * Höchste ID eines vom Nutzer geöffneten Streams
+     */
+    private int lastStreamId;
+
+    /**
+     * Fenster der Verbindung in dem der Server Bytes von Körpern senden darf
+     */
+    private long window = DEFAULT_WINDOW;
+
+    /**
+     * Startgröße der Fenster neuer Streams nach SETTINGS_INITIAL_WINDOW_SIZE des Nutzers
+     */
+    private long initialWindow = DEFAULT_WINDOW;
+
+    /**
+     * Anzahl der empfangenen Bytes von Körpern für welche noch kein WINDOW_UPDATE der Verbindung gesendet wurde
+     */
+    private int consumed;
+
+    /**
+     * Wenn wahr, dann wurde GOAWAY gesendet oder empfangen und es werden keine neuen Streams angenommen
+     */
+    private boolean goingAway;
+
+    /**
+     * Wenn wahr, dann ist die Verbindung nach einem Fehler unbrauchbar und wird nach dem GOAWAY geschlossen
+     */
+    private boolean failed;
+
+    /**
+     * Erstellt eine Verbindung
+     *
+     * @param client Adresse des Nutzers
+     */
+    private Http2Connection(InetAddress client) {
+        this.client = client;
+
+        output.limit(0);
+    }
+
+    /**
+     * Erstellt eine Verbindung, welche der Nutzer direkt mit dem Präfix begonnen hat (prior knowledge)
+     *
+     * @param client Adresse des Nutzers
+     *
+     * @return Verbindung, das Präfix wird von {@link #receive(ByteBuffer)} gelesen
+     */
+    public static Http2Connection open(InetAddress client) {
+        Http2Connection connection = new Http2Connection(client);
+        connection.writeSettings();
+
+        return connection;
+    }
+
+    /**
+     * Prüft ob Bytes mit dem Präfix einer HTTP/2 Verbindung beginnen oder mit einem Teil davon
+     *
+     * @param buf Puffer
+     * @param start Beginn der Bytes
+     * @param end Ende der Bytes
+     *
+     * @return Wahr wenn alle Bytes bis zur Länge des Präfix mit diesem übereinstimmen
+     */
+    public static boolean startsWithPreface(byte[] buf, int start, int end) {
+        int length = Math.min(end - start, PREFACE.length);
+
+        if (length <= 0){
+            return false;
+        }
+
+        for (int i = 0; i < length; i++){
+            if (buf[start + i] != PREFACE[i]){
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Prüft ob eine HTTP/1.1 Anfrage auf HTTP/2 wechseln möchte (RFC 7540 Abschnitt 3.2). Anfragen mit Körper
+     * werden weiter über HTTP/1.1 beantwortet.
+     *
+     * @param request Anfrage
+     *
+     * @return Wahr wenn die Verbindung mit {@link #upgrade(InetAddress, Request)} wechseln soll
+     */
+    public static boolean isUpgrade(Request request) {
+        if (!ServerConfig.HTTP2 || request.isEmpty() || request.getHttpVersion() != HTTPVersion.HTTP_1_1){
+            return false;
+        }
+
+        String upgrade = request.getHeader("Upgrade");
+
+        if (upgrade == null || request.getHeader("HTTP2-Settings") == null){
+            return false;
+        }
+
+        String contentLength = request.getKnownHeader(RequestParser.CONTENT_LENGTH);
+
+        if (request.getKnownHeader(RequestParser.TRANSFER_ENCODING) != null || (contentLength != null && !contentLength.trim().equals("0"))){
+            return false;
+        }
+
+        for (String protocol : upgrade.split(",")){
+            if (protocol.trim().equalsIgnoreCase("h2c")){
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Wechselt eine HTTP/1.1 Verbindung auf HTTP/2. Die Ausgabe beginnt mit "101 Switching Protocols", die Anfrage
+     * wird als Stream 1 beantwortet.
+     *
+     * @param client Adresse des Nutzers
+     * @param request Anfrage mit "Upgrade: h2c", siehe {@link #isUpgrade(Request)}
+     *
+     * @return Verbindung, danach folgt das Präfix des Nutzers
+     */
+    public static Http2Connection upgrade(InetAddress client, Request request) {
+        Http2Connection connection = new Http2Connection(client);
+
+        connection.control.write(SWITCHING_PROTOCOLS);
+        connection.writeSettings();
+
+        try {
+            byte[] payload = Base64.getUrlDecoder().decode(request.getHeader("HTTP2-Settings").trim());
+
+            if (payload.length % 6 == 0){
+                connection.applySettings(payload, 0, payload.length);
+            }
+        } catch (IllegalArgumentException | Http2Exception e) {
+            //Ungültige Einstellungen werden ignoriert, der Nutzer sendet sie nach dem Präfix erneut
+        }
+
+        Stream stream = new Stream(1, connection.initialWindow);
+        connection.lastStreamId = 1;
+        connection.streams.put(1, stream);
+
+        stream.start = System.nanoTime();
+        connection.respond(stream, request);
+
+        return connection;
+    }
+
+    /**
+     * Verarbeitet empfangene Bytes. Vollständige Frames werden aus dem Puffer gelesen, ein unvollständiger Frame
+     * bleibt ab der Position im Puffer bis weitere Bytes empfangen wurden.
+     *
+     * @param in Empfangene Bytes zwischen Position und Limit, muss ein Puffer mit Array sein
+     */
+    public void receive(ByteBuffer in) {
+        try {
+            if (!prefaceReceived){
+                if (!startsWithPreface(in.array(), in.arrayOffset() + in.position(), in.arrayOffset() + in.limit())){
+                    if (in.hasRemaining()){
+                        throw new Http2Exception(Http2Exception.PROTOCOL_ERROR, "Invalid connection preface");
+                    }
+
+                    return;
+                }
+
+                if (in.remaining() < PREFACE.length){
+                    return;
+                }
+
+                in.position(in.position() + PREFACE.length);
+                prefaceReceived = true;
+            }
+
+            while (!failed && in.remaining() >= FRAME_HEADER_SIZE){
+                int start = in.position();
+                int length = ((in.get(start) & 0xff) << 16) | ((in.get(start + 1) & 0xff) << 8) | (in.get(start + 2) & 0xff);
+
+                if (length > MAX_FRAME_SIZE){
+                    throw new Http2Exception(Http2Exception.FRAME_SIZE_ERROR, "Frame too large");
+                }
+
+                if (in.remaining() < FRAME_HEADER_SIZE + length){
+                    break;
+                }
+
+                int type = in.get(start + 3) & 0xff;
+                int flags = in.get(start + 4) & 0xff;
+                int streamId = in.getInt(start + 5) & 0x7fffffff;
+
+                in.position(start + FRAME_HEADER_SIZE + length);
+
+                handleFrame(type, flags, streamId, in.array(), in.arrayOffset() + start + FRAME_HEADER_SIZE, length);
+            }
+
+            if (consumed > 0 && !failed){
+                writeWindowUpdate(0, consumed);
+                consumed = 0;
+            }
+        } catch (Http2Exception e) {
+            fail(e.getErrorCode(), e.getMessage());
+        }
+
+        if (failed){
+            in.position(in.limit());
+        }
+    }
+
+    /**
+     * Verarbeitet einen Frame
+     *
+     * @param type Typ
+     * @param flags Flags
+     * @param streamId ID des Streams
+     * @param buf Puffer
+     * @param offset Beginn des Inhalts
+     * @param length Länge des Inhalts
+     *
+     * @throws Http2Exception Wird bei einem Fehler der Verbindung geworfen
+     */
+    private void handleFrame(int type, int flags, int streamId, byte[] buf, int offset, int length) throws Http2Exception {
+        if (blockStream != 0 && type != CONTINUATION){
+            throw new Http2Exception(Http2Exception.PROTOCOL_ERROR, "Expected CONTINUATION");
+        }
+
+        switch (type){
+            case DATA:
+                onData(flags, streamId, buf, offset, length);
+                break;
+            case HEADERS:
+                onHeaders(flags, streamId, buf, offset, length);
+                break;
+            case PRIORITY:
+                //Der Server sendet die Streams der Reihe nach, Prioritäten werden ignoriert
+                if (streamId == 0){
+                    throw new Http2Exception(Http2Exception.PROTOCOL_ERROR, "PRIORITY on stream 0");
+                }
+                break;
+            case RST_STREAM:
+                onReset(streamId, length);
+                break;
+            case SETTINGS:
+                onSettings(flags, streamId, buf, offset, length);
+                break;
+            case PUSH_PROMISE:
+                throw new Http2Exception(Http2Exception.PROTOCOL_ERROR, "PUSH_PROMISE from client");
+            case PING:
+                onPing(flags, streamId, buf, offset, length);
+                break;
+            case GOAWAY:
+                if (streamId != 0){
+                    throw new Http2Exception(Http2Exception.PROTOCOL_ERROR, "GOAWAY on stream " + streamId);
+                }
+
+                goingAway = true;
+                break;
+            case WINDOW_UPDATE:
+                onWindowUpdate(streamId, buf, offset, length);
+                break;
+            case CONTINUATION:
+                onContinuation(flags, streamId, buf, offset, length);
+                break;
+            default:
+                //Unbekannte Frame Typen werden ignoriert
+        }
+    }
+
+    /**
+     * Verarbeitet einen DATA Frame. Der Inhalt wird an den Körper der Anfrage angehängt und das Fenster sofort
+     * wieder geöffnet, große Körper landen dabei in einer temporären Datei.
+     *
+     * @param flags Flags
+     * @param streamId ID des Streams
+     * @param buf Puffer
+     * @param offset Beginn des Inhalts
+     * @param length Länge des Inhalts
+     *
+     * @throws Http2Exception Wird bei einem Fehler der Verbindung geworfen
+     */
+    private void onData(int flags, int streamId, byte[] buf, int offset, int length) throws Http2Exception {
+        if (streamId == 0){
+            throw new Http2Exception(Http2Exception.PROTOCOL_ERROR, "DATA on stream 0");
+        }
+
+        if ((flags & FLAG_PADDED) != 0 && (length == 0 || (buf[offset] & 0xff) >= length)){
+            throw new Http2Exception(Http2Exception.PROTOCOL_ERROR, "Invalid padding");
+        }
+
+        //Auch das Auffüllen zählt für die Flusskontrolle
+        consumed += length;
+
+        Stream stream = streams.get(streamId);
+
+        if (stream == null || !stream.receiving){
+            if (streamId > lastStreamId){
+                throw new Http2Exception(Http2Exception.PROTOCOL_ERROR, "DATA on idle stream");
+            }
+
+            writeReset(streamId, Http2Exception.STREAM_CLOSED);
+            return;
+        }
+
+        int padding = (flags & FLAG_PADDED) != 0 ? (buf[offset] & 0xff) + 1 : 0;
+
+        //Nach einem Fehler wird der restliche Körper verworfen und erst nach dem Ende des Streams geantwortet
+        if (length > padding && stream.malformed == null){
+            try {
+                if (stream.requestBody == null){
+                    stream.requestBody = new RequestBody();
+                }
+
+                stream.requestBody.write(buf, offset + (padding > 0 ? 1 : 0), length - padding);
+            } catch (RequestParseException e) {
+                stream.malformed = e;
+            } catch (IOException e) {
+                stream.malformed = new RequestParseException(ResponseCode.INTERNAL_SERVER_ERROR_500, e.getMessage());
+            }
+
+            if (stream.malformed != null){
+                stream.requestBody.close();
+                stream.requestBody = null;
+            }
+        }
+
+        if ((flags & FLAG_END_STREAM) != 0){
+            stream.receiving = false;
+            handleRequest(stream);
+        }else if (length > 0){
+            writeWindowUpdate(streamId, length);
+        }
+    }
+
+    /**
+     * Verarbeitet einen HEADERS Frame
+     *
+     * @param flags Flags
+     * @param streamId ID des Streams
+     * @param buf Puffer
+     * @param offset Beginn des Inhalts
+     * @param length Länge des Inhalts
+     *
+     * @throws Http2Exception Wird bei einem Fehler der Verbindung geworfen
+     */
+    private void onHeaders(int flags, int streamId, byte[] buf, int offset, int length) throws Http2Exception {
+        if (streamId == 0 || (streamId & 1) == 0){
+            throw new Http2Exception(Http2Exception.PROTOCOL_ERROR, "HEADERS on invalid stream " + streamId);
+        }
+
+        int padding = 0;
+
+        if ((flags & FLAG_PADDED) != 0){
+            if (length == 0){
+                throw new Http2Exception(Http2Exception.PROTOCOL_ERROR, "Invalid padding");
+            }
+
+            padding = buf[offset] & 0xff;
+            offset++;
+            length--;
+        }
+
+        if ((flags & FLAG_PRIORITY) != 0){
+            offset += 5;
+            length -= 5;
+        }
+
+        if (length - padding < 0){
+            throw new Http2Exception(Http2Exception.PROTOCOL_ERROR, "Invalid padding");
+        }
+
+        requestBlock.reset();
+        appendBlock(buf, offset, length - padding);
+
+        blockStream = streamId;
+        blockEndStream = (flags & FLAG_END_STREAM) != 0;
+
+        if ((flags & FLAG_END_HEADERS) != 0){
+            endHeaders();
+        }
+    }
+
+    /**
+     * Verarbeitet einen CONTINUATION Frame
+     *
+     * @param flags Flags
+     * @param streamId ID des Streams
+     * @param buf Puffer
+     * @param offset Beginn des Inhalts
+     * @param length Länge des Inhalts
+     *
+     * @throws Http2Exception Wird bei einem Fehler der Verbindung geworfen
+     */
+    private void onContinuation(int flags, int streamId, byte[] buf, int offset, int length) throws Http2Exception {
+        if (blockStream == 0 || streamId != blockStream){
+            throw new Http2Exception(Http2Exception.PROTOCOL_ERROR, "Unexpected CONTINUATION");
+        }
+
+        appendBlock(buf, offset, length);
+
+        if ((flags & FLAG_END_HEADERS) != 0){
+            endHeaders();
+        }
+    }
+
+    /**
+     * Hängt einen Teil des Header Blocks an
+     *
+     * @param buf Puffer
+     * @param offset Beginn
+     * @param length Länge
+     *
+     * @throws Http2Exception Wird geworfen falls der Block größer als {@link ServerConfig#MAX_HEADER_SIZE} wird
+     */
+    private void appendBlock(byte[] buf, int offset, int length) throws Http2Exception {
+        if (requestBlock.size() + length > ServerConfig.MAX_HEADER_SIZE){
+            throw new Http2Exception(Http2Exception.ENHANCE_YOUR_CALM, "Header block too large");
+        }
+
+        requestBlock.write(buf, offset, length);
+    }
+
+    /**
+     * Dekodiert den vollständigen Header Block und öffnet den Stream. Ohne Körper wird die Anfrage sofort beantwortet.
+     *
+     * @throws Http2Exception Wird bei einem Fehler der Verbindung geworfen
+     */
+    private void endHeaders() throws Http2Exception {
+        int streamId = blockStream;
+        blockStream = 0;
+
+        //Der Block muss auch für abgelehnte Streams dekodiert werden, da er die dynamische Tabelle verändert
+        ByteBuffer block = requestBlock.toByteBuffer();
+        fields.clear();
+        decoder.decode(block.array(), 0, block.limit(), fields);
+
+        Stream stream = streams.get(streamId);
+
+        if (stream != null){
+            //Trailer nach dem Körper, diese werden ignoriert
+            if (!stream.receiving || !blockEndStream){
+                throw new Http2Exception(Http2Exception.PROTOCOL_ERROR, "Unexpected HEADERS on stream " + streamId);
+            }
+
+            stream.receiving = false;
+            handleRequest(stream);
+
+            return;
+        }
+
+        if (streamId <= lastStreamId){
+            throw new Http2Exception(Http2Exception.STREAM_CLOSED, "HEADERS on closed stream " + streamId);
+        }
+
+        lastStreamId = streamId;
+
+        if (goingAway){
+            return;
+        }
+
+        if (streams.size() >= ServerConfig.HTTP2_MAX_STREAMS){
+            writeReset(streamId, Http2Exception.REFUSED_STREAM);
+            return;
+        }
+
+        stream = new Stream(streamId, initialWindow);
+        streams.put(streamId, stream);
+
+        try {
+            stream.head = buildHead();
+        } catch (RequestParseException e) {
+            stream.malformed = e;
+        }
+
+        if (blockEndStream){
+            handleRequest(stream);
+        }else {
+            stream.receiving = true;
+        }
+    }
+
+    /**
+     * Erstellt aus den dekodierten Headern einen HTTP/1.x Anfragekopf, welcher mit dem {@link RequestParser}
+     * gelesen wird. Die Pseudo Header ergeben die Anfragezeile und den Host Header.
+     *
+     * @return Anfragekopf
+     *
+     * @throws RequestParseException Wird geworfen falls die Header fehlerhaft oder zu groß sind
+     */
+    private byte[] buildHead() throws RequestParseException {
+        String method = null;
+        String path = null;
+        String authority = null;
+
+        for (int i = 0; i < fields.size(); i += 2){
+            String name = fields.get(i);
+            String value = fields.get(i + 1);
+
+            //Zeilenumbrüche würden im Anfragekopf weitere Header bzw. Anfragen einschleusen
+            if (!isValid(name, true) || !isValid(value, false)){
+                throw new RequestParseException(ResponseCode.BAD_REQUEST_400, "Invalid header field");
+            }
+
+            if (name.startsWith(":")){
+                switch (name){
+                    case ":method":
+                        method = value;
+                        break;
+                    case ":path":
+                        path = value;
+                        break;
+                    case ":authority":
+                        authority = value;
+                        break;
+                    case ":scheme":
+                        break;
+                    default:
+                        throw new RequestParseException(ResponseCode.BAD_REQUEST_400, "Unknown pseudo header " + name);
+                }
+            }
+        }
+
+        if (method == null || path == null || method.isEmpty() || path.isEmpty() || method.indexOf(' ') != -1 || path.indexOf(' ') != -1){
+            throw new RequestParseException(ResponseCode.BAD_REQUEST_400, "Missing or invalid pseudo headers");
+        }
+
+        requestHead.reset();
+        requestHead.writeAscii(method);
+        requestHead.write(' ');
+        requestHead.writeAscii(path);
+        requestHead.writeAscii(" HTTP/2.0\r\n");
+
+        if (authority != null){
+            requestHead.writeAscii("Host: ");
+            requestHead.writeAscii(authority);
+            requestHead.write(HeaderTemplates.CRLF);
+        }
+
+        for (int i = 0; i < fields.size(); i += 2){
+            String name = fields.get(i);
+
+            if (name.startsWith(":") || CONNECTION_HEADERS.contains(name) || (authority != null && name.equals("host"))){
+                continue;
+            }
+
+            requestHead.writeAscii(name);
+            requestHead.writeAscii(": ");
+            requestHead.writeAscii(fields.get(i + 1));
+            requestHead.write(HeaderTemplates.CRLF);
+
+            if (requestHead.size() > ServerConfig.MAX_REQUEST_LINE + ServerConfig.MAX_HEADER_SIZE){
+                throw new RequestParseException(ResponseCode.REQUEST_HEADER_FIELDS_TOO_LARGE_431, "Request header too large");
+            }
+        }
+
+        requestHead.write(HeaderTemplates.CRLF);
+
+        return Arrays.copyOf(requestHead.toByteBuffer().array(), requestHead.size());
+    }
+
+    /**
+     * Prüft ob ein Name bzw. Wert in einen Anfragekopf übernommen werden kann
+     *
+     * @param value Name oder Wert
+     * @param name Wenn wahr, dann sind zusätzlich Leerzeichen und ein Doppelpunkt nach dem ersten Zeichen verboten
+     *
+     * @return Wahr wenn der String gültig ist
+     */
+    private static boolean isValid(String value, boolean name) {
+        if (name && value.isEmpty()){
+            return false;
+        }
+
+        for (int i = 0; i < value.length(); i++){
+            char c = value.charAt(i);
+
+            if (c == '\r' || c == '\n' || c == '\0' || (name && (c == ' ' || (c == ':' && i > 0)))){
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Liest den Anfragekopf eines vollständig empfangenen Streams und beantwortet die Anfrage
+     *
+     * @param stream Stream
+     */
+    private void handleRequest(Stream stream) {
+        stream.start = System.nanoTime();
+
+        try {
+            if (stream.malformed != null){
+                throw stream.malformed;
+            }
+
+            RequestParser parser = new RequestParser(ServerConfig.MAX_REQUEST_LINE, ServerConfig.MAX_HEADER_SIZE);
+            parser.parse(stream.head, stream.head.length);
+
+            Request request = Request.fromHttp2Stream(stream.head, parser);
+            long received = stream.requestBody != null ? stream.requestBody.getLength() : 0;
+            String contentLength = request.getKnownHeader(RequestParser.CONTENT_LENGTH);
+
+            if (request.hasConflictingHeader(RequestParser.CONTENT_LENGTH)
+                    || contentLength != null && !contentLength.trim().equals(Long.toString(received))){
+                throw new RequestParseException(ResponseCode.BAD_REQUEST_400, "Content-Length does not match DATA");
+            }
+
+            request.setBody(stream.requestBody);
+
+            respond(stream, request);
+        } catch (RequestParseException e) {
+            respondStatus(stream, e.getResponseCode());
+        }
+
+        stream.head = null;
+    }
+
+    /**
+     * Beantwortet eine Anfrage über die {@link Response} und stellt die Header in die Ausgabe
+     *
+     * @param stream Stream
+     * @param request Anfrage
+     */
+    private void respond(Stream stream, Request request) {
+        stream.method = request.getRequestMethod();
+
+        AccessLog accessLog = AccessLog.getInstance();
+
+        if (accessLog.isEnabled()){
+            stream.target = request.getRequestedPath();
+            stream.version = request.getHttpVersion();
+            stream.referer = accessLog.isCombined() ? request.getHeader("Referer") : null;
+            stream.userAgent = accessLog.isCombined() ? request.getHeader("User-Agent") : null;
+        }
+
+        if (!ClientLimiter.getInstance().acquireRequest(client)){
+            respondStatus(stream, ResponseCode.TOO_MANY_REQUESTS_429);
+            return;
+        }
+
+        try {
+            scratch.reset();
+
+            Response response = new Response(request, scratch, true);
+            response.setDeferChannelBody(true);
+            response.sendResponse();
+
+            stream.code = response.getResponseCode();
+            stream.record = true;
+
+            ByteBuffer head = scratch.toByteBuffer();
+            encodeHead(head.array(), head.limit());
+
+            sendHeaders(stream, response.getChannelBody());
+        } catch (Exception e) {
+            //Unerwarteter Fehler, nur dieser Stream wird mit 500 beantwortet
+            ServerMetrics.getInstance().recordError();
+
+            respondStatus(stream, ResponseCode.INTERNAL_SERVER_ERROR_500);
+        }
+    }
+
+    /**
+     * Beantwortet eine Anfrage mit einer vorab erstellten Antwort (z.B. 400 bei fehlerhaften Headern)
+     *
+     * @param stream Stream
+     * @param code Status Code
+     */
+    private void respondStatus(Stream stream, ResponseCode code) {
+        byte[] response = HeaderTemplates.statusResponse(code);
+
+        ServerMetrics.getInstance().recordStatusResponse(code, response.length);
+
+        stream.code = code;
+        stream.record = false;
+
+        int headEnd = encodeHead(response, response.length);
+        ChannelBody body = null;
+
+        if (headEnd < response.length && stream.method != RequestMethod.HEAD){
+            body = new BufferBody(ByteBuffer.wrap(response, headEnd, response.length - headEnd));
+        }
+
+        sendHeaders(stream, body);
+    }
+
+    /**
+     * Kodiert den HTTP/1.x Kopf einer Antwort als Header Block in {@link #responseBlock}. Header der
+     * HTTP/1.x Verbindung (z.B. Connection) werden ausgelassen.
+     *
+     * @param buf Puffer mit dem Kopf
+     * @param end Ende der Bytes im Puffer
+     *
+     * @return Position nach dem Kopf
+     */
+    private int encodeHead(byte[] buf, int end) {
+        responseBlock.reset();
+        encoder.beginBlock(responseBlock);
+
+        int lineEnd = indexOfLineEnd(buf, 0, end);
+        int space = 0;
+
+        while (buf[space] != ' '){
+            space++;
+        }
+
+        encoder.status(responseBlock, (buf[space + 1] - '0') * 100 + (buf[space + 2] - '0') * 10 + (buf[space + 3] - '0'));
+
+        int position = lineEnd + 2;
+
+        while (position < end){
+            lineEnd = indexOfLineEnd(buf, position, end);
+
+            if (lineEnd == position){
+                return position + 2;
+            }
+
+            int colon = position;
+
+            while (buf[colon] != ':'){
+                colon++;
+            }
+
+            String name = new String(buf, position, colon - position, StandardCharsets.ISO_8859_1).toLowerCase(Locale.ROOT);
+
+            int valueStart = colon + 1;
+
+            while (valueStart < lineEnd && buf[valueStart] == ' '){
+                valueStart++;
+            }
+
+            if (!CONNECTION_HEADERS.contains(name)){
+                encoder.header(responseBlock, name, new String(buf, valueStart, lineEnd - valueStart, StandardCharsets.ISO_8859_1));
+            }
+
+            position = lineEnd + 2;
+        }
+
+        return end;
+    }
+
+    /**
+     * Sucht das Ende einer Zeile
+     *
+     * @param buf Puffer
+     * @param start Beginn der Suche
+     * @param end Ende der Bytes im Puffer
+     *
+     * @return Position des CR oder end falls die Zeile nicht endet
+     */
+    private static int indexOfLineEnd(byte[] buf, int start, int end) {
+        for (int i = start; i < end - 1; i++){
+            if (buf[i] == '\r' && buf[i + 1] == '\n'){
+                return i;
+            }
+        }
+
+        return end;
+    }
+
+    /**
+     * Stellt den Header Block der Antwort als HEADERS und CONTINUATION Frames in die Ausgabe. Ohne Körper endet
+     * der Stream mit den Headern, sonst wird er zum Senden eingereiht.
+     *
+     * @param stream Stream
+     * @param body Körper oder null
+     */
+    private void sendHeaders(Stream stream, ChannelBody body) {
+        boolean endStream = body == null || body.isDone();
+
+        byte[] block = responseBlock.toByteBuffer().array();
+        int length = responseBlock.size();
+        int offset = 0;
+        int type = HEADERS;
+
+        do {
+            int chunk = Math.min(length - offset, MAX_FRAME_SIZE);
+            int flags = (offset + chunk == length ? FLAG_END_HEADERS : 0) | (type == HEADERS && endStream ? FLAG_END_STREAM : 0);
+
+            writeFrameHeader(control, chunk, type, flags, stream.id);
+            control.write(block, offset, chunk);
+
+            stream.length += FRAME_HEADER_SIZE + chunk;
+            offset += chunk;
+            type = CONTINUATION;
+        } while (offset < length);
+
+        if (endStream){
+            if (body != null){
+                body.close();
+            }
+
+            finish(stream);
+        }else {
+            stream.body = body;
+            sending.add(stream);
+        }
+    }
+
+    /**
+     * Beendet einen Stream nach dem letzten Frame der Antwort und zeichnet diese auf
+     *
+     * @param stream Stream
+     */
+    private void finish(Stream stream) {
+        streams.remove(stream.id);
+
+        if (stream.requestBody != null){
+            stream.requestBody.close();
+            stream.requestBody = null;
+        }
+
+        if (stream.record){
+            ServerMetrics.getInstance().recordRequest(stream.method, stream.code, stream.length, stream.start);
+        }
+
+        AccessLog.getInstance().log(client, stream.method, stream.target, stream.version, stream.referer,
+                stream.userAgent, stream.code, stream.length, stream.start);
+    }
+
+    /**
+     * Verarbeitet einen RST_STREAM Frame, die Antwort des Streams wird abgebrochen
+     *
+     * @param streamId ID des Streams
+     * @param length Länge des Inhalts
+     *
+     * @throws Http2Exception Wird bei einem Fehler der Verbindung geworfen
+     */
+    private void onReset(int streamId, int length) throws Http2Exception {
+        if (length != 4){
+            throw new Http2Exception(Http2Exception.FRAME_SIZE_ERROR, "Invalid RST_STREAM length");
+        }
+
+        if (streamId == 0 || streamId > lastStreamId){
+            throw new Http2Exception(Http2Exception.PROTOCOL_ERROR, "RST_STREAM on idle stream " + streamId);
+        }
+
+        Stream stream = streams.remove(streamId);
+
+        if (stream != null){
+            release(stream);
+        }
+    }
+
+    /**
+     * Verarbeitet einen SETTINGS Frame und bestätigt ihn
+     *
+     * @param flags Flags
+     * @param streamId ID des Streams
+     * @param buf Puffer
+     * @param offset Beginn des Inhalts
+     * @param length Länge des Inhalts
+     *
+     * @throws Http2Exception Wird bei einem Fehler der Verbindung geworfen
+     */
+    private void onSettings(int flags, int streamId, byte[] buf, int offset, int length) throws Http2Exception {
+        if (streamId != 0){
+            throw new Http2Exception(Http2Exception.PROTOCOL_ERROR, "SETTINGS on stream " + streamId);
+        }
+
+        if ((flags & FLAG_ACK) != 0){
+            if (length != 0){
+                throw new Http2Exception(Http2Exception.FRAME_SIZE_ERROR, "SETTINGS ACK with payload");
+            }
+
+            return;
+        }
+
+        if (length % 6 != 0){
+            throw new Http2Exception(Http2Exception.FRAME_SIZE_ERROR, "Invalid SETTINGS length");
+        }
+
+        applySettings(buf, offset, length);
+
+        writeFrameHeader(control, 0, SETTINGS, FLAG_ACK, 0);
+    }
+
+    /**
+     * Übernimmt die Parameter eines SETTINGS Frames
+     *
+     * @param buf Puffer
+     * @param offset Beginn der Parameter
+     * @param length Länge der Parameter, ein Vielfaches von 6
+     *
+     * @throws Http2Exception Wird bei einem ungültigen Wert geworfen
+     */
+    private void applySettings(byte[] buf, int offset, int length) throws Http2Exception {
+        for (int i = offset; i < offset + length; i += 6){
+            int id = ((buf[i] & 0xff) << 8) | (buf[i + 1] & 0xff);
+            long value = ((buf[i + 2] & 0xffL) << 24) | ((buf[i + 3] & 0xff) << 16) | ((buf[i + 4] & 0xff) << 8) | (buf[i + 5] & 0xff);
+
+            switch (id){
+                case SETTINGS_HEADER_TABLE_SIZE:
+                    encoder.setMaxTableSize(value);
+                    break;
+                case SETTINGS_ENABLE_PUSH:
+                    if (value > 1){
+                        throw new Http2Exception(Http2Exception.PROTOCOL_ERROR, "Invalid SETTINGS_ENABLE_PUSH");
+                    }
+                    break;
+                case SETTINGS_INITIAL_WINDOW_SIZE:
+                    if (value > MAX_WINDOW){
+                        throw new Http2Exception(Http2Exception.FLOW_CONTROL_ERROR, "Invalid SETTINGS_INITIAL_WINDOW_SIZE");
+                    }
+
+                    //Die Änderung gilt auch für die Fenster der offenen Streams (RFC 7540 Abschnitt 6.9.2)
+                    long delta = value - initialWindow;
+                    initialWindow = value;
+
+                    for (Stream stream : streams.values()){
+                        stream.window += delta;
+
+                        if (stream.window > MAX_WINDOW){
+                            throw new Http2Exception(Http2Exception.FLOW_CONTROL_ERROR, "Window overflow");
+                        }
+
+                        unblock(stream);
+                    }
+                    break;
+                case SETTINGS_MAX_FRAME_SIZE:
+                    if (value < MAX_FRAME_SIZE || value > 0xffffff){
+                        throw new Http2Exception(Http2Exception.PROTOCOL_ERROR, "Invalid SETTINGS_MAX_FRAME_SIZE");
+                    }
+                    break;
+                default:
+                    //Übrige Parameter betreffen nur die Anfragen des Nutzers bzw. sind unbekannt
+            }
+        }
+    }
+
+    /**
+     * Verarbeitet einen PING Frame und sendet ihn als Bestätigung zurück
+     *
+     * @param flags Flags
+     * @param streamId ID des Streams
+     * @param buf Puffer
+     * @param offset Beginn des Inhalts
+     * @param length Länge des Inhalts
+     *
+     * @throws Http2Exception Wird bei einem Fehler der Verbindung geworfen
+     */
+    private void onPing(int flags, int streamId, byte[] buf, int offset, int length) throws Http2Exception {
+        if (length != 8){
+            throw new Http2Exception(Http2Exception.FRAME_SIZE_ERROR, "Invalid PING length");
+        }
+
+        if (streamId != 0){
+            throw new Http2Exception(Http2Exception.PROTOCOL_ERROR, "PING on stream " + streamId);
+        }
+
+        if ((flags & FLAG_ACK) == 0){
+            writeFrameHeader(control, 8, PING, FLAG_ACK, 0);
+            control.write(buf, offset, 8);
+        }
+    }
+
+    /**
+     * Verarbeitet einen WINDOW_UPDATE Frame
+     *
+     * @param streamId ID des Streams, 0 für die Verbindung
+     * @param buf Puffer
+     * @param offset Beginn des Inhalts
+     * @param length Länge des Inhalts
+     *
+     * @throws Http2Exception Wird bei einem Fehler der Verbindung geworfen
+     */
+    private void onWindowUpdate(int streamId, byte[] buf, int offset, int length) throws Http2Exception {
+        if (length != 4){
+            throw new Http2Exception(Http2Exception.FRAME_SIZE_ERROR, "Invalid WINDOW_UPDATE length");
+        }
+
+        int increment = (((buf[offset] & 0x7f) << 24) | ((buf[offset + 1] & 0xff) << 16) | ((buf[offset + 2] & 0xff) << 8) | (buf[offset + 3] & 0xff));
+
+        if (streamId == 0){
+            if (increment == 0){
+                throw new Http2Exception(Http2Exception.PROTOCOL_ERROR, "WINDOW_UPDATE of 0");
+            }
+
+            window += increment;
+
+            if (window > MAX_WINDOW){
+                throw new Http2Exception(Http2Exception.FLOW_CONTROL_ERROR, "Window overflow");
+            }
+
+            return;
+        }
+
+        Stream stream = streams.get(streamId);
+
+        if (stream == null){
+            return;
+        }
+
+        stream.window += increment;
+
+        if (increment == 0 || stream.window > MAX_WINDOW){
+            streams.remove(streamId);
+            release(stream);
+
+            writeReset(streamId, increment == 0 ? Http2Exception.PROTOCOL_ERROR : Http2Exception.FLOW_CONTROL_ERROR);
+            return;
+        }
+
+        unblock(stream);
+    }
+
+    /**
+     * Reiht einen auf ein WINDOW_UPDATE wartenden Stream wieder zum Senden ein, sobald sein Fenster offen ist
+     *
+     * @param stream Stream
+     */
+    private void unblock(Stream stream) {
+        if (stream.blocked && stream.window > 0){
+            stream.blocked = false;
+            sending.add(stream);
+        }
+    }
+
+    /**
+     * Gibt die nächsten zu sendenden Bytes zurück. Diese müssen gesendet werden bevor erneut aufgerufen wird,
+     * ein teilweise gesendeter Puffer wird beim nächsten Aufruf mit den restlichen Bytes zurückgegeben.
+     *
+     * @return Puffer mit den Bytes zwischen Position und Limit oder null falls nichts zu senden ist
+     */
+    public ByteBuffer output() {
+        if (!output.hasRemaining()){
+            fill();
+        }
+
+        return output.hasRemaining() ? output : null;
+    }
+
+    /**
+     * Füllt den Ausgabepuffer, zuerst mit den übrigen Frames und danach abwechselnd mit DATA Frames der Streams
+     */
+    private void fill() {
+        output.clear();
+
+        int pending = control.size() - controlPosition;
+
+        if (pending > 0){
+            int n = Math.min(pending, output.remaining());
+
+            output.put(control.toByteBuffer().array(), controlPosition, n);
+            controlPosition += n;
+
+            if (controlPosition == control.size()){
+                control.reset();
+                controlPosition = 0;
+            }
+        }
+
+        //Ein DATA Frame darf erst nach den HEADERS seines Streams gesendet werden. Nach einem Upgrade wartet der
+        //Körper von Stream 1 auf das Präfix, da manche Nutzer nach der 101 Antwort nur wenige Bytes puffern.
+        while (controlPosition == 0 && prefaceReceived && window > 0 && output.remaining() > FRAME_HEADER_SIZE && !sending.isEmpty()){
+            Stream stream = sending.poll();
+
+            if (stream.window <= 0){
+                stream.blocked = true;
+                continue;
+            }
+
+            if (!writeData(stream)){
+                break;
+            }
+        }
+
+        output.flip();
+    }
+
+    /**
+     * Schreibt einen DATA Frame eines Streams in den Ausgabepuffer
+     *
+     * @param stream Stream mit Körper
+     *
+     * @return Falsch wenn der Körper gerade keine Bytes liefert
+     */
+    private boolean writeData(Stream stream) {
+        int frameStart = output.position();
+        int max = (int) Math.min(Math.min(output.remaining() - FRAME_HEADER_SIZE, MAX_FRAME_SIZE), Math.min(window, stream.window));
+
+        output.position(frameStart + FRAME_HEADER_SIZE);
+        sink.target = output;
+        sink.remaining = max;
+
+        try {
+            while (sink.remaining > 0 && !stream.body.isDone()){
+                if (stream.body.transferTo(sink) <= 0){
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            //Datei nicht mehr lesbar, nur dieser Stream wird abgebrochen
+            output.position(frameStart);
+            streams.remove(stream.id);
+            release(stream);
+            writeReset(stream.id, Http2Exception.INTERNAL_ERROR);
+
+            return true;
+        }
+
+        int written = max - sink.remaining;
+        boolean done = stream.body.isDone();
+
+        if (written == 0 && !done){
+            output.position(frameStart);
+            sending.addFirst(stream);
+
+            return false;
+        }
+
+        int flags = done ? FLAG_END_STREAM : 0;
+
+        output.put(frameStart, (byte) (written >>> 16));
+        output.put(frameStart + 1, (byte) (written >>> 8));
+        output.put(frameStart + 2, (byte) written);
+        output.put(frameStart + 3, (byte) DATA);
+        output.put(frameStart + 4, (byte) flags);
+        output.putInt(frameStart + 5, stream.id);
+
+        window -= written;
+        stream.window -= written;
+        stream.length += FRAME_HEADER_SIZE + written;
+
+        if (done){
+            stream.body.close();
+            stream.body = null;
+            finish(stream);
+        }else {
+            sending.add(stream);
+        }
+
+        return true;
+    }
+
+    /**
+     * Gibt die Anzahl der noch zu sendenden Bytes zurück, z.B. um die Frist für das Senden zu bemessen
+     *
+     * @return Anzahl der Bytes in der Ausgabe und der noch offenen Körper
+     */
+    public long getPendingLength() {
+        long pending = output.remaining() + control.size() - controlPosition;
+
+        for (Stream stream : streams.values()){
+            if (stream.body != null){
+                pending += stream.body.getRemaining();
+            }
+        }
+
+        return pending;
+    }
+
+    /**
+     * Prüft ob die Verbindung ohne offene Streams und ohne ausstehende Ausgabe ist
+     *
+     * @return Wahr wenn die Verbindung ohne Verlust einer Antwort geschlossen werden kann
+     */
+    public boolean isIdle() {
+        return streams.isEmpty() && !hasPendingOutput();
+    }
+
+    /**
+     * Prüft ob die Verbindung geschlossen werden soll, weil nach einem GOAWAY alle Streams beendet sind
+     *
+     * @return Wahr wenn die Verbindung geschlossen werden soll
+     */
+    public boolean isClosed() {
+        return (failed || (goingAway && streams.isEmpty())) && !hasPendingOutput();
+    }
+
+    /**
+     * Prüft ob noch Bytes in der Ausgabe liegen
+     *
+     * @return Wahr wenn noch Bytes gesendet werden müssen
+     */
+    private boolean hasPendingOutput() {
+        return output.hasRemaining() || control.size() > controlPosition;
+    }
+
+    /**
+     * Beendet die Verbindung geordnet: Neue Streams werden nicht mehr angenommen, offene noch beantwortet
+     */
+    public void shutdown() {
+        if (!goingAway){
+            goingAway = true;
+            writeGoAway(Http2Exception.NO_ERROR, null);
+        }
+    }
+
+    /**
+     * Gibt die Körper aller offenen Streams frei, wenn die Verbindung geschlossen wird
+     */
+    public void close() {
+        for (Stream stream : streams.values()){
+            release(stream);
+        }
+
+        streams.clear();
+        sending.clear();
+    }
+
+    /**
+     * Beendet die Verbindung nach einem Fehler mit GOAWAY
+     *
+     * @param errorCode Fehlercode
+     * @param message Beschreibung oder null
+     */
+    private void fail(int errorCode, String message) {
+        if (failed){
+            return;
+        }
+
+        failed = true;
+        goingAway = true;
+
+        close();
+        writeGoAway(errorCode, message);
+    }
+
+    /**
+     * Gibt die Körper von Anfrage und Antwort eines Streams frei
+     *
+     * @param stream Stream
+     */
+    private void release(Stream stream) {
+        if (stream.body != null){
+            stream.body.close();
+            stream.body = null;
+        }
+
+        if (stream.requestBody != null){
+            stream.requestBody.close();
+            stream.requestBody = null;
+        }
+
+        sending.remove(stream);
+    }
+
+    /**
+     * Stellt die SETTINGS des Servers in die Ausgabe
+     */
+    private void writeSettings() {
+        writeFrameHeader(control, 12, SETTINGS, 0, 0);
+        writeSetting(control, SETTINGS_MAX_CONCURRENT_STREAMS, ServerConfig.HTTP2_MAX_STREAMS);
+        writeSetting(control, SETTINGS_MAX_HEADER_LIST_SIZE, ServerConfig.MAX_HEADER_SIZE);
+    }
+
+    /**
+     * Stellt einen RST_STREAM Frame in die Ausgabe
+     *
+     * @param streamId ID des Streams
+     * @param errorCode Fehlercode
+     */
+    private void writeReset(int streamId, int errorCode) {
+        writeFrameHeader(control, 4, RST_STREAM, 0, streamId);
+        writeInt32(control, errorCode);
+    }
+
+    /**
+     * Stellt einen WINDOW_UPDATE Frame in die Ausgabe
+     *
+     * @param streamId ID des Streams, 0 für die Verbindung
+     * @param increment Vergrößerung des Fensters
+     */
+    private void writeWindowUpdate(int streamId, int increment) {
+        writeFrameHeader(control, 4, WINDOW_UPDATE, 0, streamId);
+        writeInt32(control, increment);
+    }
+
+    /**
+     * Stellt einen GOAWAY Frame in die Ausgabe
+     *
+     * @param errorCode Fehlercode
+     * @param message Beschreibung als Debug Daten oder null
+     */
+    private void writeGoAway(int errorCode, String message) {
+        byte[] debug = message != null ? message.getBytes(StandardCharsets.ISO_8859_1) : new byte[0];
+
+        writeFrameHeader(control, 8 + debug.length, GOAWAY, 0, 0);
+        writeInt32(control, lastStreamId);
+        writeInt32(control, errorCode);
+        control.write(debug);
+    }
+
+    /**
+     * Schreibt einen Frame Kopf
+     *
+     * @param out Ziel
+     * @param length Länge des Inhalts
+     * @param type Typ
+     * @param flags Flags
+     * @param streamId ID des Streams
+     */
+    private static void writeFrameHeader(ResponseBuffer out, int length, int type, int flags, int streamId) {
+        out.write(length >>> 16);
+        out.write(length >>> 8);
+        out.write(length);
+        out.write(type);
+        out.write(flags);
+        writeInt32(out, streamId);
+    }
+
+    /**
+     * Schreibt einen Parameter eines SETTINGS Frames
+     *
+     * @param out Ziel
+     * @param id ID des Parameters
+     * @param value Wert
+     */
+    private static void writeSetting(ResponseBuffer out, int id, int value) {
+        out.write(id >>> 8);
+        out.write(id);
+        writeInt32(out, value);
+    }
+
+    /**
+     * Schreibt eine 32 Bit Zahl
+     *
+     * @param out Ziel
+     * @param value Zahl
+     */
+    private static void writeInt32(ResponseBuffer out, int value) {
+        out.write(value >>> 24);
+        out.write(value >>> 16);
+        out.write(value >>> 8);
+        out.write(value);
+    }
+}
@@ -0,0 +1,49 @@
+package edu.udo.cs.rvs.http2;
+
+/**
+ * Fehler der HTTP/2 Verbindung mit dem Fehlercode aus RFC 7540 Abschnitt 7, welcher im GOAWAY bzw.
+ * RST_STREAM Frame gesendet wird
+ */
+class Http2Exception extends Exception {
+
+    /**
+     * Version der Serialisierung
+     */
+    private static final long serialVersionUID = 1L;
+
+    static final int NO_ERROR = 0x0;
+    static final int PROTOCOL_ERROR = 0x1;
+    static final int INTERNAL_ERROR = 0x2;
+    static final int FLOW_CONTROL_ERROR = 0x3;
+    static final int STREAM_CLOSED = 0x5;
+    static final int FRAME_SIZE_ERROR = 0x6;
+    static final int REFUSED_STREAM = 0x7;
+    static final int COMPRESSION_ERROR = 0x9;
+    static final int ENHANCE_YOUR_CALM = 0xb;
+
+    /**
+     * Fehlercode
+     */
+    private final int errorCode;
+
+    /**
+     * Erstellt den Fehler
+     *
+     * @param errorCode Fehlercode
+     * @param message Beschreibung, wird als Debug Daten im GOAWAY Frame gesendet
+     */
+    Http2Exception(int errorCode, String message) {
+        super(message);
+
+        this.errorCode = errorCode;
+    }
+
+    /**
+     * Gibt den Fehlercode zurück
+     *
+     * @return Fehlercode
+     */
+    int getErrorCode() {
+        return errorCode;
+    }
+}
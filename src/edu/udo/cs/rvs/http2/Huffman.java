@@ -0,0 +1,173 @@
+package edu.udo.cs.rvs.http2;
+
+import edu.udo.cs.rvs.response.ResponseBuffer;
+
+/**
+ * Huffman Code von HPACK (RFC 7541, Anhang B). Der Code ist kanonisch, daher genügen die Längen der Codes:
+ * Innerhalb einer Länge sind die Codes aufsteigend nach Symbol vergeben, die erste Länge beginnt bei 0.
+ */
+final class Huffman {
+
+    /**
+     * Länge des Codes in Bits für jedes Byte, der letzte Eintrag ist EOS
+     */
+    private static final byte[] LENGTHS = {
+            13, 23, 28, 28, 28, 28, 28, 28, 28, 24, 30, 28, 28, 30, 28, 28, 28, 28, 28, 28, 28, 28, 30, 28, 28, 28, 28, 28, 28, 28, 28, 28,
+            6, 10, 10, 12, 13, 6, 8, 11, 10, 10, 8, 11, 8, 6, 6, 6, 5, 5, 5, 6, 6, 6, 6, 6, 6, 6, 7, 8, 15, 6, 12, 10,
+            13, 6, 7, 7, 7, 7, 7, 7, 7, 7, 7, 7, 7, 7, 7, 7, 7, 7, 7, 7, 7, 7, 7, 7, 8, 7, 8, 13, 19, 13, 14, 6,
+            15, 5, 6, 5, 6, 5, 6, 6, 6, 5, 7, 7, 6, 6, 6, 5, 6, 7, 6, 5, 5, 6, 7, 7, 7, 7, 7, 15, 11, 14, 13, 28,
+            20, 22, 20, 20, 22, 22, 22, 23, 22, 23, 23, 23, 23, 23, 24, 23, 24, 24, 22, 23, 24, 23, 23, 23, 23, 21, 22, 23, 22, 23, 23, 24,
+            22, 21, 20, 22, 22, 23, 23, 21, 23, 22, 22, 24, 21, 22, 23, 23, 21, 21, 22, 21, 23, 22, 23, 23, 20, 22, 22, 22, 23, 22, 22, 23,
+            26, 26, 20, 19, 22, 23, 22, 25, 26, 26, 26, 27, 27, 26, 24, 25, 19, 21, 26, 27, 27, 26, 27, 24, 21, 21, 26, 26, 28, 27, 27, 27,
+            20, 24, 20, 21, 22, 21, 21, 23, 22, 22, 25, 25, 24, 24, 26, 23, 26, 27, 26, 26, 27, 27, 27, 27, 27, 28, 27, 27, 27, 27, 27, 26,
+            30
+    };
+
+    /**
+     * Symbol für das Ende des Strings, darf in kodierten Strings nicht vorkommen
+     */
+    private static final int EOS = 256;
+
+    /**
+     * Code jedes Symbols
+     */
+    private static final int[] CODES = new int[LENGTHS.length];
+
+    /**
+     * Kinder der Knoten des Dekodierbaums für Bit 0 und 1. Positive Werte sind Knoten, negative Werte
+     * Blätter mit dem Symbol -(Wert + 1). Knoten 0 ist die Wurzel.
+     */
+    private static final int[][] CHILDREN = new int[2][LENGTHS.length];
+
+    static {
+        int code = 0;
+        int previousLength = 0;
+
+        for (int length = 1; length <= 30; length++){
+            for (int symbol = 0; symbol < LENGTHS.length; symbol++){
+                if (LENGTHS[symbol] != length){
+                    continue;
+                }
+
+                code <<= length - previousLength;
+                previousLength = length;
+
+                CODES[symbol] = code++;
+            }
+        }
+
+        int nodes = 1;
+
+        for (int symbol = 0; symbol < LENGTHS.length; symbol++){
+            int node = 0;
+
+            for (int bit = LENGTHS[symbol] - 1; bit > 0; bit--){
+                int branch = (CODES[symbol] >>> bit) & 1;
+
+                if (CHILDREN[branch][node] == 0){
+                    CHILDREN[branch][node] = nodes++;
+                }
+
+                node = CHILDREN[branch][node];
+            }
+
+            CHILDREN[CODES[symbol] & 1][node] = -(symbol + 1);
+        }
+    }
+
+    private Huffman() {
+    }
+
+    /**
+     * Berechnet die Länge eines Strings nach der Kodierung
+     *
+     * @param value String aus ISO-8859-1 Zeichen
+     *
+     * @return Länge in Bytes
+     */
+    static int encodedLength(CharSequence value) {
+        long bits = 0;
+
+        for (int i = 0; i < value.length(); i++){
+            bits += LENGTHS[value.charAt(i) & 0xff];
+        }
+
+        return (int) ((bits + 7) / 8);
+    }
+
+    /**
+     * Kodiert einen String, das letzte Byte wird mit dem Beginn von EOS (Einsen) aufgefüllt
+     *
+     * @param value String aus ISO-8859-1 Zeichen
+     * @param out Ziel
+     */
+    static void encode(CharSequence value, ResponseBuffer out) {
+        long current = 0;
+        int bits = 0;
+
+        for (int i = 0; i < value.length(); i++){
+            int symbol = value.charAt(i) & 0xff;
+
+            current = (current << LENGTHS[symbol]) | CODES[symbol];
+            bits += LENGTHS[symbol];
+
+            while (bits >= 8){
+                bits -= 8;
+                out.write((int) (current >>> bits));
+            }
+        }
+
+        if (bits > 0){
+            out.write((int) ((current << (8 - bits)) | (0xff >>> bits)));
+        }
+    }
+
+    /**
+     * Dekodiert einen String
+     *
+     * @param buf Puffer
+     * @param start Beginn des kodierten Strings
+     * @param end Ende des kodierten Strings
+     *
+     * @return String aus ISO-8859-1 Zeichen
+     *
+     * @throws Http2Exception Wird geworfen falls der String EOS enthält oder falsch aufgefüllt ist
+     */
+    static String decode(byte[] buf, int start, int end) throws Http2Exception {
+        StringBuilder builder = new StringBuilder((end - start) * 8 / 5);
+        int node = 0;
+        int depth = 0;
+        boolean ones = true;
+
+        for (int i = start; i < end; i++){
+            for (int bit = 7; bit >= 0; bit--){
+                int branch = (buf[i] >>> bit) & 1;
+
+                node = CHILDREN[branch][node];
+                depth++;
+                ones &= branch == 1;
+
+                if (node < 0){
+                    int symbol = -node - 1;
+
+                    if (symbol == EOS){
+                        throw new Http2Exception(Http2Exception.COMPRESSION_ERROR, "EOS in Huffman string");
+                    }
+
+                    builder.append((char) symbol);
+
+                    node = 0;
+                    depth = 0;
+                    ones = true;
+                }
+            }
+        }
+
+        //Am Ende dürfen nur bis zu sieben Bits vom Beginn des EOS Codes stehen
+        if (depth > 7 || !ones){
+            throw new Http2Exception(Http2Exception.COMPRESSION_ERROR, "Invalid Huffman padding");
+        }
+
+        return builder.toString();
+    }
+}
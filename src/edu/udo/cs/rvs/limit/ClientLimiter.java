@@ -0,0 +1,320 @@
+package edu.udo.cs.rvs.limit;
+
+import edu.udo.cs.rvs.ServerConfig;
+import edu.udo.cs.rvs.metrics.RejectionType;
+import edu.udo.cs.rvs.metrics.ServerMetrics;
+
+import java.net.InetAddress;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Begrenzung pro Adresse eines Nutzers: höchstens {@link ServerConfig#LIMIT_CONNECTIONS} gleichzeitige
+ * Verbindungen und ein Token Bucket mit {@link ServerConfig#LIMIT_RATE} Anfragen pro Sekunde. Die Zustände der
+ * Adressen sind auf Streifen mit eigener Sperre verteilt, so dass gleichzeitige Nutzer selten um eine Sperre
+ * konkurrieren.
+ * <p>
+ * Ein Zustand ohne offene Verbindung und mit vollem Bucket unterscheidet sich nicht von einem neuen und wird
+ * entfernt, beim Schließen der letzten Verbindung sofort, sonst beim nächsten Durchlauf seines Streifens.
+ */
+public class ClientLimiter {
+
+    /**
+     * Anzahl der Streifen, eine Zweierpotenz
+     */
+    private static final int STRIPES = 64;
+
+    /**
+     * Abstand in Nanosekunden in dem ein Streifen nach entfernbaren Zuständen durchsucht wird
+     */
+    private static final long SWEEP_INTERVAL = 1_000_000_000L;
+
+    /**
+     * Begrenzung des Servers
+     */
+    private static ClientLimiter instance;
+
+    /**
+     * Zustand einer Adresse
+     */
+    private static class Client {
+
+        /**
+         * Anzahl der offenen Verbindungen
+         */
+        private int connections;
+
+        /**
+         * Verfügbare Anfragen im Bucket
+         */
+        private double tokens;
+
+        /**
+         * Zeitpunkt ({@link System#nanoTime()}) an dem der Bucket zuletzt aufgefüllt wurde
+         */
+        private long refilled;
+    }
+
+    /**
+     * Streifen mit den Zuständen eines Teils der Adressen, wird über sich selbst gesperrt
+     */
+    private static class Stripe {
+
+        /**
+         * Zustände nach Adresse
+         */
+        private final Map<InetAddress, Client> clients = new HashMap<>();
+
+        /**
+         * Zeitpunkt ({@link System#nanoTime()}) des nächsten Durchlaufs
+         */
+        private long nextSweep;
+    }
+
+    /**
+     * Maximale Anzahl gleichzeitiger Verbindungen pro Adresse, 0 für unbegrenzt
+     */
+    private final int maxConnections;
+
+    /**
+     * Anfragen pro Sekunde pro Adresse, 0 für unbegrenzt
+     */
+    private final int rate;
+
+    /**
+     * Größe des Buckets, also die Anzahl an Anfragen welche ohne Pause gestellt werden können
+     */
+    private final int burst;
+
+    /**
+     * Streifen der Zustände
+     */
+    private final Stripe[] stripes = new Stripe[STRIPES];
+
+    /**
+     * Erstellt die Begrenzung
+     *
+     * @param maxConnections Maximale Anzahl gleichzeitiger Verbindungen pro Adresse, 0 für unbegrenzt
+     * @param rate Anfragen pro Sekunde pro Adresse, 0 für unbegrenzt
+     * @param burst Größe des Buckets, bei 0 so groß wie die Rate
+     */
+    public ClientLimiter(int maxConnections, int rate, int burst) {
+        this.maxConnections = Math.max(0, maxConnections);
+        this.rate = Math.max(0, rate);
+        this.burst = burst > 0 ? burst : Math.max(1, this.rate);
+
+        for (int i = 0; i < STRIPES; i++){
+            stripes[i] = new Stripe();
+        }
+    }
+
+    /**
+     * Gibt die Begrenzung des Servers zurück und erstellt sie beim ersten Aufruf
+     *
+     * @return Begrenzung
+     */
+    public static synchronized ClientLimiter getInstance() {
+        if (instance == null){
+            instance = new ClientLimiter(ServerConfig.LIMIT_CONNECTIONS, ServerConfig.LIMIT_RATE, ServerConfig.LIMIT_BURST);
+        }
+
+        return instance;
+    }
+
+    /**
+     * Zählt eine neue Verbindung einer Adresse, falls sie unter der Grenze liegt
+     *
+     * @param address Adresse des Nutzers
+     *
+     * @return Wahr falls die Verbindung angenommen wird, sonst muss sie ohne {@link #closeConnection(InetAddress)} abgelehnt werden
+     */
+    public boolean openConnection(InetAddress address) {
+        if (maxConnections == 0 || address == null){
+            return true;
+        }
+
+        Stripe stripe = stripe(address);
+        long now = System.nanoTime();
+
+        synchronized (stripe){
+            Client client = client(stripe, address, now);
+
+            if (client.connections >= maxConnections){
+                ServerMetrics.getInstance().recordRejection(RejectionType.CONNECTIONS);
+
+                return false;
+            }
+
+            client.connections++;
+
+            return true;
+        }
+    }
+
+    /**
+     * Zählt eine geschlossene Verbindung einer Adresse
+     *
+     * @param address Adresse des Nutzers
+     */
+    public void closeConnection(InetAddress address) {
+        if (maxConnections == 0 || address == null){
+            return;
+        }
+
+        Stripe stripe = stripe(address);
+        long now = System.nanoTime();
+
+        synchronized (stripe){
+            Client client = stripe.clients.get(address);
+
+            if (client == null){
+                return;
+            }
+
+            client.connections--;
+
+            if (isRemovable(client, now)){
+                stripe.clients.remove(address);
+            }
+        }
+    }
+
+    /**
+     * Entnimmt eine Anfrage aus dem Bucket einer Adresse
+     *
+     * @param address Adresse des Nutzers
+     *
+     * @return Wahr falls die Anfrage verarbeitet werden darf, sonst wird sie mit 429 beantwortet
+     */
+    public boolean acquireRequest(InetAddress address) {
+        if (rate == 0 || address == null){
+            return true;
+        }
+
+        Stripe stripe = stripe(address);
+        long now = System.nanoTime();
+
+        synchronized (stripe){
+            Client client = client(stripe, address, now);
+
+            refill(client, now);
+
+            if (client.tokens < 1){
+                ServerMetrics.getInstance().recordRejection(RejectionType.RATE);
+
+                return false;
+            }
+
+            client.tokens--;
+
+            return true;
+        }
+    }
+
+    /**
+     * Gibt zurück ob eine Grenze gesetzt ist
+     *
+     * @return Wahr falls Verbindungen oder Anfragen begrenzt werden
+     */
+    public boolean isEnabled() {
+        return maxConnections > 0 || rate > 0;
+    }
+
+    /**
+     * Gibt den Streifen einer Adresse zurück
+     *
+     * @param address Adresse
+     *
+     * @return Streifen
+     */
+    private Stripe stripe(InetAddress address) {
+        int hash = address.hashCode();
+
+        return stripes[(hash ^ (hash >>> 16)) & (STRIPES - 1)];
+    }
+
+    /**
+     * Gibt den Zustand einer Adresse zurück und erstellt ihn falls nötig. Dabei wird der Streifen bei Fälligkeit
+     * nach entfernbaren Zuständen durchsucht. Muss mit der Sperre des Streifens aufgerufen werden.
+     *
+     * @param stripe Streifen der Adresse
+     * @param address Adresse
+     * @param now Aktuelle Zeit ({@link System#nanoTime()})
+     *
+     * @return Zustand der Adresse
+     */
+    private Client client(Stripe stripe, InetAddress address, long now) {
+        if (now - stripe.nextSweep >= 0){
+            stripe.clients.values().removeIf(client -> isRemovable(client, now));
+            stripe.nextSweep = now + SWEEP_INTERVAL;
+        }
+
+        Client client = stripe.clients.get(address);
+
+        if (client == null){
+            client = new Client();
+            client.tokens = burst;
+            client.refilled = now;
+
+            stripe.clients.put(address, client);
+        }
+
+        return client;
+    }
+
+    /**
+     * Füllt den Bucket entsprechend der seit dem letzten Auffüllen vergangenen Zeit auf
+     *
+     * @param client Zustand
+     * @param now Aktuelle Zeit ({@link System#nanoTime()})
+     */
+    private void refill(Client client, long now) {
+        client.tokens = Math.min(burst, client.tokens + (now - client.refilled) * (double) rate / 1_000_000_000L);
+        client.refilled = now;
+    }
+
+    /**
+     * Prüft ob ein Zustand keine Verbindung hat und sein Bucket inzwischen wieder voll wäre
+     *
+     * @param client Zustand
+     * @param now Aktuelle Zeit ({@link System#nanoTime()})
+     *
+     * @return Wahr falls der Zustand ohne Verlust entfernt werden kann
+     */
+    private boolean isRemovable(Client client, long now) {
+        if (client.connections > 0){
+            return false;
+        }
+
+        if (rate == 0){
+            return true;
+        }
+
+        refill(client, now);
+
+        return client.tokens >= burst;
+    }
+
+    /**
+     * Beschreibt den Zustand für die Konsole
+     *
+     * @return Zustand als String
+     */
+    public String describe() {
+        if (!isEnabled()){
+            return "Client limits: disabled";
+        }
+
+        int tracked = 0;
+
+        for (Stripe stripe : stripes){
+            synchronized (stripe){
+                tracked += stripe.clients.size();
+            }
+        }
+
+        return "Client limits: connections per client: " + (maxConnections == 0 ? "unlimited" : maxConnections)
+                + ", requests per second: " + (rate == 0 ? "unlimited" : rate + " (burst " + burst + ")")
+                + ", tracked clients: " + tracked;
+    }
+}
@@ -0,0 +1,430 @@
+package edu.udo.cs.rvs.load;
+
+import edu.udo.cs.rvs.HttpServer;
+import edu.udo.cs.rvs.metrics.LatencyHistogram;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Lastgenerator für Kapazitätstests über Loopback ohne externe Werkzeuge. Jede Verbindung wird von einem
+ * {@link LoadWorker} in einem eigenen Thread bedient. Die Anfragen werden zufällig aus den Dateien unter
+ * wwwroot gewählt. Ohne Rate arbeitet der Generator geschlossen (jede Verbindung sendet sofort nach der
+ * vorherigen Antwort), mit Rate offen mit festen Startzeitpunkten. Die Einstellungen werden wie beim Server
+ * über System Properties gesetzt (siehe README.txt).
+ *
+ * Start: java -cp &lt;jar-File&gt; edu.udo.cs.rvs.load.LoadGenerator [port]
+ */
+public class LoadGenerator {
+
+    /**
+     * Zeit in Millisekunden nach der ein Verbindungsaufbau bzw. eine Antwort als Fehler gilt
+     */
+    static final int TIMEOUT = 10000;
+
+    /**
+     * Ausgegebene Quantile der Latenz
+     */
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999, 0.9999};
+
+    /**
+     * Namen der Quantile für die Ausgabe
+     */
+    private static final String[] QUANTILE_NAMES = {"p50", "p90", "p99", "p99.9", "p99.99"};
+
+    /**
+     * Name oder Adresse des Servers
+     */
+    private final String host = System.getProperty("rvs.load.host", "127.0.0.1");
+
+    /**
+     * Port des Servers
+     */
+    private final int port;
+
+    /**
+     * Anzahl der Verbindungen
+     */
+    private final int connections = Integer.getInteger("rvs.load.connections", 16);
+
+    /**
+     * Anfragen pro Sekunde über alle Verbindungen, 0 für den geschlossenen Modus
+     */
+    private final int rate = Integer.getInteger("rvs.load.rate", 0);
+
+    /**
+     * Wenn wahr, dann bleiben die Verbindungen zwischen den Anfragen offen
+     */
+    private final boolean keepAlive = Boolean.parseBoolean(System.getProperty("rvs.load.keepalive", "true"));
+
+    /**
+     * Kodierte Anfragen welche zufällig gesendet werden
+     */
+    private final byte[][] requests;
+
+    /**
+     * Beginn des Laufs ({@link System#nanoTime()})
+     */
+    private final long start;
+
+    /**
+     * Ende der Aufwärmphase, frühere Anfragen werden nicht gezählt
+     */
+    private final long measureStart;
+
+    /**
+     * Ende des Laufs
+     */
+    private final long end;
+
+    /**
+     * Latenz ab dem geplanten Startzeitpunkt (im geschlossenen Modus gleich der Bearbeitungszeit)
+     */
+    private final LatencyHistogram responseTimes = new LatencyHistogram(Runtime.getRuntime().availableProcessors());
+
+    /**
+     * Zeit vom tatsächlichen Senden bis zur vollständigen Antwort
+     */
+    private final LatencyHistogram serviceTimes = new LatencyHistogram(Runtime.getRuntime().availableProcessors());
+
+    /**
+     * Anzahl der Antworten nach Klasse des Status Codes (1xx bis 5xx)
+     */
+    private final LongAdder[] statusClasses = new LongAdder[6];
+
+    /**
+     * Anzahl der fehlgeschlagenen Anfragen
+     */
+    private final LongAdder errors = new LongAdder();
+
+    /**
+     * Anzahl der aufgebauten Verbindungen
+     */
+    private final LongAdder connects = new LongAdder();
+
+    /**
+     * Empfangene Bytes
+     */
+    private final LongAdder bytes = new LongAdder();
+
+    /**
+     * Anzahl der gezählten Antworten
+     */
+    private final LongAdder completed = new LongAdder();
+
+    /**
+     * Anzahl aller Antworten inklusive der Aufwärmphase für die Ausgabe des Fortschritts
+     */
+    private final LongAdder responses = new LongAdder();
+
+    /**
+     * Erstellt den Generator
+     *
+     * @param port Port des Servers
+     * @param paths Pfade der Anfragen
+     */
+    public LoadGenerator(int port, List<String> paths) {
+        this.port = port;
+
+        requests = new byte[paths.size()][];
+        for (int i = 0; i < paths.size(); i++){
+            requests[i] = ("GET " + paths.get(i) + " HTTP/1.1\r\n"
+                    + "Host: " + host + ":" + port + "\r\n"
+                    + "Accept-Encoding: gzip\r\n"
+                    + "Connection: " + (keepAlive ? "keep-alive" : "close") + "\r\n\r\n").getBytes(StandardCharsets.ISO_8859_1);
+        }
+
+        for (int i = 0; i < statusClasses.length; i++){
+            statusClasses[i] = new LongAdder();
+        }
+
+        //Startzeitpunkte liegen kurz in der Zukunft, damit alle Threads vorher gestartet sind
+        start = System.nanoTime() + 100_000_000L;
+        measureStart = start + Long.getLong("rvs.load.warmup", 2000) * 1_000_000L;
+        end = measureStart + Long.getLong("rvs.load.duration", 10000) * 1_000_000L;
+    }
+
+    /**
+     * Startet den Lastgenerator
+     *
+     * @param arguments Optional der Port des Servers (Standard 80)
+     *
+     * @throws Exception Wird geworfen falls die Dateien nicht gelesen werden können
+     */
+    public static void main(String[] arguments) throws Exception {
+        int port = arguments.length > 0 ? Integer.parseInt(arguments[0]) : 80;
+
+        String configured = System.getProperty("rvs.load.paths", "");
+        List<String> paths = configured.isEmpty() ? findPaths(HttpServer.wwwroot.toPath()) : List.of(configured.split(","));
+
+        if (paths.isEmpty()){
+            System.err.println("No request paths found. Set rvs.load.paths or run from the folder containing wwwroot.");
+            System.exit(1);
+            return;
+        }
+
+        new LoadGenerator(port, paths).run();
+    }
+
+    /**
+     * Sucht alle sichtbaren Dateien unter wwwroot
+     *
+     * @param root Ordner wwwroot
+     *
+     * @return Pfade der Dateien als Ziel einer Anfrage
+     *
+     * @throws IOException Wird geworfen falls die Ordner nicht gelesen werden können
+     */
+    static List<String> findPaths(Path root) throws IOException {
+        if (!Files.isDirectory(root)){
+            return new ArrayList<>();
+        }
+
+        try (Stream<Path> files = Files.walk(root)) {
+            return files.filter(Files::isRegularFile)
+                    .filter(file -> !root.relativize(file).toString().startsWith(".") && !file.getFileName().toString().startsWith("."))
+                    .map(file -> encode(root.relativize(file)))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Kodiert einen relativen Pfad als Ziel einer Anfrage
+     *
+     * @param relative Pfad relativ zu wwwroot
+     *
+     * @return Kodiertes Ziel beginnend mit "/"
+     */
+    private static String encode(Path relative) {
+        StringBuilder builder = new StringBuilder();
+
+        for (Path part : relative){
+            builder.append('/');
+
+            try {
+                builder.append(new URI(null, null, part.toString(), null).getRawPath());
+            } catch (Exception e) {
+                builder.append(part);
+            }
+        }
+
+        return builder.toString();
+    }
+
+    /**
+     * Führt den Lauf aus und gibt die Ergebnisse aus
+     *
+     * @throws InterruptedException Wird geworfen falls der Thread unterbrochen wird
+     */
+    public void run() throws InterruptedException {
+        System.out.println("Sending " + (rate > 0 ? rate + " requests/s" : "closed-loop load") + " to " + host + ":" + port
+                + " over " + connections + (keepAlive ? " keep-alive" : " non-persistent") + " connections, "
+                + requests.length + " paths.");
+
+        List<Thread> threads = new ArrayList<>();
+
+        for (int i = 0; i < connections; i++){
+            long interval = rate > 0 ? 1_000_000_000L * connections / rate : 0;
+            long offset = rate > 0 ? interval * i / connections : 0;
+
+            Thread thread = new Thread(new LoadWorker(this, interval, offset), "load-" + i);
+            thread.setDaemon(true);
+            thread.start();
+
+            threads.add(thread);
+        }
+
+        printProgress();
+
+        for (Thread thread : threads){
+            thread.join(TIMEOUT);
+        }
+
+        System.out.println(describe());
+    }
+
+    /**
+     * Gibt einmal pro Sekunde den Durchsatz der letzten Sekunde aus
+     *
+     * @throws InterruptedException Wird geworfen falls der Thread unterbrochen wird
+     */
+    private void printProgress() throws InterruptedException {
+        long last = 0;
+        long second = 0;
+
+        while (System.nanoTime() < end){
+            Thread.sleep(1000);
+
+            long now = responses.sum();
+            second++;
+
+            System.out.println(String.format(Locale.ROOT, "%3d s %10d requests/s %8d errors%s", second, now - last,
+                    errors.sum(), System.nanoTime() < measureStart ? " (warmup)" : ""));
+
+            last = now;
+        }
+    }
+
+    /**
+     * Zeichnet eine Antwort auf, Anfragen aus der Aufwärmphase werden nur für den Fortschritt gezählt
+     *
+     * @param sent Zeitpunkt ({@link System#nanoTime()}) an dem die Anfrage gesendet wurde
+     * @param status Status Code
+     * @param responseMicros Latenz ab dem geplanten Startzeitpunkt in Mikrosekunden
+     * @param serviceMicros Latenz ab dem tatsächlichen Senden in Mikrosekunden
+     */
+    void record(long sent, int status, long responseMicros, long serviceMicros) {
+        responses.increment();
+
+        if (sent < measureStart){
+            return;
+        }
+
+        completed.increment();
+        statusClasses[Math.min(5, Math.max(0, status / 100))].increment();
+        responseTimes.record(responseMicros);
+        serviceTimes.record(serviceMicros);
+    }
+
+    /**
+     * Zeichnet eine fehlgeschlagene Anfrage auf
+     *
+     * @param sent Zeitpunkt ({@link System#nanoTime()}) an dem die Anfrage gesendet wurde
+     */
+    void recordError(long sent) {
+        if (sent >= measureStart){
+            errors.increment();
+        }
+    }
+
+    /**
+     * Beschreibt die Ergebnisse des Laufs
+     *
+     * @return Ergebnisse als Text
+     */
+    String describe() {
+        double seconds = (end - measureStart) / 1e9;
+        long count = completed.sum();
+        StringBuilder builder = new StringBuilder();
+
+        builder.append(String.format(Locale.ROOT, "Requests: %d in %.1f s, %.1f requests/s, %.2f MB/s%n",
+                count, seconds, count / seconds, bytes.sum() / seconds / (1024 * 1024)));
+        builder.append("Status: ");
+
+        for (int i = 1; i < statusClasses.length; i++){
+            builder.append(i).append("xx=").append(statusClasses[i].sum()).append(' ');
+        }
+
+        builder.append("errors=").append(errors.sum()).append(", connections opened=").append(connects.sum()).append('\n');
+
+        appendLatency(builder, rate > 0 ? "Response time (corrected, us)" : "Latency (us)", responseTimes);
+
+        if (rate > 0){
+            appendLatency(builder, "Service time (us)", serviceTimes);
+        }
+
+        return builder.toString();
+    }
+
+    /**
+     * Hängt die Verteilung eines Histogramms an
+     *
+     * @param builder Ziel
+     * @param name Name der Verteilung
+     * @param histogram Histogramm
+     */
+    private static void appendLatency(StringBuilder builder, String name, LatencyHistogram histogram) {
+        long[] values = histogram.getQuantiles(QUANTILES);
+
+        builder.append(String.format(Locale.ROOT, "%-30s", name));
+
+        for (int i = 0; i < QUANTILES.length; i++){
+            builder.append(' ').append(QUANTILE_NAMES[i]).append('=').append(values[i]);
+        }
+
+        builder.append(" max=").append(histogram.getMax());
+        builder.append(" mean=").append(histogram.getCount() > 0 ? histogram.getSum() / histogram.getCount() : 0).append('\n');
+    }
+
+    /**
+     * Gibt den Namen oder die Adresse des Servers zurück
+     *
+     * @return Name oder Adresse
+     */
+    String getHost() {
+        return host;
+    }
+
+    /**
+     * Gibt den Port des Servers zurück
+     *
+     * @return Port
+     */
+    int getPort() {
+        return port;
+    }
+
+    /**
+     * Gibt zurück ob die Verbindungen offen bleiben
+     *
+     * @return Wahr wenn die Verbindungen offen bleiben
+     */
+    boolean isKeepAlive() {
+        return keepAlive;
+    }
+
+    /**
+     * Gibt die kodierten Anfragen zurück
+     *
+     * @return Anfragen
+     */
+    byte[][] getRequests() {
+        return requests;
+    }
+
+    /**
+     * Gibt den Beginn des Laufs zurück
+     *
+     * @return Zeitpunkt ({@link System#nanoTime()})
+     */
+    long getStart() {
+        return start;
+    }
+
+    /**
+     * Gibt das Ende des Laufs zurück
+     *
+     * @return Zeitpunkt ({@link System#nanoTime()})
+     */
+    long getEnd() {
+        return end;
+    }
+
+    /**
+     * Gibt den Zähler der aufgebauten Verbindungen zurück
+     *
+     * @return Zähler
+     */
+    LongAdder getConnects() {
+        return connects;
+    }
+
+    /**
+     * Gibt den Zähler der empfangenen Bytes zurück
+     *
+     * @return Zähler
+     */
+    LongAdder getBytes() {
+        return bytes;
+    }
+}
@@ -0,0 +1,352 @@
+package edu.udo.cs.rvs.load;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Eine Verbindung des {@link LoadGenerator}. Im geschlossenen Modus wird die nächste Anfrage direkt nach der
+ * vorherigen Antwort gesendet. Im Modus mit fester Rate hat jede Anfrage einen geplanten Startzeitpunkt und die
+ * Latenz wird ab diesem gemessen, so dass Wartezeit hinter einer langsamen Antwort mitgezählt wird
+ * (Korrektur von Coordinated Omission).
+ */
+class LoadWorker implements Runnable {
+
+    /**
+     * Maximale Größe eines Antwortkopfes
+     */
+    private static final int MAX_HEAD = 16 * 1024;
+
+    /**
+     * Gemeinsamer Zustand des Lastgenerators
+     */
+    private final LoadGenerator generator;
+
+    /**
+     * Abstand zwischen zwei geplanten Anfragen dieser Verbindung in Nanosekunden, 0 im geschlossenen Modus
+     */
+    private final long interval;
+
+    /**
+     * Geplanter Startzeitpunkt der nächsten Anfrage
+     */
+    private long intended;
+
+    /**
+     * Verbindung zum Server oder null
+     */
+    private Socket socket;
+
+    /**
+     * Eingabe der Verbindung
+     */
+    private InputStream in;
+
+    /**
+     * Ausgabe der Verbindung
+     */
+    private OutputStream out;
+
+    /**
+     * Puffer für Antworten
+     */
+    private final byte[] buffer = new byte[64 * 1024];
+
+    /**
+     * Position des nächsten ungelesenen Bytes im Puffer beim Lesen eines chunked Körpers
+     */
+    private int bufferPosition;
+
+    /**
+     * Ende der gelesenen Bytes im Puffer beim Lesen eines chunked Körpers
+     */
+    private int bufferLimit;
+
+    /**
+     * Erstellt die Verbindung
+     *
+     * @param generator Gemeinsamer Zustand des Lastgenerators
+     * @param interval Abstand zwischen zwei Anfragen in Nanosekunden oder 0 für den geschlossenen Modus
+     * @param offset Versatz des ersten Startzeitpunkts, damit die Verbindungen nicht gleichzeitig senden
+     */
+    LoadWorker(LoadGenerator generator, long interval, long offset) {
+        this.generator = generator;
+        this.interval = interval;
+        this.intended = generator.getStart() + offset;
+    }
+
+    @Override
+    public void run() {
+        while (System.nanoTime() < generator.getEnd()){
+            long start = System.nanoTime();
+
+            if (interval > 0){
+                //Auf den geplanten Startzeitpunkt warten, ist er bereits vorbei wird sofort gesendet
+                while (start < intended){
+                    LockSupport.parkNanos(intended - start);
+                    start = System.nanoTime();
+                }
+
+                if (intended >= generator.getEnd()){
+                    break;
+                }
+            }
+
+            byte[] request = generator.getRequests()[ThreadLocalRandom.current().nextInt(generator.getRequests().length)];
+
+            try {
+                int status = exchange(request);
+                long now = System.nanoTime();
+
+                generator.record(start, status, (now - (interval > 0 ? intended : start)) / 1000, (now - start) / 1000);
+            } catch (IOException e) {
+                close();
+
+                generator.recordError(start);
+            }
+
+            intended += interval;
+        }
+
+        close();
+    }
+
+    /**
+     * Sendet eine Anfrage und liest die Antwort vollständig
+     *
+     * @param request Anfrage
+     *
+     * @return Status Code der Antwort
+     *
+     * @throws IOException Wird geworfen falls die Verbindung fehlschlägt oder die Antwort fehlerhaft ist
+     */
+    private int exchange(byte[] request) throws IOException {
+        if (socket == null){
+            connect();
+        }
+
+        out.write(request);
+        out.flush();
+
+        int length = 0;
+        int headEnd = -1;
+
+        while (headEnd == -1){
+            if (length == buffer.length || length >= MAX_HEAD){
+                throw new IOException("Response head too large");
+            }
+
+            int read = in.read(buffer, length, buffer.length - length);
+
+            if (read == -1){
+                throw new IOException("Connection closed before end of response head");
+            }
+
+            for (int i = Math.max(3, length - 3); i < length + read; i++){
+                if (buffer[i - 3] == '\r' && buffer[i - 2] == '\n' && buffer[i - 1] == '\r' && buffer[i] == '\n'){
+                    headEnd = i + 1;
+                    break;
+                }
+            }
+
+            length += read;
+        }
+
+        String head = new String(buffer, 0, headEnd, StandardCharsets.ISO_8859_1);
+        int status;
+
+        try {
+            status = Integer.parseInt(head.substring(9, 12));
+        } catch (RuntimeException e) {
+            throw new IOException("Invalid status line", e);
+        }
+
+        long bodyLength;
+
+        if (head.contains("Transfer-Encoding: chunked")){
+            bodyLength = readChunked(headEnd, length);
+        }else {
+            bodyLength = contentLength(head);
+            long remaining = bodyLength - (length - headEnd);
+
+            while (remaining > 0){
+                int read = in.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+
+                if (read == -1){
+                    throw new IOException("Connection closed before end of response body");
+                }
+
+                remaining -= read;
+            }
+        }
+
+        if (!generator.isKeepAlive() || head.contains("Connection: close")){
+            close();
+        }
+
+        generator.getBytes().add(headEnd + bodyLength);
+
+        return status;
+    }
+
+    /**
+     * Liest einen Körper mit Transfer-Encoding: chunked bis zum letzten Chunk und den Trailern
+     *
+     * @param position Beginn des Körpers im Puffer
+     * @param length Ende der gelesenen Bytes im Puffer
+     *
+     * @return Länge des Körpers inklusive Chunk Köpfen
+     *
+     * @throws IOException Wird geworfen falls die Verbindung fehlschlägt oder ein Chunk fehlerhaft ist
+     */
+    private long readChunked(int position, int length) throws IOException {
+        bufferPosition = position;
+        bufferLimit = length;
+
+        long bodyLength = 0;
+
+        while (true){
+            String line = readLine();
+            long size;
+
+            try {
+                int extension = line.indexOf(';');
+                size = Long.parseLong((extension == -1 ? line : line.substring(0, extension)).trim(), 16);
+            } catch (NumberFormatException e) {
+                throw new IOException("Invalid chunk size", e);
+            }
+
+            bodyLength += line.length() + 2;
+
+            if (size == 0){
+                String trailer;
+
+                do {
+                    trailer = readLine();
+                    bodyLength += trailer.length() + 2;
+                } while (!trailer.isEmpty());
+
+                return bodyLength;
+            }
+
+            //Daten und abschließendes CRLF des Chunks überspringen
+            long remaining = size + 2;
+
+            while (remaining > 0){
+                if (bufferPosition == bufferLimit){
+                    fill();
+                }
+
+                int skipped = (int) Math.min(remaining, bufferLimit - bufferPosition);
+
+                bufferPosition += skipped;
+                remaining -= skipped;
+            }
+
+            bodyLength += size + 2;
+        }
+    }
+
+    /**
+     * Liest eine Zeile eines chunked Körpers
+     *
+     * @return Zeile ohne CRLF
+     *
+     * @throws IOException Wird geworfen falls die Verbindung fehlschlägt oder die Zeile zu lang ist
+     */
+    private String readLine() throws IOException {
+        StringBuilder line = new StringBuilder();
+
+        while (true){
+            if (bufferPosition == bufferLimit){
+                fill();
+            }
+
+            char c = (char) (buffer[bufferPosition++] & 0xff);
+
+            if (c == '\n'){
+                int end = line.length() > 0 && line.charAt(line.length() - 1) == '\r' ? line.length() - 1 : line.length();
+
+                return line.substring(0, end);
+            }
+
+            if (line.length() >= MAX_HEAD){
+                throw new IOException("Chunk line too long");
+            }
+
+            line.append(c);
+        }
+    }
+
+    /**
+     * Liest weitere Bytes eines chunked Körpers in den Puffer
+     *
+     * @throws IOException Wird geworfen falls die Verbindung fehlschlägt oder vor dem Ende geschlossen wurde
+     */
+    private void fill() throws IOException {
+        int read = in.read(buffer, 0, buffer.length);
+
+        if (read == -1){
+            throw new IOException("Connection closed before end of response body");
+        }
+
+        bufferPosition = 0;
+        bufferLimit = read;
+    }
+
+    /**
+     * Liest den Content-Length Header einer Antwort
+     *
+     * @param head Antwortkopf
+     *
+     * @return Länge des Körpers, 0 falls der Header fehlt
+     */
+    private static long contentLength(String head) {
+        int start = head.indexOf("Content-Length: ");
+
+        if (start == -1){
+            return 0;
+        }
+
+        start += "Content-Length: ".length();
+
+        return Long.parseLong(head.substring(start, head.indexOf('\r', start)).trim());
+    }
+
+    /**
+     * Baut eine neue Verbindung zum Server auf
+     *
+     * @throws IOException Wird geworfen falls die Verbindung nicht aufgebaut werden kann
+     */
+    private void connect() throws IOException {
+        socket = new Socket();
+        socket.setTcpNoDelay(true);
+        socket.setSoTimeout(LoadGenerator.TIMEOUT);
+        socket.connect(new InetSocketAddress(generator.getHost(), generator.getPort()), LoadGenerator.TIMEOUT);
+
+        in = socket.getInputStream();
+        out = socket.getOutputStream();
+
+        generator.getConnects().increment();
+    }
+
+    /**
+     * Schließt die Verbindung
+     */
+    private void close() {
+        if (socket != null){
+            try {
+                socket.close();
+            } catch (IOException e) {
+                //Verbindung ist bereits geschlossen
+            }
+
+            socket = null;
+        }
+    }
+}
@@ -0,0 +1,549 @@
+package edu.udo.cs.rvs.log;
+
+import edu.udo.cs.rvs.HTTPVersion;
+import edu.udo.cs.rvs.ServerConfig;
+import edu.udo.cs.rvs.request.Request;
+import edu.udo.cs.rvs.request.RequestMethod;
+import edu.udo.cs.rvs.response.ResponseCode;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Zugriffsprotokoll im Common bzw. Combined Log Format. Die Threads der Anfragen schreiben nur die Werte der
+ * Anfrage in einen Ringpuffer fester Größe, formatiert und in die Datei geschrieben wird in einem eigenen Thread.
+ * Ist der Puffer voll, wird der Eintrag verworfen und gezählt statt die Anfrage aufzuhalten. Die Datei wird ab
+ * {@link ServerConfig#ACCESS_LOG_MAX_SIZE} Bytes rotiert.
+ */
+public class AccessLog {
+
+    /**
+     * Wartezeit des Schreibers in Nanosekunden wenn der Puffer leer ist
+     */
+    private static final long IDLE_PARK = 10_000_000;
+
+    /**
+     * Format des Zeitstempels im Common Log Format
+     */
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("dd/MMM/yyyy:HH:mm:ss Z", Locale.ENGLISH)
+            .withZone(ZoneId.systemDefault());
+
+    /**
+     * Status Codes als Zahl
+     */
+    private static final String[] CODE_NAMES = new String[ResponseCode.values().length];
+
+    /**
+     * Zugriffsprotokoll des Servers
+     */
+    private static AccessLog instance;
+
+    /**
+     * Plätze des Ringpuffers oder null falls das Protokoll deaktiviert ist
+     */
+    private final AccessLogEntry[] entries;
+
+    /**
+     * Anzahl der Plätze minus eins (Anzahl ist eine Zweierpotenz)
+     */
+    private final int mask;
+
+    /**
+     * Nächste zu vergebende Position, wird von den Threads der Anfragen per CAS erhöht
+     */
+    private final AtomicLong tail = new AtomicLong();
+
+    /**
+     * Nächste zu schreibende Position, wird nur vom Schreiber verändert
+     */
+    private long head;
+
+    /**
+     * Wenn wahr, dann werden Referer und User-Agent mit ausgegeben (Combined Log Format)
+     */
+    private final boolean combined;
+
+    /**
+     * Datei des Protokolls oder null für die Konsole
+     */
+    private final Path file;
+
+    /**
+     * Ausgabe des Schreibers
+     */
+    private OutputStream out;
+
+    /**
+     * Größe der aktuellen Datei in Bytes
+     */
+    private long fileSize;
+
+    /**
+     * Anzahl der geschriebenen Einträge
+     */
+    private final LongAdder written = new LongAdder();
+
+    /**
+     * Anzahl der wegen vollem Puffer verworfenen Einträge
+     */
+    private final LongAdder dropped = new LongAdder();
+
+    /**
+     * Anzahl der Rotationen der Datei
+     */
+    private final LongAdder rotations = new LongAdder();
+
+    /**
+     * Thread des Schreibers oder null
+     */
+    private Thread writer;
+
+    /**
+     * Schreiber läuft
+     */
+    private volatile boolean running;
+
+    /**
+     * Sekunde des zuletzt formatierten Zeitstempels
+     */
+    private long lastSecond = -1;
+
+    /**
+     * Zuletzt formatierter Zeitstempel
+     */
+    private String lastDate;
+
+    /**
+     * Puffer für die aktuelle Zeile des Schreibers
+     */
+    private final StringBuilder line = new StringBuilder(256);
+
+    static {
+        for (ResponseCode code : ResponseCode.values()){
+            CODE_NAMES[code.ordinal()] = code.name().substring(code.name().lastIndexOf('_') + 1);
+        }
+    }
+
+    /**
+     * Erstellt das Protokoll
+     *
+     * @param target Pfad der Datei, "-" für die Konsole, leer deaktiviert das Protokoll
+     * @param combined Wenn wahr wird das Combined Log Format geschrieben, sonst das Common Log Format
+     * @param capacity Anzahl der Plätze des Ringpuffers, wird auf eine Zweierpotenz aufgerundet
+     */
+    public AccessLog(String target, boolean combined, int capacity) {
+        this.combined = combined;
+
+        if (target.isEmpty()){
+            entries = null;
+            mask = 0;
+            file = null;
+
+            return;
+        }
+
+        int size = Integer.highestOneBit(Math.max(2, capacity) * 2 - 1);
+
+        entries = new AccessLogEntry[size];
+        mask = size - 1;
+
+        for (int i = 0; i < size; i++){
+            entries[i] = new AccessLogEntry(i);
+        }
+
+        file = target.equals("-") ? null : Paths.get(target);
+    }
+
+    /**
+     * Gibt das Zugriffsprotokoll des Servers zurück und startet beim ersten Aufruf den Schreiber
+     *
+     * @return Zugriffsprotokoll
+     */
+    public static synchronized AccessLog getInstance() {
+        if (instance == null){
+            instance = new AccessLog(ServerConfig.ACCESS_LOG, !ServerConfig.ACCESS_LOG_FORMAT.equalsIgnoreCase("common"),
+                    ServerConfig.ACCESS_LOG_BUFFER);
+            instance.start();
+        }
+
+        return instance;
+    }
+
+    /**
+     * Öffnet die Ausgabe und startet den Schreiber
+     */
+    private void start() {
+        if (entries == null){
+            return;
+        }
+
+        try {
+            open();
+        } catch (IOException e) {
+            System.out.println("Access log " + file + " could not be opened: " + e.getMessage() + ". Access log disabled.");
+
+            return;
+        }
+
+        running = true;
+
+        writer = new Thread(this::drain, "access-log");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Zeichnet eine Anfrage auf. Ist der Puffer voll, wird der Eintrag verworfen.
+     *
+     * @param client Adresse des Nutzers oder null
+     * @param request Anfrage oder null falls sie nicht gelesen werden konnte
+     * @param code Status Code der Antwort
+     * @param sent Anzahl der gesendeten Bytes inklusive Kopf
+     * @param startNanos Zeitpunkt ({@link System#nanoTime()}) an dem die Anfrage vollständig gelesen war
+     */
+    public void log(InetAddress client, Request request, ResponseCode code, long sent, long startNanos) {
+        if (!running){
+            return;
+        }
+
+        if (request == null || request.isEmpty()){
+            log(client, null, null, null, null, null, code, sent, startNanos);
+        }else {
+            log(client, request.getRequestMethod(), request.getRequestedPath(), request.getHttpVersion(),
+                    combined ? request.getHeader("Referer") : null, combined ? request.getHeader("User-Agent") : null,
+                    code, sent, startNanos);
+        }
+    }
+
+    /**
+     * Zeichnet eine Anfrage mit bereits gelesenen Werten auf, für Engines deren Anfrage beim Ende der Antwort
+     * nicht mehr vorliegt. Ist der Puffer voll, wird der Eintrag verworfen.
+     *
+     * @param client Adresse des Nutzers oder null
+     * @param method Methode der Anfrage oder null falls sie nicht gelesen werden konnte
+     * @param target Ziel der Anfrage
+     * @param version HTTP Version der Anfrage oder null
+     * @param referer Referer Header oder null
+     * @param userAgent User-Agent Header oder null
+     * @param code Status Code der Antwort
+     * @param sent Anzahl der gesendeten Bytes inklusive Kopf
+     * @param startNanos Zeitpunkt ({@link System#nanoTime()}) an dem die Anfrage vollständig gelesen war
+     */
+    public void log(InetAddress client, RequestMethod method, String target, HTTPVersion version, String referer,
+                    String userAgent, ResponseCode code, long sent, long startNanos) {
+        if (!running){
+            return;
+        }
+
+        long position = tail.get();
+        AccessLogEntry entry;
+
+        while (true){
+            entry = entries[(int) position & mask];
+            long difference = entry.sequence - position;
+
+            if (difference == 0){
+                if (tail.compareAndSet(position, position + 1)){
+                    break;
+                }
+
+                position = tail.get();
+            }else if (difference < 0){
+                //Schreiber ist einen ganzen Umlauf zurück
+                dropped.increment();
+
+                return;
+            }else {
+                //Ein anderer Thread hat die Position bereits vergeben
+                position = tail.get();
+            }
+        }
+
+        entry.duration = (System.nanoTime() - startNanos) / 1000;
+        entry.time = System.currentTimeMillis() - entry.duration / 1000;
+        entry.client = client;
+        entry.method = method;
+        entry.target = target;
+        entry.version = version;
+        entry.referer = referer;
+        entry.userAgent = userAgent;
+        entry.code = code;
+        entry.sent = sent;
+
+        //Freigabe für den Schreiber
+        entry.sequence = position + 1;
+    }
+
+    /**
+     * Schleife des Schreibers: Schreibt alle bereiten Einträge, leert danach den Puffer der Ausgabe und wartet
+     * kurz falls keine Einträge bereit sind
+     */
+    private void drain() {
+        while (true){
+            int count = 0;
+            AccessLogEntry entry;
+
+            while ((entry = entries[(int) head & mask]).sequence == head + 1){
+                write(entry);
+
+                entry.clear();
+                entry.sequence = head + entries.length;
+                head++;
+                count++;
+            }
+
+            if (count > 0){
+                written.add(count);
+
+                try {
+                    out.flush();
+                } catch (IOException e) {
+                    System.out.println("Access log write failed: " + e.getMessage());
+                }
+            }else if (!running){
+                break;
+            }else {
+                LockSupport.parkNanos(IDLE_PARK);
+            }
+        }
+
+        try {
+            if (file != null){
+                out.close();
+            }
+        } catch (IOException e) {
+            //Datei ist bereits geschlossen
+        }
+    }
+
+    /**
+     * Formatiert einen Eintrag und schreibt ihn in die Ausgabe
+     *
+     * @param entry Eintrag
+     */
+    private void write(AccessLogEntry entry) {
+        line.setLength(0);
+
+        line.append(entry.client != null ? entry.client.getHostAddress() : "-").append(" - - [")
+                .append(formatDate(entry.time)).append("] \"");
+
+        if (entry.method != null && entry.target != null){
+            line.append(entry.method.name()).append(' ');
+            appendEscaped(entry.target);
+
+            if (entry.version != null){
+                line.append(" HTTP/").append(entry.version.name().substring(5).replace('_', '.'));
+            }
+        }else {
+            line.append('-');
+        }
+
+        line.append("\" ").append(CODE_NAMES[entry.code.ordinal()]).append(' ').append(entry.sent);
+
+        if (combined){
+            line.append(" \"");
+            appendEscaped(entry.referer != null ? entry.referer : "-");
+            line.append("\" \"");
+            appendEscaped(entry.userAgent != null ? entry.userAgent : "-");
+            line.append('"');
+        }
+
+        line.append(' ').append(entry.duration).append('\n');
+
+        byte[] bytes = line.toString().getBytes(StandardCharsets.ISO_8859_1);
+
+        try {
+            if (file != null && fileSize + bytes.length > ServerConfig.ACCESS_LOG_MAX_SIZE && fileSize > 0){
+                rotate();
+            }
+
+            out.write(bytes);
+            fileSize += bytes.length;
+        } catch (IOException e) {
+            System.out.println("Access log write failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Hängt einen Wert an die Zeile an. Anführungszeichen, Backslash und nicht druckbare Zeichen werden wie beim
+     * Apache HTTP Server als Escape-Sequenz geschrieben, damit ein Nutzer keine Zeilen im Protokoll fälschen kann.
+     *
+     * @param value Wert
+     */
+    private void appendEscaped(String value) {
+        for (int i = 0; i < value.length(); i++){
+            char c = value.charAt(i);
+
+            if (c == '"' || c == '\\'){
+                line.append('\\').append(c);
+            }else if (c < 0x20 || c > 0x7e){
+                line.append("\\x").append(Character.forDigit((c >> 4) & 0xf, 16)).append(Character.forDigit(c & 0xf, 16));
+            }else {
+                line.append(c);
+            }
+        }
+    }
+
+    /**
+     * Formatiert einen Zeitstempel, pro Sekunde nur einmal
+     *
+     * @param time Zeitpunkt in Millisekunden
+     *
+     * @return Zeitstempel im Common Log Format
+     */
+    private String formatDate(long time) {
+        long second = time / 1000;
+
+        if (second != lastSecond){
+            lastSecond = second;
+            lastDate = DATE_FORMAT.format(Instant.ofEpochSecond(second));
+        }
+
+        return lastDate;
+    }
+
+    /**
+     * Öffnet die Datei zum Anhängen bzw. die Konsole
+     *
+     * @throws IOException Wird geworfen falls die Datei nicht geöffnet werden kann
+     */
+    private void open() throws IOException {
+        if (file == null){
+            out = new BufferedOutputStream(new FileOutputStream(FileDescriptor.out), 64 * 1024);
+            return;
+        }
+
+        out = new BufferedOutputStream(new FileOutputStream(file.toFile(), true), 64 * 1024);
+        fileSize = Files.size(file);
+    }
+
+    /**
+     * Rotiert die Datei: access.log wird zu access.log.1, access.log.1 zu access.log.2 usw., die älteste
+     * Datei über {@link ServerConfig#ACCESS_LOG_FILES} wird überschrieben
+     *
+     * @throws IOException Wird geworfen falls die neue Datei nicht geöffnet werden kann
+     */
+    private void rotate() throws IOException {
+        out.close();
+
+        int files = ServerConfig.ACCESS_LOG_FILES;
+
+        if (files > 0){
+            for (int i = files - 1; i >= 1; i--){
+                Path older = rotated(i);
+
+                if (Files.exists(older)){
+                    Files.move(older, rotated(i + 1), StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+
+            Files.move(file, rotated(1), StandardCopyOption.REPLACE_EXISTING);
+        }else {
+            Files.delete(file);
+        }
+
+        rotations.increment();
+
+        open();
+    }
+
+    /**
+     * Gibt den Pfad einer rotierten Datei zurück
+     *
+     * @param index Nummer der Datei, 1 ist die neueste
+     *
+     * @return Pfad der Datei
+     */
+    private Path rotated(int index) {
+        return file.resolveSibling(file.getFileName() + "." + index);
+    }
+
+    /**
+     * Beendet den Schreiber nachdem alle bereits aufgezeichneten Einträge geschrieben sind
+     */
+    public void close() {
+        if (!running){
+            return;
+        }
+
+        running = false;
+
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Gibt zurück ob Referer und User-Agent aufgezeichnet werden
+     *
+     * @return Wahr im Combined Log Format
+     */
+    public boolean isCombined() {
+        return combined;
+    }
+
+    /**
+     * Gibt zurück ob das Protokoll geschrieben wird
+     *
+     * @return Wahr wenn aktiv
+     */
+    public boolean isEnabled() {
+        return running;
+    }
+
+    /**
+     * Gibt die Anzahl der geschriebenen Einträge zurück
+     *
+     * @return Anzahl der Einträge
+     */
+    public long getWritten() {
+        return written.sum();
+    }
+
+    /**
+     * Gibt die Anzahl der wegen vollem Puffer verworfenen Einträge zurück
+     *
+     * @return Anzahl der Einträge
+     */
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    /**
+     * Gibt die Anzahl der Rotationen zurück
+     *
+     * @return Anzahl der Rotationen
+     */
+    public long getRotations() {
+        return rotations.sum();
+    }
+
+    /**
+     * Beschreibt den Zustand für die Konsole
+     *
+     * @return Zustand als String
+     */
+    public String describe() {
+        if (entries == null){
+            return "Access log: disabled";
+        }
+
+        return "Access log: " + (file != null ? file.toString() : "console") + " (" + (combined ? "combined" : "common")
+                + "), written: " + getWritten() + ", dropped: " + getDropped() + ", pending: " + Math.max(0, tail.get() - head)
+                + ", rotations: " + getRotations();
+    }
+}
@@ -0,0 +1,89 @@
+package edu.udo.cs.rvs.log;
+
+import edu.udo.cs.rvs.HTTPVersion;
+import edu.udo.cs.rvs.request.RequestMethod;
+import edu.udo.cs.rvs.response.ResponseCode;
+
+import java.net.InetAddress;
+
+/**
+ * Platz im Ringpuffer des {@link AccessLog}. Die Plätze werden beim Start einmal erstellt und danach nur
+ * überschrieben, so dass das Aufzeichnen einer Anfrage keine Objekte für den Eintrag erzeugt.
+ */
+class AccessLogEntry {
+
+    /**
+     * Zustand des Platzes nach dem Verfahren von Vyukov: Gleich der Position wenn frei, Position + 1 wenn
+     * beschrieben und bereit zum Schreiben in die Datei
+     */
+    volatile long sequence;
+
+    /**
+     * Adresse des Nutzers oder null
+     */
+    InetAddress client;
+
+    /**
+     * Zeitpunkt der Anfrage in Millisekunden
+     */
+    long time;
+
+    /**
+     * Methode der Anfrage oder null falls die Anfrage nicht gelesen werden konnte
+     */
+    RequestMethod method;
+
+    /**
+     * Ziel der Anfrage wie gesendet
+     */
+    String target;
+
+    /**
+     * HTTP Version der Anfrage oder null
+     */
+    HTTPVersion version;
+
+    /**
+     * Status Code der Antwort
+     */
+    ResponseCode code;
+
+    /**
+     * Anzahl der gesendeten Bytes inklusive Kopf
+     */
+    long sent;
+
+    /**
+     * Dauer von der gelesenen Anfrage bis zur gesendeten Antwort in Mikrosekunden
+     */
+    long duration;
+
+    /**
+     * Referer Header oder null
+     */
+    String referer;
+
+    /**
+     * User-Agent Header oder null
+     */
+    String userAgent;
+
+    /**
+     * Erstellt einen freien Platz
+     *
+     * @param sequence Position des Platzes im Ring
+     */
+    AccessLogEntry(long sequence) {
+        this.sequence = sequence;
+    }
+
+    /**
+     * Entfernt die Verweise nach dem Schreiben, damit Anfragen nicht bis zum nächsten Umlauf im Speicher bleiben
+     */
+    void clear() {
+        client = null;
+        target = null;
+        referer = null;
+        userAgent = null;
+    }
+}
@@ -0,0 +1,211 @@
+package edu.udo.cs.rvs.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogramm für Latenzen in Mikrosekunden mit logarithmisch-linearen Buckets wie bei HdrHistogram. Jede
+ * Zweierpotenz ist in {@link #SUB_BUCKETS} gleich breite Buckets geteilt, der Fehler eines Quantils beträgt
+ * daher höchstens 1/{@value #SUB_BUCKETS}. Die Zähler sind auf mehrere Streifen verteilt, so dass Threads
+ * beim Aufzeichnen selten die gleiche Cache-Zeile verändern.
+ */
+public class LatencyHistogram {
+
+    /**
+     * Anzahl der Bits der Buckets innerhalb einer Zweierpotenz
+     */
+    private static final int SUB_BUCKET_BITS = 5;
+
+    /**
+     * Anzahl der Buckets innerhalb einer Zweierpotenz
+     */
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    /**
+     * Höchste Zweierpotenz der Werte (2^36 µs sind etwa 19 Stunden), größere Werte landen im letzten Bucket
+     */
+    private static final int MAX_EXPONENT = 36;
+
+    /**
+     * Anzahl der Buckets
+     */
+    private static final int BUCKET_COUNT = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS;
+
+    /**
+     * Abstand der Streifen im gemeinsamen Array, damit Streifen nicht in der gleichen Cache-Zeile beginnen
+     */
+    private static final int STRIPE_PADDING = 16;
+
+    /**
+     * Zähler aller Streifen hintereinander
+     */
+    private final AtomicLongArray counts;
+
+    /**
+     * Anzahl der Streifen minus eins (Anzahl ist eine Zweierpotenz)
+     */
+    private final int stripeMask;
+
+    /**
+     * Länge eines Streifens inklusive Abstand
+     */
+    private final int stripeLength = BUCKET_COUNT + STRIPE_PADDING;
+
+    /**
+     * Anzahl der Werte
+     */
+    private final LongAdder count = new LongAdder();
+
+    /**
+     * Summe der Werte
+     */
+    private final LongAdder sum = new LongAdder();
+
+    /**
+     * Größter Wert
+     */
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    /**
+     * Erstellt ein leeres Histogramm
+     *
+     * @param stripes Gewünschte Anzahl an Streifen, wird auf eine Zweierpotenz aufgerundet
+     */
+    public LatencyHistogram(int stripes) {
+        int size = 1;
+        while (size < stripes){
+            size <<= 1;
+        }
+
+        stripeMask = size - 1;
+        counts = new AtomicLongArray(size * stripeLength);
+    }
+
+    /**
+     * Zeichnet einen Wert auf
+     *
+     * @param micros Latenz in Mikrosekunden
+     */
+    public void record(long micros) {
+        if (micros < 0){
+            micros = 0;
+        }
+
+        int stripe = (int) Thread.currentThread().getId() & stripeMask;
+
+        counts.incrementAndGet(stripe * stripeLength + bucketIndex(micros));
+        count.increment();
+        sum.add(micros);
+        max.accumulate(micros);
+    }
+
+    /**
+     * Gibt die Anzahl der Werte zurück
+     *
+     * @return Anzahl
+     */
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * Gibt die Summe der Werte zurück
+     *
+     * @return Summe in Mikrosekunden
+     */
+    public long getSum() {
+        return sum.sum();
+    }
+
+    /**
+     * Gibt den größten Wert zurück
+     *
+     * @return Größter Wert in Mikrosekunden
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Berechnet mehrere Quantile aus einer gemeinsamen Momentaufnahme der Zähler
+     *
+     * @param quantiles Aufsteigend sortierte Quantile zwischen 0 und 1
+     *
+     * @return Obere Grenze des Buckets jedes Quantils (höchstens der größte Wert) in Mikrosekunden, 0 falls
+     *         keine Werte vorhanden sind
+     */
+    public long[] getQuantiles(double... quantiles) {
+        long[] buckets = new long[BUCKET_COUNT];
+        long total = 0;
+
+        for (int stripe = 0; stripe <= stripeMask; stripe++){
+            for (int i = 0; i < BUCKET_COUNT; i++){
+                long value = counts.get(stripe * stripeLength + i);
+
+                buckets[i] += value;
+                total += value;
+            }
+        }
+
+        long[] result = new long[quantiles.length];
+
+        if (total == 0){
+            return result;
+        }
+
+        int q = 0;
+        long seen = 0;
+
+        for (int i = 0; i < BUCKET_COUNT && q < quantiles.length; i++){
+            seen += buckets[i];
+
+            while (q < quantiles.length && seen > 0 && seen >= Math.ceil(quantiles[q] * total)){
+                result[q++] = Math.min(highestValue(i), max.get());
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Berechnet den Bucket eines Wertes
+     *
+     * @param value Wert
+     *
+     * @return Index des Buckets
+     */
+    static int bucketIndex(long value) {
+        if (value < SUB_BUCKETS){
+            return (int) value;
+        }
+
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+
+        if (exponent > MAX_EXPONENT){
+            return BUCKET_COUNT - 1;
+        }
+
+        int shift = exponent - SUB_BUCKET_BITS;
+
+        return shift * SUB_BUCKETS + (int) (value >>> shift);
+    }
+
+    /**
+     * Berechnet den größten Wert eines Buckets
+     *
+     * @param index Index des Buckets
+     *
+     * @return Größter Wert welcher in diesem Bucket landet
+     */
+    static long highestValue(int index) {
+        if (index < 2 * SUB_BUCKETS){
+            return index;
+        }
+
+        int shift = index / SUB_BUCKETS - 1;
+        long lowest = (long) (index % SUB_BUCKETS + SUB_BUCKETS) << shift;
+
+        return lowest + (1L << shift) - 1;
+    }
+}
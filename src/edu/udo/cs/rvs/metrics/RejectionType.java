@@ -0,0 +1,8 @@
+package edu.udo.cs.rvs.metrics;
+
+/**
+ * Gründe aus denen eine Verbindung oder Anfrage ohne Verarbeitung abgelehnt wird
+ */
+public enum RejectionType {
+    CONNECTIONS, RATE, OVERLOAD
+}
@@ -0,0 +1,385 @@
+package edu.udo.cs.rvs.metrics;
+
+import edu.udo.cs.rvs.log.AccessLog;
+import edu.udo.cs.rvs.request.RequestMethod;
+import edu.udo.cs.rvs.response.ResponseCode;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Kennzahlen des Servers: Anzahl der Anfragen und gesendete Bytes je {@link RequestMethod} und
+ * {@link ResponseCode}, offene und angenommene Verbindungen sowie Latenz Histogramme je Methode. Alle Zähler
+ * sind {@link LongAdder}, so dass gleichzeitige Anfragen beim Aufzeichnen nicht um eine Variable konkurrieren.
+ */
+public class ServerMetrics {
+
+    /**
+     * Ausgegebene Quantile der Latenz
+     */
+    private static final double[] QUANTILES = {0.5, 0.99, 0.999};
+
+    /**
+     * Namen der Quantile für die Ausgabe
+     */
+    private static final String[] QUANTILE_NAMES = {"0.5", "0.99", "0.999"};
+
+    /**
+     * Namen der Quantile als Perzentil für die Konsole
+     */
+    private static final String[] PERCENTILE_NAMES = {"p50", "p99", "p999"};
+
+    /**
+     * Namen der Methoden, der letzte Eintrag steht für Anfragen ohne gelesene Methode
+     */
+    private static final String[] METHOD_NAMES = new String[RequestMethod.values().length + 1];
+
+    /**
+     * Status Codes als Zahl
+     */
+    private static final String[] CODE_NAMES = new String[ResponseCode.values().length];
+
+    /**
+     * Kennzahlen des Servers
+     */
+    private static ServerMetrics instance;
+
+    /**
+     * Zeitpunkt des Starts in Millisekunden
+     */
+    private final long started = System.currentTimeMillis();
+
+    /**
+     * Anzahl der Anfragen nach Methode und Status Code
+     */
+    private final LongAdder[][] requests = new LongAdder[METHOD_NAMES.length][CODE_NAMES.length];
+
+    /**
+     * Gesendete Bytes nach Methode und Status Code
+     */
+    private final LongAdder[][] bytes = new LongAdder[METHOD_NAMES.length][CODE_NAMES.length];
+
+    /**
+     * Latenz von der vollständig gelesenen Anfrage bis zur gesendeten Antwort nach Methode
+     */
+    private final LatencyHistogram[] latencies = new LatencyHistogram[METHOD_NAMES.length];
+
+    /**
+     * Anzahl der offenen Verbindungen
+     */
+    private final LongAdder activeConnections = new LongAdder();
+
+    /**
+     * Anzahl der angenommenen Verbindungen
+     */
+    private final LongAdder acceptedConnections = new LongAdder();
+
+    /**
+     * Anzahl der wegen Zeitüberschreitung getrennten Verbindungen nach {@link TimeoutType}
+     */
+    private final LongAdder[] timeouts = new LongAdder[TimeoutType.values().length];
+
+    /**
+     * Anzahl der abgelehnten Verbindungen bzw. Anfragen nach {@link RejectionType}
+     */
+    private final LongAdder[] rejections = new LongAdder[RejectionType.values().length];
+
+    /**
+     * Anzahl der unerwarteten Fehler bei der Verarbeitung einer Verbindung
+     */
+    private final LongAdder errors = new LongAdder();
+
+    static {
+        for (RequestMethod method : RequestMethod.values()){
+            METHOD_NAMES[method.ordinal()] = method.name();
+        }
+
+        METHOD_NAMES[METHOD_NAMES.length - 1] = "NONE";
+
+        for (ResponseCode code : ResponseCode.values()){
+            CODE_NAMES[code.ordinal()] = code.name().substring(code.name().lastIndexOf('_') + 1);
+        }
+    }
+
+    /**
+     * Erstellt leere Kennzahlen
+     *
+     * @param stripes Anzahl der Streifen der Histogramme
+     */
+    public ServerMetrics(int stripes) {
+        for (int m = 0; m < METHOD_NAMES.length; m++){
+            for (int c = 0; c < CODE_NAMES.length; c++){
+                requests[m][c] = new LongAdder();
+                bytes[m][c] = new LongAdder();
+            }
+
+            latencies[m] = new LatencyHistogram(stripes);
+        }
+
+        for (int t = 0; t < timeouts.length; t++){
+            timeouts[t] = new LongAdder();
+        }
+
+        for (int r = 0; r < rejections.length; r++){
+            rejections[r] = new LongAdder();
+        }
+    }
+
+    /**
+     * Gibt die Kennzahlen des Servers zurück und erstellt sie beim ersten Aufruf
+     *
+     * @return Kennzahlen
+     */
+    public static synchronized ServerMetrics getInstance() {
+        if (instance == null){
+            instance = new ServerMetrics(Runtime.getRuntime().availableProcessors());
+        }
+
+        return instance;
+    }
+
+    /**
+     * Zeichnet eine beantwortete Anfrage auf
+     *
+     * @param method Methode der Anfrage
+     * @param code Status Code der Antwort
+     * @param sent Anzahl der Bytes der Antwort
+     * @param startNanos Zeitpunkt ({@link System#nanoTime()}) an dem die Anfrage vollständig gelesen war
+     */
+    public void recordRequest(RequestMethod method, ResponseCode code, long sent, long startNanos) {
+        int m = methodIndex(method);
+
+        requests[m][code.ordinal()].increment();
+        bytes[m][code.ordinal()].add(sent);
+        latencies[m].record((System.nanoTime() - startNanos) / 1000);
+    }
+
+    /**
+     * Zeichnet eine vorab erstellte Fehlerantwort ohne verarbeitete Anfrage auf, z.B. bei Überlastung
+     * oder einem fehlerhaften Anfragekopf. Diese Antworten fließen nicht in die Latenz ein.
+     *
+     * @param code Status Code der Antwort
+     * @param sent Anzahl der Bytes der Antwort
+     */
+    public void recordStatusResponse(ResponseCode code, long sent) {
+        int m = METHOD_NAMES.length - 1;
+
+        requests[m][code.ordinal()].increment();
+        bytes[m][code.ordinal()].add(sent);
+    }
+
+    /**
+     * Zeichnet eine neue Verbindung auf
+     */
+    public void connectionOpened() {
+        acceptedConnections.increment();
+        activeConnections.increment();
+    }
+
+    /**
+     * Zeichnet eine geschlossene Verbindung auf
+     */
+    public void connectionClosed() {
+        activeConnections.decrement();
+    }
+
+    /**
+     * Zeichnet eine wegen Zeitüberschreitung getrennte Verbindung auf
+     *
+     * @param type Phase in der die Frist abgelaufen ist
+     */
+    public void recordTimeout(TimeoutType type) {
+        timeouts[type.ordinal()].increment();
+    }
+
+    /**
+     * Zeichnet eine abgelehnte Verbindung bzw. Anfrage auf
+     *
+     * @param type Grund der Ablehnung
+     */
+    public void recordRejection(RejectionType type) {
+        rejections[type.ordinal()].increment();
+    }
+
+    /**
+     * Zeichnet einen unerwarteten Fehler auf, welcher mit 500 beantwortet oder durch Trennen der Verbindung
+     * behandelt wurde
+     */
+    public void recordError() {
+        errors.increment();
+    }
+
+    /**
+     * Gibt den Index einer Methode in den Tabellen zurück
+     *
+     * @param method Methode oder null
+     *
+     * @return Index
+     */
+    private static int methodIndex(RequestMethod method) {
+        return method != null ? method.ordinal() : METHOD_NAMES.length - 1;
+    }
+
+    /**
+     * Beschreibt die Kennzahlen für die Konsole. Es werden nur Methoden und Status Codes mit Anfragen ausgegeben.
+     *
+     * @return Kennzahlen als String
+     */
+    public String describe() {
+        StringBuilder builder = new StringBuilder();
+        long uptime = Math.max(1, System.currentTimeMillis() - started);
+        long total = 0;
+        long sent = 0;
+
+        for (int m = 0; m < METHOD_NAMES.length; m++){
+            for (int c = 0; c < CODE_NAMES.length; c++){
+                total += requests[m][c].sum();
+                sent += bytes[m][c].sum();
+            }
+        }
+
+        builder.append("Uptime: ").append(uptime / 1000).append(" s, requests: ").append(total)
+                .append(" (").append(total * 1000 / uptime).append("/s), bytes sent: ").append(sent).append('\n');
+        builder.append("Connections: ").append(activeConnections.sum()).append(" open, ")
+                .append(acceptedConnections.sum()).append(" accepted").append('\n');
+        builder.append("Timeouts:");
+
+        for (TimeoutType type : TimeoutType.values()){
+            builder.append(' ').append(type.name().toLowerCase()).append('=').append(timeouts[type.ordinal()].sum());
+        }
+
+        builder.append('\n').append("Rejections:");
+
+        for (RejectionType type : RejectionType.values()){
+            builder.append(' ').append(type.name().toLowerCase()).append('=').append(rejections[type.ordinal()].sum());
+        }
+
+        builder.append('\n').append("Errors: ").append(errors.sum());
+
+        for (int m = 0; m < METHOD_NAMES.length; m++){
+            StringBuilder codes = new StringBuilder();
+
+            for (int c = 0; c < CODE_NAMES.length; c++){
+                long count = requests[m][c].sum();
+
+                if (count > 0){
+                    codes.append(' ').append(CODE_NAMES[c]).append('=').append(count);
+                }
+            }
+
+            if (codes.length() == 0){
+                continue;
+            }
+
+            builder.append('\n').append(METHOD_NAMES[m]).append(':').append(codes);
+
+            LatencyHistogram histogram = latencies[m];
+
+            if (histogram.getCount() > 0){
+                long[] values = histogram.getQuantiles(QUANTILES);
+
+                builder.append(", latency us");
+
+                for (int q = 0; q < QUANTILES.length; q++){
+                    builder.append(' ').append(PERCENTILE_NAMES[q]).append('=').append(values[q]);
+                }
+
+                builder.append(" max=").append(histogram.getMax());
+            }
+        }
+
+        return builder.toString();
+    }
+
+    /**
+     * Erstellt die Kennzahlen im Textformat von Prometheus für den Abruf über {@link edu.udo.cs.rvs.ServerConfig#STATS_PATH}
+     *
+     * @return Kennzahlen als Text
+     */
+    public String render() {
+        StringBuilder builder = new StringBuilder(4096);
+
+        builder.append("# TYPE rvs_requests_total counter\n");
+        appendMatrix(builder, "rvs_requests_total", requests);
+
+        builder.append("# TYPE rvs_response_bytes_total counter\n");
+        appendMatrix(builder, "rvs_response_bytes_total", bytes);
+
+        builder.append("# TYPE rvs_connections_active gauge\n");
+        builder.append("rvs_connections_active ").append(activeConnections.sum()).append('\n');
+
+        builder.append("# TYPE rvs_connections_accepted_total counter\n");
+        builder.append("rvs_connections_accepted_total ").append(acceptedConnections.sum()).append('\n');
+
+        builder.append("# TYPE rvs_timeouts_total counter\n");
+
+        for (TimeoutType type : TimeoutType.values()){
+            builder.append("rvs_timeouts_total{type=\"").append(type.name().toLowerCase()).append("\"} ")
+                    .append(timeouts[type.ordinal()].sum()).append('\n');
+        }
+
+        builder.append("# TYPE rvs_rejections_total counter\n");
+
+        for (RejectionType type : RejectionType.values()){
+            builder.append("rvs_rejections_total{type=\"").append(type.name().toLowerCase()).append("\"} ")
+                    .append(rejections[type.ordinal()].sum()).append('\n');
+        }
+
+        builder.append("# TYPE rvs_errors_total counter\n");
+        builder.append("rvs_errors_total ").append(errors.sum()).append('\n');
+
+        builder.append("# TYPE rvs_request_duration_microseconds summary\n");
+
+        for (int m = 0; m < METHOD_NAMES.length; m++){
+            LatencyHistogram histogram = latencies[m];
+            long count = histogram.getCount();
+
+            if (count == 0){
+                continue;
+            }
+
+            String labels = "{method=\"" + METHOD_NAMES[m] + "\"";
+            long[] values = histogram.getQuantiles(QUANTILES);
+
+            for (int q = 0; q < QUANTILES.length; q++){
+                builder.append("rvs_request_duration_microseconds").append(labels).append(",quantile=\"")
+                        .append(QUANTILE_NAMES[q]).append("\"} ").append(values[q]).append('\n');
+            }
+
+            builder.append("rvs_request_duration_microseconds_sum").append(labels).append("} ").append(histogram.getSum()).append('\n');
+            builder.append("rvs_request_duration_microseconds_count").append(labels).append("} ").append(count).append('\n');
+            builder.append("rvs_request_duration_microseconds_max").append(labels).append("} ").append(histogram.getMax()).append('\n');
+        }
+
+        AccessLog accessLog = AccessLog.getInstance();
+
+        if (accessLog.isEnabled()){
+            builder.append("# TYPE rvs_access_log_written_total counter\n");
+            builder.append("rvs_access_log_written_total ").append(accessLog.getWritten()).append('\n');
+
+            builder.append("# TYPE rvs_access_log_dropped_total counter\n");
+            builder.append("rvs_access_log_dropped_total ").append(accessLog.getDropped()).append('\n');
+        }
+
+        return builder.toString();
+    }
+
+    /**
+     * Hängt alle Zähler einer Tabelle mit mindestens einer Anfrage an
+     *
+     * @param builder Ziel
+     * @param name Name der Kennzahl
+     * @param matrix Zähler nach Methode und Status Code
+     */
+    private void appendMatrix(StringBuilder builder, String name, LongAdder[][] matrix) {
+        for (int m = 0; m < METHOD_NAMES.length; m++){
+            for (int c = 0; c < CODE_NAMES.length; c++){
+                if (requests[m][c].sum() == 0){
+                    continue;
+                }
+
+                builder.append(name).append("{method=\"").append(METHOD_NAMES[m]).append("\",code=\"")
+                        .append(CODE_NAMES[c]).append("\"} ").append(matrix[m][c].sum()).append('\n');
+            }
+        }
+    }
+}
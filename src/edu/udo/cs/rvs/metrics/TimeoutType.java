@@ -0,0 +1,8 @@
+package edu.udo.cs.rvs.metrics;
+
+/**
+ * Arten von Zeitüberschreitungen einer Verbindung, zugleich die Phasen in denen eine Verbindung überwacht wird
+ */
+public enum TimeoutType {
+    IDLE, HEADER, BODY, WRITE
+}
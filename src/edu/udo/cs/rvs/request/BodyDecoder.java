@@ -0,0 +1,402 @@
+package edu.udo.cs.rvs.request;
+
+import edu.udo.cs.rvs.ServerConfig;
+import edu.udo.cs.rvs.response.ResponseCode;
+
+import java.io.IOException;
+import java.util.function.LongConsumer;
+
+/**
+ * Liest den Körper einer HTTP/1.x Anfrage nach Content-Length oder Transfer-Encoding: chunked. Die Bytes werden
+ * schrittweise übergeben, so wie sie von der Verbindung gelesen werden, und landen ohne Rahmen im
+ * {@link RequestBody}. Bytes nach dem Ende des Körpers werden nicht verbraucht, sie gehören zur nächsten Anfrage.
+ */
+public class BodyDecoder {
+
+    /**
+     * Maximale Länge einer Zeile mit Chunk Größe und Erweiterungen
+     */
+    private static final int MAX_LINE = 1024;
+
+    /**
+     * Zustand: Bytes eines Körpers mit Content-Length
+     */
+    private static final int LENGTH = 0;
+
+    /**
+     * Zustand: Zeile mit der Größe des nächsten Chunks
+     */
+    private static final int CHUNK_SIZE = 1;
+
+    /**
+     * Zustand: Bytes eines Chunks
+     */
+    private static final int CHUNK_DATA = 2;
+
+    /**
+     * Zustand: Zeilenende nach den Bytes eines Chunks
+     */
+    private static final int CHUNK_END = 3;
+
+    /**
+     * Zustand: Trailer nach dem letzten Chunk, diese werden ignoriert
+     */
+    private static final int TRAILER = 4;
+
+    /**
+     * Zustand: Körper vollständig gelesen
+     */
+    private static final int DONE = 5;
+
+    /**
+     * Gelesener Körper
+     */
+    private final RequestBody body = new RequestBody();
+
+    /**
+     * Länge aus dem Content-Length Header oder -1 bei chunked
+     */
+    private final long length;
+
+    /**
+     * Aktueller Zustand
+     */
+    private int state;
+
+    /**
+     * Noch zu lesende Bytes des Körpers bzw. des aktuellen Chunks
+     */
+    private long remaining;
+
+    /**
+     * Länge der aktuellen Zeile (Chunk Größe bzw. Trailer)
+     */
+    private int lineLength;
+
+    /**
+     * Anzahl der Ziffern der aktuellen Chunk Größe
+     */
+    private int digits;
+
+    /**
+     * Wenn wahr, dann enthält die aktuelle Zeile nach der Größe nur noch Erweiterungen
+     */
+    private boolean extension;
+
+    /**
+     * Gesamte Größe der Trailer
+     */
+    private int trailerSize;
+
+    /**
+     * Anzahl aller bisher verbrauchten Bytes inklusive der Rahmen
+     */
+    private long received;
+
+    /**
+     * Erhält die Anzahl aller verbrauchten Bytes nach jedem Aufruf von {@link #feed} oder null
+     */
+    private LongConsumer progressListener;
+
+    /**
+     * Erstellt den Decoder
+     *
+     * @param length Länge des Körpers oder -1 bei chunked
+     */
+    private BodyDecoder(long length) {
+        this.length = length;
+        this.remaining = Math.max(length, 0);
+        this.state = length == -1 ? CHUNK_SIZE : LENGTH;
+    }
+
+    /**
+     * Erstellt den Decoder für den Körper einer Anfrage anhand ihrer Header
+     *
+     * @param request Anfrage mit vollständigem Kopf
+     *
+     * @return Decoder oder null falls die Anfrage keinen Körper hat
+     *
+     * @throws RequestParseException Wird geworfen falls die Länge fehlerhaft (400), die Kodierung unbekannt (501)
+     * oder der Körper zu groß ist (413)
+     */
+    public static BodyDecoder forRequest(Request request) throws RequestParseException {
+        //Bei mehreren unterschiedlichen Längen könnte ein Proxy eine andere als der Server verwenden
+        if (request.hasConflictingHeader(RequestParser.CONTENT_LENGTH) || request.hasConflictingHeader(RequestParser.TRANSFER_ENCODING)){
+            throw new RequestParseException(ResponseCode.BAD_REQUEST_400, "Conflicting Content-Length or Transfer-Encoding");
+        }
+
+        String transferEncoding = request.getKnownHeader(RequestParser.TRANSFER_ENCODING);
+        String contentLength = request.getKnownHeader(RequestParser.CONTENT_LENGTH);
+
+        if (transferEncoding != null){
+            //Beide Header zusammen ermöglichen es Anfragen an Proxys vorbei einzuschleusen
+            if (contentLength != null){
+                throw new RequestParseException(ResponseCode.BAD_REQUEST_400, "Content-Length with Transfer-Encoding");
+            }
+
+            if (!transferEncoding.trim().equalsIgnoreCase("chunked")){
+                throw new RequestParseException(ResponseCode.NOT_IMPLEMENTED_501, "Unsupported Transfer-Encoding: " + transferEncoding);
+            }
+
+            return new BodyDecoder(-1);
+        }
+
+        if (contentLength == null){
+            return null;
+        }
+
+        long length = parseLength(contentLength.trim());
+
+        if (length > ServerConfig.MAX_BODY_SIZE){
+            throw new RequestParseException(ResponseCode.PAYLOAD_TOO_LARGE_413, "Request body too large");
+        }
+
+        return length == 0 ? null : new BodyDecoder(length);
+    }
+
+    /**
+     * Liest den Wert des Content-Length Headers, nur Ziffern sind erlaubt
+     *
+     * @param value Wert ohne Leerzeichen
+     *
+     * @return Länge
+     *
+     * @throws RequestParseException Wird geworfen falls der Wert keine gültige Länge ist
+     */
+    private static long parseLength(String value) throws RequestParseException {
+        if (value.isEmpty() || value.length() > 18){
+            throw new RequestParseException(ResponseCode.BAD_REQUEST_400, "Invalid Content-Length");
+        }
+
+        long length = 0;
+
+        for (int i = 0; i < value.length(); i++){
+            char c = value.charAt(i);
+
+            if (c < '0' || c > '9'){
+                throw new RequestParseException(ResponseCode.BAD_REQUEST_400, "Invalid Content-Length");
+            }
+
+            length = length * 10 + (c - '0');
+        }
+
+        return length;
+    }
+
+    /**
+     * Verarbeitet gelesene Bytes bis der Körper vollständig ist
+     *
+     * @param buf Puffer
+     * @param offset Beginn der Bytes
+     * @param count Anzahl der Bytes
+     *
+     * @return Anzahl der verbrauchten Bytes, weniger als count falls der Körper vorher endet
+     *
+     * @throws IOException Wird geworfen falls der Körper nicht gespeichert werden kann
+     * @throws RequestParseException Wird geworfen falls die Chunks fehlerhaft sind oder der Körper zu groß ist
+     */
+    public int feed(byte[] buf, int offset, int count) throws IOException, RequestParseException {
+        int position = offset;
+        int end = offset + count;
+
+        while (position < end && state != DONE){
+            switch (state){
+                case LENGTH:
+                case CHUNK_DATA:
+                    int data = (int) Math.min(remaining, end - position);
+
+                    body.write(buf, position, data);
+                    position += data;
+                    remaining -= data;
+
+                    if (remaining == 0){
+                        state = state == LENGTH ? DONE : CHUNK_END;
+                        lineLength = 0;
+                    }
+
+                    break;
+                case CHUNK_SIZE:
+                    position = readSize(buf, position, end);
+                    break;
+                case CHUNK_END:
+                    position = readLineEnd(buf, position);
+                    break;
+                case TRAILER:
+                    position = readTrailer(buf, position, end);
+                    break;
+            }
+        }
+
+        received += position - offset;
+
+        if (progressListener != null){
+            progressListener.accept(received);
+        }
+
+        return position - offset;
+    }
+
+    /**
+     * Liest die Zeile mit der Größe eines Chunks, Erweiterungen nach ";" werden ignoriert
+     *
+     * @param buf Puffer
+     * @param position Aktuelle Position
+     * @param end Ende der Bytes
+     *
+     * @return Neue Position
+     *
+     * @throws RequestParseException Wird geworfen falls die Größe fehlerhaft oder der Chunk zu groß ist
+     */
+    private int readSize(byte[] buf, int position, int end) throws RequestParseException {
+        while (position < end){
+            byte b = buf[position++];
+
+            if (b == '\n'){
+                if (digits == 0){
+                    throw new RequestParseException(ResponseCode.BAD_REQUEST_400, "Missing chunk size");
+                }
+
+                if (body.getLength() + remaining > ServerConfig.MAX_BODY_SIZE){
+                    throw new RequestParseException(ResponseCode.PAYLOAD_TOO_LARGE_413, "Request body too large");
+                }
+
+                state = remaining == 0 ? TRAILER : CHUNK_DATA;
+                lineLength = 0;
+                digits = 0;
+                extension = false;
+
+                return position;
+            }
+
+            if (++lineLength > MAX_LINE){
+                throw new RequestParseException(ResponseCode.BAD_REQUEST_400, "Chunk size line too long");
+            }
+
+            if (extension || b == '\r'){
+                continue;
+            }
+
+            if (b == ';' || b == ' ' || b == '\t'){
+                extension = true;
+                continue;
+            }
+
+            int digit = Character.digit(b, 16);
+
+            if (digit == -1 || remaining > (Long.MAX_VALUE >> 4)){
+                throw new RequestParseException(ResponseCode.BAD_REQUEST_400, "Invalid chunk size");
+            }
+
+            remaining = (remaining << 4) | digit;
+            digits++;
+        }
+
+        return position;
+    }
+
+    /**
+     * Liest das Zeilenende nach den Bytes eines Chunks
+     *
+     * @param buf Puffer
+     * @param position Aktuelle Position
+     *
+     * @return Neue Position
+     *
+     * @throws RequestParseException Wird geworfen falls nach dem Chunk weitere Bytes folgen
+     */
+    private int readLineEnd(byte[] buf, int position) throws RequestParseException {
+        byte b = buf[position++];
+
+        if (b == '\r' && lineLength == 0){
+            lineLength = 1;
+        }else if (b == '\n'){
+            state = CHUNK_SIZE;
+            remaining = 0;
+            lineLength = 0;
+        }else {
+            throw new RequestParseException(ResponseCode.BAD_REQUEST_400, "Chunk longer than its size");
+        }
+
+        return position;
+    }
+
+    /**
+     * Liest die Trailer nach dem letzten Chunk bis zur leeren Zeile
+     *
+     * @param buf Puffer
+     * @param position Aktuelle Position
+     * @param end Ende der Bytes
+     *
+     * @return Neue Position
+     *
+     * @throws RequestParseException Wird geworfen falls die Trailer zu groß sind
+     */
+    private int readTrailer(byte[] buf, int position, int end) throws RequestParseException {
+        while (position < end){
+            byte b = buf[position++];
+
+            if (++trailerSize > ServerConfig.MAX_HEADER_SIZE){
+                throw new RequestParseException(ResponseCode.REQUEST_HEADER_FIELDS_TOO_LARGE_431, "Trailer too large");
+            }
+
+            if (b == '\n'){
+                if (lineLength == 0){
+                    state = DONE;
+
+                    return position;
+                }
+
+                lineLength = 0;
+            }else if (b != '\r'){
+                lineLength++;
+            }
+        }
+
+        return position;
+    }
+
+    /**
+     * Setzt den Empfänger des Fortschritts, z.B. um die Frist eines chunked Körpers zu verlängern
+     *
+     * @param progressListener Erhält die Anzahl aller verbrauchten Bytes inklusive der Rahmen
+     */
+    public void setProgressListener(LongConsumer progressListener) {
+        this.progressListener = progressListener;
+    }
+
+    /**
+     * Prüft ob der Körper vollständig gelesen wurde
+     *
+     * @return Wahr wenn der Körper vollständig ist
+     */
+    public boolean isDone() {
+        return state == DONE;
+    }
+
+    /**
+     * Gibt zurück ob der Körper als Chunks gesendet wird
+     *
+     * @return Wahr bei Transfer-Encoding: chunked
+     */
+    public boolean isChunked() {
+        return length == -1;
+    }
+
+    /**
+     * Gibt die Länge aus dem Content-Length Header zurück, z.B. um die Frist zu bemessen
+     *
+     * @return Länge in Bytes, 0 bei chunked
+     */
+    public long getLength() {
+        return Math.max(length, 0);
+    }
+
+    /**
+     * Gibt den gelesenen Körper zurück. Dieser muss geschlossen werden, auch wenn er nicht vollständig ist.
+     *
+     * @return Körper
+     */
+    public RequestBody getBody() {
+        return body;
+    }
+}
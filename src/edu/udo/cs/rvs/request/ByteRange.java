@@ -0,0 +1,121 @@
+package edu.udo.cs.rvs.request;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Ein Bereich einer Range Anfrage (RFC 7233) mit erstem und letztem Byte
+ */
+public class ByteRange {
+
+    /**
+     * Maximale Anzahl an Bereichen pro Anfrage, mehr Bereiche führen zum Ignorieren des Headers
+     */
+    private static final int MAX_RANGES = 16;
+
+    /**
+     * Erstes Byte des Bereichs
+     */
+    private final long first;
+
+    /**
+     * Letztes Byte des Bereichs (inklusive)
+     */
+    private final long last;
+
+    /**
+     * Erstellt einen Bereich
+     *
+     * @param first Erstes Byte
+     * @param last Letztes Byte (inklusive)
+     */
+    public ByteRange(long first, long last) {
+        this.first = first;
+        this.last = last;
+    }
+
+    /**
+     * Zerlegt einen Range Header und löst die Bereiche gegen die Länge der Datei auf
+     *
+     * @param header Wert des Range Headers, z.B. "bytes=0-99,-500"
+     * @param length Länge der Datei in Bytes
+     *
+     * @return Erfüllbare Bereiche, eine leere Liste falls kein Bereich erfüllbar ist (416),
+     *         oder null falls der Header ungültig ist und ignoriert werden muss
+     */
+    public static List<ByteRange> parse(String header, long length) {
+        if (!header.regionMatches(true, 0, "bytes=", 0, 6)){
+            return null;
+        }
+
+        String[] specs = header.substring(6).split(",");
+
+        if (specs.length > MAX_RANGES){
+            return null;
+        }
+
+        List<ByteRange> ranges = new ArrayList<>(specs.length);
+
+        for (String spec : specs){
+            spec = spec.trim();
+
+            int dash = spec.indexOf('-');
+            if (dash == -1){
+                return null;
+            }
+
+            try {
+                if (dash == 0){
+                    //Suffix: die letzten n Bytes
+                    long suffix = Long.parseLong(spec.substring(1));
+
+                    if (suffix > 0 && length > 0){
+                        ranges.add(new ByteRange(Math.max(0, length - suffix), length - 1));
+                    }
+                }else {
+                    long first = Long.parseLong(spec.substring(0, dash));
+                    long last = dash == spec.length() - 1 ? Long.MAX_VALUE : Long.parseLong(spec.substring(dash + 1));
+
+                    if (first < 0 || last < first){
+                        return null;
+                    }
+
+                    if (first < length){
+                        ranges.add(new ByteRange(first, Math.min(last, length - 1)));
+                    }
+                }
+            }catch (NumberFormatException e){
+                return null;
+            }
+        }
+
+        return ranges;
+    }
+
+    /**
+     * Gibt das erste Byte zurück
+     *
+     * @return Erstes Byte
+     */
+    public long getFirst() {
+        return first;
+    }
+
+    /**
+     * Gibt das letzte Byte zurück
+     *
+     * @return Letztes Byte (inklusive)
+     */
+    public long getLast() {
+        return last;
+    }
+
+    /**
+     * Gibt die Länge des Bereichs zurück
+     *
+     * @return Anzahl der Bytes
+     */
+    public long getLength() {
+        return last - first + 1;
+    }
+}
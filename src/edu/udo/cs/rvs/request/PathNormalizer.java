@@ -0,0 +1,168 @@
+package edu.udo.cs.rvs.request;
+
+/**
+ * Normalisiert das Ziel einer Anfrage in einem Durchlauf ohne Objekte zu erzeugen. Query und Fragment werden
+ * entfernt, Prozentkodierungen dekodiert, leere Segmente und "." entfernt und ".." mit dem vorherigen Segment
+ * aufgelöst. Das Ergebnis beginnt immer mit "/" und kann daher nie außerhalb von wwwroot liegen.
+ */
+public class PathNormalizer {
+
+    /**
+     * Ergebnis für ein ungültiges Ziel (400)
+     */
+    public static final int BAD_REQUEST = -1;
+
+    /**
+     * Ergebnis für ein Ziel welches über ".." aus wwwroot hinaus führt (403)
+     */
+    public static final int FORBIDDEN = -2;
+
+    /**
+     * Normalisiert ein Ziel. Segmente werden durch "/" oder "\" getrennt, auch wenn diese prozentkodiert sind.
+     *
+     * @param in Puffer mit dem Ziel
+     * @param start Beginn des Ziels
+     * @param end Ende des Ziels
+     * @param out Ausgabe für den normalisierten Pfad als UTF-8 Bytes, mindestens end - start + 1 Bytes groß
+     *
+     * @return Länge des normalisierten Pfades in out, {@link #BAD_REQUEST} oder {@link #FORBIDDEN}
+     */
+    public static int normalize(byte[] in, int start, int end, byte[] out) {
+        int i = start;
+
+        //absolute-form (http://host/pfad) auf den Pfad reduzieren
+        if (i < end && in[i] != '/'){
+            int scheme = indexOf(in, i, end, "://");
+
+            if (scheme == -1){
+                return BAD_REQUEST;
+            }
+
+            i = scheme + 3;
+            while (i < end && in[i] != '/'){
+                i++;
+            }
+        }
+
+        int length = 0;
+        out[length++] = '/';
+
+        //Beginn des aktuellen Segments in out
+        int segment = length;
+
+        while (true){
+            int c = i < end ? in[i] & 0xFF : -1;
+
+            if (c == '?' || c == '#'){
+                c = -1;
+            }
+
+            if (c == '%'){
+                if (i + 2 >= end){
+                    return BAD_REQUEST;
+                }
+
+                int high = hex(in[i + 1]);
+                int low = hex(in[i + 2]);
+
+                if (high == -1 || low == -1){
+                    return BAD_REQUEST;
+                }
+
+                c = high << 4 | low;
+                i += 2;
+
+                if (c == 0){
+                    return BAD_REQUEST;
+                }
+            }
+
+            if (c == -1 || c == '/' || c == '\\'){
+                int segmentLength = length - segment;
+
+                if (segmentLength == 1 && out[segment] == '.'){
+                    //"." verweist auf den aktuellen Ordner
+                    length = segment;
+                }else if (segmentLength == 2 && out[segment] == '.' && out[segment + 1] == '.'){
+                    //".." entfernt das vorherige Segment
+                    if (segment == 1){
+                        return FORBIDDEN;
+                    }
+
+                    length = segment - 1;
+                    while (out[length - 1] != '/'){
+                        length--;
+                    }
+                }else if (segmentLength > 0 && c != -1){
+                    out[length++] = '/';
+                }
+
+                if (c == -1){
+                    break;
+                }
+
+                segment = length;
+            }else {
+                if (c < 0x20 || c == 0x7F){
+                    return BAD_REQUEST;
+                }
+
+                out[length++] = (byte) c;
+            }
+
+            i++;
+        }
+
+        //Abschließendes "/" entfernen, außer bei wwwroot selbst
+        if (length > 1 && out[length - 1] == '/'){
+            length--;
+        }
+
+        return length;
+    }
+
+    /**
+     * Wandelt eine hexadezimale Ziffer um
+     *
+     * @param b Zeichen
+     *
+     * @return Wert 0-15 oder -1
+     */
+    private static int hex(byte b) {
+        if (b >= '0' && b <= '9'){
+            return b - '0';
+        }else if (b >= 'a' && b <= 'f'){
+            return b - 'a' + 10;
+        }else if (b >= 'A' && b <= 'F'){
+            return b - 'A' + 10;
+        }
+
+        return -1;
+    }
+
+    /**
+     * Sucht eine Zeichenfolge in einem Bereich
+     *
+     * @param buf Puffer
+     * @param start Beginn des Bereichs
+     * @param end Ende des Bereichs
+     * @param value Gesuchte Zeichenfolge
+     *
+     * @return Position der Zeichenfolge oder -1
+     */
+    private static int indexOf(byte[] buf, int start, int end, String value) {
+        for (int i = start; i + value.length() <= end; i++){
+            boolean found = true;
+
+            for (int j = 0; j < value.length() && found; j++){
+                found = buf[i + j] == value.charAt(j);
+            }
+
+            if (found){
+                return i;
+            }
+        }
+
+        return -1;
+    }
+}
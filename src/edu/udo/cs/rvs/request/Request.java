@@ -2,16 +2,46 @@ package edu.udo.cs.rvs.request;
 
 import edu.udo.cs.rvs.DateFormatter;
 import edu.udo.cs.rvs.HTTPVersion;
+import edu.udo.cs.rvs.ServerConfig;
+import edu.udo.cs.rvs.response.ResponseCode;
 
 import java.io.BufferedReader;
+import java.nio.charset.StandardCharsets;
 
 /**
- * Anfrage Klasse welche die Anfrage verarbeitet
+ * Anfrage Klasse welche die Anfrage verarbeitet. Die Werte der Anfrage liegen als Positionen im Puffer des
+ * {@link RequestParser} und werden erst bei Bedarf in Strings umgewandelt. Eine Anfrage ist daher nur gültig,
+ * bis auf der gleichen Verbindung die nächste Anfrage gelesen wird.
  */
 public class Request {
 
     /**
-     * Ganzer String der Request
+     * Leere Anfrage einer Verbindung welche ohne Anfrage geschlossen wurde
+     */
+    private static final Request EMPTY = new Request();
+
+    /**
+     * Bytes "close" für die Prüfung des Connection Headers
+     */
+    private static final byte[] CLOSE = RequestParser.ascii("close");
+
+    /**
+     * Bytes "keep-alive" für die Prüfung des Connection Headers
+     */
+    private static final byte[] KEEP_ALIVE = RequestParser.ascii("keep-alive");
+
+    /**
+     * Puffer in dem die Anfrage liegt
+     */
+    private byte[] buffer;
+
+    /**
+     * Parser mit den Positionen der Anfrage im Puffer oder null bei einer leeren Anfrage
+     */
+    private RequestParser parser;
+
+    /**
+     * Ganzer String der Request, wird erst bei Bedarf erstellt
      */
     private String request;
 
@@ -26,7 +56,7 @@ public class Request {
     private HTTPVersion httpVersion;
 
     /**
-     * Datei oder Pfad welcher angefragt wird
+     * Datei oder Pfad welcher angefragt wird, wird erst bei Bedarf erstellt
      */
     private String requestedPath;
 
@@ -36,7 +66,49 @@ public class Request {
     private long isModifiedSinceDate = -1;
 
     /**
-     * Initialisierung der Anfrage sowie verarbietung dieser
+     * Wenn wahr, dann wurde If-Modified-Since bereits verarbeitet
+     */
+    private boolean isModifiedSinceDecoded;
+
+    /**
+     * Wert des Accept-Encoding Headers in Kleinbuchstaben oder null, wird erst bei Bedarf erstellt
+     */
+    private String acceptEncoding;
+
+    /**
+     * Wenn wahr, dann wurde die Anfrage als Stream einer HTTP/2 Verbindung empfangen
+     */
+    private boolean http2Stream;
+
+    /**
+     * Vollständig gelesener Körper oder null falls die Anfrage keinen Körper hat
+     */
+    private RequestBody body;
+
+    /**
+     * Erstellt eine leere Anfrage
+     */
+    private Request() {
+        request = "";
+    }
+
+    /**
+     * Initialisierung der Anfrage aus einem bereits vollständig gelesenen Kopf
+     *
+     * @param buffer Puffer in dem der Kopf liegt
+     * @param parser Parser welcher den Kopf vollständig gelesen hat
+     */
+    public Request(byte[] buffer, RequestParser parser) {
+        this.buffer = buffer;
+        this.parser = parser;
+
+        requestMethod = parser.getMethod();
+        httpVersion = parser.getVersion();
+    }
+
+    /**
+     * Initialisierung der Anfrage sowie verarbietung dieser. Die Zeilen werden aus dem Reader gelesen und
+     * anschließend mit dem {@link RequestParser} zerlegt.
      *
      * @param reader Objekt um Anfrage auszulesen
      *
@@ -45,7 +117,41 @@ public class Request {
     public Request(BufferedReader reader) throws Exception{
         initRequestString(reader);
 
-        decodeRequest();
+        if (!request.isEmpty()){
+            buffer = request.getBytes(StandardCharsets.ISO_8859_1);
+            parser = new RequestParser(ServerConfig.MAX_REQUEST_LINE, ServerConfig.MAX_HEADER_SIZE);
+
+            if (parser.parse(buffer, buffer.length) == RequestParser.NEED_MORE){
+                throw new RequestParseException(ResponseCode.BAD_REQUEST_400, "Incomplete request head");
+            }
+
+            requestMethod = parser.getMethod();
+            httpVersion = parser.getVersion();
+        }
+    }
+
+    /**
+     * Erstellt die Anfrage eines HTTP/2 Streams aus dem Anfragekopf, welcher aus dessen Headern erstellt wurde
+     *
+     * @param buffer Puffer in dem der Kopf liegt
+     * @param parser Parser welcher den Kopf vollständig gelesen hat
+     *
+     * @return Anfrage
+     */
+    public static Request fromHttp2Stream(byte[] buffer, RequestParser parser) {
+        Request request = new Request(buffer, parser);
+        request.http2Stream = true;
+
+        return request;
+    }
+
+    /**
+     * Gibt die Anfrage einer Verbindung zurück, welche ohne Anfrage geschlossen wurde
+     *
+     * @return Leere Anfrage
+     */
+    public static Request empty() {
+        return EMPTY;
     }
 
     /**
@@ -61,6 +167,11 @@ public class Request {
         String line = "";
 
         while ((line = reader.readLine()) != null) {
+            //Leere Zeilen vor einer Anfrage werden ignoriert (z.B. zwischen zwei Anfragen einer Verbindung)
+            if (line.isEmpty() && builder.length() == 0) {
+                continue;
+            }
+
             builder.append(line).append("\r\n");
             if (line.isEmpty()) {
                 break;
@@ -71,89 +182,117 @@ public class Request {
     }
 
     /**
-     * Decodiert die Anfrage in seine einzelnen Teile und verarbeitet diese
+     * Gibt den Wert eines Headers zurück
+     *
+     * @param name Name des Headers (Groß- und Kleinschreibung wird ignoriert)
+     *
+     * @return Wert des Headers oder null falls nicht vorhanden
      */
-    private void decodeRequest(){
-        if (!request.equals("")) {
-            String[] parts = request.split("\r\n");
-
-            decodeRequestHead(parts[0]);
+    public String getHeader(String name) {
+        if (parser == null){
+            return null;
+        }
 
-            //Conditional GET verarbeitung
-            if (requestMethod == RequestMethod.GET){
-                for (String p:parts){
-                    if (p.startsWith("If-Modified-Since")){
-                        p = p.replaceFirst("If-Modified-Since: ", "");
+        byte[] lowerCase = RequestParser.ascii(name.toLowerCase());
 
-                        isModifiedSinceDate = DateFormatter.parseDate(p).getTime();
-                    }
-                }
+        for (int i = 0; i < parser.getHeaderCount(); i++){
+            if (RequestParser.equalsIgnoreCase(buffer, parser.getHeaderPosition(i, 0), parser.getHeaderPosition(i, 1), lowerCase)){
+                return slice(parser.getHeaderPosition(i, 2), parser.getHeaderPosition(i, 3));
             }
         }
+
+        return null;
     }
 
     /**
-     * Decodieren des Kopfes der Anfrage
+     * Gibt den Wert eines bekannten Headers zurück
+     *
+     * @param knownHeader Index des bekannten Headers (z.B. {@link RequestParser#CONNECTION})
      *
-     * @param head Kopf der Anfrage
+     * @return Wert des Headers oder null falls nicht vorhanden
      */
-    private void decodeRequestHead(String head){
-        String[] parts = head.split(" ");
+    public String getKnownHeader(int knownHeader) {
+        int index = parser != null ? parser.getKnownHeader(knownHeader) : -1;
 
-        decodeRequestMethod(parts[0]);
-        requestedPath = parts[1];
-        decodeHttpVersion(parts[2]);
+        if (index == -1){
+            return null;
+        }
+
+        return slice(parser.getHeaderPosition(index, 2), parser.getHeaderPosition(index, 3));
     }
 
     /**
-     * Decodieren des Anfrage Methode für eine bessere Struckturierbarkeit
+     * Prüft ob ein bekannter Header mehrfach mit unterschiedlichen Werten gesendet wurde
+     *
+     * @param knownHeader Index des bekannten Headers (z.B. {@link RequestParser#CONTENT_LENGTH})
      *
-     * @param method Methoden String
+     * @return Wahr wenn sich die Werte unterscheiden
      */
-    private void decodeRequestMethod(String method){
-        switch (method){
-            case "GET":
-                requestMethod = RequestMethod.GET;
-                break;
-            case "HEAD":
-                requestMethod = RequestMethod.HEAD;
-                break;
-            case "POST":
-                requestMethod = RequestMethod.POST;
-                break;
-            case "PUT":
-                requestMethod = RequestMethod.PUT;
-                break;
-            case "DELETE":
-                requestMethod = RequestMethod.DELETE;
-                break;
-            case "LINK":
-                requestMethod = RequestMethod.LINK;
-                break;
-            case "UPLINK":
-                requestMethod = RequestMethod.UPLINK;
-                break;
+    public boolean hasConflictingHeader(int knownHeader) {
+        return parser != null && parser.hasConflictingValues(knownHeader);
+    }
 
-        }
+    /**
+     * Erstellt einen String aus einem Bereich des Puffers
+     *
+     * @param start Beginn des Bereichs
+     * @param end Ende des Bereichs
+     *
+     * @return String des Bereichs
+     */
+    private String slice(int start, int end) {
+        return new String(buffer, start, end - start, StandardCharsets.ISO_8859_1);
     }
 
     /**
-     * Decodieren der HTTP Versions Nummer für eine bessere Verarbeitbarkeit
+     * Prüft ob ein bekannter Header ein Token enthält (z.B. "close" in "Connection: close")
      *
-     * @param version HTTP Version als String
+     * @param knownHeader Index des bekannten Headers
+     * @param lowerCaseToken Token in Kleinbuchstaben
+     *
+     * @return Wahr wenn der Header das Token enthält
      */
-    private void decodeHttpVersion(String version){
-        switch (version){
-            case "HTTP/1.0":
-                httpVersion = HTTPVersion.HTTP_1_0;
-                break;
-            case "HTTP/1.1":
-                httpVersion = HTTPVersion.HTTP_1_1;
-                break;
-            case "HTTP/2.0":
-                httpVersion = HTTPVersion.HTTP_2_0;
-                break;
+    private boolean knownHeaderContainsToken(int knownHeader, byte[] lowerCaseToken) {
+        int index = parser != null ? parser.getKnownHeader(knownHeader) : -1;
+
+        if (index == -1){
+            return false;
         }
+
+        int start = parser.getHeaderPosition(index, 2);
+        int end = parser.getHeaderPosition(index, 3);
+
+        int tokenStart = start;
+        for (int i = start; i <= end; i++){
+            if (i == end || buffer[i] == ','){
+                int s = tokenStart;
+                int e = i;
+
+                while (s < e && buffer[s] == ' '){
+                    s++;
+                }
+                while (e > s && buffer[e - 1] == ' '){
+                    e--;
+                }
+
+                if (RequestParser.equalsIgnoreCase(buffer, s, e, lowerCaseToken)){
+                    return true;
+                }
+
+                tokenStart = i + 1;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Prüft ob die Anfrage leer ist, weil die Verbindung ohne Anfrage geschlossen wurde
+     *
+     * @return Wahr wenn die Anfrage leer ist
+     */
+    public boolean isEmpty() {
+        return parser == null;
     }
 
     /**
@@ -174,12 +313,52 @@ public class Request {
         return httpVersion;
     }
 
+    /**
+     * Gibt zurück ob die Anfrage als Stream einer HTTP/2 Verbindung empfangen wurde
+     *
+     * @return Wahr bei einem HTTP/2 Stream
+     */
+    public boolean isHttp2Stream() {
+        return http2Stream;
+    }
+
+    /**
+     * Gibt den Körper der Anfrage zurück
+     *
+     * @return Körper oder null falls die Anfrage keinen Körper hat
+     */
+    public RequestBody getBody() {
+        return body;
+    }
+
+    /**
+     * Setzt den vollständig gelesenen Körper
+     *
+     * @param body Körper, wird von der Verbindung nach der Antwort geschlossen
+     */
+    public void setBody(RequestBody body) {
+        this.body = body;
+    }
+
+    /**
+     * Prüft ob der Nutzer vor dem Senden des Körpers auf "100 Continue" wartet (Expect: 100-continue)
+     *
+     * @return Wahr wenn eine Zwischenantwort gesendet werden soll
+     */
+    public boolean expectsContinue() {
+        return httpVersion == HTTPVersion.HTTP_1_1 && "100-continue".equalsIgnoreCase(getHeader("Expect"));
+    }
+
     /**
      * Gibt den Pfad der angeforderten Datei zurück
      *
      * @return Relativer Pfad der Datei
      */
     public String getRequestedPath() {
+        if (requestedPath == null && parser != null){
+            requestedPath = slice(parser.getTargetStart(), parser.getTargetEnd());
+        }
+
         return requestedPath;
     }
 
@@ -189,6 +368,10 @@ public class Request {
      * @return Anfrage als String
      */
     public String getRequest() {
+        if (request == null){
+            request = slice(parser.getHeadStart(), parser.getHeadEnd());
+        }
+
         return request;
     }
 
@@ -198,6 +381,99 @@ public class Request {
      * @return Datum in Millisekunden
      */
     public long getIsModifiedSinceDate() {
+        if (!isModifiedSinceDecoded){
+            isModifiedSinceDecoded = true;
+
+            if (requestMethod == RequestMethod.GET || requestMethod == RequestMethod.HEAD){
+                isModifiedSinceDate = getKnownHeaderDate(RequestParser.IF_MODIFIED_SINCE);
+            }
+        }
+
         return isModifiedSinceDate;
     }
+
+    /**
+     * Liest das Datum eines bekannten Headers direkt aus dem Puffer
+     *
+     * @param knownHeader Index des bekannten Headers (z.B. {@link RequestParser#IF_RANGE})
+     *
+     * @return Datum in Millisekunden oder -1 falls der Header fehlt oder kein gültiges Datum enthält
+     */
+    public long getKnownHeaderDate(int knownHeader) {
+        int index = parser != null ? parser.getKnownHeader(knownHeader) : -1;
+
+        if (index == -1){
+            return DateFormatter.INVALID;
+        }
+
+        return DateFormatter.parseDate(buffer, parser.getHeaderPosition(index, 2), parser.getHeaderPosition(index, 3));
+    }
+
+    /**
+     * Prüft ob die Verbindung nach der Antwort offen bleiben soll. Bei HTTP/1.1 ist dies der Standard,
+     * bei HTTP/1.0 nur mit "Connection: keep-alive".
+     *
+     * @return Wahr wenn die Verbindung offen bleiben soll
+     */
+    public boolean isKeepAlive() {
+        if (knownHeaderContainsToken(RequestParser.CONNECTION, CLOSE)){
+            return false;
+        }
+
+        if (httpVersion == HTTPVersion.HTTP_1_1){
+            return true;
+        }
+
+        return knownHeaderContainsToken(RequestParser.CONNECTION, KEEP_ALIVE);
+    }
+
+    /**
+     * Prüft ob der Nutzer eine Kodierung des Körpers (z.B. gzip) über den Accept-Encoding Header akzeptiert.
+     * Kodierungen mit q=0 gelten als abgelehnt.
+     *
+     * @param encoding Name der Kodierung in Kleinbuchstaben
+     *
+     * @return Wahr wenn die Kodierung akzeptiert wird
+     */
+    public boolean acceptsEncoding(String encoding) {
+        if (acceptEncoding == null){
+            String value = getKnownHeader(RequestParser.ACCEPT_ENCODING);
+
+            if (value == null){
+                return false;
+            }
+
+            acceptEncoding = value.toLowerCase();
+        }
+
+        boolean wildcard = false;
+
+        for (String part : acceptEncoding.split(",")){
+            String[] params = part.split(";");
+            String name = params[0].trim();
+
+            boolean rejected = false;
+            for (int i = 1; i < params.length; i++){
+                String param = params[i].trim();
+
+                if (param.startsWith("q=")){
+                    try {
+                        rejected = Double.parseDouble(param.substring(2)) <= 0;
+                    }catch (NumberFormatException e){
+                        rejected = true;
+                    }
+                }
+            }
+
+            if (name.equals(encoding)){
+                return !rejected;
+            }
+
+            if (name.equals("*")){
+                wildcard = !rejected;
+            }
+        }
+
+        return wildcard;
+    }
 }
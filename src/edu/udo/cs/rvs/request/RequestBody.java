@@ -0,0 +1,173 @@
+package edu.udo.cs.rvs.request;
+
+import edu.udo.cs.rvs.ServerConfig;
+import edu.udo.cs.rvs.response.ResponseCode;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Körper einer Anfrage. Bis {@link ServerConfig#BODY_MEMORY_SIZE} Bytes bleibt er im Speicher, größere Körper
+ * werden in eine temporäre Datei geschrieben, so dass große Uploads nicht den Java Heap belegen. Insgesamt sind
+ * höchstens {@link ServerConfig#MAX_BODY_SIZE} Bytes erlaubt.
+ */
+public class RequestBody implements Closeable {
+
+    /**
+     * Startgröße des Puffers im Speicher
+     */
+    private static final int INITIAL_SIZE = 1024;
+
+    /**
+     * Inhalt im Speicher oder null nachdem der Körper in die Datei geschrieben wurde
+     */
+    private byte[] memory = new byte[0];
+
+    /**
+     * Temporäre Datei oder null solange der Körper im Speicher liegt
+     */
+    private Path file;
+
+    /**
+     * Kanal zum Schreiben der temporären Datei
+     */
+    private FileChannel fileChannel;
+
+    /**
+     * Anzahl der Bytes des Körpers
+     */
+    private long length;
+
+    /**
+     * Hängt Bytes an den Körper an
+     *
+     * @param buf Puffer
+     * @param offset Beginn der Bytes
+     * @param count Anzahl der Bytes
+     *
+     * @throws IOException Wird geworfen falls die temporäre Datei nicht geschrieben werden kann
+     * @throws RequestParseException Wird geworfen falls der Körper größer als {@link ServerConfig#MAX_BODY_SIZE} wird
+     */
+    public void write(byte[] buf, int offset, int count) throws IOException, RequestParseException {
+        if (length + count > ServerConfig.MAX_BODY_SIZE){
+            throw new RequestParseException(ResponseCode.PAYLOAD_TOO_LARGE_413, "Request body too large");
+        }
+
+        if (file == null && length + count > ServerConfig.BODY_MEMORY_SIZE){
+            spill();
+        }
+
+        if (file == null){
+            if (length + count > memory.length){
+                memory = Arrays.copyOf(memory, (int) Math.min(ServerConfig.BODY_MEMORY_SIZE,
+                        Math.max(length + count, Math.max(INITIAL_SIZE, memory.length * 2L))));
+            }
+
+            System.arraycopy(buf, offset, memory, (int) length, count);
+        }else {
+            ByteBuffer buffer = ByteBuffer.wrap(buf, offset, count);
+
+            while (buffer.hasRemaining()){
+                fileChannel.write(buffer);
+            }
+        }
+
+        length += count;
+    }
+
+    /**
+     * Schreibt den bisherigen Inhalt in eine temporäre Datei, alle weiteren Bytes folgen dort
+     *
+     * @throws IOException Wird geworfen falls die Datei nicht erstellt werden kann
+     */
+    private void spill() throws IOException {
+        file = Files.createTempFile("rvs-body-", ".tmp");
+        fileChannel = FileChannel.open(file, StandardOpenOption.WRITE);
+
+        ByteBuffer buffer = ByteBuffer.wrap(memory, 0, (int) length);
+
+        while (buffer.hasRemaining()){
+            fileChannel.write(buffer);
+        }
+
+        memory = null;
+    }
+
+    /**
+     * Gibt die Länge des Körpers zurück
+     *
+     * @return Anzahl der Bytes
+     */
+    public long getLength() {
+        return length;
+    }
+
+    /**
+     * Gibt zurück ob der Körper in eine temporäre Datei geschrieben wurde
+     *
+     * @return Wahr wenn der Körper nicht im Speicher liegt
+     */
+    public boolean isSpilled() {
+        return file != null;
+    }
+
+    /**
+     * Öffnet den Körper zum Lesen. Jeder Aufruf liest unabhängig vom Anfang.
+     *
+     * @return Strom über den Körper, muss vom Aufrufer geschlossen werden
+     *
+     * @throws IOException Wird geworfen falls die temporäre Datei nicht geöffnet werden kann
+     */
+    public InputStream openStream() throws IOException {
+        if (file == null){
+            return new ByteArrayInputStream(memory, 0, (int) length);
+        }
+
+        return Channels.newInputStream(openChannel());
+    }
+
+    /**
+     * Öffnet den Körper als Kanal, z.B. um ihn mit {@link FileChannel#transferTo} weiterzugeben.
+     * Jeder Aufruf liest unabhängig vom Anfang.
+     *
+     * @return Kanal über den Körper, muss vom Aufrufer geschlossen werden
+     *
+     * @throws IOException Wird geworfen falls die temporäre Datei nicht geöffnet werden kann
+     */
+    public ReadableByteChannel openChannel() throws IOException {
+        if (file == null){
+            return Channels.newChannel(new ByteArrayInputStream(memory, 0, (int) length));
+        }
+
+        return FileChannel.open(file, StandardOpenOption.READ);
+    }
+
+    /**
+     * Gibt den Speicher frei und löscht die temporäre Datei
+     */
+    @Override
+    public void close() {
+        memory = null;
+
+        if (file != null){
+            try {
+                fileChannel.close();
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                //Datei wurde bereits gelöscht
+            }
+
+            file = null;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package edu.udo.cs.rvs.request;
+
+import edu.udo.cs.rvs.response.ResponseCode;
+
+/**
+ * Wird geworfen falls ein Anfragekopf fehlerhaft ist oder die Grenzen überschreitet
+ */
+public class RequestParseException extends Exception {
+
+    /**
+     * Version der Serialisierung
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Status Code mit dem die Anfrage beantwortet wird
+     */
+    private final ResponseCode responseCode;
+
+    /**
+     * Erstellt die Ausnahme
+     *
+     * @param responseCode Status Code der Antwort
+     * @param message Beschreibung des Fehlers
+     */
+    public RequestParseException(ResponseCode responseCode, String message) {
+        super(message);
+
+        this.responseCode = responseCode;
+    }
+
+    /**
+     * Gibt den Status Code zurück mit dem die Anfrage beantwortet wird
+     *
+     * @return Status Code
+     */
+    public ResponseCode getResponseCode() {
+        return responseCode;
+    }
+}
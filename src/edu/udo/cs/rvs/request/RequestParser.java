@@ -0,0 +1,605 @@
+package edu.udo.cs.rvs.request;
+
+import edu.udo.cs.rvs.HTTPVersion;
+import edu.udo.cs.rvs.response.ResponseCode;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Inkrementeller Parser für Anfrageköpfe, welcher direkt auf einem wiederverwendbaren Byte Puffer arbeitet.
+ * Methode, Ziel, Version und Header werden ohne Zwischen-Strings erkannt und nur als Positionen (Slices)
+ * im Puffer gespeichert. Ist der Kopf noch unvollständig, wird beim nächsten Aufruf an der gleichen Stelle
+ * weitergelesen.
+ */
+public class RequestParser {
+
+    /**
+     * Rückgabewert von {@link #parse(byte[], int)} falls der Kopf noch unvollständig ist
+     */
+    public static final int NEED_MORE = -1;
+
+    /**
+     * Index des Connection Headers in den bekannten Headern
+     */
+    public static final int CONNECTION = 0;
+
+    /**
+     * Index des If-Modified-Since Headers in den bekannten Headern
+     */
+    public static final int IF_MODIFIED_SINCE = 1;
+
+    /**
+     * Index des Accept-Encoding Headers in den bekannten Headern
+     */
+    public static final int ACCEPT_ENCODING = 2;
+
+    /**
+     * Index des Host Headers in den bekannten Headern
+     */
+    public static final int HOST = 3;
+
+    /**
+     * Index des Content-Length Headers in den bekannten Headern
+     */
+    public static final int CONTENT_LENGTH = 4;
+
+    /**
+     * Index des Transfer-Encoding Headers in den bekannten Headern
+     */
+    public static final int TRANSFER_ENCODING = 5;
+
+    /**
+     * Index des Range Headers in den bekannten Headern
+     */
+    public static final int RANGE = 6;
+
+    /**
+     * Index des If-Range Headers in den bekannten Headern
+     */
+    public static final int IF_RANGE = 7;
+
+    /**
+     * Index des If-None-Match Headers in den bekannten Headern
+     */
+    public static final int IF_NONE_MATCH = 8;
+
+    /**
+     * Namen der bekannten Header in Kleinbuchstaben, Reihenfolge entspricht den Indizes oben
+     */
+    private static final byte[][] KNOWN_HEADERS = {
+            ascii("connection"), ascii("if-modified-since"), ascii("accept-encoding"),
+            ascii("host"), ascii("content-length"), ascii("transfer-encoding"),
+            ascii("range"), ascii("if-range"), ascii("if-none-match")
+    };
+
+    /**
+     * Methodennamen, Reihenfolge entspricht {@link RequestMethod#values()}
+     */
+    private static final byte[][] METHODS;
+
+    /**
+     * Versionsnamen, Reihenfolge entspricht {@link HTTPVersion#values()}
+     */
+    private static final byte[][] VERSIONS = {ascii("HTTP/1.0"), ascii("HTTP/1.1"), ascii("HTTP/2.0")};
+
+    static {
+        RequestMethod[] methods = RequestMethod.values();
+        METHODS = new byte[methods.length][];
+
+        for (int i = 0; i < methods.length; i++){
+            METHODS[i] = ascii(methods[i].name());
+        }
+    }
+
+    /**
+     * Phase: Es wird die Anfragezeile gelesen
+     */
+    private static final int PHASE_REQUEST_LINE = 0;
+
+    /**
+     * Phase: Es werden Header gelesen
+     */
+    private static final int PHASE_HEADERS = 1;
+
+    /**
+     * Phase: Der Kopf ist vollständig
+     */
+    private static final int PHASE_DONE = 2;
+
+    /**
+     * Maximale Länge der Anfragezeile
+     */
+    private final int maxRequestLine;
+
+    /**
+     * Maximale Länge des gesamten Kopfes
+     */
+    private final int maxHeadSize;
+
+    /**
+     * Aktuelle Phase
+     */
+    private int phase;
+
+    /**
+     * Beginn des Kopfes im Puffer
+     */
+    private int headStart;
+
+    /**
+     * Ende des Kopfes (nach der leeren Zeile)
+     */
+    private int headEnd;
+
+    /**
+     * Beginn der aktuellen Zeile
+     */
+    private int lineStart;
+
+    /**
+     * Position bis zu der bereits nach einem Zeilenende gesucht wurde
+     */
+    private int scan;
+
+    /**
+     * Erkannte Methode oder null falls unbekannt
+     */
+    private RequestMethod method;
+
+    /**
+     * Erkannte Version
+     */
+    private HTTPVersion version;
+
+    /**
+     * Beginn des Ziels (Pfad)
+     */
+    private int targetStart;
+
+    /**
+     * Ende des Ziels (Pfad)
+     */
+    private int targetEnd;
+
+    /**
+     * Anzahl der Header
+     */
+    private int headerCount;
+
+    /**
+     * Positionen der Header: je Header Beginn des Namens, Ende des Namens, Beginn des Wertes, Ende des Wertes
+     */
+    private int[] headers = new int[4 * 16];
+
+    /**
+     * Index des Headers für jeden bekannten Header oder -1
+     */
+    private final int[] known = new int[KNOWN_HEADERS.length];
+
+    /**
+     * Bit je bekanntem Header, gesetzt falls dieser mehrfach mit unterschiedlichen Werten vorkommt
+     */
+    private int conflicting;
+
+    /**
+     * Erstellt den Parser
+     *
+     * @param maxRequestLine Maximale Länge der Anfragezeile in Bytes
+     * @param maxHeadSize Maximale Länge des gesamten Kopfes in Bytes
+     */
+    public RequestParser(int maxRequestLine, int maxHeadSize) {
+        this.maxRequestLine = maxRequestLine;
+        this.maxHeadSize = maxHeadSize;
+
+        reset(0);
+    }
+
+    /**
+     * Setzt den Parser für eine neue Anfrage zurück
+     *
+     * @param start Position im Puffer an der die Anfrage beginnt
+     */
+    public void reset(int start) {
+        phase = PHASE_REQUEST_LINE;
+        headStart = start;
+        headEnd = start;
+        lineStart = start;
+        scan = start;
+        method = null;
+        version = null;
+        targetStart = targetEnd = start;
+        headerCount = 0;
+        conflicting = 0;
+
+        for (int i = 0; i < known.length; i++){
+            known[i] = -1;
+        }
+    }
+
+    /**
+     * Verschiebt alle gespeicherten Positionen, nachdem der Puffer kompaktiert wurde
+     *
+     * @param offset Anzahl der Bytes um die der Inhalt nach vorne verschoben wurde
+     */
+    public void shift(int offset) {
+        headStart -= offset;
+        headEnd -= offset;
+        lineStart -= offset;
+        scan -= offset;
+        targetStart -= offset;
+        targetEnd -= offset;
+
+        for (int i = 0; i < headerCount * 4; i++){
+            headers[i] -= offset;
+        }
+    }
+
+    /**
+     * Liest weiter bis der Kopf vollständig ist oder keine Bytes mehr verfügbar sind
+     *
+     * @param buf Puffer der Anfrage
+     * @param end Ende der verfügbaren Bytes im Puffer
+     *
+     * @return Position nach dem Kopf oder {@link #NEED_MORE}
+     *
+     * @throws RequestParseException Wird geworfen falls der Kopf fehlerhaft ist oder zu groß wird
+     */
+    public int parse(byte[] buf, int end) throws RequestParseException {
+        while (phase != PHASE_DONE){
+            int lf = -1;
+            for (int i = scan; i < end; i++){
+                if (buf[i] == '\n'){
+                    lf = i;
+                    break;
+                }
+            }
+
+            if (lf == -1){
+                scan = end;
+
+                if (phase == PHASE_REQUEST_LINE && end - lineStart > maxRequestLine){
+                    throw new RequestParseException(ResponseCode.URI_TOO_LONG_414, "Request line too long");
+                }
+                if (end - headStart > maxHeadSize){
+                    throw new RequestParseException(ResponseCode.REQUEST_HEADER_FIELDS_TOO_LARGE_431, "Request head too large");
+                }
+
+                return NEED_MORE;
+            }
+
+            int lineEnd = lf > lineStart && buf[lf - 1] == '\r' ? lf - 1 : lf;
+
+            if (lf + 1 - headStart > maxHeadSize){
+                throw new RequestParseException(ResponseCode.REQUEST_HEADER_FIELDS_TOO_LARGE_431, "Request head too large");
+            }
+
+            if (phase == PHASE_REQUEST_LINE){
+                if (lineEnd == lineStart){
+                    //Leere Zeilen vor einer Anfrage werden ignoriert
+                    headStart = lf + 1;
+                }else {
+                    if (lineEnd - lineStart > maxRequestLine){
+                        throw new RequestParseException(ResponseCode.URI_TOO_LONG_414, "Request line too long");
+                    }
+
+                    parseRequestLine(buf, lineStart, lineEnd);
+                    phase = PHASE_HEADERS;
+                }
+            }else if (lineEnd == lineStart){
+                phase = PHASE_DONE;
+                headEnd = lf + 1;
+            }else {
+                parseHeaderLine(buf, lineStart, lineEnd);
+            }
+
+            lineStart = lf + 1;
+            scan = lf + 1;
+        }
+
+        return headEnd;
+    }
+
+    /**
+     * Zerlegt die Anfragezeile in Methode, Ziel und Version
+     *
+     * @param buf Puffer
+     * @param start Beginn der Zeile
+     * @param end Ende der Zeile ohne Zeilenumbruch
+     *
+     * @throws RequestParseException Wird geworfen falls die Zeile fehlerhaft ist
+     */
+    private void parseRequestLine(byte[] buf, int start, int end) throws RequestParseException {
+        int firstSpace = -1;
+        int lastSpace = -1;
+
+        for (int i = start; i < end; i++){
+            if (buf[i] == ' '){
+                if (firstSpace == -1){
+                    firstSpace = i;
+                }
+                lastSpace = i;
+            }
+        }
+
+        if (firstSpace == -1 || firstSpace == lastSpace){
+            throw new RequestParseException(ResponseCode.BAD_REQUEST_400, "Malformed request line");
+        }
+
+        method = null;
+        for (int i = 0; i < METHODS.length; i++){
+            if (equals(buf, start, firstSpace, METHODS[i])){
+                method = RequestMethod.values()[i];
+                break;
+            }
+        }
+
+        targetStart = firstSpace + 1;
+        targetEnd = lastSpace;
+
+        if (targetStart == targetEnd){
+            throw new RequestParseException(ResponseCode.BAD_REQUEST_400, "Missing request target");
+        }
+
+        version = null;
+        for (int i = 0; i < VERSIONS.length; i++){
+            if (equals(buf, lastSpace + 1, end, VERSIONS[i])){
+                version = HTTPVersion.values()[i];
+                break;
+            }
+        }
+
+        if (version == null){
+            throw new RequestParseException(ResponseCode.BAD_REQUEST_400, "Unknown HTTP version");
+        }
+    }
+
+    /**
+     * Speichert die Positionen eines Headers
+     *
+     * @param buf Puffer
+     * @param start Beginn der Zeile
+     * @param end Ende der Zeile ohne Zeilenumbruch
+     *
+     * @throws RequestParseException Wird geworfen falls die Zeile fehlerhaft ist
+     */
+    private void parseHeaderLine(byte[] buf, int start, int end) throws RequestParseException {
+        if (buf[start] == ' ' || buf[start] == '\t'){
+            //Mehrzeilige Header sind seit RFC 7230 nicht mehr erlaubt
+            throw new RequestParseException(ResponseCode.BAD_REQUEST_400, "Obsolete line folding");
+        }
+
+        int colon = -1;
+        for (int i = start; i < end; i++){
+            if (buf[i] == ':'){
+                colon = i;
+                break;
+            }
+        }
+
+        if (colon <= start){
+            throw new RequestParseException(ResponseCode.BAD_REQUEST_400, "Malformed header line");
+        }
+
+        int valueStart = colon + 1;
+        int valueEnd = end;
+
+        while (valueStart < valueEnd && (buf[valueStart] == ' ' || buf[valueStart] == '\t')){
+            valueStart++;
+        }
+        while (valueEnd > valueStart && (buf[valueEnd - 1] == ' ' || buf[valueEnd - 1] == '\t')){
+            valueEnd--;
+        }
+
+        if ((headerCount + 1) * 4 > headers.length){
+            int[] bigger = new int[headers.length * 2];
+            System.arraycopy(headers, 0, bigger, 0, headers.length);
+            headers = bigger;
+        }
+
+        int index = headerCount++;
+        headers[index * 4] = start;
+        headers[index * 4 + 1] = colon;
+        headers[index * 4 + 2] = valueStart;
+        headers[index * 4 + 3] = valueEnd;
+
+        for (int i = 0; i < KNOWN_HEADERS.length; i++){
+            if (equalsIgnoreCase(buf, start, colon, KNOWN_HEADERS[i])){
+                //Der letzte Wert gilt, ein abweichender früherer Wert wird aber vermerkt
+                if (known[i] != -1 && !Arrays.equals(buf, valueStart, valueEnd, buf, headers[known[i] * 4 + 2], headers[known[i] * 4 + 3])){
+                    conflicting |= 1 << i;
+                }
+
+                known[i] = index;
+                break;
+            }
+        }
+    }
+
+    /**
+     * Vergleicht einen Bereich des Puffers mit Bytes
+     *
+     * @param buf Puffer
+     * @param start Beginn des Bereichs
+     * @param end Ende des Bereichs
+     * @param expected Erwartete Bytes
+     *
+     * @return Wahr wenn der Bereich gleich ist
+     */
+    static boolean equals(byte[] buf, int start, int end, byte[] expected) {
+        if (end - start != expected.length){
+            return false;
+        }
+
+        for (int i = 0; i < expected.length; i++){
+            if (buf[start + i] != expected[i]){
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Vergleicht einen Bereich des Puffers ohne Beachtung der Groß- und Kleinschreibung
+     *
+     * @param buf Puffer
+     * @param start Beginn des Bereichs
+     * @param end Ende des Bereichs
+     * @param lowerCase Erwartete Bytes in Kleinbuchstaben
+     *
+     * @return Wahr wenn der Bereich gleich ist
+     */
+    static boolean equalsIgnoreCase(byte[] buf, int start, int end, byte[] lowerCase) {
+        if (end - start != lowerCase.length){
+            return false;
+        }
+
+        for (int i = 0; i < lowerCase.length; i++){
+            if (toLowerCase(buf[start + i]) != lowerCase[i]){
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Wandelt einen ASCII Buchstaben in einen Kleinbuchstaben um
+     *
+     * @param b Byte
+     *
+     * @return Byte als Kleinbuchstabe
+     */
+    static byte toLowerCase(byte b) {
+        return b >= 'A' && b <= 'Z' ? (byte) (b + 32) : b;
+    }
+
+    /**
+     * Wandelt einen String in ASCII Bytes um
+     *
+     * @param s String
+     *
+     * @return Bytes
+     */
+    static byte[] ascii(String s) {
+        return s.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Gibt zurück ob der Kopf vollständig gelesen wurde
+     *
+     * @return Wahr wenn der Kopf vollständig ist
+     */
+    public boolean isDone() {
+        return phase == PHASE_DONE;
+    }
+
+    /**
+     * Gibt zurück ob bereits Bytes der aktuellen Anfrage gelesen wurden (ohne führende Leerzeilen)
+     *
+     * @param end Ende der verfügbaren Bytes im Puffer
+     *
+     * @return Wahr wenn eine Anfrage begonnen wurde
+     */
+    public boolean hasStarted(int end) {
+        return end > headStart;
+    }
+
+    /**
+     * Gibt die Methode zurück
+     *
+     * @return Methode oder null falls unbekannt
+     */
+    public RequestMethod getMethod() {
+        return method;
+    }
+
+    /**
+     * Gibt die Version zurück
+     *
+     * @return Version
+     */
+    public HTTPVersion getVersion() {
+        return version;
+    }
+
+    /**
+     * Gibt den Beginn des Kopfes zurück
+     *
+     * @return Position im Puffer
+     */
+    public int getHeadStart() {
+        return headStart;
+    }
+
+    /**
+     * Gibt das Ende des Kopfes zurück
+     *
+     * @return Position im Puffer nach der leeren Zeile
+     */
+    public int getHeadEnd() {
+        return headEnd;
+    }
+
+    /**
+     * Gibt den Beginn des Ziels zurück
+     *
+     * @return Position im Puffer
+     */
+    public int getTargetStart() {
+        return targetStart;
+    }
+
+    /**
+     * Gibt das Ende des Ziels zurück
+     *
+     * @return Position im Puffer
+     */
+    public int getTargetEnd() {
+        return targetEnd;
+    }
+
+    /**
+     * Gibt die Anzahl der Header zurück
+     *
+     * @return Anzahl der Header
+     */
+    public int getHeaderCount() {
+        return headerCount;
+    }
+
+    /**
+     * Gibt eine Position eines Headers zurück
+     *
+     * @param index Index des Headers
+     * @param part 0: Beginn des Namens, 1: Ende des Namens, 2: Beginn des Wertes, 3: Ende des Wertes
+     *
+     * @return Position im Puffer
+     */
+    public int getHeaderPosition(int index, int part) {
+        return headers[index * 4 + part];
+    }
+
+    /**
+     * Gibt den Index eines bekannten Headers zurück
+     *
+     * @param knownHeader Index des bekannten Headers (z.B. {@link #CONNECTION})
+     *
+     * @return Index des Headers oder -1 falls nicht vorhanden
+     */
+    public int getKnownHeader(int knownHeader) {
+        return known[knownHeader];
+    }
+
+    /**
+     * Prüft ob ein bekannter Header mehrfach mit unterschiedlichen Werten vorkommt
+     *
+     * @param knownHeader Index des bekannten Headers (z.B. {@link #CONTENT_LENGTH})
+     *
+     * @return Wahr wenn sich die Werte unterscheiden
+     */
+    public boolean hasConflictingValues(int knownHeader) {
+        return (conflicting & (1 << knownHeader)) != 0;
+    }
+}
@@ -0,0 +1,254 @@
+package edu.udo.cs.rvs.request;
+
+import edu.udo.cs.rvs.ServerConfig;
+import edu.udo.cs.rvs.response.ResponseCode;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * Liest Anfragen einer blockierenden Verbindung in einen wiederverwendbaren Byte Puffer und zerlegt sie
+ * mit dem {@link RequestParser}. Bytes welche nach einem Kopf bereits gelesen wurden (Pipelining) bleiben
+ * im Puffer für die nächste Anfrage erhalten.
+ */
+public class RequestReader {
+
+    /**
+     * Startgröße des Puffers
+     */
+    private static final int INITIAL_BUFFER_SIZE = 4096;
+
+    /**
+     * Größe des Puffers für Körper
+     */
+    private static final int BODY_BUFFER_SIZE = 16 * 1024;
+
+    /**
+     * Eingabestrom der Verbindung
+     */
+    private final InputStream in;
+
+    /**
+     * Parser des Kopfes
+     */
+    private final RequestParser parser = new RequestParser(ServerConfig.MAX_REQUEST_LINE, ServerConfig.MAX_HEADER_SIZE);
+
+    /**
+     * Puffer der Verbindung
+     */
+    private byte[] buffer = new byte[INITIAL_BUFFER_SIZE];
+
+    /**
+     * Puffer für Körper, wird erst beim ersten Körper erstellt
+     */
+    private byte[] bodyBuffer;
+
+    /**
+     * Beginn der noch nicht verarbeiteten Bytes
+     */
+    private int position;
+
+    /**
+     * Ende der gelesenen Bytes
+     */
+    private int limit;
+
+    /**
+     * Erstellt den Reader
+     *
+     * @param in Eingabestrom der Verbindung
+     */
+    public RequestReader(InputStream in) {
+        this.in = in;
+    }
+
+    /**
+     * Liest die nächste Anfrage. Die zurückgegebene Anfrage ist gültig bis diese Methode erneut aufgerufen wird.
+     *
+     * @return Nächste Anfrage oder eine leere Anfrage falls die Verbindung geschlossen wurde
+     *
+     * @throws IOException Wird geworfen falls das Lesen fehlschlägt
+     * @throws RequestParseException Wird geworfen falls der Kopf fehlerhaft ist
+     */
+    public Request next() throws IOException, RequestParseException {
+        compact();
+        parser.reset(position);
+
+        while (true){
+            int headEnd = parser.parse(buffer, limit);
+
+            if (headEnd != RequestParser.NEED_MORE){
+                position = headEnd;
+
+                return new Request(buffer, parser);
+            }
+
+            if (limit == buffer.length){
+                grow();
+            }
+
+            int read = in.read(buffer, limit, buffer.length - limit);
+
+            if (read == -1){
+                if (parser.hasStarted(limit)){
+                    throw new RequestParseException(ResponseCode.BAD_REQUEST_400, "Connection closed within request head");
+                }
+
+                return Request.empty();
+            }
+
+            limit += read;
+        }
+    }
+
+    /**
+     * Liest den Körper der zuletzt von {@link #next()} gelesenen Anfrage vollständig. Dieser wird in einen eigenen
+     * Puffer gelesen, da der Kopf der Anfrage im Puffer der Verbindung erhalten bleiben muss. Bytes der nächsten
+     * Anfrage (Pipelining) werden danach in den Puffer der Verbindung übernommen.
+     *
+     * @param decoder Decoder des Körpers
+     *
+     * @throws IOException Wird geworfen falls das Lesen fehlschlägt
+     * @throws RequestParseException Wird geworfen falls der Körper fehlerhaft oder zu groß ist
+     */
+    public void readBody(BodyDecoder decoder) throws IOException, RequestParseException {
+        position += decoder.feed(buffer, position, limit - position);
+
+        if (bodyBuffer == null && !decoder.isDone()){
+            bodyBuffer = new byte[BODY_BUFFER_SIZE];
+        }
+
+        while (!decoder.isDone()){
+            int read = in.read(bodyBuffer, 0, bodyBuffer.length);
+
+            if (read == -1){
+                throw new RequestParseException(ResponseCode.BAD_REQUEST_400, "Connection closed within request body");
+            }
+
+            int consumed = decoder.feed(bodyBuffer, 0, read);
+
+            if (consumed < read){
+                while (buffer.length - limit < read - consumed){
+                    grow();
+                }
+
+                System.arraycopy(bodyBuffer, consumed, buffer, limit, read - consumed);
+                limit += read - consumed;
+            }
+        }
+    }
+
+    /**
+     * Prüft ob die nächsten Bytes der Verbindung mit einem Präfix beginnen, z.B. dem einer HTTP/2 Verbindung.
+     * Es wird gelesen bis das Präfix vollständig vorliegt oder ein Byte abweicht, die Bytes bleiben im Puffer.
+     *
+     * @param prefix Präfix
+     *
+     * @return Wahr wenn die Bytes mit dem Präfix beginnen
+     *
+     * @throws IOException Wird geworfen falls das Lesen fehlschlägt
+     */
+    public boolean startsWith(byte[] prefix) throws IOException {
+        compact();
+
+        while (true){
+            int available = Math.min(limit, prefix.length);
+
+            for (int i = 0; i < available; i++){
+                if (buffer[i] != prefix[i]){
+                    return false;
+                }
+            }
+
+            if (available == prefix.length){
+                return true;
+            }
+
+            if (limit == buffer.length){
+                grow();
+            }
+
+            int read = in.read(buffer, limit, buffer.length - limit);
+
+            if (read == -1){
+                return false;
+            }
+
+            limit += read;
+        }
+    }
+
+    /**
+     * Entnimmt die bereits gelesenen aber noch nicht verarbeiteten Bytes, z.B. beim Wechsel auf HTTP/2
+     *
+     * @return Bytes nach der letzten Anfrage
+     */
+    public byte[] takeBuffered() {
+        byte[] buffered = Arrays.copyOfRange(buffer, position, limit);
+
+        position = limit;
+
+        return buffered;
+    }
+
+    /**
+     * Gibt zurück ob bereits Bytes einer weiteren Anfrage gelesen wurden
+     *
+     * @return Wahr wenn Bytes im Puffer warten
+     */
+    public boolean hasBuffered() {
+        return limit > position;
+    }
+
+    /**
+     * Prüft ob die bereits gelesenen Bytes einen vollständigen Kopf einer weiteren Anfrage enthalten, so dass
+     * {@link #next()} nicht blockiert. Der Kopf wird dabei nicht geprüft, nur sein Ende gesucht.
+     *
+     * @return Wahr wenn nach leeren Zeilen eine Zeile und danach eine leere Zeile im Puffer liegen
+     */
+    public boolean hasBufferedRequest() {
+        int i = position;
+
+        //Leere Zeilen vor einer Anfrage werden vom Parser ignoriert
+        while (i < limit && (buffer[i] == '\r' || buffer[i] == '\n')){
+            i++;
+        }
+
+        for (; i < limit; i++){
+            if (buffer[i] == '\n'){
+                if (i + 1 < limit && buffer[i + 1] == '\n'){
+                    return true;
+                }
+
+                if (i + 2 < limit && buffer[i + 1] == '\r' && buffer[i + 2] == '\n'){
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Verschiebt die noch nicht verarbeiteten Bytes an den Anfang des Puffers
+     */
+    private void compact() {
+        if (position == 0){
+            return;
+        }
+
+        System.arraycopy(buffer, position, buffer, 0, limit - position);
+        limit -= position;
+        position = 0;
+    }
+
+    /**
+     * Vergrößert den Puffer. Die Größe wird durch den {@link RequestParser} begrenzt, welcher zu große Köpfe ablehnt.
+     */
+    private void grow() {
+        byte[] bigger = new byte[buffer.length * 2];
+        System.arraycopy(buffer, 0, bigger, 0, limit);
+        buffer = bigger;
+    }
+}
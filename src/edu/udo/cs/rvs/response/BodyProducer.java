@@ -0,0 +1,30 @@
+package edu.udo.cs.rvs.response;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Erzeugt den Körper einer Antwort schrittweise, z.B. wenn dessen Länge vorab nicht bekannt ist. Der nächste
+ * Teil wird erst angefordert wenn der vorherige gesendet wurde, ein langsamer Nutzer bremst so den Erzeuger.
+ */
+@FunctionalInterface
+public interface BodyProducer {
+
+    /**
+     * Schreibt den nächsten Teil des Körpers
+     *
+     * @param out Puffer des Teils, wird nach jedem Aufruf gesendet
+     * @param limit Anzahl der Bytes welche höchstens geschrieben werden sollen
+     *
+     * @return Falsch wenn der Körper mit diesem Teil vollständig ist
+     *
+     * @throws IOException Wird geworfen falls der Teil nicht erzeugt werden kann, die Antwort wird dann abgebrochen
+     */
+    boolean produce(OutputStream out, int limit) throws IOException;
+
+    /**
+     * Gibt alle Ressourcen des Erzeugers frei, auch wenn der Körper nicht vollständig gesendet wurde
+     */
+    default void close() {
+    }
+}
@@ -0,0 +1,75 @@
+package edu.udo.cs.rvs.response;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Körper einer Antwort aus mehreren Puffern, z.B. Ausschnitten gemappter Dateien. Die Puffer werden
+ * ohne Kopie nacheinander in den Kanal zum Nutzer geschrieben.
+ */
+public class BufferBody implements ChannelBody {
+
+    /**
+     * Zu sendende Puffer
+     */
+    private final ByteBuffer[] buffers;
+
+    /**
+     * Index des ersten noch nicht vollständig gesendeten Puffers
+     */
+    private int current;
+
+    /**
+     * Noch zu sendende Bytes
+     */
+    private long remaining;
+
+    /**
+     * Erstellt den Körper
+     *
+     * @param buffers Zu sendende Puffer, deren Position und Limit den Inhalt bestimmen
+     */
+    public BufferBody(ByteBuffer... buffers) {
+        this.buffers = buffers;
+
+        for (ByteBuffer buffer : buffers){
+            remaining += buffer.remaining();
+        }
+    }
+
+    @Override
+    public long getRemaining() {
+        return remaining;
+    }
+
+    @Override
+    public boolean isDone() {
+        return remaining == 0;
+    }
+
+    @Override
+    public long transferTo(WritableByteChannel target) throws IOException {
+        long written;
+
+        if (target instanceof GatheringByteChannel){
+            written = ((GatheringByteChannel) target).write(buffers, current, buffers.length - current);
+        }else {
+            written = target.write(buffers[current]);
+        }
+
+        remaining -= written;
+
+        while (current < buffers.length && !buffers[current].hasRemaining()){
+            current++;
+        }
+
+        return written;
+    }
+
+    @Override
+    public void close() {
+        //Die Puffer gehören dem Zwischenspeicher und werden von diesem freigegeben
+    }
+}
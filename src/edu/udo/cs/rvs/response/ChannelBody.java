@@ -0,0 +1,59 @@
+package edu.udo.cs.rvs.response;
+
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Körper einer Antwort welcher nicht im Speicher der Antwort liegt, sondern schrittweise direkt in den
+ * Kanal zum Nutzer übertragen wird (z.B. aus einer Datei oder aus gemappten Dateibereichen).
+ */
+public interface ChannelBody {
+
+    /**
+     * Gibt die Anzahl der noch zu sendenden Bytes zurück
+     *
+     * @return Anzahl der verbleibenden Bytes
+     */
+    long getRemaining();
+
+    /**
+     * Prüft ob alle Bytes versendet wurden
+     *
+     * @return Wahr wenn der Körper vollständig versendet wurde
+     */
+    boolean isDone();
+
+    /**
+     * Überträgt so viele Bytes wie der Kanal aufnimmt. Bei einem nicht blockierenden Kanal
+     * können auch weniger oder keine Bytes übertragen werden.
+     *
+     * @param target Kanal zum Nutzer
+     *
+     * @return Anzahl der übertragenen Bytes
+     *
+     * @throws IOException Wird geworfen falls das Lesen oder Schreiben fehlschlägt
+     */
+    long transferTo(WritableByteChannel target) throws IOException;
+
+    /**
+     * Überträgt alle verbleibenden Bytes in einen blockierenden Kanal und gibt danach alle Ressourcen frei
+     *
+     * @param target Kanal zum Nutzer
+     *
+     * @throws IOException Wird geworfen falls das Lesen oder Schreiben fehlschlägt
+     */
+    default void transferAll(WritableByteChannel target) throws IOException {
+        try {
+            while (!isDone()){
+                transferTo(target);
+            }
+        }finally {
+            close();
+        }
+    }
+
+    /**
+     * Gibt alle Ressourcen des Körpers frei
+     */
+    void close();
+}
@@ -0,0 +1,159 @@
+package edu.udo.cs.rvs.response;
+
+import edu.udo.cs.rvs.cache.Compression;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Komprimiert eine Datei beim Senden. Die Datei wird blockweise gelesen, so dass weder Datei noch komprimierter
+ * Inhalt vollständig im Speicher liegen. Im Gegensatz zu {@link Compression#compress} wird die schnellste Stufe
+ * verwendet, da jede Anfrage erneut komprimiert.
+ */
+public class CompressingFileProducer implements BodyProducer {
+
+    /**
+     * Größe der gelesenen Blöcke der Datei
+     */
+    private static final int READ_SIZE = 8192;
+
+    /**
+     * Pfad der Datei
+     */
+    private final Path path;
+
+    /**
+     * {@link Compression#GZIP} oder {@link Compression#DEFLATE}
+     */
+    private final String encoding;
+
+    /**
+     * Leitet die komprimierten Bytes in den Puffer des aktuellen Teils weiter
+     */
+    private final Sink sink = new Sink();
+
+    /**
+     * Gelesene Bytes der Datei
+     */
+    private final byte[] input = new byte[READ_SIZE];
+
+    /**
+     * Datei, wird erst beim ersten Teil geöffnet
+     */
+    private InputStream in;
+
+    /**
+     * Komprimierender Strom in {@link #sink}
+     */
+    private DeflaterOutputStream compressor;
+
+    /**
+     * Eigener Deflater der deflate Kodierung, wird nicht vom Strom freigegeben, oder null
+     */
+    private Deflater deflater;
+
+    /**
+     * Erstellt den Erzeuger
+     *
+     * @param path Pfad der Datei
+     * @param encoding {@link Compression#GZIP} oder {@link Compression#DEFLATE}
+     */
+    public CompressingFileProducer(Path path, String encoding) {
+        this.path = path;
+        this.encoding = encoding;
+    }
+
+    @Override
+    public boolean produce(OutputStream out, int limit) throws IOException {
+        sink.target = out;
+        sink.count = 0;
+
+        if (in == null){
+            in = Files.newInputStream(path);
+            if (Compression.GZIP.equals(encoding)){
+                compressor = new GZIPOutputStream(sink, READ_SIZE) {
+                    {
+                        def.setLevel(Deflater.BEST_SPEED);
+                    }
+                };
+            }else {
+                deflater = new Deflater(Deflater.BEST_SPEED);
+                compressor = new DeflaterOutputStream(sink, deflater, READ_SIZE);
+            }
+        }
+
+        //Der Deflater gibt erst nach einigen Blöcken Bytes aus, daher wird bis zur Größe eines Teils gelesen
+        while (sink.count < limit){
+            int read = in.read(input);
+
+            if (read == -1){
+                compressor.finish();
+
+                return false;
+            }
+
+            compressor.write(input, 0, read);
+        }
+
+        return true;
+    }
+
+    @Override
+    public void close() {
+        try {
+            if (compressor != null){
+                //Ein abgebrochener Körper wird nicht mehr abgeschlossen, nur der Deflater wird freigegeben
+                sink.target = OutputStream.nullOutputStream();
+                compressor.close();
+            }
+
+            if (in != null){
+                in.close();
+            }
+        } catch (IOException e) {
+            //Datei ist bereits geschlossen
+        }
+
+        if (deflater != null){
+            deflater.end();
+            deflater = null;
+        }
+
+        compressor = null;
+        in = null;
+    }
+
+    /**
+     * Zählt die weitergeleiteten Bytes eines Teils
+     */
+    private static class Sink extends OutputStream {
+
+        /**
+         * Puffer des aktuellen Teils
+         */
+        private OutputStream target;
+
+        /**
+         * Anzahl der Bytes im aktuellen Teil
+         */
+        private int count;
+
+        @Override
+        public void write(int b) throws IOException {
+            target.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            target.write(b, off, len);
+            count += len;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package edu.udo.cs.rvs.response;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Körper einer Antwort welcher direkt aus einer Datei mit {@link FileChannel#transferTo} versendet wird.
+ * Der Inhalt der Datei wird dabei nicht in den Java Heap geladen.
+ */
+public class FileBody implements ChannelBody {
+
+    /**
+     * Pfad der Datei
+     */
+    private final Path path;
+
+    /**
+     * Erstes zu sendendes Byte der Datei
+     */
+    private long position;
+
+    /**
+     * Position nach dem letzten zu sendenden Byte
+     */
+    private final long end;
+
+    /**
+     * Kanal der Datei, wird erst beim ersten Senden geöffnet
+     */
+    private FileChannel fileChannel;
+
+    /**
+     * Erstellt den Körper für einen Bereich der Datei
+     *
+     * @param path Pfad der Datei
+     * @param position Erstes zu sendendes Byte
+     * @param length Anzahl der zu sendenden Bytes
+     */
+    public FileBody(Path path, long position, long length) {
+        this.path = path;
+        this.position = position;
+        this.end = position + length;
+    }
+
+    @Override
+    public long getRemaining() {
+        return end - position;
+    }
+
+    @Override
+    public boolean isDone() {
+        return position >= end;
+    }
+
+    @Override
+    public long transferTo(WritableByteChannel target) throws IOException {
+        if (fileChannel == null){
+            fileChannel = FileChannel.open(path, StandardOpenOption.READ);
+        }
+
+        long transferred = fileChannel.transferTo(position, end - position, target);
+
+        if (transferred <= 0 && position >= fileChannel.size()){
+            //Datei wurde während des Sendens gekürzt
+            throw new IOException("File truncated while sending: " + path);
+        }
+
+        position += transferred;
+
+        return transferred;
+    }
+
+    @Override
+    public void close() {
+        if (fileChannel != null){
+            try {
+                fileChannel.close();
+            } catch (IOException e) {
+                //Datei ist bereits geschlossen
+            }
+
+            fileChannel = null;
+        }
+    }
+}
@@ -0,0 +1,319 @@
+package edu.udo.cs.rvs.response;
+
+import edu.udo.cs.rvs.DateFormatter;
+import edu.udo.cs.rvs.HTTPVersion;
+import edu.udo.cs.rvs.ServerConfig;
+import edu.udo.cs.rvs.cache.Compression;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Vorab kodierte Bytes für den Kopf von Antworten: Statuszeilen für jede Kombination aus {@link HTTPVersion}
+ * und {@link ResponseCode}, häufige Header, Content-Type Zeilen und vollständige Fehlerantworten. Der Date
+ * Header wird höchstens einmal pro Sekunde neu erstellt.
+ */
+public final class HeaderTemplates {
+
+    /**
+     * Zeilenende
+     */
+    public static final byte[] CRLF = ascii("\r\n");
+
+    /**
+     * Zwischenantwort auf "Expect: 100-continue", danach sendet der Nutzer den Körper
+     */
+    public static final byte[] CONTINUE = ascii("HTTP/1.1 100 Continue\r\n\r\n");
+
+    /**
+     * Beginn des Content-Length Headers
+     */
+    public static final byte[] CONTENT_LENGTH = ascii("Content-Length: ");
+
+    /**
+     * Transfer-Encoding Header eines gestreamten Körpers
+     */
+    public static final byte[] TRANSFER_ENCODING_CHUNKED = ascii("Transfer-Encoding: chunked\r\n");
+
+    /**
+     * Content-Type Header der Fehlerantworten
+     */
+    public static final byte[] CONTENT_TYPE_ERROR = ascii("Content-Type: text/plain; charset=utf-8\r\n");
+
+    /**
+     * Beginn des ETag Headers
+     */
+    public static final byte[] ETAG = ascii("ETag: ");
+
+    /**
+     * Vary Header für Antworten welche vom Accept-Encoding Header abhängen
+     */
+    public static final byte[] VARY_ACCEPT_ENCODING = ascii("Vary: Accept-Encoding\r\n");
+
+    /**
+     * Connection Header einer offen bleibenden Verbindung
+     */
+    public static final byte[] CONNECTION_KEEP_ALIVE = ascii("Connection: keep-alive\r\n");
+
+    /**
+     * Keep-Alive Header für HTTP/1.0 Nutzer
+     */
+    public static final byte[] KEEP_ALIVE_PARAMETERS = ascii("Keep-Alive: timeout=" + ServerConfig.KEEP_ALIVE_TIMEOUT / 1000
+            + ", max=" + ServerConfig.KEEP_ALIVE_MAX + "\r\n");
+
+    /**
+     * Connection Header einer zu schließenden Verbindung
+     */
+    public static final byte[] CONNECTION_CLOSE = ascii("Connection: close\r\n");
+
+    /**
+     * Content-Encoding Header für gzip
+     */
+    private static final byte[] CONTENT_ENCODING_GZIP = ascii("Content-Encoding: " + Compression.GZIP + "\r\n");
+
+    /**
+     * Content-Encoding Header für deflate
+     */
+    private static final byte[] CONTENT_ENCODING_DEFLATE = ascii("Content-Encoding: " + Compression.DEFLATE + "\r\n");
+
+    /**
+     * Maximale Anzahl zwischengespeicherter Content-Type Zeilen
+     */
+    private static final int MAX_CONTENT_TYPES = 256;
+
+    /**
+     * Statuszeilen nach HTTP Version und Status Code
+     */
+    private static final byte[][][] STATUS_LINES = new byte[HTTPVersion.values().length][ResponseCode.values().length][];
+
+    /**
+     * Körper der Fehlerantworten nach Status Code
+     */
+    private static final byte[][] ERROR_BODIES = new byte[ResponseCode.values().length][];
+
+    /**
+     * Vollständige Fehlerantworten ohne vorherige Anfrage nach Status Code
+     */
+    private static final byte[][] STATUS_RESPONSES = new byte[ResponseCode.values().length][];
+
+    /**
+     * Content-Type Zeilen nach MIME-Typ
+     */
+    private static final Map<String, byte[]> CONTENT_TYPES = new ConcurrentHashMap<>();
+
+    /**
+     * Date Header der aktuellen Sekunde
+     */
+    private static volatile DateLine dateLine;
+
+    static {
+        for (HTTPVersion version : HTTPVersion.values()){
+            for (ResponseCode code : ResponseCode.values()){
+                STATUS_LINES[version.ordinal()][code.ordinal()] = ascii(encodeHttpVersion(version) + " " + encodeResponseStatus(code) + "\r\n");
+            }
+        }
+
+        for (ResponseCode code : ResponseCode.values()){
+            String body = "Error Status Code: " + encodeResponseStatus(code);
+
+            ERROR_BODIES[code.ordinal()] = ascii(body);
+            STATUS_RESPONSES[code.ordinal()] = ascii("HTTP/1.0 " + encodeResponseStatus(code) + "\r\n"
+                    + "Content-Length: " + body.length() + "\r\n"
+                    + "Content-Type: text/plain; charset=utf-8\r\n"
+                    + (code == ResponseCode.TOO_MANY_REQUESTS_429 ? "Retry-After: 1\r\n" : "")
+                    + "Connection: close\r\n\r\n"
+                    + body);
+        }
+    }
+
+    /**
+     * Date Header einer Sekunde
+     */
+    private static class DateLine {
+
+        /**
+         * Sekunde seit 1970
+         */
+        private final long second;
+
+        /**
+         * Kodierter Header inklusive Zeilenende
+         */
+        private final byte[] bytes;
+
+        /**
+         * Erstellt den Header einer Sekunde
+         *
+         * @param second Sekunde seit 1970
+         */
+        private DateLine(long second) {
+            this.second = second;
+            this.bytes = ascii("Date: " + DateFormatter.formatDate(second * 1000) + "\r\n");
+        }
+    }
+
+    private HeaderTemplates() {
+    }
+
+    /**
+     * Gibt die Statuszeile einer Antwort zurück
+     *
+     * @param version HTTP Version der Antwort
+     * @param code Status Code
+     *
+     * @return Statuszeile inklusive Zeilenende
+     */
+    public static byte[] statusLine(HTTPVersion version, ResponseCode code) {
+        return STATUS_LINES[version.ordinal()][code.ordinal()];
+    }
+
+    /**
+     * Gibt den Date Header der aktuellen Sekunde zurück
+     *
+     * @return Date Header inklusive Zeilenende
+     */
+    public static byte[] dateLine() {
+        long second = System.currentTimeMillis() / 1000;
+        DateLine line = dateLine;
+
+        if (line == null || line.second != second){
+            //Gleichzeitige Neuberechnungen erzeugen den gleichen Header und sind daher unschädlich
+            line = new DateLine(second);
+            dateLine = line;
+        }
+
+        return line.bytes;
+    }
+
+    /**
+     * Gibt die Content-Type Zeile eines MIME-Typs zurück
+     *
+     * @param contentType MIME-Typ
+     *
+     * @return Content-Type Header inklusive Zeilenende
+     */
+    public static byte[] contentTypeLine(String contentType) {
+        byte[] line = CONTENT_TYPES.get(contentType);
+
+        if (line == null){
+            line = ascii("Content-Type: " + contentType + "\r\n");
+
+            if (CONTENT_TYPES.size() < MAX_CONTENT_TYPES){
+                CONTENT_TYPES.put(contentType, line);
+            }
+        }
+
+        return line;
+    }
+
+    /**
+     * Gibt die Content-Encoding Zeile einer Kodierung zurück
+     *
+     * @param encoding {@link Compression#GZIP} oder {@link Compression#DEFLATE}
+     *
+     * @return Content-Encoding Header inklusive Zeilenende
+     */
+    public static byte[] contentEncodingLine(String encoding) {
+        return Compression.GZIP.equals(encoding) ? CONTENT_ENCODING_GZIP : CONTENT_ENCODING_DEFLATE;
+    }
+
+    /**
+     * Gibt den Körper einer Fehlerantwort zurück
+     *
+     * @param code Status Code
+     *
+     * @return Körper als Bytes, darf nicht verändert werden
+     */
+    public static byte[] errorBody(ResponseCode code) {
+        return ERROR_BODIES[code.ordinal()];
+    }
+
+    /**
+     * Gibt eine vollständige Fehlerantwort zurück, nach welcher die Verbindung geschlossen wird
+     *
+     * @param code Status Code
+     *
+     * @return Antwort als Bytes, darf nicht verändert werden
+     */
+    public static byte[] statusResponse(ResponseCode code) {
+        return STATUS_RESPONSES[code.ordinal()];
+    }
+
+    /**
+     * Encodieren der Http Version zum String
+     *
+     * @param httpVersion Http Version
+     *
+     * @return String der Http Version
+     */
+    private static String encodeHttpVersion(HTTPVersion httpVersion) {
+        switch (httpVersion){
+            case HTTP_1_0:
+                return "HTTP/1.0";
+            case HTTP_1_1:
+                return "HTTP/1.1";
+            case HTTP_2_0:
+                return "HTTP/2.0";
+        }
+
+        return "";
+    }
+
+    /**
+     * Encodieren eines Status Codes
+     *
+     * @param responseCode Status Code
+     *
+     * @return Status Code als String
+     */
+    private static String encodeResponseStatus(ResponseCode responseCode) {
+        switch (responseCode){
+            case OK_200:
+                return "200 OK";
+            case NO_CONTENT_204:
+                return "204 No Content";
+            case PARTIAL_CONTENT_206:
+                return "206 Partial Content";
+            case NOT_MODIFIED_304:
+                return "304 Not Modified";
+            case BAD_REQUEST_400:
+                return "400 Bad Request";
+            case FORBIDDEN_403:
+                return "403 Forbidden";
+            case NOT_FOUND_404:
+                return "404 Not Found";
+            case METHOD_NOT_ALLOWED_405:
+                return "405 Method Not Allowed";
+            case PAYLOAD_TOO_LARGE_413:
+                return "413 Payload Too Large";
+            case URI_TOO_LONG_414:
+                return "414 URI Too Long";
+            case RANGE_NOT_SATISFIABLE_416:
+                return "416 Range Not Satisfiable";
+            case TOO_MANY_REQUESTS_429:
+                return "429 Too Many Requests";
+            case REQUEST_HEADER_FIELDS_TOO_LARGE_431:
+                return "431 Request Header Fields Too Large";
+            case INTERNAL_SERVER_ERROR_500:
+                return "500 Internal Server Error";
+            case NOT_IMPLEMENTED_501:
+                return "501 Not Implemented";
+            case SERVICE_UNAVAILABLE_503:
+                return "503 Service Unavailable";
+        }
+
+        return "";
+    }
+
+    /**
+     * Kodiert einen String als ISO-8859-1 Bytes
+     *
+     * @param value String
+     *
+     * @return Bytes
+     */
+    public static byte[] ascii(String value) {
+        return value.getBytes(StandardCharsets.ISO_8859_1);
+    }
+}
@@ -0,0 +1,369 @@
+package edu.udo.cs.rvs.response;
+
+import edu.udo.cs.rvs.ServerConfig;
+import edu.udo.cs.rvs.cache.FileWatcher;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Verzeichnis der MIME-Typen nach Dateiendung. Die Typen werden beim Start aus einer Datei im Format von
+ * mime.types gelesen ("text/html html htm"). Eine Datei ".mime.types" in einem Ordner unter wwwroot überschreibt
+ * die Typen für diesen Ordner und alle Unterordner. Endungen werden ohne Erzeugen von Strings nachgeschlagen.
+ */
+public class MimeRegistry {
+
+    /**
+     * Name der Dateien mit Typen für einzelne Ordner
+     */
+    public static final String OVERRIDE_FILE = ".mime.types";
+
+    /**
+     * Typ für unbekannte Endungen
+     */
+    private static final MimeType DEFAULT_TYPE = new MimeType("application/octet-stream");
+
+    /**
+     * Platzhalter für Ordner ohne eigene Typen
+     */
+    private static final Table NO_OVERRIDES = new Table(0);
+
+    /**
+     * Eingebaute Typen falls die Datei der Typen fehlt
+     */
+    private static final String BUILT_IN_TYPES = "text/html html htm\ntext/plain txt\ntext/css css\n"
+            + "image/x-icon ico\napplication/pdf pdf\n";
+
+    /**
+     * Verzeichnis des Servers
+     */
+    private static MimeRegistry instance;
+
+    /**
+     * Absoluter, normalisierter Pfad von wwwroot
+     */
+    private final Path root;
+
+    /**
+     * Typen für alle Ordner
+     */
+    private final Table global;
+
+    /**
+     * Typen einzelner Ordner nach absolutem Pfad des Ordners, {@link #NO_OVERRIDES} falls der Ordner keine hat
+     */
+    private final Map<Path, Table> overrides = new ConcurrentHashMap<>();
+
+    /**
+     * Hashtabelle mit offener Adressierung von Endung (Kleinbuchstaben) zu MIME-Typ
+     */
+    static class Table {
+
+        /**
+         * Endungen in Kleinbuchstaben
+         */
+        private String[] keys;
+
+        /**
+         * Typen der Endungen
+         */
+        private MimeType[] values;
+
+        /**
+         * Anzahl der Einträge
+         */
+        private int size;
+
+        /**
+         * Erstellt eine leere Tabelle
+         *
+         * @param expected Erwartete Anzahl an Einträgen
+         */
+        Table(int expected) {
+            int capacity = 8;
+            while (capacity < expected * 2){
+                capacity <<= 1;
+            }
+
+            keys = new String[capacity];
+            values = new MimeType[capacity];
+        }
+
+        /**
+         * Fügt eine Endung hinzu oder überschreibt sie
+         *
+         * @param extension Endung
+         * @param type MIME-Typ
+         */
+        void put(String extension, MimeType type) {
+            if ((size + 1) * 2 > keys.length){
+                String[] oldKeys = keys;
+                MimeType[] oldValues = values;
+
+                keys = new String[oldKeys.length * 2];
+                values = new MimeType[oldKeys.length * 2];
+                size = 0;
+
+                for (int i = 0; i < oldKeys.length; i++){
+                    if (oldKeys[i] != null){
+                        put(oldKeys[i], oldValues[i]);
+                    }
+                }
+            }
+
+            extension = extension.toLowerCase();
+            int mask = keys.length - 1;
+            int i = hash(extension, 0, extension.length()) & mask;
+
+            while (keys[i] != null && !keys[i].equals(extension)){
+                i = (i + 1) & mask;
+            }
+
+            if (keys[i] == null){
+                size++;
+            }
+
+            keys[i] = extension;
+            values[i] = type;
+        }
+
+        /**
+         * Sucht den Typ einer Endung ohne Beachtung von Groß- und Kleinschreibung
+         *
+         * @param name String welcher die Endung enthält
+         * @param start Beginn der Endung
+         * @param end Ende der Endung
+         *
+         * @return MIME-Typ oder null
+         */
+        MimeType get(String name, int start, int end) {
+            if (size == 0){
+                return null;
+            }
+
+            int mask = keys.length - 1;
+            int i = hash(name, start, end) & mask;
+
+            while (keys[i] != null){
+                if (keys[i].length() == end - start && keys[i].regionMatches(true, 0, name, start, end - start)){
+                    return values[i];
+                }
+
+                i = (i + 1) & mask;
+            }
+
+            return null;
+        }
+
+        /**
+         * Gibt die Anzahl der Einträge zurück
+         *
+         * @return Anzahl
+         */
+        int size() {
+            return size;
+        }
+
+        /**
+         * Berechnet den Hash eines Bereichs in Kleinbuchstaben (nur ASCII)
+         *
+         * @param s String
+         * @param start Beginn des Bereichs
+         * @param end Ende des Bereichs
+         *
+         * @return Hash
+         */
+        private static int hash(String s, int start, int end) {
+            int h = 0;
+
+            for (int i = start; i < end; i++){
+                char c = s.charAt(i);
+
+                if (c >= 'A' && c <= 'Z'){
+                    c += 'a' - 'A';
+                }
+
+                h = 31 * h + c;
+            }
+
+            return h ^ (h >>> 16);
+        }
+    }
+
+    /**
+     * Erstellt das Verzeichnis
+     *
+     * @param root Absoluter, normalisierter Pfad von wwwroot
+     * @param global Typen für alle Ordner
+     * @param watcher Überwachung des Dateisystems für Änderungen der Ordner Typen oder null
+     */
+    MimeRegistry(Path root, Table global, FileWatcher watcher) {
+        this.root = root;
+        this.global = global;
+
+        if (watcher != null && watcher.isActive()){
+            watcher.addListener(this::invalidate);
+        }
+    }
+
+    /**
+     * Gibt das Verzeichnis des Servers zurück und lädt es beim ersten Aufruf
+     *
+     * @return Verzeichnis
+     */
+    public static synchronized MimeRegistry getInstance() {
+        if (instance == null){
+            FileWatcher watcher = FileWatcher.getInstance();
+            Path file = Paths.get(ServerConfig.MIME_TYPES);
+            Table global;
+
+            try {
+                global = load(Files.newBufferedReader(file, StandardCharsets.UTF_8));
+
+                System.out.println("Loaded " + global.size() + " MIME types from " + file + ".");
+            } catch (NoSuchFileException e) {
+                System.out.println("MIME types file " + file + " not found. Using built-in types.");
+
+                global = loadBuiltIn();
+            } catch (IOException e) {
+                System.out.println("Could not read MIME types file " + file + ": " + e.getMessage() + ". Using built-in types.");
+
+                global = loadBuiltIn();
+            }
+
+            instance = new MimeRegistry(watcher.getRoot(), global, watcher);
+        }
+
+        return instance;
+    }
+
+    /**
+     * Liest Typen im Format von mime.types
+     *
+     * @param reader Quelle der Typen, wird geschlossen
+     *
+     * @return Tabelle der Typen
+     *
+     * @throws IOException Wird geworfen falls das Lesen fehlschlägt
+     */
+    static Table load(Reader reader) throws IOException {
+        Table table = new Table(64);
+
+        try (BufferedReader lines = new BufferedReader(reader)) {
+            String line;
+
+            while ((line = lines.readLine()) != null){
+                int comment = line.indexOf('#');
+                if (comment != -1){
+                    line = line.substring(0, comment);
+                }
+
+                String[] parts = line.trim().split("\\s+");
+
+                if (parts.length < 2){
+                    continue;
+                }
+
+                MimeType type = new MimeType(parts[0]);
+
+                for (int i = 1; i < parts.length; i++){
+                    table.put(parts[i], type);
+                }
+            }
+        }
+
+        return table;
+    }
+
+    /**
+     * Lädt die eingebauten Typen
+     *
+     * @return Tabelle der Typen
+     */
+    private static Table loadBuiltIn() {
+        try {
+            return load(new StringReader(BUILT_IN_TYPES));
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Gibt den MIME-Typ einer Datei zurück. Typen des nächsten Ordners mit einer {@value #OVERRIDE_FILE} Datei
+     * haben Vorrang vor den allgemeinen Typen.
+     *
+     * @param file Absoluter, normalisierter Pfad der Datei
+     *
+     * @return MIME-Typ, application/octet-stream für unbekannte Endungen
+     */
+    public MimeType getType(Path file) {
+        String name = file.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+
+        if (dot == -1){
+            return DEFAULT_TYPE;
+        }
+
+        for (Path directory = file.getParent(); directory != null && directory.startsWith(root); directory = directory.getParent()){
+            MimeType type = getOverrides(directory).get(name, dot + 1, name.length());
+
+            if (type != null){
+                return type;
+            }
+        }
+
+        MimeType type = global.get(name, dot + 1, name.length());
+
+        return type != null ? type : DEFAULT_TYPE;
+    }
+
+    /**
+     * Gibt die Typen eines Ordners zurück und liest sie beim ersten Aufruf
+     *
+     * @param directory Absoluter Pfad des Ordners
+     *
+     * @return Typen des Ordners oder {@link #NO_OVERRIDES}
+     */
+    private Table getOverrides(Path directory) {
+        Table table = overrides.get(directory);
+
+        if (table == null){
+            try {
+                table = load(Files.newBufferedReader(directory.resolve(OVERRIDE_FILE), StandardCharsets.UTF_8));
+            } catch (IOException e) {
+                //Ordner hat keine eigenen Typen
+                table = NO_OVERRIDES;
+            }
+
+            overrides.put(directory, table);
+        }
+
+        return table;
+    }
+
+    /**
+     * Entfernt die gelesenen Typen eines geänderten Ordners bzw. einer geänderten {@value #OVERRIDE_FILE} Datei
+     *
+     * @param changed Geänderter Pfad oder null um alles zu entfernen
+     */
+    public void invalidate(Path changed) {
+        if (changed == null){
+            overrides.clear();
+            return;
+        }
+
+        Path directory = changed.getFileName() != null && changed.getFileName().toString().equals(OVERRIDE_FILE)
+                ? changed.getParent() : changed;
+
+        overrides.keySet().removeIf(path -> path.startsWith(directory));
+    }
+}
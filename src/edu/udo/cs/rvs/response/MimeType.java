@@ -0,0 +1,50 @@
+package edu.udo.cs.rvs.response;
+
+/**
+ * MIME-Typ einer Dateiendung mit vorab kodiertem Content-Type Header
+ */
+public class MimeType {
+
+    /**
+     * Zeichensatz welcher bei Text Typen angegeben wird
+     */
+    private static final String TEXT_CHARSET = "; charset=utf-8";
+
+    /**
+     * Wert des Content-Type Headers, bei Text Typen inklusive Zeichensatz
+     */
+    private final String contentType;
+
+    /**
+     * Kodierter Content-Type Header inklusive Zeilenende
+     */
+    private final byte[] headerLine;
+
+    /**
+     * Erstellt einen MIME-Typ
+     *
+     * @param type MIME-Typ ohne Parameter, z.B. "text/html"
+     */
+    public MimeType(String type) {
+        contentType = type.startsWith("text/") ? type + TEXT_CHARSET : type;
+        headerLine = HeaderTemplates.ascii("Content-Type: " + contentType + "\r\n");
+    }
+
+    /**
+     * Gibt den Wert des Content-Type Headers zurück
+     *
+     * @return MIME-Typ samt Parametern
+     */
+    public String getContentType() {
+        return contentType;
+    }
+
+    /**
+     * Gibt den kodierten Content-Type Header zurück
+     *
+     * @return Header inklusive Zeilenende, darf nicht verändert werden
+     */
+    public byte[] getHeaderLine() {
+        return headerLine;
+    }
+}
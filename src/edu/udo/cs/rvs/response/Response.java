@@ -1,23 +1,36 @@
 package edu.udo.cs.rvs.response;
 
 import edu.udo.cs.rvs.HTTPVersion;
-import edu.udo.cs.rvs.HttpServer;
+import edu.udo.cs.rvs.cache.FileMetadata;
+import edu.udo.cs.rvs.cache.ResolvedPathCache;
+import edu.udo.cs.rvs.handler.Handler;
+import edu.udo.cs.rvs.handler.Router;
+import edu.udo.cs.rvs.metrics.ServerMetrics;
 import edu.udo.cs.rvs.request.Request;
 import edu.udo.cs.rvs.request.RequestMethod;
 
 import java.io.*;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
-import java.nio.file.NoSuchFileException;
-import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.util.Stack;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.function.LongConsumer;
 
 /**
- * Antwort erstellen und versenden
+ * Antwort erstellen und versenden. Der Inhalt wird vom {@link Handler} gesetzt, welchen der {@link Router} für den
+ * normalisierten Pfad und die Methode der Anfrage wählt.
  */
 public class Response {
 
+    /**
+     * Ausgabepuffer für den Kopf einer Antwort pro Thread, falls nicht direkt in einen {@link ResponseBuffer} geschrieben wird
+     */
+    private static final ThreadLocal<ResponseBuffer> HEADER_BUFFER = ThreadLocal.withInitial(ResponseBuffer::new);
+
+    /**
+     * Leerer Körper
+     */
+    private static final byte[] EMPTY_BODY = new byte[0];
+
     /**
      * Anfrage an den Server
      */
@@ -44,22 +57,83 @@ public class Response {
     private HTTPVersion httpVersion;
 
     /**
-     * Pfad zu den Webserver Dateien
+     * Körper der Antwort in Byte Array
+     */
+    private byte[] responseBodyBytes = EMPTY_BODY;
+
+    /**
+     * Körper der Antwort welcher direkt aus einer Datei oder gemappten Puffern gesendet wird oder null
      */
-    private String filePath;
+    private ChannelBody channelBody;
 
     /**
-     * Körper der Antwort in Byte Array
+     * Kanal über den ein {@link ChannelBody} ohne Kopie versendet wird oder null
+     */
+    private WritableByteChannel bodyChannel;
+
+    /**
+     * Erhält die Länge der Antwort sobald der Kopf erstellt ist, bevor der Körper gesendet wird, oder null
      */
-    private byte[] responseBodyBytes;
+    private LongConsumer lengthListener;
 
     /**
-     * MIME-Typ der Antwort
+     * Wenn wahr, dann wird ein {@link ChannelBody} nicht von {@link #sendResponse()} gesendet,
+     * sondern vom Aufrufer über {@link #getChannelBody()}
+     */
+    private boolean deferChannelBody;
+
+    /**
+     * Auflösung des Ziels der Anfrage unter wwwroot
+     */
+    private ResolvedPathCache.Resolution resolution;
+
+    /**
+     * Validatoren der angefragten Datei oder null
+     */
+    private FileMetadata metadata;
+
+    /**
+     * Entity Tag einer 304 Antwort oder null, sonst wird das Tag anhand der Kodierung gewählt
+     */
+    private String entityTag;
+
+    /**
+     * Weitere Header der Antwort (z.B. Content-Range), jeweils mit abschließendem CRLF
+     */
+    private StringBuilder additionalHeaders = new StringBuilder();
+
+    /**
+     * MIME-Typ der Antwort oder null
      */
     private String contentType;
 
     /**
-     * Antwort erstellen und Initialisieren
+     * Vorab kodierter Content-Type Header des MIME-Typs oder null falls dieser aus {@link #contentType} erstellt wird
+     */
+    private byte[] contentTypeLine;
+
+    /**
+     * Kodierung des Körpers (z.B. gzip) oder null
+     */
+    private String contentEncoding;
+
+    /**
+     * Wenn wahr, dann hängt die Antwort vom Accept-Encoding Header ab
+     */
+    private boolean varyEncoding;
+
+    /**
+     * Wenn wahr, dann bleibt die Verbindung nach der Antwort offen
+     */
+    private boolean keepAlive;
+
+    /**
+     * Anzahl der Bytes der Antwort (Kopf und Körper)
+     */
+    private long responseLength;
+
+    /**
+     * Antwort erstellen und Initialisieren. Die Verbindung wird nach der Antwort geschlossen.
      *
      * @param request Anfrage
      * @param printWriter Objekt um Antwort zu verschicken
@@ -67,12 +141,24 @@ public class Response {
      * @throws Exception Wird geworfen falls es zu einem unerwartetem Fehler kommt
      */
     public Response(Request request, OutputStream printWriter) throws Exception{
+        this(request, printWriter, false);
+    }
+
+    /**
+     * Antwort erstellen und Initialisieren
+     *
+     * @param request Anfrage
+     * @param printWriter Objekt um Antwort zu verschicken
+     * @param keepAlive Wenn wahr, dann bleibt die Verbindung nach der Antwort für weitere Anfragen offen
+     *
+     * @throws Exception Wird geworfen falls es zu einem unerwartetem Fehler kommt
+     */
+    public Response(Request request, OutputStream printWriter, boolean keepAlive) throws Exception{
         this.request = request;
         this.outputWriter = printWriter;
+        this.keepAlive = keepAlive;
 
-        filePath = HttpServer.wwwroot.getAbsolutePath();
-
-        if (!request.getRequest().equals("")) {
+        if (!request.isEmpty()) {
             initResponse();
         }
     }
@@ -85,36 +171,34 @@ public class Response {
     private void initResponse() throws Exception{
         httpVersion = request.getHttpVersion();
 
-        if (checkHttpVersion() || checkImplementedRequestMethod() || !checkAndBuildNormalResponseBody()){
+        if (checkHttpVersion()){
             error = true;
+
+            return;
         }
-    }
 
-    /**
-     * Prüft ob die HTTP Version verarbeitet werden kann und setzt den Status Code auf 400 falls die Version nicht verarbeitet werden kann
-     *
-     * @return Wahr wenn Version 2.0 ist
-     */
-    private boolean checkHttpVersion()
-    {
-        if (httpVersion == HTTPVersion.HTTP_2_0){
-            responseCode = ResponseCode.BAD_REQUEST_400;
+        //Ziel normalisieren und prüfen ob Pfad außerhalb von wwwroot
+        resolution = ResolvedPathCache.getInstance().resolve(request.getRequestedPath());
 
-            return true;
+        if (resolution.getError() != null){
+            setError(resolution.getError());
+
+            return;
         }
 
-        return false;
+        Router.getInstance().route(resolution.getKey(), request.getRequestMethod()).handle(request, this);
     }
 
     /**
-     * Prüft ob die Anfrage Methode verarbeitet werden kann und setzt den Status Code auf 501 falls die Methode nicht verarbeitet werden können
+     * Prüft ob die HTTP Version verarbeitet werden kann und setzt den Status Code auf 400 falls die Version nicht verarbeitet werden kann.
+     * HTTP/2 wird nur über die Frames einer HTTP/2 Verbindung verstanden, nicht als Anfragezeile einer HTTP/1.x Verbindung.
      *
-     * @return Wahr wenn Methode nicht GET, HEAD oder Post ist.
+     * @return Wahr wenn Version 2.0 ist und die Anfrage nicht aus einem HTTP/2 Stream stammt
      */
-    private boolean checkImplementedRequestMethod()
+    private boolean checkHttpVersion()
     {
-        if (request.getRequestMethod() != RequestMethod.GET && request.getRequestMethod() != RequestMethod.HEAD && request.getRequestMethod() != RequestMethod.POST){
-            responseCode = ResponseCode.NOT_IMPLEMENTED_501;
+        if (httpVersion == HTTPVersion.HTTP_2_0 && !request.isHttp2Stream()){
+            responseCode = ResponseCode.BAD_REQUEST_400;
 
             return true;
         }
@@ -123,277 +207,358 @@ public class Response {
     }
 
     /**
-     * Versendet und erstellt die Antwort
+     * Versendet und erstellt die Antwort. Der Kopf wird aus vorab kodierten Bytes ({@link HeaderTemplates})
+     * in einen wiederverwendbaren {@link ResponseBuffer} geschrieben.
      *
      * @throws Exception Wird geworfen, falls es beim senden zu einem unerwarteten Fehler kam
      */
     public void sendResponse() throws Exception{
-        if (request.getRequest().equals("")){
+        if (request.isEmpty()){
             return;
         }
 
-        StringBuilder responseBuilder = new StringBuilder();
+        ResponseBuffer header = outputWriter instanceof ResponseBuffer ? (ResponseBuffer) outputWriter : HEADER_BUFFER.get().reset();
 
-        responseBuilder.append(encodeHttpVersion()).append(" ");
-        responseBuilder.append(encodeResponseStatus()).append("\r\n");
+        header.write(HeaderTemplates.statusLine(httpVersion, responseCode));
+        header.write(HeaderTemplates.dateLine());
 
         if (error){
-            responseBodyBytes = buildErrorResponseBodyBytes();
+            responseBodyBytes = HeaderTemplates.errorBody(responseCode);
         }
 
-        responseBuilder.append("Content-Length: ").append(responseBodyBytes.length).append("\r\n");
+        StreamBody stream = channelBody instanceof StreamBody ? (StreamBody) channelBody : null;
 
-        if (error){
-            responseBuilder.append("Content-Type: text/plain; charset=utf-8\r\n\r\n");
+        //204 und 304 Antworten haben keinen Körper
+        if (responseCode == ResponseCode.NO_CONTENT_204 || responseCode == ResponseCode.NOT_MODIFIED_304){
+            responseBodyBytes = EMPTY_BODY;
+
+            if (channelBody != null){
+                channelBody.close();
+                channelBody = null;
+            }
         }else {
-            responseBuilder.append("Content-Type: ").append(contentType).append("\r\n\r\n");
-        }
+            if (stream == null){
+                header.write(HeaderTemplates.CONTENT_LENGTH);
+                header.writeDecimal(getBodyLength());
+                header.write(HeaderTemplates.CRLF);
+            }else if (stream.isChunked()){
+                header.write(HeaderTemplates.TRANSFER_ENCODING_CHUNKED);
+            }else if (!request.isHttp2Stream()){
+                //Ohne Content-Length und Chunks endet der Körper mit der Verbindung
+                keepAlive = false;
+            }
 
-        outputWriter.write(responseBuilder.toString().getBytes());
+            if (error){
+                header.write(HeaderTemplates.CONTENT_TYPE_ERROR);
+            }else {
+                if (contentTypeLine != null){
+                    header.write(contentTypeLine);
+                }else if (contentType != null){
+                    header.write(HeaderTemplates.contentTypeLine(contentType));
+                }
 
-        if (request.getRequestMethod() != RequestMethod.HEAD) {
-            outputWriter.write(responseBodyBytes);
+                if (contentEncoding != null){
+                    header.write(HeaderTemplates.contentEncodingLine(contentEncoding));
+                }
+            }
         }
 
-
-        outputWriter.write("\r\n".getBytes());
-    }
-
-    /**
-     * Encodieren der Http Version zum String
-     *
-     * @return String der Http Version
-     */
-    private String encodeHttpVersion() {
-        switch (httpVersion){
-            case HTTP_1_0:
-                return "HTTP/1.0";
-            case HTTP_1_1:
-                return "HTTP/1.1";
-            case HTTP_2_0:
-                return "HTTP/2.0";
+        if (metadata != null){
+            header.write(HeaderTemplates.ETAG);
+            header.writeAscii(entityTag != null ? entityTag : metadata.getEntityTag(contentEncoding));
+            header.write(HeaderTemplates.CRLF);
+            header.write(metadata.getLastModifiedLine());
         }
 
-        return "";
-    }
+        header.writeAscii(additionalHeaders);
 
-    /**
-     * Encodieren der Status Codes
-     *
-     * @return Status Code als String
-     */
-    private String encodeResponseStatus() {
-        switch (responseCode){
-            case OK_200:
-                return "200 OK";
-            case NO_CONTENT_204:
-                return "204 No Content";
-            case NOT_MODIFIED_304:
-                return "304 Not Modified";
-            case BAD_REQUEST_400:
-                return "400 Bad Request";
-            case FORBIDDEN_403:
-                return "403 Forbidden";
-            case NOT_FOUND_404:
-                return "404 Not Found";
-            case INTERNAL_SERVER_ERROR_500:
-                return "500 Internal Server Error";
-            case NOT_IMPLEMENTED_501:
-                return "501 Not Implemented";
+        if (varyEncoding && !error){
+            header.write(HeaderTemplates.VARY_ACCEPT_ENCODING);
         }
 
-        return "";
-    }
-
-    /**
-     * Erstellt eine Fehlermeldungs Body für die Antwort
-     *
-     * @return byte Array des Bodys
-     */
-    private byte[] buildErrorResponseBodyBytes(){
-        StringBuilder stringBuilder = new StringBuilder();
-
-        stringBuilder.append("Error Status Code: ");
-        stringBuilder.append(encodeResponseStatus());
+        if (keepAlive){
+            header.write(HeaderTemplates.CONNECTION_KEEP_ALIVE);
 
-        return stringBuilder.toString().getBytes();
-    }
-
-    /**
-     * Prüft ob ein normaler Antwort body erstellt werden kann ohne einen Fehler.
-     *
-     * @return Gibt zurück ob es zu einem Fehler gekommen ist
-     *
-     * @throws Exception Wird geworfen falls es zu einem unverarbeitbaren Fehler gekommen ist
-     */
-    private boolean checkAndBuildNormalResponseBody() throws Exception{
-        byte[] response = new byte[0];
-
-        //Prüfen ob Pfad außerhalb von wwwroot
-        if (!checkPathForSecurity()){
-            responseCode = ResponseCode.FORBIDDEN_403;
-
-            return false;
+            if (httpVersion == HTTPVersion.HTTP_1_0){
+                header.write(HeaderTemplates.KEEP_ALIVE_PARAMETERS);
+            }
+        }else {
+            header.write(HeaderTemplates.CONNECTION_CLOSE);
         }
 
-        try {
-            String safeRequestPath = request.getRequestedPath().replace("/", File.separator);
+        header.write(HeaderTemplates.CRLF);
 
-            Path path = Paths.get(filePath, safeRequestPath);
+        responseLength = header.size() + (request.getRequestMethod() == RequestMethod.HEAD ? 0 : getBodyLength());
 
-            File file = path.toFile();
-
-            if (file.isDirectory()){
-                File[] files = file.listFiles();
-
-                boolean foundIndex = false;
-
-                for (File f : files){
-                    if (f.getName().startsWith("index.") && f.isFile()){
-                        file = f;
-                        path = f.toPath();
-
-                        foundIndex = true;
-                        break;
-                    }
-                }
-
-                if (request.getIsModifiedSinceDate() > file.lastModified()){
-                    //Datei ist abgelaufen
-
-                    responseCode = ResponseCode.NOT_MODIFIED_304;
+        if (lengthListener != null){
+            lengthListener.accept(responseLength);
+        }
 
-                    return false;
-                }
+        if (header != outputWriter){
+            header.writeTo(outputWriter);
+        }
 
+        if (request.getRequestMethod() == RequestMethod.HEAD) {
+            if (channelBody != null){
+                channelBody.close();
+                channelBody = null;
+            }
+        }else if (channelBody != null) {
+            if (stream != null && lengthListener != null){
+                //Die Frist wird mit jedem erzeugten Teil verlängert
+                stream.setPartListener(lengthListener);
+            }
 
-                if (!foundIndex){
-                    //Pfad führt zu einem Ordner und nicht zu einer Datei
+            if (!deferChannelBody){
+                outputWriter.flush();
 
-                    responseCode = ResponseCode.NO_CONTENT_204;
+                channelBody.transferAll(bodyChannel != null ? bodyChannel : Channels.newChannel(outputWriter));
 
-                    return false;
+                if (stream != null){
+                    responseLength += stream.getTransferred();
                 }
             }
+        }else if (deferChannelBody && responseBodyBytes.length > 0) {
+            //Der Körper aus dem Speicher wird vom Aufrufer ohne Kopie in den Ausgabepuffer gesendet
+            channelBody = new BufferBody(ByteBuffer.wrap(responseBodyBytes));
+        }else {
+            outputWriter.write(responseBodyBytes);
+        }
+    }
 
-            decodeContentType(file);
+    /**
+     * Gibt die Länge des Körpers zurück
+     *
+     * @return Länge in Bytes, bei einem gestreamten Körper 0
+     */
+    private long getBodyLength() {
+        if (channelBody != null){
+            return channelBody.getRemaining();
+        }
 
-            response = Files.readAllBytes(path);
+        return responseBodyBytes.length;
+    }
 
-            //Prüfen ob Datei gelsen werden draf
-            if (!file.canRead()){
-                responseCode = ResponseCode.FORBIDDEN_403;
+    /**
+     * Setzt den Status Code einer Antwort mit eigenem Körper, z.B. 206
+     *
+     * @param responseCode Status Code
+     */
+    public void setResponseCode(ResponseCode responseCode) {
+        this.responseCode = responseCode;
+    }
 
-                return false;
-            }
+    /**
+     * Setzt einen Status Code ohne eigenen Körper. Gesendet wird der Standardtext des Status Codes,
+     * bei 204 und 304 kein Körper.
+     *
+     * @param responseCode Status Code
+     */
+    public void setError(ResponseCode responseCode) {
+        this.responseCode = responseCode;
+        this.error = true;
+    }
 
-            if (contentType.startsWith("text")){
-                response = new String(response, StandardCharsets.UTF_8).getBytes();
-            }
+    /**
+     * Setzt den MIME-Typ des Körpers
+     *
+     * @param contentType MIME-Typ inklusive Parametern, z.B. "application/json; charset=utf-8"
+     */
+    public void setContentType(String contentType) {
+        this.contentType = contentType;
+        this.contentTypeLine = null;
+    }
 
+    /**
+     * Setzt den MIME-Typ des Körpers mit vorab kodiertem Header
+     *
+     * @param mimeType MIME-Typ aus dem {@link MimeRegistry}
+     */
+    public void setContentType(MimeType mimeType) {
+        this.contentType = mimeType.getContentType();
+        this.contentTypeLine = mimeType.getHeaderLine();
+    }
 
-        } catch (NoSuchFileException e){
-            //Keine Datei unter diesem Pfad gefunden. Datei Existiert nicht
+    /**
+     * Setzt einen Körper aus dem Speicher
+     *
+     * @param body Inhalt, wird nicht kopiert
+     */
+    public void setBody(byte[] body) {
+        this.responseBodyBytes = body;
+        this.channelBody = null;
+    }
 
-            responseCode = ResponseCode.NOT_FOUND_404;
+    /**
+     * Setzt einen Körper bekannter Länge welcher ohne Kopie aus einer Datei oder Puffern gesendet wird
+     *
+     * @param body Körper, wird nach dem Senden geschlossen
+     */
+    public void setBody(ChannelBody body) {
+        this.channelBody = body;
+    }
 
-            return false;
-        }
+    /**
+     * Setzt einen gestreamten Körper unbekannter Länge, als Chunks für HTTP/1.1 und ungerahmt für HTTP/1.0 bzw. HTTP/2
+     *
+     * @param producer Erzeuger des Körpers, wird nach dem Senden geschlossen
+     */
+    public void setBody(BodyProducer producer) {
+        this.channelBody = new StreamBody(producer, httpVersion == HTTPVersion.HTTP_1_1);
+    }
 
-        responseBodyBytes = response;
+    /**
+     * Setzt die Kodierung des Körpers
+     *
+     * @param contentEncoding Kodierung, z.B. gzip, oder null
+     */
+    public void setContentEncoding(String contentEncoding) {
+        this.contentEncoding = contentEncoding;
+    }
 
-        return true;
+    /**
+     * Legt fest ob die Antwort vom Accept-Encoding Header abhängt (Vary: Accept-Encoding)
+     *
+     * @param varyEncoding Wenn wahr, dann wird der Vary Header gesendet
+     */
+    public void setVaryEncoding(boolean varyEncoding) {
+        this.varyEncoding = varyEncoding;
     }
 
     /**
-     * Decodieren des Dateityps
+     * Setzt die Validatoren einer Datei, gesendet als ETag und Last-Modified
      *
-     * @param file Datei Mime Typ als String
+     * @param metadata Validatoren oder null
+     * @param entityTag Entity Tag einer 304 Antwort oder null, sonst wird das Tag anhand der Kodierung gewählt
      */
-    private void decodeContentType(File file) {
-        if (file.getName().endsWith(".txt")){
-            contentType = "text/plain; charset=utf-8";
-        }else if (file.getName().endsWith(".html") || file.getName().endsWith(".htm")){
-            contentType = "text/html; charset=utf-8";
-        }else if (file.getName().endsWith("css")){
-            contentType = "text/css; charset=utf-8";
-        }else if (file.getName().endsWith(".ico")){
-            contentType = " image/x-icon";
-        }else if (file.getName().endsWith(".pdf")){
-            contentType = "application/pdf";
-        }else {
-            contentType = "application/octet-stream";
-        }
+    public void setValidators(FileMetadata metadata, String entityTag) {
+        this.metadata = metadata;
+        this.entityTag = entityTag;
     }
 
     /**
-     * Prüft ob auf Datei zugergriffen werden darf.
+     * Fügt einen weiteren Header hinzu
      *
-     * @return Gibt zurück ob Pfad außerhalb des erlaubten Bereichs
+     * @param name Name des Headers
+     * @param value Wert des Headers
      */
-    private boolean checkPathForSecurity(){
-        String safeFilePath = filePath.replace("\\", "/");
+    public void addHeader(String name, String value) {
+        additionalHeaders.append(name).append(": ").append(value).append("\r\n");
+    }
 
-        Path path = Paths.get(safeFilePath, request.getRequestedPath());
-        String absolutePath = path.toAbsolutePath().toString();
-        absolutePath = decodeAbsolutePath(absolutePath);
+    /**
+     * Gibt die Auflösung des Ziels der Anfrage unter wwwroot zurück, z.B. für Handler welche Dateien ausliefern
+     *
+     * @return Auflösung mit normalisiertem und absolutem Pfad
+     */
+    public ResolvedPathCache.Resolution getResolution() {
+        return resolution;
+    }
 
-        if (absolutePath.startsWith(filePath)){
-            return true;
-        }
+    /**
+     * Setzt den Kanal zum Nutzer über den Dateien ohne Kopie in den Java Heap gesendet werden.
+     * Ohne Kanal werden Dateien blockweise in den Ausgabestrom kopiert.
+     *
+     * @param bodyChannel Kanal zum Nutzer
+     */
+    public void setBodyChannel(WritableByteChannel bodyChannel) {
+        this.bodyChannel = bodyChannel;
+    }
 
-        return false;
+    /**
+     * Setzt den Empfänger der Länge der Antwort, z.B. um die Frist für das Senden danach zu bemessen.
+     * Bei einem gestreamten Körper erhält er zusätzlich die Länge jedes erzeugten Teils.
+     *
+     * @param lengthListener Erhält die Länge in Bytes bevor Kopf und Körper gesendet werden
+     */
+    public void setLengthListener(LongConsumer lengthListener) {
+        this.lengthListener = lengthListener;
     }
 
     /**
-     * Decodiert den Absoluten Pfad zu einem Pfad ohne Backtracking
+     * Wenn gesetzt, dann schreibt {@link #sendResponse()} nur den Kopf und Körper aus dem Speicher.
+     * Ein Körper aus einer Datei muss anschließend vom Aufrufer über {@link #getChannelBody()} gesendet werden.
      *
-     * @param path Ganzer Pfad mit Backtracking
+     * @param deferChannelBody Wenn wahr wird der Körper aus einer Datei nicht gesendet
+     */
+    public void setDeferChannelBody(boolean deferChannelBody) {
+        this.deferChannelBody = deferChannelBody;
+    }
+
+    /**
+     * Gibt den noch zu sendenden Körper aus einer Datei bzw. gemappten Puffern zurück
      *
-     * @return Neuer Pfad ohne Backtracking
+     * @return Körper oder null falls keiner gesendet werden muss
      */
-    private String decodeAbsolutePath(String path){
-        Stack<String> stringStack = new Stack<>();
+    public ChannelBody getChannelBody() {
+        return channelBody;
+    }
 
-        String[] pathParts = path.split("/");
-        for (int i=0; i<pathParts.length; i++){
-            if (pathParts[i].equals("..")){
-                stringStack.pop();
-            }else {
-                stringStack.add(pathParts[i]);
-            }
-        }
+    /**
+     * Gibt zurück ob die Verbindung nach der Antwort offen bleibt
+     *
+     * @return Wahr wenn die Verbindung offen bleibt
+     */
+    public boolean isKeepAlive() {
+        return keepAlive;
+    }
 
-        StringBuilder builder = new StringBuilder();
-        stringStack.forEach(s -> {
-            builder.append(s).append("/");});
+    /**
+     * Gibt den Status Code der Antwort zurück
+     *
+     * @return Status Code
+     */
+    public ResponseCode getResponseCode() {
+        return responseCode;
+    }
 
-        return builder.toString();
+    /**
+     * Gibt die Anzahl der Bytes der Antwort nach {@link #sendResponse()} zurück. Ein vom Aufrufer gesendeter
+     * Körper ist bereits enthalten, außer ein {@link StreamBody} dessen Länge erst nach dem Senden bekannt ist.
+     *
+     * @return Anzahl der Bytes von Kopf und Körper
+     */
+    public long getResponseLength() {
+        return responseLength;
     }
 
     /**
-     * Sendet Fehler Antwort falls es zu einem unerwarteten und unverarbeitbaren Fehler gekommen ist
+     * Sendet Fehler Antwort falls es zu einem unerwarteten und unverarbeitbaren Fehler gekommen ist.
+     * Der Fehler wird nur auf der Konsole des Servers ausgegeben und nicht an den Nutzer gesendet.
      *
      * @param out Objekt um Antwort zu versenden
      * @param e Fehler welcher geworfen wurde
+     *
+     * @return Anzahl der gesendeten Bytes
+     *
+     * @throws IOException Wird geworfen falls das Senden fehlschlägt
      */
-    public static void sendErrorResponse(PrintWriter out, Exception e){
-        StringWriter stringWriter = new StringWriter();
-        PrintWriter printWriter = new PrintWriter(stringWriter);
-        e.printStackTrace(printWriter);
-        String stackTrace = stringWriter.toString();
-
-        StringBuilder responseBuilder = new StringBuilder();
+    public static int sendErrorResponse(OutputStream out, Exception e) throws IOException{
+        e.printStackTrace();
+        ServerMetrics.getInstance().recordError();
 
-        responseBuilder.append("HTTP/1.0 ");
-        responseBuilder.append("501 Not Implemented\r\n");
+        return sendStatusResponse(out, ResponseCode.INTERNAL_SERVER_ERROR_500);
+    }
 
-        responseBuilder.append("Content-Length: ").append(stackTrace.length()).append("\r\n");
-        responseBuilder.append("Content-Type: ").append("text/plain; charset=utf-8").append("\r\n\r\n");
+    /**
+     * Sendet eine vorab erstellte Fehler Antwort ohne vorherige Verarbeitung einer Anfrage, z.B. bei Überlastung (503)
+     * oder einem fehlerhaften Anfragekopf (400). Die Verbindung muss anschließend geschlossen werden.
+     *
+     * @param out Objekt um Antwort zu versenden
+     * @param responseCode Status Code der Antwort
+     *
+     * @return Anzahl der gesendeten Bytes
+     *
+     * @throws IOException Wird geworfen falls das Senden fehlschlägt
+     */
+    public static int sendStatusResponse(OutputStream out, ResponseCode responseCode) throws IOException{
+        byte[] response = HeaderTemplates.statusResponse(responseCode);
 
-        responseBuilder.append(stackTrace);
+        ServerMetrics.getInstance().recordStatusResponse(responseCode, response.length);
 
-        out.println(responseBuilder.toString());
+        out.write(response);
+        out.flush();
 
+        return response.length;
     }
 }
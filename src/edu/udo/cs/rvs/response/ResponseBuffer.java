@@ -0,0 +1,143 @@
+package edu.udo.cs.rvs.response;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Wiederverwendbarer Ausgabepuffer für den Kopf einer Antwort. Header werden direkt als Bytes hineingeschrieben,
+ * ohne Zwischenschritt über Strings. Nach dem Senden wird der Puffer mit {@link #reset()} erneut genutzt.
+ */
+public class ResponseBuffer extends OutputStream {
+
+    /**
+     * Startgröße des Puffers
+     */
+    private static final int INITIAL_SIZE = 512;
+
+    /**
+     * Größe ab welcher ein vergrößerter Puffer beim Zurücksetzen wieder verkleinert wird
+     */
+    private static final int MAX_RETAINED_SIZE = 16 * 1024;
+
+    /**
+     * Puffer
+     */
+    private byte[] buf = new byte[INITIAL_SIZE];
+
+    /**
+     * Anzahl geschriebener Bytes
+     */
+    private int count;
+
+    @Override
+    public void write(int b) {
+        ensureCapacity(1);
+        buf[count++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+        ensureCapacity(len);
+        System.arraycopy(b, off, buf, count, len);
+        count += len;
+    }
+
+    @Override
+    public void write(byte[] b) {
+        write(b, 0, b.length);
+    }
+
+    /**
+     * Schreibt Zeichen als ISO-8859-1 Bytes
+     *
+     * @param chars Zeichen
+     */
+    public void writeAscii(CharSequence chars) {
+        int length = chars.length();
+        ensureCapacity(length);
+
+        for (int i = 0; i < length; i++){
+            buf[count++] = (byte) chars.charAt(i);
+        }
+    }
+
+    /**
+     * Schreibt eine nicht negative Zahl als Dezimalzahl
+     *
+     * @param value Zahl
+     */
+    public void writeDecimal(long value) {
+        int digits = 1;
+        for (long rest = value / 10; rest > 0; rest /= 10){
+            digits++;
+        }
+
+        ensureCapacity(digits);
+
+        for (int i = count + digits - 1; i >= count; i--){
+            buf[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+
+        count += digits;
+    }
+
+    /**
+     * Gibt die Anzahl geschriebener Bytes zurück
+     *
+     * @return Anzahl
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Leert den Puffer für die nächste Antwort
+     *
+     * @return Dieser Puffer
+     */
+    public ResponseBuffer reset() {
+        count = 0;
+
+        if (buf.length > MAX_RETAINED_SIZE){
+            //Große Antworten sollen nicht dauerhaft Speicher einer Verbindung belegen
+            buf = new byte[INITIAL_SIZE];
+        }
+
+        return this;
+    }
+
+    /**
+     * Gibt den Inhalt ohne Kopie als {@link ByteBuffer} zurück. Dieser ist bis zum nächsten {@link #reset()} gültig.
+     *
+     * @return Inhalt
+     */
+    public ByteBuffer toByteBuffer() {
+        return ByteBuffer.wrap(buf, 0, count);
+    }
+
+    /**
+     * Schreibt den Inhalt in einen Ausgabestrom
+     *
+     * @param out Ausgabestrom
+     *
+     * @throws IOException Wird geworfen falls das Schreiben fehlschlägt
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        out.write(buf, 0, count);
+    }
+
+    /**
+     * Vergrößert den Puffer falls nötig
+     *
+     * @param additional Anzahl zusätzlich benötigter Bytes
+     */
+    private void ensureCapacity(int additional) {
+        if (count + additional > buf.length){
+            byte[] bigger = new byte[Math.max(buf.length * 2, count + additional)];
+            System.arraycopy(buf, 0, bigger, 0, count);
+            buf = bigger;
+        }
+    }
+}
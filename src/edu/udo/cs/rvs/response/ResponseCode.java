@@ -4,5 +4,5 @@ package edu.udo.cs.rvs.response;
  * Status Codes für die Antwort
  */
 public enum ResponseCode {
-    OK_200, NO_CONTENT_204, NOT_MODIFIED_304, BAD_REQUEST_400, FORBIDDEN_403, NOT_FOUND_404, INTERNAL_SERVER_ERROR_500, NOT_IMPLEMENTED_501
+    OK_200, NO_CONTENT_204, PARTIAL_CONTENT_206, NOT_MODIFIED_304, BAD_REQUEST_400, FORBIDDEN_403, NOT_FOUND_404, METHOD_NOT_ALLOWED_405, PAYLOAD_TOO_LARGE_413, URI_TOO_LONG_414, RANGE_NOT_SATISFIABLE_416, TOO_MANY_REQUESTS_429, REQUEST_HEADER_FIELDS_TOO_LARGE_431, INTERNAL_SERVER_ERROR_500, NOT_IMPLEMENTED_501, SERVICE_UNAVAILABLE_503
 }
@@ -0,0 +1,176 @@
+package edu.udo.cs.rvs.response;
+
+import edu.udo.cs.rvs.ServerConfig;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.function.LongConsumer;
+
+/**
+ * Körper einer Antwort unbekannter Länge aus einem {@link BodyProducer}. Es liegt immer höchstens ein Teil von etwa
+ * {@link ServerConfig#STREAM_BUFFER_SIZE} Bytes im Speicher, der nächste wird erst erzeugt wenn dieser gesendet ist.
+ * Für HTTP/1.1 werden die Teile als Transfer-Encoding: chunked gesendet, sonst unverändert (HTTP/1.0 beendet den
+ * Körper durch Schließen der Verbindung, HTTP/2 durch das Ende des Streams).
+ */
+public class StreamBody implements ChannelBody {
+
+    /**
+     * Letzter Teil eines chunked Körpers ohne Trailer
+     */
+    private static final byte[] LAST_CHUNK = HeaderTemplates.ascii("0\r\n\r\n");
+
+    /**
+     * Ende eines Chunks direkt gefolgt vom letzten Teil
+     */
+    private static final byte[] CRLF_LAST_CHUNK = HeaderTemplates.ascii("\r\n0\r\n\r\n");
+
+    /**
+     * Erzeuger des Körpers
+     */
+    private final BodyProducer producer;
+
+    /**
+     * Wenn wahr, dann wird jeder Teil als Chunk gesendet
+     */
+    private final boolean chunked;
+
+    /**
+     * Puffer des aktuellen Teils
+     */
+    private final ResponseBuffer buffer = new ResponseBuffer();
+
+    /**
+     * Noch zu sendender Teil samt Chunk Kopf oder null vor dem ersten Teil
+     */
+    private BufferBody part;
+
+    /**
+     * Wenn wahr, dann hat der Erzeuger den letzten Teil geliefert
+     */
+    private boolean finished;
+
+    /**
+     * Anzahl der übertragenen Bytes inklusive Chunk Köpfen
+     */
+    private long transferred;
+
+    /**
+     * Erhält die Länge jedes erzeugten Teils oder null
+     */
+    private LongConsumer partListener;
+
+    /**
+     * Erstellt den Körper
+     *
+     * @param producer Erzeuger des Körpers
+     * @param chunked Wenn wahr, dann werden die Teile als Chunks gesendet
+     */
+    public StreamBody(BodyProducer producer, boolean chunked) {
+        this.producer = producer;
+        this.chunked = chunked;
+    }
+
+    /**
+     * Gibt zurück ob die Teile als Chunks gesendet werden
+     *
+     * @return Wahr bei Transfer-Encoding: chunked
+     */
+    public boolean isChunked() {
+        return chunked;
+    }
+
+    /**
+     * Setzt den Empfänger der Länge jedes erzeugten Teils, z.B. um die Frist für das Senden zu verlängern
+     *
+     * @param partListener Erhält die Länge in Bytes bevor der Teil gesendet wird
+     */
+    public void setPartListener(LongConsumer partListener) {
+        this.partListener = partListener;
+    }
+
+    /**
+     * Gibt die Anzahl der bisher übertragenen Bytes zurück
+     *
+     * @return Anzahl der Bytes inklusive Chunk Köpfen
+     */
+    public long getTransferred() {
+        return transferred;
+    }
+
+    /**
+     * Die Länge ist vorab nicht bekannt, daher zählt nur der bereits erzeugte Teil
+     *
+     * @return Anzahl der noch nicht gesendeten Bytes des aktuellen Teils
+     */
+    @Override
+    public long getRemaining() {
+        return part != null ? part.getRemaining() : 0;
+    }
+
+    @Override
+    public boolean isDone() {
+        return finished && (part == null || part.isDone());
+    }
+
+    @Override
+    public long transferTo(WritableByteChannel target) throws IOException {
+        if (part == null || part.isDone()){
+            if (finished){
+                return 0;
+            }
+
+            nextPart();
+        }
+
+        long written = part.transferTo(target);
+        transferred += written;
+
+        return written;
+    }
+
+    /**
+     * Fordert den nächsten Teil vom Erzeuger an
+     *
+     * @throws IOException Wird geworfen falls der Teil nicht erzeugt werden kann
+     */
+    private void nextPart() throws IOException {
+        boolean more;
+
+        buffer.reset();
+
+        do {
+            more = producer.produce(buffer, ServerConfig.STREAM_BUFFER_SIZE);
+        } while (more && buffer.size() == 0);
+
+        if (!more){
+            finished = true;
+            producer.close();
+        }
+
+        ByteBuffer data = buffer.toByteBuffer();
+
+        if (!chunked){
+            part = new BufferBody(data);
+        }else if (data.remaining() == 0){
+            part = new BufferBody(ByteBuffer.wrap(LAST_CHUNK));
+        }else {
+            ByteBuffer head = ByteBuffer.wrap(HeaderTemplates.ascii(Integer.toHexString(data.remaining()) + "\r\n"));
+            ByteBuffer tail = ByteBuffer.wrap(finished ? CRLF_LAST_CHUNK : HeaderTemplates.CRLF);
+
+            part = new BufferBody(head, data, tail);
+        }
+
+        if (partListener != null){
+            partListener.accept(part.getRemaining());
+        }
+    }
+
+    @Override
+    public void close() {
+        if (!finished){
+            finished = true;
+            producer.close();
+        }
+    }
+}
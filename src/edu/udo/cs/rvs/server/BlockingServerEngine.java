@@ -0,0 +1,652 @@
+package edu.udo.cs.rvs.server;
+
+import edu.udo.cs.rvs.ServerConfig;
+import edu.udo.cs.rvs.http2.Http2Connection;
+import edu.udo.cs.rvs.limit.ClientLimiter;
+import edu.udo.cs.rvs.log.AccessLog;
+import edu.udo.cs.rvs.metrics.RejectionType;
+import edu.udo.cs.rvs.metrics.ServerMetrics;
+import edu.udo.cs.rvs.metrics.TimeoutType;
+import edu.udo.cs.rvs.request.BodyDecoder;
+import edu.udo.cs.rvs.request.Request;
+import edu.udo.cs.rvs.request.RequestParseException;
+import edu.udo.cs.rvs.request.RequestReader;
+import edu.udo.cs.rvs.response.HeaderTemplates;
+import edu.udo.cs.rvs.response.Response;
+import edu.udo.cs.rvs.response.ResponseCode;
+
+import java.io.*;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Blockierende Engine: Jede Verbindung wird blockierend in einem Thread des {@link ClientExecutor} behandelt.
+ * Mit mehreren Acceptors ({@link ServerConfig#ACCEPTORS}) hat jeder Kanal des Ports einen eigenen Acceptor Thread
+ * und einen eigenen Executor.
+ */
+public class BlockingServerEngine implements ServerEngine {
+
+    /**
+     * Abstand in Millisekunden in dem beim Beenden geprüft wird ob alle Verbindungen geschlossen sind
+     */
+    private static final long DRAIN_POLL_INTERVAL = 50;
+
+    /**
+     * Dauer eines Ticks des Timer Wheels in Millisekunden
+     */
+    private static final long TIMER_TICK = 100;
+
+    /**
+     * Anzahl der Eimer des Timer Wheels, eine Umdrehung dauert damit etwa 51 Sekunden
+     */
+    private static final int TIMER_BUCKETS = 512;
+
+    /**
+     * Blockierende Kanäle welche auf ankommende Verbindungen warten, während eines Portwechsels zwei. Über die
+     * Kanäle der Verbindungen können Dateien ohne Kopie in den Java Heap versendet werden.
+     */
+    private final List<ServerSocketChannel> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Alle offenen Verbindungen
+     */
+    private final Set<Socket> connections = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Verbindungen welche auf die nächste Anfrage warten
+     */
+    private final Set<Socket> idle = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Engine läuft
+     */
+    private volatile boolean online;
+
+    /**
+     * Engine wird beendet, persistente Verbindungen werden nach der laufenden Anfrage geschlossen
+     */
+    private volatile boolean draining;
+
+    /**
+     * Zugriffsprotokoll des Servers
+     */
+    private final AccessLog accessLog = AccessLog.getInstance();
+
+    /**
+     * Begrenzung der Verbindungen und Anfragen pro Nutzer
+     */
+    private final ClientLimiter limiter = ClientLimiter.getInstance();
+
+    /**
+     * Fristen aller Verbindungen, wird von einem eigenen Thread weitergedreht
+     */
+    private final TimerWheel wheel = new TimerWheel(TIMER_TICK, TIMER_BUCKETS);
+
+    /**
+     * Führen die Verarbeitung der Verbindungen aus, einer pro Acceptor
+     */
+    private final ClientExecutor[] executors;
+
+    /**
+     * Anzahl der angenommenen Verbindungen pro Acceptor
+     */
+    private final LongAdder[] accepted;
+
+    /**
+     * Erstellt die Engine mit der in {@link ServerConfig#ACCEPTORS} gewählten Anzahl an Acceptors
+     */
+    public BlockingServerEngine() {
+        int count = SocketTuning.ACCEPTORS;
+
+        executors = new ClientExecutor[count];
+        accepted = new LongAdder[count];
+
+        for (int i = 0; i < count; i++){
+            executors[i] = count == 1 ? new ClientExecutor() : new ClientExecutor(count, "worker-" + i);
+            accepted[i] = new LongAdder();
+        }
+    }
+
+    @Override
+    public void start(int port) throws IOException {
+        online = true;
+
+        listen(port);
+
+        Thread timer = new Thread(() -> {
+            while (online){
+                try {
+                    Thread.sleep(TIMER_TICK);
+                } catch (InterruptedException e) {
+                    return;
+                }
+
+                wheel.advance(System.currentTimeMillis());
+            }
+        }, "blocking-timer");
+        timer.setDaemon(true);
+        timer.start();
+    }
+
+    @Override
+    public void rebind(int port, long window) throws IOException {
+        List<ServerSocketChannel> old = List.copyOf(listeners);
+
+        //Erst binden, schlägt das fehl bleibt der alte Port unverändert aktiv
+        listen(port);
+
+        Thread thread = new Thread(() -> {
+            try {
+                Thread.sleep(window);
+            } catch (InterruptedException e) {
+                //Alten Port sofort schließen
+            }
+
+            old.forEach(this::closeListener);
+        }, "blocking-rebind");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Bindet einen Port und startet für jeden Kanal einen Thread welcher dort Verbindungen annimmt
+     *
+     * @param port Port auf dem gelauscht wird
+     *
+     * @throws IOException Wird geworfen falls der Port nicht gebunden werden kann
+     */
+    private void listen(int port) throws IOException {
+        List<ServerSocketChannel> channels = SocketTuning.bind(port, executors.length);
+
+        for (int i = 0; i < channels.size(); i++){
+            listeners.add(channels.get(i));
+
+            accept(channels.get(i), i, port);
+        }
+    }
+
+    /**
+     * Startet den Acceptor Thread eines Kanals
+     *
+     * @param serverChannel Gebundener Kanal
+     * @param shard Nummer des Acceptors, bestimmt den Executor
+     * @param port Port des Kanals
+     */
+    private void accept(ServerSocketChannel serverChannel, int shard, int port) {
+        ClientExecutor executor = executors[shard];
+
+        Thread thread = new Thread(() -> {
+            while (online && serverChannel.isOpen()){
+                try {
+                    SocketChannel channel = serverChannel.accept();
+                    SocketTuning.configure(channel);
+
+                    Socket client = channel.socket();
+
+                    if (ServerConfig.LOG_CONNECTIONS){
+                        System.out.println("Client connected from " + client.getRemoteSocketAddress().toString() + " connected.");
+                    }
+
+                    accepted[shard].increment();
+
+                    if (!limiter.openConnection(client.getInetAddress())){
+                        //Zu viele Verbindungen des Nutzers, wird direkt im Acceptor abgelehnt
+                        refuseClient(client);
+                        continue;
+                    }
+
+                    ServerMetrics.getInstance().connectionOpened();
+                    connections.add(client);
+
+                    executor.execute(() -> handleClient(client), () -> rejectClient(client));
+
+                } catch (SocketException | ClosedChannelException e){
+                    //Fehler welcher beim Schließen des Ports auftritt.
+                } catch (IOException e) {
+                    //Fehler beim annehmen eines Nutzers
+
+                    e.printStackTrace();
+                }
+            }
+        }, "blocking-acceptor-" + port + "-" + shard);
+        thread.start();
+    }
+
+    /**
+     * Schließt einen Port, angenommene Verbindungen bleiben offen
+     *
+     * @param serverChannel Kanal des Ports
+     */
+    private void closeListener(ServerSocketChannel serverChannel) {
+        listeners.remove(serverChannel);
+
+        try {
+            serverChannel.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Verarbeitet die Anfragen einer Verbindung. Bei persistenten Verbindungen werden mehrere Anfragen
+     * nacheinander gelesen und in der gleichen Reihenfolge beantwortet.
+     *
+     * @param client Verbindung zum Nutzer
+     */
+    private void handleClient(Socket client) {
+        OutputStream out;
+
+        try {
+            out = new BufferedOutputStream(client.getOutputStream());
+        } catch (IOException e) {
+            //Verbindung wurde vom Nutzer abgebrochen
+            close(client);
+            return;
+        }
+
+        //Bei Ablauf der Frist wird die Verbindung geschlossen, das blockierende Lesen bzw. Schreiben bricht dann ab
+        ConnectionTimeout timeout = new ConnectionTimeout(wheel, phase -> abort(client, out, phase));
+
+        try {
+            try {
+                InputStream input = timeout.watch(client.getInputStream());
+                RequestReader in = new RequestReader(input);
+
+                int served = 0;
+
+                while (online){
+                    timeout.idle(System.currentTimeMillis());
+                    idle.add(client);
+
+                    if (draining){
+                        //Beim Beenden wird nicht auf weitere Anfragen gewartet
+                        break;
+                    }
+
+                    //Eine HTTP/2 Verbindung mit Vorwissen beginnt statt der ersten Anfrage mit dem Präfix
+                    if (served == 0 && ServerConfig.HTTP2 && in.startsWith(Http2Connection.PREFACE)){
+                        serveHttp2(client, in, input, out, timeout, Http2Connection.open(client.getInetAddress()));
+                        break;
+                    }
+
+                    Request request = in.next();
+
+                    idle.remove(client);
+
+                    if (request.isEmpty()){
+                        //Verbindung wurde vom Nutzer geschlossen
+                        break;
+                    }
+
+                    if (Http2Connection.isUpgrade(request) && !draining){
+                        serveHttp2(client, in, input, out, timeout, Http2Connection.upgrade(client.getInetAddress(), request));
+                        break;
+                    }
+
+                    long start = System.nanoTime();
+
+                    timeout.write(System.currentTimeMillis(), 0);
+
+                    if (!limiter.acquireRequest(client.getInetAddress())){
+                        //Zu viele Anfragen des Nutzers, die vorab erstellte Antwort schließt die Verbindung
+                        int sent = Response.sendStatusResponse(out, ResponseCode.TOO_MANY_REQUESTS_429);
+
+                        accessLog.log(client.getInetAddress(), request, ResponseCode.TOO_MANY_REQUESTS_429, sent, start);
+                        break;
+                    }
+
+                    BodyDecoder decoder = BodyDecoder.forRequest(request);
+
+                    if (decoder != null){
+                        readBody(in, out, request, decoder, timeout);
+
+                        start = System.nanoTime();
+                        timeout.write(System.currentTimeMillis(), 0);
+                    }
+
+                    served++;
+
+                    boolean keepAlive = request.isKeepAlive() && served < ServerConfig.KEEP_ALIVE_MAX && !draining;
+
+                    Response response = new Response(request, out, keepAlive);
+                    response.setBodyChannel(client.getChannel());
+                    response.setLengthListener(length -> timeout.write(System.currentTimeMillis(), length));
+
+                    try {
+                        response.sendResponse();
+                    } finally {
+                        if (decoder != null){
+                            decoder.getBody().close();
+                        }
+                    }
+
+                    //Ein Körper ohne Länge unter HTTP/1.0 endet mit der Verbindung
+                    keepAlive = response.isKeepAlive();
+
+                    //Liegt der Kopf der nächsten Anfrage bereits vollständig vor (Pipelining), so wird diese vor dem
+                    //Leeren des Puffers beantwortet. Sonst könnte das Lesen blockieren während die Antwort im Puffer liegt
+                    if (!keepAlive || !in.hasBufferedRequest()){
+                        out.flush();
+                    }
+
+                    ServerMetrics.getInstance().recordRequest(request.getRequestMethod(), response.getResponseCode(), response.getResponseLength(), start);
+                    accessLog.log(client.getInetAddress(), request, response.getResponseCode(), response.getResponseLength(), start);
+
+                    if (!keepAlive){
+                        break;
+                    }
+                }
+
+            } catch (SocketException | ClosedChannelException e) {
+                //Verbindung wurde vom Nutzer abgebrochen, wegen Zeitüberschreitung oder beim Beenden geschlossen
+            } catch (RequestParseException e) {
+                //Fehlerhafter Anfragekopf
+
+                long start = System.nanoTime();
+                int sent = Response.sendStatusResponse(out, e.getResponseCode());
+
+                accessLog.log(client.getInetAddress(), null, e.getResponseCode(), sent, start);
+            } catch (Exception e) {
+                //Unerwarteter Fehler aufgetreten
+
+                long start = System.nanoTime();
+                int sent = Response.sendErrorResponse(out, e);
+
+                accessLog.log(client.getInetAddress(), null, ResponseCode.INTERNAL_SERVER_ERROR_500, sent, start);
+            }
+        } catch (IOException e) {
+            //Verbindung wurde vom Nutzer abgebrochen
+        } finally {
+            timeout.cancel();
+            close(client);
+        }
+    }
+
+    /**
+     * Liest den Körper einer Anfrage vollständig, große Körper landen dabei in einer temporären Datei. Wartet der
+     * Nutzer auf "100 Continue", so wird dieses vorher gesendet.
+     *
+     * @param in Reader der Verbindung
+     * @param out Ausgabestrom der Verbindung
+     * @param request Anfrage mit vollständigem Kopf
+     * @param decoder Decoder des Körpers
+     * @param timeout Frist der Verbindung
+     *
+     * @throws IOException Wird geworfen falls Lesen oder Schreiben fehlschlägt
+     * @throws RequestParseException Wird geworfen falls der Körper fehlerhaft oder zu groß ist
+     */
+    private void readBody(RequestReader in, OutputStream out, Request request, BodyDecoder decoder,
+                          ConnectionTimeout timeout) throws IOException, RequestParseException {
+        long bodyStart = System.currentTimeMillis();
+
+        timeout.body(bodyStart, decoder.getLength());
+
+        if (decoder.isChunked()){
+            //Die Länge ist unbekannt, die Frist wächst daher mit den empfangenen Bytes
+            decoder.setProgressListener(received -> timeout.body(bodyStart, received));
+        }
+
+        //Hat der Nutzer den Körper bereits gesendet, so wartet er nicht mehr auf die Bestätigung
+        if (request.expectsContinue() && !in.hasBuffered()){
+            out.write(HeaderTemplates.CONTINUE);
+        }
+
+        //Vorherige Antworten dürfen nicht im Puffer liegen, während auf den Körper gewartet wird
+        out.flush();
+
+        try {
+            in.readBody(decoder);
+        } catch (IOException | RequestParseException e) {
+            decoder.getBody().close();
+            throw e;
+        }
+
+        request.setBody(decoder.getBody());
+    }
+
+    /**
+     * Beantwortet die Streams einer HTTP/2 Verbindung bis diese endet. Der Thread sendet nach jedem Lesen die
+     * gesamte Ausgabe, die Antworten der bis dahin empfangenen Streams werden dabei abwechselnd gesendet. Die Frist
+     * für das Senden beginnt neu, sobald weitere Antworten hinzukommen.
+     *
+     * @param client Verbindung zum Nutzer
+     * @param reader Reader mit den bereits gelesenen Bytes der HTTP/2 Verbindung
+     * @param in Überwachter Eingabestrom der Verbindung
+     * @param out Ausgabestrom der Verbindung
+     * @param timeout Frist der Verbindung
+     * @param connection HTTP/2 Verbindung
+     *
+     * @throws IOException Wird geworfen falls Lesen oder Schreiben fehlschlägt
+     */
+    private void serveHttp2(Socket client, RequestReader reader, InputStream in, OutputStream out,
+                            ConnectionTimeout timeout, Http2Connection connection) throws IOException {
+        byte[] buffered = reader.takeBuffered();
+        ByteBuffer input = ByteBuffer.allocate(Math.max(Http2Connection.INPUT_BUFFER_SIZE, buffered.length * 2));
+        input.put(buffered);
+
+        boolean wasIdle = false;
+        long lastPending = 0;
+
+        try {
+            while (true){
+                input.flip();
+                connection.receive(input);
+                input.compact();
+
+                if (draining && connection.isIdle()){
+                    connection.shutdown();
+                }
+
+                ByteBuffer output;
+                while ((output = connection.output()) != null){
+                    out.write(output.array(), output.position(), output.remaining());
+                    output.position(output.limit());
+                }
+
+                out.flush();
+
+                if (connection.isClosed() || (draining && connection.isIdle())){
+                    break;
+                }
+
+                long now = System.currentTimeMillis();
+
+                if (connection.isIdle()){
+                    if (!wasIdle){
+                        wasIdle = true;
+                        lastPending = 0;
+                        timeout.idle(now);
+                    }
+
+                    idle.add(client);
+                }else {
+                    long pending = connection.getPendingLength();
+
+                    if (wasIdle || pending > lastPending){
+                        wasIdle = false;
+                        timeout.write(now, pending);
+                    }
+
+                    lastPending = pending;
+                }
+
+                int read = in.read(input.array(), input.position(), input.remaining());
+
+                idle.remove(client);
+
+                if (read == -1){
+                    break;
+                }
+
+                input.position(input.position() + read);
+            }
+        } finally {
+            connection.close();
+        }
+    }
+
+    /**
+     * Lehnt eine Verbindung bei Überlastung mit 503 ab
+     *
+     * @param client Verbindung zum Nutzer
+     */
+    private void rejectClient(Socket client) {
+        ServerMetrics.getInstance().recordRejection(RejectionType.OVERLOAD);
+
+        try {
+            long start = System.nanoTime();
+            int sent = Response.sendStatusResponse(client.getOutputStream(), ResponseCode.SERVICE_UNAVAILABLE_503);
+
+            accessLog.log(client.getInetAddress(), null, ResponseCode.SERVICE_UNAVAILABLE_503, sent, start);
+        } catch (IOException e) {
+            //Verbindung wurde vom Nutzer abgebrochen
+        } finally {
+            close(client);
+        }
+    }
+
+    /**
+     * Lehnt eine Verbindung oberhalb von {@link ServerConfig#LIMIT_CONNECTIONS} mit 503 ab. Die Verbindung wurde
+     * noch nicht gezählt und wird direkt geschlossen.
+     *
+     * @param client Verbindung zum Nutzer
+     */
+    private void refuseClient(Socket client) {
+        try {
+            long start = System.nanoTime();
+            int sent = Response.sendStatusResponse(client.getOutputStream(), ResponseCode.SERVICE_UNAVAILABLE_503);
+
+            accessLog.log(client.getInetAddress(), null, ResponseCode.SERVICE_UNAVAILABLE_503, sent, start);
+        } catch (IOException e) {
+            //Verbindung wurde vom Nutzer abgebrochen
+        } finally {
+            try {
+                client.close();
+            } catch (IOException e) {
+                //Verbindung ist bereits geschlossen
+            }
+        }
+    }
+
+    /**
+     * Bricht eine Verbindung bei Zeitüberschreitung ab. Ein laufendes FileChannel.transferTo bemerkt das Schließen
+     * des Kanals nicht, daher wird vorher die Senderichtung beendet. Noch gepufferte Antworten werden vorher gesendet,
+     * außer die Frist eines Schreibvorgangs ist abgelaufen, da dieser den Puffer noch hält.
+     *
+     * @param client Verbindung zum Nutzer
+     * @param out Gepufferter Ausgabestrom der Verbindung
+     * @param phase Abgelaufene Phase
+     */
+    private void abort(Socket client, OutputStream out, TimeoutType phase) {
+        if (phase != TimeoutType.WRITE){
+            try {
+                out.flush();
+            } catch (IOException e) {
+                //Verbindung ist bereits geschlossen
+            }
+        }
+
+        try {
+            client.shutdownOutput();
+        } catch (IOException e) {
+            //Verbindung ist bereits geschlossen
+        }
+
+        close(client);
+    }
+
+    /**
+     * Schließt eine Verbindung
+     *
+     * @param client Verbindung zum Nutzer
+     */
+    private void close(Socket client) {
+        if (!connections.remove(client)){
+            //Verbindung wurde bereits beim Beenden geschlossen
+            return;
+        }
+
+        idle.remove(client);
+        limiter.closeConnection(client.getInetAddress());
+        ServerMetrics.getInstance().connectionClosed();
+
+        try {
+            client.close();
+        } catch (IOException e) {
+            //Verbindung ist bereits geschlossen
+        }
+    }
+
+    @Override
+    public boolean shutdown(long timeout) {
+        draining = true;
+
+        listeners.forEach(this::closeListener);
+        idle.forEach(this::close);
+
+        long deadline = System.currentTimeMillis() + timeout;
+
+        try {
+            while (!connections.isEmpty() && System.currentTimeMillis() < deadline){
+                Thread.sleep(DRAIN_POLL_INTERVAL);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        boolean drained = connections.isEmpty();
+
+        stop();
+
+        return drained;
+    }
+
+    @Override
+    public void stop() {
+        online = false;
+        draining = true;
+
+        for (ClientExecutor executor : executors){
+            executor.shutdown();
+        }
+
+        listeners.forEach(this::closeListener);
+        connections.forEach(this::close);
+    }
+
+    @Override
+    public String getName() {
+        return "blocking";
+    }
+
+    @Override
+    public String describe() {
+        StringBuilder builder = new StringBuilder();
+
+        for (int i = 0; i < executors.length; i++){
+            if (executors.length > 1){
+                builder.append("Acceptor ").append(i).append(": ");
+            }
+
+            builder.append(executors[i].describe()).append('\n');
+        }
+
+        builder.append("Acceptors: ").append(executors.length).append(" (accepted: ");
+
+        for (int i = 0; i < accepted.length; i++){
+            builder.append(i == 0 ? "" : ", ").append(accepted[i].sum());
+        }
+
+        return builder.append("), open connections: ").append(connections.size())
+                .append(", listening on: ").append(SocketTuning.describePorts(listeners)).toString();
+    }
+}
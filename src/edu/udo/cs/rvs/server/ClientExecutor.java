@@ -0,0 +1,254 @@
+package edu.udo.cs.rvs.server;
+
+import edu.udo.cs.rvs.ServerConfig;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Führt die Verarbeitung der Verbindungen der blockierenden Engine aus. Je nach Modus wird pro Verbindung
+ * ein neuer Thread gestartet, ein begrenzter Thread-Pool genutzt oder ein virtueller Thread gestartet.
+ */
+public class ClientExecutor {
+
+    /**
+     * Ausführungsmodi
+     */
+    private enum Mode {
+        THREAD, POOL, VIRTUAL
+    }
+
+    /**
+     * Gewählter Modus
+     */
+    private final Mode mode;
+
+    /**
+     * Begrenzter Thread-Pool im Modus POOL
+     */
+    private ThreadPoolExecutor pool;
+
+    /**
+     * Executor für virtuelle Threads im Modus VIRTUAL
+     */
+    private ExecutorService virtualExecutor;
+
+    /**
+     * Wenn wahr, dann wird bei vollem Pool im annehmenden Thread gearbeitet statt mit 503 abzulehnen
+     */
+    private final boolean callerRuns;
+
+    /**
+     * Anzahl der aktuell laufenden Verbindungen in den Modi THREAD und VIRTUAL
+     */
+    private final AtomicInteger active = new AtomicInteger();
+
+    /**
+     * Anzahl der abgelehnten Verbindungen
+     */
+    private final AtomicInteger rejected = new AtomicInteger();
+
+    /**
+     * Erstellt den Executor aus der {@link ServerConfig}
+     */
+    public ClientExecutor() {
+        this(1, "worker");
+    }
+
+    /**
+     * Erstellt einen von mehreren Executoren aus der {@link ServerConfig}. Threads und Warteschlange des Pools
+     * werden gleichmäßig auf die Executoren aufgeteilt.
+     *
+     * @param shares Anzahl der Executoren
+     * @param name Präfix der Namen der Threads im Pool
+     */
+    public ClientExecutor(int shares, String name) {
+        this(ServerConfig.EXECUTOR, divide(ServerConfig.POOL_SIZE, shares), divide(ServerConfig.POOL_QUEUE, shares),
+                ServerConfig.POOL_REJECT.equalsIgnoreCase("caller"), name);
+    }
+
+    /**
+     * Erstellt den Executor
+     *
+     * @param modeName Name des Modus (thread, pool oder virtual)
+     * @param poolSize Anzahl der Threads im Pool
+     * @param queueSize Länge der Warteschlange des Pools
+     * @param callerRuns Wenn wahr wird bei vollem Pool im annehmenden Thread gearbeitet, sonst mit 503 abgelehnt
+     * @param name Präfix der Namen der Threads im Pool
+     */
+    public ClientExecutor(String modeName, int poolSize, int queueSize, boolean callerRuns, String name) {
+        this.callerRuns = callerRuns;
+
+        Mode selected;
+        try {
+            selected = Mode.valueOf(modeName.toUpperCase());
+        }catch (IllegalArgumentException e){
+            System.out.println("Unknown executor " + modeName + ". Using thread.");
+
+            selected = Mode.THREAD;
+        }
+
+        if (selected == Mode.VIRTUAL){
+            virtualExecutor = createVirtualExecutor();
+
+            if (virtualExecutor == null){
+                System.out.println("Virtual threads are not supported by this Java version. Using thread.");
+
+                selected = Mode.THREAD;
+            }
+        }
+
+        if (selected == Mode.POOL){
+            AtomicInteger threadNumber = new AtomicInteger();
+
+            pool = new ThreadPoolExecutor(Math.max(1, poolSize), Math.max(1, poolSize), 60, TimeUnit.SECONDS,
+                    queueSize > 0 ? new ArrayBlockingQueue<>(queueSize) : new SynchronousQueue<>(),
+                    r -> new Thread(r, name + "-" + threadNumber.incrementAndGet()),
+                    new ThreadPoolExecutor.AbortPolicy());
+        }
+
+        mode = selected;
+    }
+
+    /**
+     * Teilt einen Wert auf mehrere Executoren auf
+     *
+     * @param value Gesamtwert
+     * @param shares Anzahl der Executoren
+     *
+     * @return Aufgerundeter Anteil eines Executors
+     */
+    private static int divide(int value, int shares) {
+        return (value + shares - 1) / shares;
+    }
+
+    /**
+     * Erstellt per Reflection einen Executor für virtuelle Threads, da diese erst ab Java 21 verfügbar sind
+     *
+     * @return Executor oder null falls nicht verfügbar
+     */
+    private static ExecutorService createVirtualExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Führt die Verarbeitung einer Verbindung aus
+     *
+     * @param task Verarbeitung der Verbindung
+     * @param onRejected Wird im aufrufenden Thread ausgeführt falls die Verbindung abgelehnt wird
+     */
+    public void execute(Runnable task, Runnable onRejected) {
+        switch (mode){
+            case POOL:
+                try {
+                    pool.execute(task);
+                }catch (RejectedExecutionException e){
+                    if (callerRuns && !pool.isShutdown()){
+                        task.run();
+                    }else {
+                        rejected.incrementAndGet();
+
+                        onRejected.run();
+                    }
+                }
+                break;
+            case VIRTUAL:
+                try {
+                    virtualExecutor.execute(counted(task));
+                }catch (RejectedExecutionException e){
+                    rejected.incrementAndGet();
+
+                    onRejected.run();
+                }
+                break;
+            default:
+                new Thread(counted(task)).start();
+                break;
+        }
+    }
+
+    /**
+     * Umschließt die Verarbeitung mit dem Zähler der aktiven Verbindungen
+     *
+     * @param task Verarbeitung der Verbindung
+     *
+     * @return Gezählte Verarbeitung
+     */
+    private Runnable counted(Runnable task) {
+        return () -> {
+            active.incrementAndGet();
+            try {
+                task.run();
+            }finally {
+                active.decrementAndGet();
+            }
+        };
+    }
+
+    /**
+     * Gibt die Anzahl der aktuell arbeitenden Threads zurück
+     *
+     * @return Anzahl der aktiven Threads
+     */
+    public int getActiveCount() {
+        return mode == Mode.POOL ? pool.getActiveCount() : active.get();
+    }
+
+    /**
+     * Gibt die Anzahl der wartenden Verbindungen zurück
+     *
+     * @return Länge der Warteschlange
+     */
+    public int getQueueDepth() {
+        return mode == Mode.POOL ? pool.getQueue().size() : 0;
+    }
+
+    /**
+     * Gibt die Anzahl der abgelehnten Verbindungen zurück
+     *
+     * @return Anzahl der abgelehnten Verbindungen
+     */
+    public int getRejectedCount() {
+        return rejected.get();
+    }
+
+    /**
+     * Beschreibt den aktuellen Zustand für die Konsole
+     *
+     * @return Zustand als String
+     */
+    public String describe() {
+        StringBuilder builder = new StringBuilder();
+
+        builder.append("Executor: ").append(mode.name().toLowerCase());
+
+        if (mode == Mode.POOL){
+            builder.append(" (").append(pool.getMaximumPoolSize()).append(" threads, queue ")
+                    .append(pool.getQueue().size() + pool.getQueue().remainingCapacity()).append(", ")
+                    .append(callerRuns ? "caller runs" : "503 on overload").append(")");
+        }
+
+        builder.append(", active: ").append(getActiveCount());
+        builder.append(", queued: ").append(getQueueDepth());
+        builder.append(", rejected: ").append(getRejectedCount());
+
+        return builder.toString();
+    }
+
+    /**
+     * Beendet den Executor. Laufende Verbindungen werden noch abgearbeitet.
+     */
+    public void shutdown() {
+        if (pool != null){
+            pool.shutdown();
+        }
+
+        if (virtualExecutor != null){
+            virtualExecutor.shutdown();
+        }
+    }
+}
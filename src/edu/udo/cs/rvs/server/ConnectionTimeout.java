@@ -0,0 +1,198 @@
+package edu.udo.cs.rvs.server;
+
+import edu.udo.cs.rvs.ServerConfig;
+import edu.udo.cs.rvs.metrics.ServerMetrics;
+import edu.udo.cs.rvs.metrics.TimeoutType;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.function.Consumer;
+
+/**
+ * Frist einer Verbindung je nach Phase: Warten auf eine neue Anfrage ({@link ServerConfig#KEEP_ALIVE_TIMEOUT}),
+ * Lesen des Kopfes ({@link ServerConfig#HEADER_TIMEOUT}), Lesen des Körpers und Senden der Antwort. Für Körper
+ * und Antwort verlängert sich die Frist um die Zeit welche die Übertragung bei {@link ServerConfig#MIN_RATE} Bytes
+ * pro Sekunde braucht, wer langsamer liest oder sendet wird getrennt.
+ * <p>
+ * Im {@link TimerWheel} ist pro Verbindung höchstens ein Eintrag. Wird die Frist verlängert, bleibt der Eintrag
+ * wo er ist und plant sich bei Fälligkeit neu ein. Nur wenn eine Frist früher endet wird ein neuer Eintrag
+ * eingeplant, der alte erkennt beim Ablauf dass er veraltet ist.
+ */
+class ConnectionTimeout implements TimerWheel.Task {
+
+    /**
+     * Rad in dem die Frist eingeplant ist
+     */
+    private final TimerWheel wheel;
+
+    /**
+     * Trennt die Verbindung bei Ablauf der Frist, erhält die abgelaufene Phase
+     */
+    private final Consumer<TimeoutType> onExpired;
+
+    /**
+     * Aktuelle Phase oder null nach Ablauf bzw. Schließen
+     */
+    private TimeoutType phase;
+
+    /**
+     * Ende der Frist der aktuellen Phase in Millisekunden
+     */
+    private long deadline;
+
+    /**
+     * Zeitpunkt in Millisekunden für den der gültige Eintrag im Rad eingeplant ist
+     */
+    private long armed = Long.MAX_VALUE;
+
+    /**
+     * Erstellt die Frist einer Verbindung, beginnend mit dem Warten auf die erste Anfrage
+     *
+     * @param wheel Rad in dem die Frist eingeplant wird
+     * @param onExpired Trennt die Verbindung bei Ablauf der Frist, erhält die abgelaufene Phase
+     */
+    ConnectionTimeout(TimerWheel wheel, Consumer<TimeoutType> onExpired) {
+        this.wheel = wheel;
+        this.onExpired = onExpired;
+
+        idle(System.currentTimeMillis());
+    }
+
+    /**
+     * Beginnt das Warten auf eine neue Anfrage
+     *
+     * @param now Aktuelle Zeit in Millisekunden
+     */
+    synchronized void idle(long now) {
+        set(TimeoutType.IDLE, now + ServerConfig.KEEP_ALIVE_TIMEOUT);
+    }
+
+    /**
+     * Zeichnet empfangene Bytes auf. Beim ersten Byte einer neuen Anfrage beginnt das Lesen des Kopfes.
+     *
+     * @param now Aktuelle Zeit in Millisekunden
+     */
+    synchronized void received(long now) {
+        if (phase == TimeoutType.IDLE){
+            set(TimeoutType.HEADER, now + ServerConfig.HEADER_TIMEOUT);
+        }
+    }
+
+    /**
+     * Beginnt das Lesen eines Körpers
+     *
+     * @param now Aktuelle Zeit in Millisekunden
+     * @param length Länge des Körpers in Bytes
+     */
+    synchronized void body(long now, long length) {
+        set(TimeoutType.BODY, now + ServerConfig.BODY_TIMEOUT + transferTime(length));
+    }
+
+    /**
+     * Beginnt das Senden einer Antwort
+     *
+     * @param now Aktuelle Zeit in Millisekunden
+     * @param length Länge der Antwort in Bytes, 0 solange sie nicht bekannt ist
+     */
+    synchronized void write(long now, long length) {
+        set(TimeoutType.WRITE, now + ServerConfig.WRITE_TIMEOUT + transferTime(length));
+    }
+
+    /**
+     * Beendet die Überwachung, der Eintrag im Rad wird bei Fälligkeit entfernt
+     */
+    synchronized void cancel() {
+        phase = null;
+        armed = Long.MIN_VALUE;
+    }
+
+    /**
+     * Gibt die Phase zurück
+     *
+     * @return Phase oder null nach Ablauf bzw. Schließen
+     */
+    synchronized TimeoutType getPhase() {
+        return phase;
+    }
+
+    /**
+     * Setzt Phase und Frist und plant einen neuen Eintrag ein falls die Frist vor dem aktuellen Eintrag endet
+     *
+     * @param phase Neue Phase
+     * @param deadline Ende der Frist in Millisekunden
+     */
+    private void set(TimeoutType phase, long deadline) {
+        if (armed == Long.MIN_VALUE){
+            //Frist ist bereits abgelaufen oder die Verbindung geschlossen
+            return;
+        }
+
+        this.phase = phase;
+        this.deadline = deadline;
+
+        if (deadline < armed){
+            armed = deadline;
+            wheel.schedule(this, deadline);
+        }
+    }
+
+    /**
+     * Berechnet die Zeit für eine Übertragung bei der Mindestrate
+     *
+     * @param length Länge in Bytes
+     *
+     * @return Zeit in Millisekunden, 0 falls keine Mindestrate gesetzt ist
+     */
+    private static long transferTime(long length) {
+        return ServerConfig.MIN_RATE > 0 ? length * 1000 / ServerConfig.MIN_RATE : 0;
+    }
+
+    @Override
+    public long expire(long now, long scheduled) {
+        TimeoutType expired;
+
+        synchronized (this){
+            if (phase == null || scheduled != armed){
+                //Verbindung geschlossen oder Eintrag durch einen früheren ersetzt
+                return -1;
+            }
+
+            if (now < deadline){
+                armed = deadline;
+                return deadline;
+            }
+
+            expired = phase;
+            phase = null;
+            armed = Long.MIN_VALUE;
+        }
+
+        ServerMetrics.getInstance().recordTimeout(expired);
+        onExpired.accept(expired);
+
+        return -1;
+    }
+
+    /**
+     * Umschließt den Eingabestrom einer blockierenden Verbindung, so dass empfangene Bytes aufgezeichnet werden
+     *
+     * @param in Eingabestrom der Verbindung
+     *
+     * @return Überwachter Eingabestrom
+     */
+    InputStream watch(InputStream in) {
+        return new FilterInputStream(in) {
+            @Override
+            public int read(byte[] buffer, int offset, int length) throws IOException {
+                int read = super.read(buffer, offset, length);
+
+                if (read > 0){
+                    received(System.currentTimeMillis());
+                }
+
+                return read;
+            }
+        };
+    }
+}
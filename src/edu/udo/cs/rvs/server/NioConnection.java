@@ -0,0 +1,724 @@
+package edu.udo.cs.rvs.server;
+
+import edu.udo.cs.rvs.HTTPVersion;
+import edu.udo.cs.rvs.ServerConfig;
+import edu.udo.cs.rvs.http2.Http2Connection;
+import edu.udo.cs.rvs.log.AccessLog;
+import edu.udo.cs.rvs.metrics.ServerMetrics;
+import edu.udo.cs.rvs.request.BodyDecoder;
+import edu.udo.cs.rvs.request.Request;
+import edu.udo.cs.rvs.request.RequestBody;
+import edu.udo.cs.rvs.request.RequestMethod;
+import edu.udo.cs.rvs.request.RequestParseException;
+import edu.udo.cs.rvs.request.RequestParser;
+import edu.udo.cs.rvs.response.ChannelBody;
+import edu.udo.cs.rvs.response.HeaderTemplates;
+import edu.udo.cs.rvs.response.Response;
+import edu.udo.cs.rvs.response.ResponseBuffer;
+import edu.udo.cs.rvs.response.ResponseCode;
+import edu.udo.cs.rvs.response.StreamBody;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+
+/**
+ * Zustand einer Verbindung der {@link NioServerEngine}. Die Anfrage wird aus nicht blockierenden
+ * Lesevorgängen zusammengesetzt und die Antwort in nicht blockierenden Schreibvorgängen versendet.
+ */
+class NioConnection {
+
+    /**
+     * Startgröße des Lesepuffers
+     */
+    private static final int INITIAL_BUFFER_SIZE = 4096;
+
+    /**
+     * Kanal zum Nutzer
+     */
+    private final SocketChannel channel;
+
+    /**
+     * Engine der Verbindung
+     */
+    private final NioServerEngine engine;
+
+    /**
+     * Bisher gelesene Bytes der Anfrage
+     */
+    private ByteBuffer readBuffer = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+
+    /**
+     * Noch zu sendende Bytes der Antwort
+     */
+    private ByteBuffer writeBuffer;
+
+    /**
+     * Wiederverwendbarer Puffer für den Kopf der aktuellen Antwort
+     */
+    private final ResponseBuffer out = new ResponseBuffer();
+
+    /**
+     * Noch zu sendender Körper aus einer Datei bzw. gemappten Puffern oder null
+     */
+    private ChannelBody body;
+
+    /**
+     * Parser des Anfragekopfes, arbeitet direkt auf dem Lesepuffer
+     */
+    private final RequestParser parser = new RequestParser(ServerConfig.MAX_REQUEST_LINE, ServerConfig.MAX_HEADER_SIZE);
+
+    /**
+     * Decoder des Körpers der aktuellen Anfrage solange dieser gelesen wird, sonst null
+     */
+    private BodyDecoder bodyDecoder;
+
+    /**
+     * Anfrage deren Körper gelesen wird, ihr Kopf bleibt bis dahin am Anfang des Lesepuffers
+     */
+    private Request bodyRequest;
+
+    /**
+     * Ende des Kopfes der Anfrage deren Körper gelesen wird, dahinter folgen die noch nicht verarbeiteten Bytes
+     */
+    private int bodyHeadEnd;
+
+    /**
+     * Körper der aktuellen Anfrage bis ihre Antwort gesendet ist oder null
+     */
+    private RequestBody requestBody;
+
+    /**
+     * Anzahl der bisher beantworteten Anfragen auf dieser Verbindung
+     */
+    private int served;
+
+    /**
+     * Wenn wahr, dann bleibt die Verbindung nach der aktuellen Antwort offen
+     */
+    private boolean keepAlive;
+
+    /**
+     * Frist der aktuellen Phase der Verbindung
+     */
+    private ConnectionTimeout timeout;
+
+    /**
+     * Zeitpunkt ({@link System#nanoTime()}) an dem die aktuelle Anfrage vollständig gelesen war
+     */
+    private long requestStart;
+
+    /**
+     * Methode der aktuellen Anfrage
+     */
+    private RequestMethod requestMethod;
+
+    /**
+     * Ziel der aktuellen Anfrage für das Zugriffsprotokoll, der Puffer der Anfrage ist beim Ende der Antwort
+     * bereits überschrieben
+     */
+    private String requestTarget;
+
+    /**
+     * HTTP Version der aktuellen Anfrage für das Zugriffsprotokoll
+     */
+    private HTTPVersion requestVersion;
+
+    /**
+     * Referer Header der aktuellen Anfrage für das Zugriffsprotokoll
+     */
+    private String requestReferer;
+
+    /**
+     * User-Agent Header der aktuellen Anfrage für das Zugriffsprotokoll
+     */
+    private String requestUserAgent;
+
+    /**
+     * Status Code der aktuellen Antwort oder null falls sie nicht aufgezeichnet wird
+     */
+    private ResponseCode responseCode;
+
+    /**
+     * Anzahl der Bytes der aktuellen Antwort
+     */
+    private long responseLength;
+
+    /**
+     * HTTP/2 Verbindung nach dem Präfix bzw. Upgrade oder null solange HTTP/1.x gesprochen wird
+     */
+    private Http2Connection http2;
+
+    /**
+     * Wenn wahr, dann hat die HTTP/2 Verbindung keine offenen Streams und die Frist wartet auf neue
+     */
+    private boolean http2Idle;
+
+    /**
+     * Noch zu sendende Bytes der HTTP/2 Verbindung bei der letzten Bemessung der Frist
+     */
+    private long http2Pending;
+
+    /**
+     * Verbindung wurde geschlossen
+     */
+    private boolean closed;
+
+    /**
+     * Erstellt den Zustand einer Verbindung
+     *
+     * @param channel Kanal zum Nutzer
+     * @param engine Engine der Verbindung
+     */
+    NioConnection(SocketChannel channel, NioServerEngine engine) {
+        this.channel = channel;
+        this.engine = engine;
+    }
+
+    /**
+     * Beginnt die Überwachung der Frist nach dem Registrieren beim Selector
+     *
+     * @param key Schlüssel der Verbindung
+     * @param wheel Timer Wheel des Event-Loops
+     */
+    void start(SelectionKey key, TimerWheel wheel) {
+        timeout = new ConnectionTimeout(wheel, phase -> close(key));
+    }
+
+    /**
+     * Liest verfügbare Bytes und verarbeitet die Anfrage sobald der Kopf vollständig ist
+     *
+     * @param key Schlüssel der Verbindung
+     *
+     * @throws IOException Wird geworfen falls das Lesen fehlschlägt
+     */
+    void onRead(SelectionKey key) throws IOException {
+        if (!readBuffer.hasRemaining()){
+            //Der Parser lehnt Köpfe ab welche größer als MAX_HEADER_SIZE sind, bevor der Puffer weiter wächst
+            ByteBuffer bigger = ByteBuffer.allocate(readBuffer.capacity() * 2);
+            readBuffer.flip();
+            bigger.put(readBuffer);
+            readBuffer = bigger;
+        }
+
+        int read = channel.read(readBuffer);
+
+        if (read == -1){
+            close(key);
+            return;
+        }
+
+        if (read > 0){
+            timeout.received(System.currentTimeMillis());
+        }
+
+        if (http2 != null){
+            handleHttp2(key);
+            return;
+        }
+
+        if (bodyDecoder != null){
+            readBody(key);
+            return;
+        }
+
+        parseRequest(key);
+    }
+
+    /**
+     * Sendet weitere Bytes der Antwort sobald der Kanal bereit ist
+     *
+     * @param key Schlüssel der Verbindung
+     *
+     * @throws IOException Wird geworfen falls das Schreiben fehlschlägt
+     */
+    void onWrite(SelectionKey key) throws IOException {
+        if (http2 != null){
+            writeHttp2(key);
+            return;
+        }
+
+        if (writeBuffer != null){
+            channel.write(writeBuffer);
+
+            if (writeBuffer.hasRemaining()){
+                return;
+            }
+
+            writeBuffer = null;
+        }
+
+        if (body != null){
+            body.transferTo(channel);
+
+            if (!body.isDone()){
+                return;
+            }
+
+            if (body instanceof StreamBody){
+                responseLength += ((StreamBody) body).getTransferred();
+            }
+
+            body.close();
+            body = null;
+        }
+
+        if (requestBody != null){
+            requestBody.close();
+            requestBody = null;
+        }
+
+        if (responseCode != null){
+            ServerMetrics.getInstance().recordRequest(requestMethod, responseCode, responseLength, requestStart);
+            engine.getAccessLog().log(channel.socket().getInetAddress(), requestMethod, requestTarget, requestVersion,
+                    requestReferer, requestUserAgent, responseCode, responseLength, requestStart);
+            responseCode = null;
+        }
+
+        if (!keepAlive){
+            close(key);
+            return;
+        }
+
+        timeout.idle(System.currentTimeMillis());
+
+        //Bereits gesendete Anfragen (Pipelining) werden der Reihe nach beantwortet
+        key.interestOps(SelectionKey.OP_READ);
+        parseRequest(key);
+    }
+
+    /**
+     * Prüft ob die Verbindung auf eine neue Anfrage wartet, also weder eine Antwort sendet noch eine Anfrage begonnen hat
+     *
+     * @return Wahr wenn die Verbindung ohne Verlust einer Anfrage geschlossen werden kann
+     */
+    boolean isIdle() {
+        if (http2 != null){
+            return http2.isIdle();
+        }
+
+        return writeBuffer == null && body == null && bodyDecoder == null && !parser.hasStarted(readBuffer.position());
+    }
+
+    /**
+     * Liest den Anfragekopf im Puffer weiter und verarbeitet die Anfrage sobald er vollständig ist
+     *
+     * @param key Schlüssel der Verbindung
+     *
+     * @throws IOException Wird geworfen falls das Schreiben fehlschlägt
+     */
+    private void parseRequest(SelectionKey key) throws IOException {
+        int headEnd;
+
+        //Eine HTTP/2 Verbindung mit Vorwissen beginnt statt der ersten Anfrage mit dem Präfix
+        if (served == 0 && ServerConfig.HTTP2 && Http2Connection.startsWithPreface(readBuffer.array(), 0, readBuffer.position())){
+            if (readBuffer.position() >= Http2Connection.PREFACE.length){
+                startHttp2(key, Http2Connection.open(channel.socket().getInetAddress()));
+            }
+
+            return;
+        }
+
+        try {
+            headEnd = parser.parse(readBuffer.array(), readBuffer.position());
+        } catch (RequestParseException e) {
+            //Fehlerhafter Anfragekopf
+
+            out.reset();
+            int sent = Response.sendStatusResponse(out, e.getResponseCode());
+
+            engine.getAccessLog().log(channel.socket().getInetAddress(), null, e.getResponseCode(), sent, System.nanoTime());
+
+            keepAlive = false;
+            startWrite(key);
+
+            return;
+        }
+
+        if (headEnd != RequestParser.NEED_MORE){
+            handleRequest(key, headEnd);
+        }
+    }
+
+    /**
+     * Verarbeitet die Anfrage mit vollständigem Kopf. Hat sie einen Körper, so wird dieser zuerst gelesen,
+     * sonst beginnt direkt das Senden der Antwort.
+     *
+     * @param key Schlüssel der Verbindung
+     * @param headEnd Ende des Anfragekopfes
+     *
+     * @throws IOException Wird geworfen falls das Schreiben fehlschlägt
+     */
+    private void handleRequest(SelectionKey key, int headEnd) throws IOException {
+        out.reset();
+        requestStart = System.nanoTime();
+
+        Request request = null;
+
+        try {
+            request = new Request(readBuffer.array(), parser);
+
+            if (Http2Connection.isUpgrade(request) && !engine.isDraining()){
+                Http2Connection connection = Http2Connection.upgrade(channel.socket().getInetAddress(), request);
+
+                readBuffer.flip();
+                readBuffer.position(headEnd);
+                readBuffer.compact();
+                parser.reset(0);
+
+                startHttp2(key, connection);
+
+                return;
+            }
+
+            if (!engine.getLimiter().acquireRequest(channel.socket().getInetAddress())){
+                //Zu viele Anfragen des Nutzers, die vorab erstellte Antwort schließt die Verbindung
+                keepAlive = false;
+
+                int sent = Response.sendStatusResponse(out, ResponseCode.TOO_MANY_REQUESTS_429);
+
+                engine.getAccessLog().log(channel.socket().getInetAddress(), request, ResponseCode.TOO_MANY_REQUESTS_429, sent, requestStart);
+            }else {
+                BodyDecoder decoder = BodyDecoder.forRequest(request);
+
+                if (decoder != null){
+                    startBody(key, request, headEnd, decoder);
+                    return;
+                }
+
+                respond(request);
+            }
+        } catch (RequestParseException e) {
+            //Fehlerhafte Angabe des Körpers, dieser wird nicht gelesen und die Verbindung geschlossen
+            sendBodyError(request, e);
+        } catch (Exception e) {
+            sendError(e);
+        }
+
+        finishRequest(key, headEnd);
+    }
+
+    /**
+     * Beginnt das Lesen eines Körpers. Wartet der Nutzer auf "100 Continue", so wird dieses vorher gesendet.
+     *
+     * @param key Schlüssel der Verbindung
+     * @param request Anfrage mit vollständigem Kopf
+     * @param headEnd Ende des Anfragekopfes
+     * @param decoder Decoder des Körpers
+     *
+     * @throws IOException Wird geworfen falls Lesen oder Schreiben fehlschlägt
+     */
+    private void startBody(SelectionKey key, Request request, int headEnd, BodyDecoder decoder) throws IOException {
+        bodyDecoder = decoder;
+        bodyRequest = request;
+        bodyHeadEnd = headEnd;
+
+        long bodyStart = System.currentTimeMillis();
+
+        timeout.body(bodyStart, decoder.getLength());
+
+        if (decoder.isChunked()){
+            //Die Länge ist unbekannt, die Frist wächst daher mit den empfangenen Bytes
+            decoder.setProgressListener(received -> timeout.body(bodyStart, received));
+        }
+
+        //Hat der Nutzer den Körper bereits gesendet, so wartet er nicht mehr auf die Bestätigung. Die vorherige
+        //Antwort ist vollständig gesendet, die wenigen Bytes passen daher immer in den Sendepuffer.
+        if (request.expectsContinue() && readBuffer.position() == headEnd){
+            channel.write(ByteBuffer.wrap(HeaderTemplates.CONTINUE));
+        }
+
+        readBody(key);
+    }
+
+    /**
+     * Übergibt die gelesenen Bytes an den Decoder des Körpers und beantwortet die Anfrage sobald dieser
+     * vollständig ist. Der Kopf der Anfrage bleibt dabei am Anfang des Lesepuffers.
+     *
+     * @param key Schlüssel der Verbindung
+     *
+     * @throws IOException Wird geworfen falls Schreiben oder Speichern des Körpers fehlschlägt
+     */
+    private void readBody(SelectionKey key) throws IOException {
+        byte[] buffer = readBuffer.array();
+        int count = readBuffer.position() - bodyHeadEnd;
+
+        out.reset();
+
+        try {
+            int consumed = bodyDecoder.feed(buffer, bodyHeadEnd, count);
+
+            //Bytes einer weiteren Anfrage (Pipelining) rücken direkt hinter den Kopf
+            System.arraycopy(buffer, bodyHeadEnd + consumed, buffer, bodyHeadEnd, count - consumed);
+            readBuffer.position(bodyHeadEnd + count - consumed);
+        } catch (RequestParseException e) {
+            bodyDecoder.getBody().close();
+            sendBodyError(bodyRequest, e);
+
+            bodyDecoder = null;
+            bodyRequest = null;
+
+            startWrite(key);
+
+            return;
+        }
+
+        if (!bodyDecoder.isDone()){
+            return;
+        }
+
+        Request request = bodyRequest;
+
+        requestBody = bodyDecoder.getBody();
+        request.setBody(requestBody);
+
+        bodyDecoder = null;
+        bodyRequest = null;
+
+        requestStart = System.nanoTime();
+
+        try {
+            respond(request);
+        } catch (Exception e) {
+            sendError(e);
+        }
+
+        finishRequest(key, bodyHeadEnd);
+    }
+
+    /**
+     * Erstellt die Antwort auf eine vollständig gelesene Anfrage
+     *
+     * @param request Anfrage
+     *
+     * @throws Exception Wird geworfen falls die Antwort nicht erstellt werden kann
+     */
+    private void respond(Request request) throws Exception {
+        served++;
+        keepAlive = request.isKeepAlive() && served < ServerConfig.KEEP_ALIVE_MAX && !engine.isDraining();
+
+        Response response = new Response(request, out, keepAlive);
+        response.setDeferChannelBody(true);
+        response.setLengthListener(length -> timeout.write(System.currentTimeMillis(), length));
+
+        response.sendResponse();
+
+        //Ein Körper ohne Länge unter HTTP/1.0 endet mit der Verbindung
+        keepAlive = response.isKeepAlive();
+        body = response.getChannelBody();
+
+        requestMethod = request.getRequestMethod();
+        responseCode = response.getResponseCode();
+        responseLength = response.getResponseLength();
+
+        AccessLog accessLog = engine.getAccessLog();
+
+        if (accessLog.isEnabled()){
+            requestTarget = request.getRequestedPath();
+            requestVersion = request.getHttpVersion();
+            requestReferer = accessLog.isCombined() ? request.getHeader("Referer") : null;
+            requestUserAgent = accessLog.isCombined() ? request.getHeader("User-Agent") : null;
+        }
+    }
+
+    /**
+     * Beantwortet eine Anfrage deren Körper fehlerhaft oder zu groß ist, die Verbindung wird danach geschlossen
+     *
+     * @param request Anfrage oder null
+     * @param e Fehler des Körpers
+     *
+     * @throws IOException Wird geworfen falls das Schreiben fehlschlägt
+     */
+    private void sendBodyError(Request request, RequestParseException e) throws IOException {
+        keepAlive = false;
+
+        out.reset();
+        int sent = Response.sendStatusResponse(out, e.getResponseCode());
+
+        engine.getAccessLog().log(channel.socket().getInetAddress(), request, e.getResponseCode(), sent, requestStart);
+    }
+
+    /**
+     * Beantwortet eine Anfrage bei einem unerwarteten Fehler, die Verbindung wird danach geschlossen
+     *
+     * @param e Fehler
+     *
+     * @throws IOException Wird geworfen falls das Schreiben fehlschlägt
+     */
+    private void sendError(Exception e) throws IOException {
+        //Unerwarteter Fehler aufgetreten
+
+        keepAlive = false;
+        body = null;
+        responseCode = null;
+
+        out.reset();
+        int sent = Response.sendErrorResponse(out, e);
+
+        engine.getAccessLog().log(channel.socket().getInetAddress(), null, ResponseCode.INTERNAL_SERVER_ERROR_500, sent, requestStart);
+    }
+
+    /**
+     * Entfernt die verarbeitete Anfrage aus dem Puffer und beginnt mit dem Senden der Antwort
+     *
+     * @param key Schlüssel der Verbindung
+     * @param end Ende der Anfrage im Puffer
+     *
+     * @throws IOException Wird geworfen falls das Schreiben fehlschlägt
+     */
+    private void finishRequest(SelectionKey key, int end) throws IOException {
+        readBuffer.flip();
+        readBuffer.position(end);
+        readBuffer.compact();
+        parser.reset(0);
+
+        startWrite(key);
+    }
+
+    /**
+     * Beginnt mit dem Senden einer Antwort
+     *
+     * @param key Schlüssel der Verbindung
+     *
+     * @throws IOException Wird geworfen falls das Schreiben fehlschlägt
+     */
+    private void startWrite(SelectionKey key) throws IOException {
+        writeBuffer = out.toByteBuffer();
+
+        timeout.write(System.currentTimeMillis(), writeBuffer.remaining() + (body != null ? body.getRemaining() : 0));
+
+        if (!writeBuffer.hasRemaining() && body == null){
+            close(key);
+            return;
+        }
+
+        key.interestOps(SelectionKey.OP_WRITE);
+        onWrite(key);
+    }
+
+    /**
+     * Wechselt auf HTTP/2, die noch nicht gelesenen Bytes im Puffer gehören bereits zur HTTP/2 Verbindung
+     *
+     * @param key Schlüssel der Verbindung
+     * @param connection HTTP/2 Verbindung
+     *
+     * @throws IOException Wird geworfen falls das Schreiben fehlschlägt
+     */
+    private void startHttp2(SelectionKey key, Http2Connection connection) throws IOException {
+        http2 = connection;
+
+        if (readBuffer.capacity() < Http2Connection.INPUT_BUFFER_SIZE){
+            ByteBuffer bigger = ByteBuffer.allocate(Http2Connection.INPUT_BUFFER_SIZE);
+            readBuffer.flip();
+            bigger.put(readBuffer);
+            readBuffer = bigger;
+        }
+
+        handleHttp2(key);
+    }
+
+    /**
+     * Übergibt die gelesenen Bytes an die HTTP/2 Verbindung und sendet deren Antworten
+     *
+     * @param key Schlüssel der Verbindung
+     *
+     * @throws IOException Wird geworfen falls das Schreiben fehlschlägt
+     */
+    private void handleHttp2(SelectionKey key) throws IOException {
+        readBuffer.flip();
+        http2.receive(readBuffer);
+        readBuffer.compact();
+
+        writeHttp2(key);
+    }
+
+    /**
+     * Sendet die Ausgabe der HTTP/2 Verbindung bis der Kanal voll ist und bemisst danach die Frist. Die Frist für
+     * das Senden beginnt neu, sobald weitere Antworten hinzukommen.
+     *
+     * @param key Schlüssel der Verbindung
+     *
+     * @throws IOException Wird geworfen falls das Schreiben fehlschlägt
+     */
+    private void writeHttp2(SelectionKey key) throws IOException {
+        ByteBuffer buffer;
+
+        while ((buffer = http2.output()) != null){
+            channel.write(buffer);
+
+            if (buffer.hasRemaining()){
+                break;
+            }
+        }
+
+        if (buffer == null && http2.isClosed()){
+            close(key);
+            return;
+        }
+
+        key.interestOps(buffer != null ? SelectionKey.OP_READ | SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+
+        long now = System.currentTimeMillis();
+
+        if (http2.isIdle()){
+            if (!http2Idle){
+                http2Idle = true;
+                http2Pending = 0;
+                timeout.idle(now);
+            }
+
+            return;
+        }
+
+        long pending = http2.getPendingLength();
+
+        if (http2Idle || pending > http2Pending){
+            http2Idle = false;
+            timeout.write(now, pending);
+        }
+
+        http2Pending = pending;
+    }
+
+    /**
+     * Schließt die Verbindung
+     *
+     * @param key Schlüssel der Verbindung
+     */
+    void close(SelectionKey key) {
+        key.cancel();
+
+        if (closed){
+            return;
+        }
+
+        closed = true;
+        timeout.cancel();
+        engine.getLimiter().closeConnection(channel.socket().getInetAddress());
+        ServerMetrics.getInstance().connectionClosed();
+        engine.connectionClosed();
+
+        if (body != null){
+            body.close();
+        }
+
+        if (bodyDecoder != null){
+            bodyDecoder.getBody().close();
+        }
+
+        if (requestBody != null){
+            requestBody.close();
+        }
+
+        if (http2 != null){
+            http2.close();
+        }
+
+        try {
+            channel.close();
+        } catch (IOException e) {
+            //Verbindung ist bereits geschlossen
+        }
+    }
+}
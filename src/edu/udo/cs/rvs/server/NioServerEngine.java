@@ -0,0 +1,531 @@
+package edu.udo.cs.rvs.server;
+
+import edu.udo.cs.rvs.ServerConfig;
+import edu.udo.cs.rvs.limit.ClientLimiter;
+import edu.udo.cs.rvs.log.AccessLog;
+import edu.udo.cs.rvs.metrics.ServerMetrics;
+import edu.udo.cs.rvs.response.Response;
+import edu.udo.cs.rvs.response.ResponseCode;
+
+import java.io.IOException;
+import java.nio.channels.*;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Nicht blockierende Engine auf Basis von {@link Selector}. Wenige Event-Loop Threads
+ * verwalten jeweils viele Verbindungen. Mit mehreren Acceptors ({@link ServerConfig#ACCEPTORS}) nimmt jeder
+ * Kanal des Ports seine Verbindungen in einem eigenen Event-Loop an und verteilt sie nur auf seine Gruppe
+ * von Event-Loops.
+ */
+public class NioServerEngine implements ServerEngine {
+
+    /**
+     * Dauer eines Ticks der Timer Wheels in Millisekunden, zugleich die längste Wartezeit eines Selectors
+     */
+    private static final long TIMER_TICK = 100;
+
+    /**
+     * Anzahl der Eimer eines Timer Wheels, eine Umdrehung dauert damit etwa 51 Sekunden
+     */
+    private static final int TIMER_BUCKETS = 512;
+
+    /**
+     * Anzahl der Event-Loops
+     */
+    private final int loopCount;
+
+    /**
+     * Anzahl der Acceptors, höchstens so viele wie Event-Loops
+     */
+    private final int acceptorCount;
+
+    /**
+     * Abstand in Millisekunden in dem beim Beenden geprüft wird ob alle Verbindungen geschlossen sind
+     */
+    private static final long DRAIN_POLL_INTERVAL = 50;
+
+    /**
+     * Kanäle welche auf ankommende Verbindungen warten, während eines Portwechsels zwei
+     */
+    private final List<ServerSocketChannel> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Anzahl der offenen Verbindungen
+     */
+    private final AtomicInteger openConnections = new AtomicInteger();
+
+    /**
+     * Zugriffsprotokoll des Servers
+     */
+    private final AccessLog accessLog = AccessLog.getInstance();
+
+    /**
+     * Begrenzung der Verbindungen und Anfragen pro Nutzer
+     */
+    private final ClientLimiter limiter = ClientLimiter.getInstance();
+
+    /**
+     * Alle Event-Loops der Engine
+     */
+    private EventLoop[] loops;
+
+    /**
+     * Engine läuft
+     */
+    private volatile boolean online;
+
+    /**
+     * Engine wird beendet, persistente Verbindungen werden nach der laufenden Anfrage geschlossen
+     */
+    private volatile boolean draining;
+
+    /**
+     * Erstellt die Engine
+     *
+     * @param loopCount Anzahl der Event-Loop Threads
+     */
+    public NioServerEngine(int loopCount) {
+        this.loopCount = Math.max(1, loopCount);
+        this.acceptorCount = Math.min(SocketTuning.ACCEPTORS, this.loopCount);
+    }
+
+    @Override
+    public void start(int port) throws IOException {
+        online = true;
+
+        loops = new EventLoop[loopCount];
+        for (int i = 0; i < loopCount; i++){
+            loops[i] = new EventLoop(i, Selector.open());
+        }
+
+        try {
+            listen(port);
+        } catch (IOException e) {
+            for (EventLoop loop : loops){
+                loop.selector.close();
+            }
+
+            throw e;
+        }
+
+        for (int i = 0; i < loopCount; i++){
+            new Thread(loops[i], "nio-loop-" + i).start();
+        }
+    }
+
+    @Override
+    public void rebind(int port, long window) throws IOException {
+        List<ServerSocketChannel> old = List.copyOf(listeners);
+
+        //Erst binden, schlägt das fehl bleibt der alte Port unverändert aktiv
+        listen(port);
+
+        Thread thread = new Thread(() -> {
+            try {
+                Thread.sleep(window);
+            } catch (InterruptedException e) {
+                //Alten Port sofort schließen
+            }
+
+            old.forEach(this::closeListener);
+        }, "nio-rebind");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Bindet einen Port. Die ersten Event-Loops nehmen dort zusätzlich die Verbindungen an, je einer pro Kanal.
+     *
+     * @param port Port auf dem gelauscht wird
+     *
+     * @throws IOException Wird geworfen falls der Port nicht gebunden werden kann
+     */
+    private void listen(int port) throws IOException {
+        List<ServerSocketChannel> channels = SocketTuning.bind(port, acceptorCount);
+
+        for (ServerSocketChannel serverChannel : channels){
+            serverChannel.configureBlocking(false);
+        }
+
+        for (int i = 0; i < channels.size(); i++){
+            listeners.add(channels.get(i));
+
+            //Registrieren erfolgt im Thread des Loops, da register() während select() blockiert
+            loops[i].pendingListeners.add(channels.get(i));
+            loops[i].selector.wakeup();
+        }
+    }
+
+    /**
+     * Schließt einen Port, angenommene Verbindungen bleiben offen
+     *
+     * @param serverChannel Kanal des Ports
+     */
+    private void closeListener(ServerSocketChannel serverChannel) {
+        listeners.remove(serverChannel);
+
+        try {
+            serverChannel.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+
+        //Der Selector gibt den Port erst bei der nächsten Auswahl frei
+        for (EventLoop loop : loops){
+            loop.selector.wakeup();
+        }
+    }
+
+    @Override
+    public boolean shutdown(long timeout) {
+        draining = true;
+
+        listeners.forEach(this::closeListener);
+
+        //Die Loops schließen wartende Verbindungen beim nächsten Durchlauf
+        for (EventLoop loop : loops){
+            loop.selector.wakeup();
+        }
+
+        long deadline = System.currentTimeMillis() + timeout;
+
+        try {
+            while (openConnections.get() > 0 && System.currentTimeMillis() < deadline){
+                Thread.sleep(DRAIN_POLL_INTERVAL);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        boolean drained = openConnections.get() == 0;
+
+        stop();
+
+        return drained;
+    }
+
+    @Override
+    public void stop() {
+        online = false;
+        draining = true;
+
+        listeners.forEach(this::closeListener);
+
+        if (loops != null){
+            for (EventLoop loop : loops){
+                loop.selector.wakeup();
+            }
+        }
+    }
+
+    /**
+     * Gibt zurück ob die Engine beendet wird und keine weiteren Anfragen auf einer Verbindung annimmt
+     *
+     * @return Wahr während des Beendens
+     */
+    boolean isDraining() {
+        return draining;
+    }
+
+    /**
+     * Gibt das Zugriffsprotokoll zurück
+     *
+     * @return Zugriffsprotokoll
+     */
+    AccessLog getAccessLog() {
+        return accessLog;
+    }
+
+    /**
+     * Gibt die Begrenzung der Verbindungen und Anfragen pro Nutzer zurück
+     *
+     * @return Begrenzung
+     */
+    ClientLimiter getLimiter() {
+        return limiter;
+    }
+
+    /**
+     * Lehnt eine Verbindung oberhalb von {@link ServerConfig#LIMIT_CONNECTIONS} mit 503 ab. Der Kanal ist noch
+     * blockierend, die kurze vorab erstellte Antwort passt in den Sendepuffer.
+     *
+     * @param client Kanal der Verbindung
+     */
+    private void refuseClient(SocketChannel client) {
+        try {
+            long start = System.nanoTime();
+            int sent = Response.sendStatusResponse(Channels.newOutputStream(client), ResponseCode.SERVICE_UNAVAILABLE_503);
+
+            accessLog.log(client.socket().getInetAddress(), null, ResponseCode.SERVICE_UNAVAILABLE_503, sent, start);
+        } catch (IOException e) {
+            //Verbindung wurde vom Nutzer abgebrochen
+        } finally {
+            try {
+                client.close();
+            } catch (IOException e) {
+                //Verbindung ist bereits geschlossen
+            }
+        }
+    }
+
+    /**
+     * Zeichnet eine geschlossene Verbindung auf
+     */
+    void connectionClosed() {
+        openConnections.decrementAndGet();
+    }
+
+    @Override
+    public String getName() {
+        return "nio";
+    }
+
+    @Override
+    public String describe() {
+        StringBuilder builder = new StringBuilder();
+
+        builder.append("Event loops: ").append(loopCount).append(", acceptors: ").append(acceptorCount).append(" (accepted: ");
+
+        for (int i = 0; i < acceptorCount; i++){
+            builder.append(i == 0 ? "" : ", ").append(loops == null ? 0 : loops[i].accepted.sum());
+        }
+
+        return builder.append("), open connections: ").append(openConnections.get())
+                .append(", listening on: ").append(SocketTuning.describePorts(listeners)).toString();
+    }
+
+    /**
+     * Ein Event-Loop Thread mit eigenem Selector
+     */
+    private class EventLoop implements Runnable {
+
+        /**
+         * Nummer des Loops, die ersten Loops sind zugleich die Acceptors
+         */
+        private final int index;
+
+        /**
+         * Selector dieses Loops
+         */
+        private final Selector selector;
+
+        /**
+         * Anzahl der von diesem Loop angenommenen Verbindungen
+         */
+        private final LongAdder accepted = new LongAdder();
+
+        /**
+         * Zähler für die Verteilung der angenommenen Verbindungen auf die Gruppe des Acceptors
+         */
+        private int nextMember;
+
+        /**
+         * Neue Verbindungen welche noch registriert werden müssen
+         */
+        private final Queue<SocketChannel> pending = new ConcurrentLinkedQueue<>();
+
+        /**
+         * Neue Ports welche noch registriert werden müssen
+         */
+        private final Queue<ServerSocketChannel> pendingListeners = new ConcurrentLinkedQueue<>();
+
+        /**
+         * Fristen der Verbindungen dieses Loops, wird nur im Thread des Loops weitergedreht
+         */
+        private final TimerWheel wheel = new TimerWheel(TIMER_TICK, TIMER_BUCKETS);
+
+        /**
+         * Erstellt den Loop
+         *
+         * @param index Nummer des Loops
+         * @param selector Selector des Loops
+         */
+        private EventLoop(int index, Selector selector) {
+            this.index = index;
+            this.selector = selector;
+        }
+
+        @Override
+        public void run() {
+            while (online){
+                try {
+                    selector.select(TIMER_TICK);
+
+                    registerPending();
+
+                    Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                    while (keys.hasNext()){
+                        SelectionKey key = keys.next();
+                        keys.remove();
+
+                        handleKey(key);
+                    }
+
+                    wheel.advance(System.currentTimeMillis());
+
+                    if (draining){
+                        closeIdle();
+                    }
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+
+            closeAll();
+        }
+
+        /**
+         * Registriert alle neuen Verbindungen beim Selector
+         */
+        private void registerPending() {
+            ServerSocketChannel serverChannel;
+
+            while ((serverChannel = pendingListeners.poll()) != null){
+                try {
+                    serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+                } catch (ClosedChannelException e) {
+                    //Port wurde bereits wieder geschlossen
+                }
+            }
+
+            SocketChannel channel;
+
+            while ((channel = pending.poll()) != null){
+                register(channel);
+            }
+        }
+
+        /**
+         * Registriert eine Verbindung beim Selector, muss im Thread des Loops aufgerufen werden
+         *
+         * @param channel Kanal der Verbindung
+         */
+        private void register(SocketChannel channel) {
+            try {
+                openConnections.incrementAndGet();
+
+                NioConnection connection = new NioConnection(channel, NioServerEngine.this);
+                connection.start(channel.register(selector, SelectionKey.OP_READ, connection), wheel);
+            } catch (ClosedChannelException e) {
+                openConnections.decrementAndGet();
+
+                //Verbindung wurde bereits geschlossen
+
+                limiter.closeConnection(channel.socket().getInetAddress());
+                ServerMetrics.getInstance().connectionClosed();
+            }
+        }
+
+        /**
+         * Nimmt alle wartenden Verbindungen eines Ports an und verteilt sie auf die Gruppe dieses Acceptors.
+         * Zur Gruppe gehören alle Loops deren Nummer modulo der Anzahl an Acceptors der eigenen Nummer entspricht.
+         *
+         * @param serverChannel Kanal des Ports
+         *
+         * @throws IOException Wird geworfen falls das Annehmen fehlschlägt
+         */
+        private void accept(ServerSocketChannel serverChannel) throws IOException {
+            int members = (loopCount - index + acceptorCount - 1) / acceptorCount;
+            SocketChannel client;
+
+            while ((client = serverChannel.accept()) != null){
+                if (ServerConfig.LOG_CONNECTIONS){
+                    System.out.println("Client connected from " + client.getRemoteAddress().toString() + " connected.");
+                }
+
+                accepted.increment();
+
+                if (!limiter.openConnection(client.socket().getInetAddress())){
+                    //Zu viele Verbindungen des Nutzers, wird direkt im Acceptor abgelehnt
+                    refuseClient(client);
+                    continue;
+                }
+
+                ServerMetrics.getInstance().connectionOpened();
+
+                client.configureBlocking(false);
+                SocketTuning.configure(client);
+
+                EventLoop loop = loops[index + (nextMember++ % members) * acceptorCount];
+
+                if (loop == this){
+                    register(client);
+                }else {
+                    loop.pending.add(client);
+                    loop.selector.wakeup();
+                }
+            }
+        }
+
+        /**
+         * Verarbeitet ein Ereignis des Selectors
+         *
+         * @param key Schlüssel des Ereignisses
+         */
+        private void handleKey(SelectionKey key) {
+            try {
+                if (!key.isValid()){
+                    return;
+                }
+
+                if (key.isAcceptable()){
+                    accept((ServerSocketChannel) key.channel());
+                }else if (key.isReadable()){
+                    ((NioConnection) key.attachment()).onRead(key);
+                }else if (key.isWritable()){
+                    ((NioConnection) key.attachment()).onWrite(key);
+                }
+            } catch (IOException | CancelledKeyException e) {
+                //Verbindung wurde vom Nutzer abgebrochen
+
+                if (key.attachment() instanceof NioConnection){
+                    ((NioConnection) key.attachment()).close(key);
+                }
+            } catch (RuntimeException | InternalError e) {
+                //Unerwarteter Fehler einer Verbindung, z.B. InternalError beim Lesen einer abgebildeten Datei welche
+                //gekürzt wurde. Nur diese Verbindung wird geschlossen, die Schleife bedient die übrigen weiter
+                ServerMetrics.getInstance().recordError();
+
+                if (key.attachment() instanceof NioConnection){
+                    ((NioConnection) key.attachment()).close(key);
+                }else {
+                    key.cancel();
+                }
+            }
+        }
+
+        /**
+         * Schließt beim Beenden alle Verbindungen welche auf die nächste Anfrage warten
+         */
+        private void closeIdle() {
+            for (SelectionKey key : selector.keys()){
+                if (key.attachment() instanceof NioConnection && ((NioConnection) key.attachment()).isIdle()){
+                    ((NioConnection) key.attachment()).close(key);
+                }
+            }
+        }
+
+        /**
+         * Schließt alle Verbindungen und den Selector beim Beenden
+         */
+        private void closeAll() {
+            for (SelectionKey key : selector.keys()){
+                if (key.attachment() instanceof NioConnection){
+                    ((NioConnection) key.attachment()).close(key);
+                }
+            }
+
+            try {
+                selector.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+}
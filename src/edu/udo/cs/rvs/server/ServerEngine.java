@@ -0,0 +1,75 @@
+package edu.udo.cs.rvs.server;
+
+import edu.udo.cs.rvs.ServerConfig;
+
+import java.io.IOException;
+
+/**
+ * Engine welche Verbindungen annimmt und die Anfragen verarbeitet
+ */
+public interface ServerEngine {
+
+    /**
+     * Bindet den Port und startet die Verarbeitung der Verbindungen
+     *
+     * @param port Port auf dem gelauscht wird
+     *
+     * @throws IOException Wird geworfen falls der Port nicht gebunden werden kann
+     */
+    void start(int port) throws IOException;
+
+    /**
+     * Wechselt ohne Unterbrechung auf einen neuen Port. Der neue Port wird zuerst gebunden, danach werden
+     * während des Übergangs auf beiden Ports Verbindungen angenommen und erst dann wird der alte Port
+     * geschlossen. Bereits angenommene Verbindungen bleiben offen.
+     *
+     * @param port Neuer Port
+     * @param window Zeit in Millisekunden in der der alte Port weiter Verbindungen annimmt
+     *
+     * @throws IOException Wird geworfen falls der neue Port nicht gebunden werden kann, der alte Port bleibt dann aktiv
+     */
+    void rebind(int port, long window) throws IOException;
+
+    /**
+     * Beendet die Engine geordnet: Es werden keine neuen Verbindungen angenommen, laufende Anfragen werden
+     * noch beantwortet und wartende persistente Verbindungen geschlossen. Nach Ablauf der Frist werden alle
+     * übrigen Verbindungen mit {@link #stop()} getrennt.
+     *
+     * @param timeout Frist in Millisekunden
+     *
+     * @return Wahr wenn alle Verbindungen vor Ablauf der Frist beendet wurden
+     */
+    boolean shutdown(long timeout);
+
+    /**
+     * Beendet die Engine sofort, schließt den Port und trennt alle Verbindungen
+     */
+    void stop();
+
+    /**
+     * Gibt den Namen der Engine zurück
+     *
+     * @return Name der Engine
+     */
+    String getName();
+
+    /**
+     * Beschreibt den Zustand der Verarbeitung für die Konsole
+     *
+     * @return Zustand als String
+     */
+    String describe();
+
+    /**
+     * Erstellt die in {@link ServerConfig#ENGINE} gewählte Engine
+     *
+     * @return Neue Engine
+     */
+    static ServerEngine create(){
+        if (ServerConfig.ENGINE.equalsIgnoreCase("nio")){
+            return new NioServerEngine(ServerConfig.NIO_LOOPS);
+        }
+
+        return new BlockingServerEngine();
+    }
+}
@@ -0,0 +1,140 @@
+package edu.udo.cs.rvs.server;
+
+import edu.udo.cs.rvs.ServerConfig;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Öffnet die Ports der Engines und setzt die Socket Optionen aus der {@link ServerConfig}. Mit mehr als einem
+ * Acceptor werden mehrere Kanäle mit SO_REUSEPORT auf den gleichen Port gebunden, so dass der Kernel die
+ * ankommenden Verbindungen auf die Kanäle und damit auf mehrere Kerne verteilt.
+ */
+final class SocketTuning {
+
+    /**
+     * Anzahl der Kanäle pro Port, 1 falls SO_REUSEPORT nicht unterstützt wird
+     */
+    static final int ACCEPTORS = acceptorCount();
+
+    private SocketTuning() {
+    }
+
+    /**
+     * Prüft die gewünschte Anzahl an Acceptors
+     *
+     * @return Anzahl der Kanäle pro Port
+     */
+    private static int acceptorCount() {
+        int count = Math.max(1, ServerConfig.ACCEPTORS);
+
+        if (count == 1){
+            return 1;
+        }
+
+        try (ServerSocketChannel probe = ServerSocketChannel.open()) {
+            if (probe.supportedOptions().contains(StandardSocketOptions.SO_REUSEPORT)){
+                return count;
+            }
+        } catch (IOException e) {
+            //Wie fehlende Unterstützung behandeln
+        }
+
+        System.out.println("SO_REUSEPORT is not supported by this system. Using one acceptor.");
+
+        return 1;
+    }
+
+    /**
+     * Bindet einen Port mit mehreren Kanälen. Schlägt einer fehl, werden die bereits gebundenen wieder geschlossen.
+     *
+     * @param port Port auf dem gelauscht wird
+     * @param count Anzahl der Kanäle, ab 2 wird SO_REUSEPORT gesetzt
+     *
+     * @return Gebundene, blockierende Kanäle
+     *
+     * @throws IOException Wird geworfen falls der Port nicht gebunden werden kann
+     */
+    static List<ServerSocketChannel> bind(int port, int count) throws IOException {
+        List<ServerSocketChannel> channels = new ArrayList<>(count);
+
+        try {
+            for (int i = 0; i < count; i++){
+                ServerSocketChannel channel = ServerSocketChannel.open();
+                channels.add(channel);
+
+                if (count > 1){
+                    channel.setOption(StandardSocketOptions.SO_REUSEPORT, true);
+                }
+
+                //Wird an die angenommenen Verbindungen vererbt und muss für große Fenster vor dem Binden gesetzt sein
+                if (ServerConfig.RECEIVE_BUFFER > 0){
+                    channel.setOption(StandardSocketOptions.SO_RCVBUF, ServerConfig.RECEIVE_BUFFER);
+                }
+
+                channel.bind(new InetSocketAddress(port), ServerConfig.BACKLOG);
+            }
+        } catch (IOException e) {
+            for (ServerSocketChannel channel : channels){
+                try {
+                    channel.close();
+                } catch (IOException closeException) {
+                    //Kanal ist bereits geschlossen
+                }
+            }
+
+            throw e;
+        }
+
+        return channels;
+    }
+
+    /**
+     * Setzt die Optionen einer angenommenen Verbindung
+     *
+     * @param channel Kanal der Verbindung
+     */
+    static void configure(SocketChannel channel) {
+        try {
+            if (ServerConfig.TCP_NO_DELAY){
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            }
+
+            if (ServerConfig.SEND_BUFFER > 0){
+                channel.setOption(StandardSocketOptions.SO_SNDBUF, ServerConfig.SEND_BUFFER);
+            }
+        } catch (IOException e) {
+            //Verbindung wurde bereits vom Nutzer abgebrochen, der erste Zugriff schlägt ebenfalls fehl
+        }
+    }
+
+    /**
+     * Beschreibt die gebundenen Ports für die Konsole, jeder Port wird nur einmal genannt
+     *
+     * @param listeners Gebundene Kanäle
+     *
+     * @return Ports durch Komma getrennt
+     */
+    static String describePorts(List<ServerSocketChannel> listeners) {
+        Set<Integer> ports = new LinkedHashSet<>();
+
+        for (ServerSocketChannel serverChannel : listeners){
+            ports.add(serverChannel.socket().getLocalPort());
+        }
+
+        StringBuilder builder = new StringBuilder();
+
+        for (int port : ports){
+            builder.append(builder.length() == 0 ? "" : ", ").append(port);
+        }
+
+        return builder.toString();
+    }
+}
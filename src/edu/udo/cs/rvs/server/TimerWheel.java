@@ -0,0 +1,210 @@
+package edu.udo.cs.rvs.server;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Hashed Timer Wheel nach Varghese und Lauck: Die Zeit ist in Ticks geteilt, jeder Tick hat einen Eimer mit
+ * den in ihm fälligen Einträgen. Einfügen kostet unabhängig von der Anzahl der Einträge O(1), pro Tick wird nur
+ * ein Eimer besucht. Einträge welche weiter als eine Umdrehung entfernt sind, zählen ihre restlichen Umdrehungen
+ * herunter.
+ * <p>
+ * Einträge können aus jedem Thread eingeplant werden, {@link #advance(long)} darf nur ein Thread aufrufen.
+ * Entfernt werden Einträge nicht, stattdessen gibt die Aufgabe bei Fälligkeit zurück ob sie erneut eingeplant
+ * werden soll.
+ */
+class TimerWheel {
+
+    /**
+     * Aufgabe eines Eintrags
+     */
+    interface Task {
+
+        /**
+         * Wird aufgerufen sobald der Eintrag fällig ist
+         *
+         * @param now Aktuelle Zeit in Millisekunden
+         * @param scheduled Zeitpunkt in Millisekunden für den der Eintrag eingeplant war
+         *
+         * @return Neuer Zeitpunkt in Millisekunden oder -1 falls der Eintrag entfernt wird
+         */
+        long expire(long now, long scheduled);
+    }
+
+    /**
+     * Eintrag in einem Eimer
+     */
+    private static class Entry {
+
+        /**
+         * Aufgabe des Eintrags
+         */
+        private final Task task;
+
+        /**
+         * Zeitpunkt in Millisekunden
+         */
+        private long deadline;
+
+        /**
+         * Verbleibende Umdrehungen bis zur Fälligkeit
+         */
+        private long rounds;
+
+        /**
+         * Nächster Eintrag im Eimer
+         */
+        private Entry next;
+
+        /**
+         * Erstellt einen Eintrag
+         *
+         * @param task Aufgabe
+         * @param deadline Zeitpunkt in Millisekunden
+         */
+        private Entry(Task task, long deadline) {
+            this.task = task;
+            this.deadline = deadline;
+        }
+    }
+
+    /**
+     * Dauer eines Ticks in Millisekunden
+     */
+    private final long tick;
+
+    /**
+     * Erster Eintrag jedes Eimers
+     */
+    private final Entry[] buckets;
+
+    /**
+     * Anzahl der Eimer minus eins (Anzahl ist eine Zweierpotenz)
+     */
+    private final int mask;
+
+    /**
+     * Neue Einträge welche noch in die Eimer verteilt werden müssen
+     */
+    private final Queue<Entry> pending = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Nächster zu bearbeitender Tick
+     */
+    private long currentTick = -1;
+
+    /**
+     * Anzahl der Einträge in den Eimern
+     */
+    private int size;
+
+    /**
+     * Erstellt das Rad
+     *
+     * @param tick Dauer eines Ticks in Millisekunden
+     * @param bucketCount Anzahl der Eimer, wird auf eine Zweierpotenz aufgerundet
+     */
+    TimerWheel(long tick, int bucketCount) {
+        int count = Integer.highestOneBit(Math.max(2, bucketCount) * 2 - 1);
+
+        this.tick = tick;
+        this.buckets = new Entry[count];
+        this.mask = count - 1;
+    }
+
+    /**
+     * Plant eine Aufgabe ein. Kann aus jedem Thread aufgerufen werden.
+     *
+     * @param task Aufgabe
+     * @param deadline Zeitpunkt in Millisekunden
+     */
+    void schedule(Task task, long deadline) {
+        pending.add(new Entry(task, deadline));
+    }
+
+    /**
+     * Führt alle bis zu einem Zeitpunkt fälligen Aufgaben aus
+     *
+     * @param now Aktuelle Zeit in Millisekunden
+     */
+    void advance(long now) {
+        long target = now / tick;
+
+        if (currentTick == -1){
+            currentTick = target;
+        }
+
+        Entry entry;
+
+        while ((entry = pending.poll()) != null){
+            insert(entry, currentTick);
+        }
+
+        while (currentTick <= target){
+            int index = (int) currentTick & mask;
+            Entry current = buckets[index];
+            Entry kept = null;
+
+            buckets[index] = null;
+
+            while (current != null){
+                Entry next = current.next;
+
+                if (current.rounds > 0){
+                    current.rounds--;
+                    current.next = kept;
+                    kept = current;
+                }else {
+                    size--;
+
+                    long deadline = current.task.expire(now, current.deadline);
+
+                    if (deadline >= 0){
+                        current.deadline = deadline;
+                        insert(current, currentTick + 1);
+                    }
+                }
+
+                current = next;
+            }
+
+            //Noch nicht fällige Einträge zurück in den Eimer, erneut eingeplante wurden bereits eingefügt
+            while (kept != null){
+                Entry next = kept.next;
+
+                kept.next = buckets[index];
+                buckets[index] = kept;
+                kept = next;
+            }
+
+            currentTick++;
+        }
+    }
+
+    /**
+     * Fügt einen Eintrag in seinen Eimer ein
+     *
+     * @param entry Eintrag
+     * @param earliestTick Frühester Tick, bereits vergangene Zeitpunkte werden in diesem ausgeführt
+     */
+    private void insert(Entry entry, long earliestTick) {
+        long ticks = Math.max(entry.deadline / tick, earliestTick);
+        int index = (int) ticks & mask;
+
+        //Umdrehungen ab dem nächsten Besuch des Eimers, frühestens im Tick earliestTick
+        entry.rounds = (ticks - earliestTick) / buckets.length;
+        entry.next = buckets[index];
+        buckets[index] = entry;
+
+        size++;
+    }
+
+    /**
+     * Gibt die Anzahl der Einträge zurück, nur im Thread von {@link #advance(long)} genau
+     *
+     * @return Anzahl der Einträge
+     */
+    int size() {
+        return size + pending.size();
+    }
+}
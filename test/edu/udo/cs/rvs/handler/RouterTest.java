@@ -0,0 +1,193 @@
+package edu.udo.cs.rvs.handler;
+
+import edu.udo.cs.rvs.request.Request;
+import edu.udo.cs.rvs.request.RequestMethod;
+import edu.udo.cs.rvs.response.Response;
+import edu.udo.cs.rvs.response.ResponseCode;
+
+import java.io.ByteArrayOutputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static edu.udo.cs.rvs.test.Assert.*;
+
+/**
+ * Tests für {@link Router}: Grenzen der Präfixe, längster Präfix, geteilte Kanten im Trie sowie 404, 405 und 501
+ */
+public class RouterTest {
+
+    /**
+     * Handler für "/"
+     */
+    private final Handler files = (request, response) -> {};
+
+    /**
+     * Handler für "/api"
+     */
+    private final Handler api = (request, response) -> {};
+
+    /**
+     * Handler für "/api/v2"
+     */
+    private final Handler apiV2 = (request, response) -> {};
+
+    /**
+     * Antwort welche Status Code und zusätzliche Header eines Handlers festhält, ohne etwas zu senden
+     */
+    private static class RecordingResponse extends Response {
+
+        /**
+         * Zusätzliche Header nach Namen
+         */
+        private final Map<String, String> headers = new LinkedHashMap<>();
+
+        /**
+         * Erstellt eine Antwort für eine leere Anfrage
+         *
+         * @throws Exception Wird nicht geworfen, da eine leere Anfrage nicht beantwortet wird
+         */
+        private RecordingResponse() throws Exception {
+            super(Request.empty(), new ByteArrayOutputStream());
+        }
+
+        @Override
+        public void addHeader(String name, String value) {
+            headers.put(name, value);
+        }
+    }
+
+    /**
+     * Ruft einen Handler auf
+     *
+     * @param handler Handler
+     *
+     * @return Antwort nach dem Aufruf
+     *
+     * @throws Exception Wird geworfen falls der Handler fehlschlägt
+     */
+    private static RecordingResponse invoke(Handler handler) throws Exception {
+        RecordingResponse response = new RecordingResponse();
+        handler.handle(Request.empty(), response);
+
+        return response;
+    }
+
+    /**
+     * Ein Präfix passt nur bis zu einer Grenze des Pfades
+     */
+    public void testPathBoundary() {
+        Router router = new Router();
+        router.register("/api", api, RequestMethod.GET);
+
+        assertTrue("/api", router.route("/api", RequestMethod.GET) == api);
+        assertTrue("/api/", router.route("/api/", RequestMethod.GET) == api);
+        assertTrue("/api/x", router.route("/api/x", RequestMethod.GET) == api);
+        assertFalse("/apix", router.route("/apix", RequestMethod.GET) == api);
+        assertFalse("/ap", router.route("/ap", RequestMethod.GET) == api);
+        assertFalse("/", router.route("/", RequestMethod.GET) == api);
+    }
+
+    /**
+     * Der längste passende Präfix gewinnt, unabhängig von der Reihenfolge der Registrierung
+     */
+    public void testLongestPrefix() {
+        Router router = new Router();
+        router.register("/api/v2", apiV2, RequestMethod.GET);
+        router.register("/", files, RequestMethod.GET);
+        router.register("/api", api, RequestMethod.GET);
+
+        assertTrue("/", router.route("/", RequestMethod.GET) == files);
+        assertTrue("/index.html", router.route("/index.html", RequestMethod.GET) == files);
+        assertTrue("/apix", router.route("/apix", RequestMethod.GET) == files);
+        assertTrue("/api/v1", router.route("/api/v1", RequestMethod.GET) == api);
+        assertTrue("/api/v2", router.route("/api/v2", RequestMethod.GET) == apiV2);
+        assertTrue("/api/v2/x", router.route("/api/v2/x", RequestMethod.GET) == apiV2);
+        assertTrue("/api/v20", router.route("/api/v20", RequestMethod.GET) == api);
+    }
+
+    /**
+     * Präfixe, die sich nur einen Teil einer Kante teilen, teilen diese Kante ohne die bestehenden Routen zu verlieren
+     */
+    public void testSplitEdges() {
+        Handler status = (request, response) -> {};
+        Handler stats = (request, response) -> {};
+
+        Router router = new Router();
+        router.register("/status", status, RequestMethod.GET);
+        router.register("/stats", stats, RequestMethod.GET);
+
+        assertTrue("/status", router.route("/status", RequestMethod.GET) == status);
+        assertTrue("/stats", router.route("/stats", RequestMethod.GET) == stats);
+        assertFalse("/stat", router.route("/stat", RequestMethod.GET) == status || router.route("/stat", RequestMethod.GET) == stats);
+    }
+
+    /**
+     * Ohne passenden Präfix wird 404 gesendet
+     */
+    public void testNotFound() throws Exception {
+        Router router = new Router();
+        router.register("/api", api, RequestMethod.GET);
+
+        assertEquals(ResponseCode.NOT_FOUND_404, invoke(router.route("/index.html", RequestMethod.GET)).getResponseCode());
+        assertEquals(ResponseCode.NOT_FOUND_404, invoke(router.route("/apix", RequestMethod.GET)).getResponseCode());
+    }
+
+    /**
+     * Passt der Pfad aber nicht die Methode, so wird 405 mit den Methoden des Präfixes im Allow Header gesendet
+     */
+    public void testMethodNotAllowed() throws Exception {
+        Router router = new Router();
+        router.register("/", files, RequestMethod.POST, RequestMethod.HEAD, RequestMethod.GET);
+        router.register("/api", api, RequestMethod.GET);
+
+        RecordingResponse response = invoke(router.route("/api/x", RequestMethod.POST));
+
+        assertEquals(ResponseCode.METHOD_NOT_ALLOWED_405, response.getResponseCode());
+        assertEquals("GET", response.headers.get("Allow"));
+
+        //Die Reihenfolge im Allow Header folgt RequestMethod, nicht der Registrierung
+        router.register("/api", api, RequestMethod.HEAD);
+        response = invoke(router.route("/api", RequestMethod.POST));
+
+        assertEquals(ResponseCode.METHOD_NOT_ALLOWED_405, response.getResponseCode());
+        assertEquals("GET, HEAD", response.headers.get("Allow"));
+    }
+
+    /**
+     * Eine Methode ohne jeden Handler oder eine unbekannte Methode (null) wird mit 501 beantwortet, auch für Pfade ohne Präfix
+     */
+    public void testNotImplemented() throws Exception {
+        Router router = new Router();
+        router.register("/api", api, RequestMethod.GET);
+
+        assertEquals(ResponseCode.NOT_IMPLEMENTED_501, invoke(router.route("/api", RequestMethod.POST)).getResponseCode());
+        assertEquals(ResponseCode.NOT_IMPLEMENTED_501, invoke(router.route("/index.html", RequestMethod.POST)).getResponseCode());
+        assertEquals(ResponseCode.NOT_IMPLEMENTED_501, invoke(router.route("/api", null)).getResponseCode());
+        assertEquals(ResponseCode.NOT_IMPLEMENTED_501, invoke(router.route("/", null)).getResponseCode());
+    }
+
+    /**
+     * Eine erneute Registrierung ersetzt den Handler nur für die angegebenen Methoden
+     */
+    public void testReplaceHandler() {
+        Handler replacement = (request, response) -> {};
+
+        Router router = new Router();
+        router.register("/api", api, RequestMethod.GET, RequestMethod.HEAD);
+        router.register("/api", replacement, RequestMethod.GET);
+
+        assertTrue("GET", router.route("/api", RequestMethod.GET) == replacement);
+        assertTrue("HEAD", router.route("/api", RequestMethod.HEAD) == api);
+    }
+
+    /**
+     * Präfixe ohne führendes "/" und Routen ohne Methoden werden abgelehnt
+     */
+    public void testInvalidRoute() {
+        Router router = new Router();
+
+        assertThrows(IllegalArgumentException.class, () -> router.register("api", api, RequestMethod.GET));
+        assertThrows(IllegalArgumentException.class, () -> router.register("", api, RequestMethod.GET));
+        assertThrows(IllegalArgumentException.class, () -> router.register("/api", api));
+    }
+}
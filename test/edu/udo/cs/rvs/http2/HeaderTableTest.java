@@ -0,0 +1,121 @@
+package edu.udo.cs.rvs.http2;
+
+import static edu.udo.cs.rvs.test.Assert.*;
+
+/**
+ * Tests für {@link HeaderTable}: Indizes der statischen und dynamischen Einträge und Verdrängung nach Größe
+ */
+public class HeaderTableTest {
+
+    /**
+     * Prüft ob ein Index mit COMPRESSION_ERROR abgelehnt wird
+     *
+     * @param table Tabelle
+     * @param index Index
+     */
+    private static void assertInvalid(HeaderTable table, int index) {
+        Http2Exception e = assertThrows(Http2Exception.class, () -> table.getName(index));
+
+        assertEquals(Http2Exception.COMPRESSION_ERROR, e.getErrorCode());
+    }
+
+    /**
+     * Die statische Tabelle beginnt bei 1 und endet bei 61
+     */
+    public void testStaticTable() throws Exception {
+        HeaderTable table = new HeaderTable(4096);
+
+        assertEquals(":authority", table.getName(1));
+        assertEquals("", table.getValue(1));
+        assertEquals(":method", table.getName(2));
+        assertEquals("GET", table.getValue(2));
+        assertEquals("www-authenticate", table.getName(61));
+
+        assertInvalid(table, 0);
+        assertInvalid(table, -1);
+        assertInvalid(table, 62);
+        assertInvalid(table, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Neue Einträge erhalten Index 62, ältere rücken nach hinten
+     */
+    public void testDynamicOrder() throws Exception {
+        HeaderTable table = new HeaderTable(4096);
+
+        table.add("a", "1");
+        table.add("b", "2");
+
+        assertEquals("b", table.getName(62));
+        assertEquals("2", table.getValue(62));
+        assertEquals("a", table.getName(63));
+        assertInvalid(table, 64);
+    }
+
+    /**
+     * Die Größe eines Eintrags ist Name plus Wert plus 32, die ältesten Einträge werden zuerst verdrängt
+     */
+    public void testEvictionBySize() throws Exception {
+        //Jeder Eintrag belegt 1 + 1 + 32 = 34 Bytes, drei passen in 102
+        HeaderTable table = new HeaderTable(102);
+
+        table.add("a", "1");
+        table.add("b", "2");
+        table.add("c", "3");
+        assertEquals("a", table.getName(64));
+
+        table.add("d", "4");
+        assertEquals("d", table.getName(62));
+        assertEquals("b", table.getName(64));
+        assertInvalid(table, 65);
+    }
+
+    /**
+     * Ein Eintrag größer als die Tabelle leert diese
+     */
+    public void testOversizedEntry() throws Exception {
+        HeaderTable table = new HeaderTable(64);
+
+        table.add("a", "1");
+        table.add("name", "a value which is longer than the table");
+
+        assertInvalid(table, 62);
+    }
+
+    /**
+     * Verkleinern verdrängt die ältesten Einträge, 0 leert die Tabelle
+     */
+    public void testSetMaxSize() throws Exception {
+        HeaderTable table = new HeaderTable(4096);
+
+        for (int i = 0; i < 200; i++){
+            table.add("name" + i, "value" + i);
+        }
+
+        assertEquals("name199", table.getName(62));
+
+        table.setMaxSize(100);
+        assertEquals("name199", table.getName(62));
+        assertEquals("name198", table.getName(63));
+        assertInvalid(table, 64);
+
+        table.setMaxSize(0);
+        assertEquals(0, table.getMaxSize());
+        assertInvalid(table, 62);
+    }
+
+    /**
+     * Die Suche für das Kodieren findet Name und Wert bzw. nur den Namen
+     */
+    public void testFind() {
+        HeaderTable table = new HeaderTable(4096);
+
+        assertEquals(2, table.find(":method", "GET"));
+        assertEquals(-2, table.find(":method", "PUT"));
+        assertEquals(0, table.find("x-custom", "1"));
+
+        table.add("x-custom", "1");
+        assertEquals(62, table.find("x-custom", "1"));
+        assertEquals(-62, table.find("x-custom", "2"));
+    }
+}
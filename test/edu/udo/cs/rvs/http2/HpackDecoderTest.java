@@ -0,0 +1,172 @@
+package edu.udo.cs.rvs.http2;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static edu.udo.cs.rvs.test.Assert.*;
+
+/**
+ * Tests für {@link HpackDecoder} mit den Beispielen aus RFC 7541 Anhang C und fehlerhaften Blöcken
+ */
+public class HpackDecoderTest {
+
+    /**
+     * Decoder einer Verbindung, die Beispiele eines Abschnitts nutzen die gleiche dynamische Tabelle
+     */
+    private final HpackDecoder decoder = new HpackDecoder();
+
+    /**
+     * Wandelt Hex Ziffern in Bytes um, Leerzeichen werden ignoriert
+     *
+     * @param hex Hex Ziffern
+     *
+     * @return Bytes
+     */
+    static byte[] hex(String hex) {
+        String digits = hex.replace(" ", "");
+        byte[] bytes = new byte[digits.length() / 2];
+
+        for (int i = 0; i < bytes.length; i++){
+            bytes[i] = (byte) Integer.parseInt(digits.substring(2 * i, 2 * i + 2), 16);
+        }
+
+        return bytes;
+    }
+
+    /**
+     * Dekodiert einen Block
+     *
+     * @param hex Block als Hex Ziffern
+     *
+     * @return Abwechselnd Name und Wert jedes Headers
+     *
+     * @throws Http2Exception Wird geworfen falls der Block fehlerhaft ist
+     */
+    private List<String> decode(String hex) throws Http2Exception {
+        byte[] block = hex(hex);
+        List<String> fields = new ArrayList<>();
+
+        decoder.decode(block, 0, block.length, fields);
+
+        return fields;
+    }
+
+    /**
+     * Prüft ob ein Block mit COMPRESSION_ERROR abgelehnt wird
+     *
+     * @param hex Block als Hex Ziffern
+     */
+    private void assertCompressionError(String hex) {
+        Http2Exception e = assertThrows(Http2Exception.class, () -> decode(hex));
+
+        assertEquals(Http2Exception.COMPRESSION_ERROR, e.getErrorCode());
+    }
+
+    /**
+     * C.2.1 bis C.2.4: Einzelne Repräsentationen
+     */
+    public void testFieldRepresentations() throws Exception {
+        assertEquals(Arrays.asList("custom-key", "custom-header"),
+                decode("400a 6375 7374 6f6d 2d6b 6579 0d63 7573 746f 6d2d 6865 6164 6572"));
+        assertEquals(Arrays.asList(":path", "/sample/path"), decode("040c 2f73 616d 706c 652f 7061 7468"));
+        assertEquals(Arrays.asList("password", "secret"), decode("1008 7061 7373 776f 7264 0673 6563 7265 74"));
+        assertEquals(Arrays.asList(":method", "GET"), decode("82"));
+
+        //Nur der erste Literal wurde in die dynamische Tabelle aufgenommen
+        assertEquals(Arrays.asList("custom-key", "custom-header"), decode("be"));
+        assertCompressionError("bf");
+    }
+
+    /**
+     * C.3: Anfragen ohne Huffman Kodierung mit gemeinsamer dynamischer Tabelle
+     */
+    public void testRequestsWithoutHuffman() throws Exception {
+        assertEquals(Arrays.asList(":method", "GET", ":scheme", "http", ":path", "/", ":authority", "www.example.com"),
+                decode("8286 8441 0f77 7777 2e65 7861 6d70 6c65 2e63 6f6d"));
+        assertEquals(Arrays.asList(":method", "GET", ":scheme", "http", ":path", "/", ":authority", "www.example.com",
+                        "cache-control", "no-cache"),
+                decode("8286 84be 5808 6e6f 2d63 6163 6865"));
+        assertEquals(Arrays.asList(":method", "GET", ":scheme", "https", ":path", "/index.html", ":authority", "www.example.com",
+                        "custom-key", "custom-value"),
+                decode("8287 85bf 400a 6375 7374 6f6d 2d6b 6579 0c63 7573 746f 6d2d 7661 6c75 65"));
+    }
+
+    /**
+     * C.4: Die gleichen Anfragen mit Huffman kodierten Strings
+     */
+    public void testRequestsWithHuffman() throws Exception {
+        assertEquals(Arrays.asList(":method", "GET", ":scheme", "http", ":path", "/", ":authority", "www.example.com"),
+                decode("8286 8441 8cf1 e3c2 e5f2 3a6b a0ab 90f4 ff"));
+        assertEquals(Arrays.asList(":method", "GET", ":scheme", "http", ":path", "/", ":authority", "www.example.com",
+                        "cache-control", "no-cache"),
+                decode("8286 84be 5886 a8eb 1064 9cbf"));
+        assertEquals(Arrays.asList(":method", "GET", ":scheme", "https", ":path", "/index.html", ":authority", "www.example.com",
+                        "custom-key", "custom-value"),
+                decode("8287 85bf 4088 25a8 49e9 5ba9 7d7f 8925 a849 e95b b8e8 b4bf"));
+    }
+
+    /**
+     * C.5.1 und C.5.2: Antworten mit einer auf 256 Bytes verkleinerten Tabelle, der zweite Block verdrängt den
+     * ältesten Eintrag. Die Verkleinerung wird am Anfang des ersten Blocks angekündigt.
+     */
+    public void testEvictionWithTableSizeUpdate() throws Exception {
+        assertEquals(Arrays.asList(":status", "302", "cache-control", "private", "date", "Mon, 21 Oct 2013 20:13:21 GMT",
+                        "location", "https://www.example.com"),
+                decode("3fe1 01 4803 3330 3258 0770 7269 7661 7465 611d 4d6f 6e2c 2032 3120 4f63 7420 3230 3133 2032 303a"
+                        + "3133 3a32 3120 474d 546e 1768 7474 7073 3a2f 2f77 7777 2e65 7861 6d70 6c65 2e63 6f6d"));
+
+        //":status: 302" passt nicht mehr neben ":status: 307" und wird verdrängt
+        assertEquals(Arrays.asList(":status", "307", "cache-control", "private", "date", "Mon, 21 Oct 2013 20:13:21 GMT",
+                        "location", "https://www.example.com"),
+                decode("4803 3330 37c1 c0bf"));
+        assertEquals(Arrays.asList(":status", "307"), decode("be"));
+        assertCompressionError("c2");
+    }
+
+    /**
+     * Die Tabellengröße darf nur am Anfang eines Blocks und höchstens bis zur erlaubten Größe geändert werden
+     */
+    public void testTableSizeUpdate() throws Exception {
+        //4096 = 31 + 97 + 31 * 128
+        assertEquals(new ArrayList<String>(), decode("3fe1 1f"));
+        assertCompressionError("3fe2 1f");
+        assertCompressionError("82 20");
+
+        //Verkleinerung auf 0 leert die dynamische Tabelle
+        decode("400a 6375 7374 6f6d 2d6b 6579 0d63 7573 746f 6d2d 6865 6164 6572");
+        assertEquals(Arrays.asList("custom-key", "custom-header"), decode("be"));
+        assertCompressionError("20 be");
+    }
+
+    /**
+     * Zahlen welche nicht in einen int passen, zu viele Fortsetzungsbytes oder abgeschnittene Zahlen werden abgelehnt
+     */
+    public void testIntegerOverflow() {
+        assertCompressionError("ff ff ff ff ff 0f");
+        assertCompressionError("ff 80 80 80 80 80 01");
+        assertCompressionError("ff 80");
+        assertCompressionError("0f");
+        assertCompressionError("00 7f ff ff ff ff 0f");
+    }
+
+    /**
+     * Indizes außerhalb der Tabellen und abgeschnittene Strings werden abgelehnt
+     */
+    public void testInvalidIndexAndTruncation() {
+        assertCompressionError("80");
+        assertCompressionError("be");
+        assertCompressionError("ff 00");
+        assertCompressionError("40 0a 6375");
+        assertCompressionError("40");
+        assertCompressionError("04 0c 2f");
+    }
+
+    /**
+     * Huffman Strings mit EOS oder falscher Auffüllung werden im Block abgelehnt
+     */
+    public void testInvalidHuffmanString() {
+        assertCompressionError("0084 ffff ffff");
+        assertCompressionError("0081 18");
+    }
+}
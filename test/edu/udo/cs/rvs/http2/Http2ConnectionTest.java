@@ -0,0 +1,445 @@
+package edu.udo.cs.rvs.http2;
+
+import java.io.ByteArrayOutputStream;
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static edu.udo.cs.rvs.http2.HpackDecoderTest.hex;
+import static edu.udo.cs.rvs.test.Assert.*;
+
+/**
+ * Tests für die Frames einer {@link Http2Connection}, vor allem für Auffüllung und Flusskontrolle. Die Frames
+ * werden direkt übergeben und die Ausgabe ohne Netzwerk gelesen. Anfragen werden aus wwwroot beantwortet, die
+ * Tests müssen daher im Projektordner laufen.
+ */
+public class Http2ConnectionTest {
+
+    private static final int DATA = 0x0;
+    private static final int HEADERS = 0x1;
+    private static final int RST_STREAM = 0x3;
+    private static final int SETTINGS = 0x4;
+    private static final int GOAWAY = 0x7;
+    private static final int WINDOW_UPDATE = 0x8;
+
+    private static final int END_STREAM = 0x1;
+    private static final int END_HEADERS = 0x4;
+    private static final int PADDED = 0x8;
+    private static final int PRIORITY = 0x20;
+
+    /**
+     * Header Block einer POST Anfrage an "/" mit Content-Length 3
+     */
+    private static final String POST_BLOCK = "83 86 84 41 09 6c6f63616c686f7374 0f0d 01 33";
+
+    /**
+     * Header Block einer GET Anfrage an "/"
+     */
+    private static final String GET_BLOCK = "82 86 84 41 09 6c6f63616c686f7374";
+
+    /**
+     * Empfangener Frame
+     */
+    private static class Frame {
+
+        /**
+         * Typ
+         */
+        private final int type;
+
+        /**
+         * ID des Streams
+         */
+        private final int streamId;
+
+        /**
+         * Inhalt
+         */
+        private final byte[] payload;
+
+        /**
+         * Erstellt den Frame
+         *
+         * @param type Typ
+         * @param streamId ID des Streams
+         * @param payload Inhalt
+         */
+        private Frame(int type, int streamId, byte[] payload) {
+            this.type = type;
+            this.streamId = streamId;
+            this.payload = payload;
+        }
+
+        /**
+         * Liest den Fehlercode eines RST_STREAM bzw. GOAWAY Frames
+         *
+         * @return Fehlercode
+         */
+        private int errorCode() {
+            return ByteBuffer.wrap(payload).getInt(type == GOAWAY ? 4 : 0);
+        }
+    }
+
+    /**
+     * Verbindung des Tests
+     */
+    private final Http2Connection connection = Http2Connection.open(InetAddress.getLoopbackAddress());
+
+    /**
+     * Decoder für die Header der Antworten
+     */
+    private final HpackDecoder responseDecoder = new HpackDecoder();
+
+    /**
+     * Erstellt einen Frame
+     *
+     * @param type Typ
+     * @param flags Flags
+     * @param streamId ID des Streams
+     * @param payload Inhalt
+     *
+     * @return Frame mit Kopf
+     */
+    private static byte[] frame(int type, int flags, int streamId, byte[] payload) {
+        ByteBuffer frame = ByteBuffer.allocate(9 + payload.length);
+        frame.put((byte) (payload.length >>> 16)).put((byte) (payload.length >>> 8)).put((byte) payload.length);
+        frame.put((byte) type).put((byte) flags).putInt(streamId).put(payload);
+
+        return frame.array();
+    }
+
+    /**
+     * Sendet das Präfix und leere SETTINGS und verwirft die Antwort darauf
+     */
+    private void start() {
+        receive(Http2Connection.PREFACE, frame(SETTINGS, 0, 0, new byte[0]));
+        frames();
+    }
+
+    /**
+     * Übergibt Bytes an die Verbindung
+     *
+     * @param parts Teile welche zusammen empfangen werden
+     */
+    private void receive(byte[]... parts) {
+        ByteArrayOutputStream all = new ByteArrayOutputStream();
+
+        for (byte[] part : parts){
+            all.write(part, 0, part.length);
+        }
+
+        connection.receive(ByteBuffer.wrap(all.toByteArray()));
+    }
+
+    /**
+     * Liest die gesamte Ausgabe der Verbindung
+     *
+     * @return Gesendete Frames
+     */
+    private List<Frame> frames() {
+        ByteArrayOutputStream all = new ByteArrayOutputStream();
+        ByteBuffer out;
+
+        while ((out = connection.output()) != null){
+            byte[] chunk = new byte[out.remaining()];
+            out.get(chunk);
+            all.write(chunk, 0, chunk.length);
+        }
+
+        ByteBuffer bytes = ByteBuffer.wrap(all.toByteArray());
+        List<Frame> frames = new ArrayList<>();
+
+        while (bytes.remaining() >= 9){
+            int length = ((bytes.get() & 0xff) << 16) | ((bytes.get() & 0xff) << 8) | (bytes.get() & 0xff);
+            int type = bytes.get() & 0xff;
+
+            //Flags werden von den Tests nicht geprüft
+            bytes.get();
+
+            int streamId = bytes.getInt() & 0x7fffffff;
+            byte[] payload = new byte[length];
+            bytes.get(payload);
+
+            frames.add(new Frame(type, streamId, payload));
+        }
+
+        return frames;
+    }
+
+    /**
+     * Sucht den ersten Frame eines Typs
+     *
+     * @param frames Frames
+     * @param type Typ
+     *
+     * @return Frame
+     */
+    private static Frame find(List<Frame> frames, int type) {
+        for (Frame frame : frames){
+            if (frame.type == type){
+                return frame;
+            }
+        }
+
+        throw new AssertionError("No frame of type " + type);
+    }
+
+    /**
+     * Prüft ob die Verbindung mit GOAWAY und einem Fehlercode beendet wurde
+     *
+     * @param errorCode Erwarteter Fehlercode
+     */
+    private void assertGoAway(int errorCode) {
+        assertEquals(errorCode, find(frames(), GOAWAY).errorCode());
+        assertTrue("Closed", connection.isClosed());
+    }
+
+    /**
+     * Liest den Status Code der Antwort eines Streams
+     *
+     * @param frames Frames
+     * @param streamId ID des Streams
+     *
+     * @return Status Code
+     *
+     * @throws Http2Exception Wird geworfen falls der Header Block fehlerhaft ist
+     */
+    private String status(List<Frame> frames, int streamId) throws Http2Exception {
+        for (Frame frame : frames){
+            if (frame.type == HEADERS && frame.streamId == streamId){
+                List<String> fields = new ArrayList<>();
+                responseDecoder.decode(frame.payload, 0, frame.payload.length, fields);
+
+                return fields.get(fields.indexOf(":status") + 1);
+            }
+        }
+
+        throw new AssertionError("No HEADERS on stream " + streamId);
+    }
+
+    /**
+     * Erstellt einen DATA Frame mit Auffüllung
+     *
+     * @param flags Weitere Flags
+     * @param data Daten
+     * @param padding Anzahl der Bytes Auffüllung
+     *
+     * @return Frame
+     */
+    private static byte[] paddedData(int flags, String data, int padding) {
+        byte[] payload = new byte[1 + data.length() + padding];
+        payload[0] = (byte) padding;
+        System.arraycopy(data.getBytes(), 0, payload, 1, data.length());
+
+        return frame(DATA, flags | PADDED, 1, payload);
+    }
+
+    /**
+     * Eine einfache Anfrage wird beantwortet
+     */
+    public void testGet() throws Exception {
+        start();
+        receive(frame(HEADERS, END_HEADERS | END_STREAM, 1, hex(GET_BLOCK)));
+
+        assertEquals("200", status(frames(), 1));
+        assertFalse("Closed", connection.isClosed());
+    }
+
+    /**
+     * Die Auffüllung von DATA zählt nicht zum Körper, Content-Length passt daher zu den Daten
+     */
+    public void testDataPaddingIsStripped() throws Exception {
+        start();
+        receive(frame(HEADERS, END_HEADERS, 1, hex(POST_BLOCK)), paddedData(END_STREAM, "abc", 10));
+
+        List<Frame> frames = frames();
+
+        assertEquals("200", status(frames, 1));
+
+        //Die Auffüllung zählt für die Flusskontrolle der Verbindung
+        Frame update = find(frames, WINDOW_UPDATE);
+        assertEquals(0, update.streamId);
+        assertEquals(1 + 3 + 10, ByteBuffer.wrap(update.payload).getInt());
+    }
+
+    /**
+     * Ein Körper länger als Content-Length wird mit 400 beantwortet
+     */
+    public void testDataLongerThanContentLength() throws Exception {
+        start();
+        receive(frame(HEADERS, END_HEADERS, 1, hex(POST_BLOCK)), frame(DATA, END_STREAM, 1, "abcd".getBytes()));
+
+        assertEquals("400", status(frames(), 1));
+    }
+
+    /**
+     * Eine Auffüllung so lang wie der Frame ist ein Fehler der Verbindung
+     */
+    public void testDataPaddingTooLong() {
+        start();
+        receive(frame(HEADERS, END_HEADERS, 1, hex(POST_BLOCK)), frame(DATA, PADDED | END_STREAM, 1, hex("04 616263")));
+
+        assertGoAway(Http2Exception.PROTOCOL_ERROR);
+    }
+
+    /**
+     * Ein leerer DATA Frame mit PADDED hat kein Längenbyte
+     */
+    public void testDataPaddedWithoutLength() {
+        start();
+        receive(frame(HEADERS, END_HEADERS, 1, hex(POST_BLOCK)), frame(DATA, PADDED, 1, new byte[0]));
+
+        assertGoAway(Http2Exception.PROTOCOL_ERROR);
+    }
+
+    /**
+     * DATA auf einem nie geöffneten Stream ist ein Fehler der Verbindung
+     */
+    public void testDataOnIdleStream() {
+        start();
+        receive(frame(DATA, END_STREAM, 1, "abc".getBytes()));
+
+        assertGoAway(Http2Exception.PROTOCOL_ERROR);
+    }
+
+    /**
+     * Die Auffüllung von HEADERS wird entfernt, bevor der Block dekodiert wird
+     */
+    public void testHeadersPadding() throws Exception {
+        start();
+
+        byte[] block = hex(GET_BLOCK);
+        byte[] payload = new byte[1 + block.length + 5];
+        payload[0] = 5;
+        System.arraycopy(block, 0, payload, 1, block.length);
+
+        receive(frame(HEADERS, END_HEADERS | END_STREAM | PADDED, 1, payload));
+
+        assertEquals("200", status(frames(), 1));
+    }
+
+    /**
+     * Eine Auffüllung länger als der Block ist ein Fehler der Verbindung
+     */
+    public void testHeadersPaddingTooLong() {
+        start();
+
+        byte[] block = hex(GET_BLOCK);
+        byte[] payload = new byte[1 + block.length];
+        payload[0] = (byte) (block.length + 1);
+        System.arraycopy(block, 0, payload, 1, block.length);
+
+        receive(frame(HEADERS, END_HEADERS | END_STREAM | PADDED, 1, payload));
+
+        assertGoAway(Http2Exception.PROTOCOL_ERROR);
+    }
+
+    /**
+     * HEADERS mit PRIORITY aber ohne die fünf Bytes der Priorität ist ein Fehler der Verbindung
+     */
+    public void testHeadersPriorityTruncated() {
+        start();
+        receive(frame(HEADERS, END_HEADERS | END_STREAM | PRIORITY, 1, hex("0000")));
+
+        assertGoAway(Http2Exception.PROTOCOL_ERROR);
+    }
+
+    /**
+     * Ein fehlerhafter Header Block beendet die Verbindung mit COMPRESSION_ERROR
+     */
+    public void testHeadersCompressionError() {
+        start();
+        receive(frame(HEADERS, END_HEADERS | END_STREAM, 1, hex("82 86 84 ff ff ff ff ff 0f")));
+
+        assertGoAway(Http2Exception.COMPRESSION_ERROR);
+    }
+
+    /**
+     * HEADERS auf einem geraden Stream ist ein Fehler der Verbindung
+     */
+    public void testHeadersOnEvenStream() {
+        start();
+        receive(frame(HEADERS, END_HEADERS | END_STREAM, 2, hex(GET_BLOCK)));
+
+        assertGoAway(Http2Exception.PROTOCOL_ERROR);
+    }
+
+    /**
+     * Ein Fenster der Verbindung über 2^31-1 ist ein Fehler der Verbindung
+     */
+    public void testConnectionWindowOverflow() {
+        start();
+        receive(frame(WINDOW_UPDATE, 0, 0, hex("7fffffff")));
+
+        assertGoAway(Http2Exception.FLOW_CONTROL_ERROR);
+    }
+
+    /**
+     * Ein WINDOW_UPDATE von 0 für die Verbindung ist ein Fehler der Verbindung
+     */
+    public void testConnectionWindowUpdateZero() {
+        start();
+        receive(frame(WINDOW_UPDATE, 0, 0, hex("00000000")));
+
+        assertGoAway(Http2Exception.PROTOCOL_ERROR);
+    }
+
+    /**
+     * Ein Fenster eines Streams über 2^31-1 beendet nur diesen Stream
+     */
+    public void testStreamWindowOverflow() {
+        start();
+        receive(frame(HEADERS, END_HEADERS | END_STREAM, 1, hex(GET_BLOCK)), frame(WINDOW_UPDATE, 0, 1, hex("7fffffff")));
+
+        List<Frame> frames = frames();
+        Frame reset = find(frames, RST_STREAM);
+
+        assertEquals(1, reset.streamId);
+        assertEquals(Http2Exception.FLOW_CONTROL_ERROR, reset.errorCode());
+        assertFalse("Closed", connection.isClosed());
+        assertTrue("No GOAWAY", frames.stream().noneMatch(frame -> frame.type == GOAWAY));
+    }
+
+    /**
+     * Ein SETTINGS_INITIAL_WINDOW_SIZE über 2^31-1 ist ein Fehler der Verbindung
+     */
+    public void testInitialWindowSizeOverflow() {
+        start();
+        receive(frame(SETTINGS, 0, 0, hex("0004 80000000")));
+
+        assertGoAway(Http2Exception.FLOW_CONTROL_ERROR);
+    }
+
+    /**
+     * Ein Frame größer als die erlaubte Größe ist ein Fehler der Verbindung
+     */
+    public void testFrameTooLarge() {
+        start();
+        receive(frame(DATA, 0, 1, new byte[16385]));
+
+        assertGoAway(Http2Exception.FRAME_SIZE_ERROR);
+    }
+
+    /**
+     * Frames welche auf mehrere Aufrufe verteilt ankommen werden zusammengesetzt
+     */
+    public void testSplitFrames() throws Exception {
+        start();
+
+        byte[] headers = frame(HEADERS, END_HEADERS | END_STREAM, 1, hex(GET_BLOCK));
+
+        for (int i = 0; i < headers.length; i++){
+            //Wie beim Lesen aus dem Netzwerk bleiben unverarbeitete Bytes im Puffer
+            ByteBuffer in = ByteBuffer.wrap(Arrays.copyOf(headers, i + 1));
+            connection.receive(in);
+
+            if (i + 1 < headers.length){
+                assertEquals(0, in.position());
+            }
+        }
+
+        assertEquals("200", status(frames(), 1));
+    }
+}
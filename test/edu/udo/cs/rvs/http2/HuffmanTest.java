@@ -0,0 +1,117 @@
+package edu.udo.cs.rvs.http2;
+
+import edu.udo.cs.rvs.response.ResponseBuffer;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static edu.udo.cs.rvs.http2.HpackDecoderTest.hex;
+import static edu.udo.cs.rvs.test.Assert.*;
+
+/**
+ * Tests für {@link Huffman} mit den Strings aus RFC 7541 Anhang C.4 und C.6 sowie fehlerhafter Auffüllung
+ */
+public class HuffmanTest {
+
+    /**
+     * Kodiert einen String
+     *
+     * @param value String
+     *
+     * @return Kodierte Bytes
+     */
+    private static byte[] encode(String value) {
+        ResponseBuffer out = new ResponseBuffer();
+        Huffman.encode(value, out);
+
+        ByteBuffer buffer = out.toByteBuffer();
+
+        return Arrays.copyOf(buffer.array(), buffer.limit());
+    }
+
+    /**
+     * Dekodiert Bytes
+     *
+     * @param bytes Kodierte Bytes
+     *
+     * @return String
+     *
+     * @throws Http2Exception Wird geworfen falls die Bytes fehlerhaft sind
+     */
+    private static String decode(byte[] bytes) throws Http2Exception {
+        return Huffman.decode(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Prüft ob Bytes mit COMPRESSION_ERROR abgelehnt werden
+     *
+     * @param bytes Kodierte Bytes
+     */
+    private static void assertRejected(byte[] bytes) {
+        Http2Exception e = assertThrows(Http2Exception.class, () -> decode(bytes));
+
+        assertEquals(Http2Exception.COMPRESSION_ERROR, e.getErrorCode());
+    }
+
+    /**
+     * Kodierung und Dekodierung der Beispiele aus RFC 7541 Anhang C
+     */
+    public void testExamples() throws Exception {
+        String[][] examples = {
+                {"www.example.com", "f1e3 c2e5 f23a 6ba0 ab90 f4ff"},
+                {"no-cache", "a8eb 1064 9cbf"},
+                {"custom-key", "25a8 49e9 5ba9 7d7f"},
+                {"custom-value", "25a8 49e9 5bb8 e8b4 bf"},
+                {"302", "6402"},
+                {"private", "aec3 771a 4b"},
+                {"Mon, 21 Oct 2013 20:13:21 GMT", "d07a be94 1054 d444 a820 0595 040b 8166 e082 a62d 1bff"},
+                {"https://www.example.com", "9d29 ad17 1863 c78f 0b97 c8e9 ae82 ae43 d3"},
+        };
+
+        for (String[] example : examples){
+            assertArrayEquals(hex(example[1]), encode(example[0]));
+            assertEquals(example[0], decode(hex(example[1])));
+        }
+    }
+
+    /**
+     * Jedes Zeichen übersteht Kodierung und Dekodierung, auch die langen Codes über 24 Bit
+     */
+    public void testAllSymbols() throws Exception {
+        StringBuilder all = new StringBuilder();
+
+        for (char c = 0; c < 256; c++){
+            all.append(c);
+        }
+
+        assertEquals(all.toString(), decode(encode(all.toString())));
+        assertEquals(all.reverse().toString(), decode(encode(all.toString())));
+        assertEquals("", decode(new byte[0]));
+    }
+
+    /**
+     * Der vollständige EOS Code darf nicht im String vorkommen
+     */
+    public void testEos() {
+        assertRejected(hex("ffff ffff"));
+        assertRejected(hex("1fff ffff ff"));
+    }
+
+    /**
+     * Die Auffüllung muss aus höchstens sieben Einsen bestehen
+     */
+    public void testPadding() throws Exception {
+        //'a' ist 00011, aufgefüllt mit 111
+        assertEquals("a", decode(hex("1f")));
+
+        //Auffüllung mit Nullen
+        assertRejected(hex("18"));
+
+        //Acht und mehr Bits Auffüllung
+        assertRejected(hex("1fff"));
+        assertRejected(hex("ff"));
+
+        //Abgeschnittener Code eines längeren Symbols
+        assertRejected(hex("fe"));
+    }
+}
@@ -0,0 +1,182 @@
+package edu.udo.cs.rvs.request;
+
+import edu.udo.cs.rvs.response.ResponseCode;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static edu.udo.cs.rvs.test.Assert.*;
+
+/**
+ * Tests für {@link BodyDecoder}, vor allem für Köpfe deren Länge unterschiedlich gelesen werden kann
+ */
+public class BodyDecoderTest {
+
+    /**
+     * Liest einen vollständigen Kopf
+     *
+     * @param head Kopf mit Zeilenenden "\r\n" und abschließender leerer Zeile
+     *
+     * @return Anfrage
+     *
+     * @throws RequestParseException Wird geworfen falls der Kopf fehlerhaft ist
+     */
+    private static Request request(String head) throws RequestParseException {
+        byte[] buffer = head.getBytes(StandardCharsets.ISO_8859_1);
+        RequestParser parser = new RequestParser(8192, 65536);
+
+        assertTrue("Head incomplete", parser.parse(buffer, buffer.length) != RequestParser.NEED_MORE);
+
+        return new Request(buffer, parser);
+    }
+
+    /**
+     * Prüft ob der Kopf mit einem Status Code abgelehnt wird
+     *
+     * @param expected Erwarteter Status Code
+     * @param head Kopf
+     */
+    private static void assertRejected(ResponseCode expected, String head) {
+        RequestParseException e = assertThrows(RequestParseException.class, () -> BodyDecoder.forRequest(request(head)));
+
+        assertEquals(expected, e.getResponseCode());
+    }
+
+    /**
+     * Liest einen Körper vollständig
+     *
+     * @param decoder Decoder
+     * @param data Gesendete Bytes
+     *
+     * @return Gespeicherter Körper
+     *
+     * @throws Exception Wird geworfen falls der Körper fehlerhaft ist
+     */
+    private static String decode(BodyDecoder decoder, String data) throws Exception {
+        byte[] bytes = data.getBytes(StandardCharsets.ISO_8859_1);
+
+        //Byteweise, damit jeder Zustand an jeder Grenze getestet wird
+        for (int i = 0; i < bytes.length && !decoder.isDone(); i++){
+            assertEquals(1, decoder.feed(bytes, i, 1));
+        }
+
+        assertTrue("Body incomplete", decoder.isDone());
+
+        try (InputStream in = decoder.getBody().openStream()) {
+            return new String(in.readAllBytes(), StandardCharsets.ISO_8859_1);
+        } finally {
+            decoder.getBody().close();
+        }
+    }
+
+    /**
+     * Ohne Länge oder mit Länge 0 gibt es keinen Körper
+     */
+    public void testNoBody() throws Exception {
+        assertEquals(null, BodyDecoder.forRequest(request("GET / HTTP/1.1\r\nHost: x\r\n\r\n")));
+        assertEquals(null, BodyDecoder.forRequest(request("POST / HTTP/1.1\r\nContent-Length: 0\r\n\r\n")));
+    }
+
+    /**
+     * Ein Körper mit Content-Length wird vollständig gelesen
+     */
+    public void testContentLength() throws Exception {
+        BodyDecoder decoder = BodyDecoder.forRequest(request("POST / HTTP/1.1\r\nContent-Length: 5\r\n\r\n"));
+
+        assertFalse("Chunked", decoder.isChunked());
+        assertEquals(5, decoder.getLength());
+        assertEquals("hello", decode(decoder, "hello"));
+    }
+
+    /**
+     * Bytes nach dem Körper gehören zur nächsten Anfrage und werden nicht verbraucht
+     */
+    public void testContentLengthStopsAtEnd() throws Exception {
+        BodyDecoder decoder = BodyDecoder.forRequest(request("POST / HTTP/1.1\r\nContent-Length: 3\r\n\r\n"));
+        byte[] data = "abcGET".getBytes(StandardCharsets.ISO_8859_1);
+
+        assertEquals(3, decoder.feed(data, 0, data.length));
+        assertTrue("Done", decoder.isDone());
+        decoder.getBody().close();
+    }
+
+    /**
+     * Ein wiederholter Content-Length Header mit gleichem Wert ist erlaubt
+     */
+    public void testRepeatedEqualContentLength() throws Exception {
+        BodyDecoder decoder = BodyDecoder.forRequest(request("POST / HTTP/1.1\r\nContent-Length: 5\r\ncontent-length:  5 \r\n\r\n"));
+
+        assertEquals(5, decoder.getLength());
+        decoder.getBody().close();
+    }
+
+    /**
+     * Unterschiedliche Content-Length Werte werden unabhängig von der Reihenfolge abgelehnt
+     */
+    public void testConflictingContentLength() {
+        assertRejected(ResponseCode.BAD_REQUEST_400, "POST / HTTP/1.1\r\nContent-Length: 5\r\nContent-Length: 50\r\n\r\n");
+        assertRejected(ResponseCode.BAD_REQUEST_400, "POST / HTTP/1.1\r\nContent-Length: 50\r\nHost: x\r\nContent-Length: 5\r\n\r\n");
+    }
+
+    /**
+     * Unterschiedliche Transfer-Encoding Werte werden abgelehnt
+     */
+    public void testConflictingTransferEncoding() {
+        assertRejected(ResponseCode.BAD_REQUEST_400, "POST / HTTP/1.1\r\nTransfer-Encoding: chunked\r\nTransfer-Encoding: identity\r\n\r\n");
+    }
+
+    /**
+     * Content-Length zusammen mit Transfer-Encoding wird abgelehnt
+     */
+    public void testContentLengthWithTransferEncoding() {
+        assertRejected(ResponseCode.BAD_REQUEST_400, "POST / HTTP/1.1\r\nContent-Length: 5\r\nTransfer-Encoding: chunked\r\n\r\n");
+        assertRejected(ResponseCode.BAD_REQUEST_400, "POST / HTTP/1.1\r\nTransfer-Encoding: chunked\r\nContent-Length: 5\r\n\r\n");
+    }
+
+    /**
+     * Nur Ziffern sind als Länge erlaubt, zu lange Werte laufen nicht über
+     */
+    public void testInvalidContentLength() {
+        assertRejected(ResponseCode.BAD_REQUEST_400, "POST / HTTP/1.1\r\nContent-Length: -1\r\n\r\n");
+        assertRejected(ResponseCode.BAD_REQUEST_400, "POST / HTTP/1.1\r\nContent-Length: 5, 5\r\n\r\n");
+        assertRejected(ResponseCode.BAD_REQUEST_400, "POST / HTTP/1.1\r\nContent-Length: +5\r\n\r\n");
+        assertRejected(ResponseCode.BAD_REQUEST_400, "POST / HTTP/1.1\r\nContent-Length: 1234567890123456789\r\n\r\n");
+        assertRejected(ResponseCode.BAD_REQUEST_400, "POST / HTTP/1.1\r\nContent-Length:\r\n\r\n");
+    }
+
+    /**
+     * Eine Länge über dem Maximum wird mit 413 abgelehnt
+     */
+    public void testContentLengthTooLarge() {
+        assertRejected(ResponseCode.PAYLOAD_TOO_LARGE_413, "POST / HTTP/1.1\r\nContent-Length: 999999999999999999\r\n\r\n");
+    }
+
+    /**
+     * Andere Kodierungen als chunked werden nicht unterstützt
+     */
+    public void testUnsupportedTransferEncoding() {
+        assertRejected(ResponseCode.NOT_IMPLEMENTED_501, "POST / HTTP/1.1\r\nTransfer-Encoding: gzip, chunked\r\n\r\n");
+    }
+
+    /**
+     * Chunks mit Erweiterungen und Trailer werden zusammengesetzt
+     */
+    public void testChunked() throws Exception {
+        BodyDecoder decoder = BodyDecoder.forRequest(request("POST / HTTP/1.1\r\nTransfer-Encoding: Chunked\r\n\r\n"));
+
+        assertTrue("Chunked", decoder.isChunked());
+        assertEquals("hello world", decode(decoder, "5;name=value\r\nhello\r\n6\r\n world\r\n0\r\nTrailer: x\r\n\r\n"));
+    }
+
+    /**
+     * Fehlerhafte Größen, fehlende Zeilenenden und zu große Chunks werden abgelehnt
+     */
+    public void testMalformedChunks() throws Exception {
+        for (String data : new String[]{"x\r\n", "5\r\nhelloXX", "fffffffffffffffff\r\n"}){
+            BodyDecoder decoder = BodyDecoder.forRequest(request("POST / HTTP/1.1\r\nTransfer-Encoding: chunked\r\n\r\n"));
+
+            assertThrows(RequestParseException.class, () -> decode(decoder, data));
+            decoder.getBody().close();
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package edu.udo.cs.rvs.request;
+
+import java.nio.charset.StandardCharsets;
+
+import static edu.udo.cs.rvs.test.Assert.*;
+
+/**
+ * Tests für {@link PathNormalizer}, vor allem für Ziele welche über ".." aus wwwroot hinaus führen sollen
+ */
+public class PathNormalizerTest {
+
+    /**
+     * Normalisiert ein Ziel
+     *
+     * @param target Ziel der Anfrage
+     *
+     * @return Normalisierter Pfad, "400" bzw. "403" für {@link PathNormalizer#BAD_REQUEST} bzw. {@link PathNormalizer#FORBIDDEN}
+     */
+    private static String normalize(String target) {
+        byte[] in = ("GET " + target).getBytes(StandardCharsets.ISO_8859_1);
+        byte[] out = new byte[in.length + 1];
+
+        //Das Ziel liegt wie im Puffer einer Anfrage nicht am Anfang
+        int length = PathNormalizer.normalize(in, 4, in.length, out);
+
+        if (length == PathNormalizer.BAD_REQUEST){
+            return "400";
+        }else if (length == PathNormalizer.FORBIDDEN){
+            return "403";
+        }
+
+        return new String(out, 0, length, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Einfache Pfade bleiben unverändert, ein abschließendes "/" wird entfernt
+     */
+    public void testPlainPaths() {
+        assertEquals("/", normalize("/"));
+        assertEquals("/index.html", normalize("/index.html"));
+        assertEquals("/subfolder", normalize("/subfolder/"));
+        assertEquals("/a/b", normalize("//a///b//"));
+        assertEquals("/...", normalize("/..."));
+        assertEquals("/a..b/..c", normalize("/a..b/..c"));
+    }
+
+    /**
+     * "." wird entfernt und ".." löst das vorherige Segment auf, solange wwwroot nicht verlassen wird
+     */
+    public void testDotSegments() {
+        assertEquals("/a/b", normalize("/a/./b/."));
+        assertEquals("/b", normalize("/a/../b"));
+        assertEquals("/", normalize("/a/.."));
+        assertEquals("/c", normalize("/a/b/../../c"));
+    }
+
+    /**
+     * ".." über wwwroot hinaus wird mit 403 abgelehnt, auch nachdem es zwischendurch in einen Ordner ging
+     */
+    public void testTraversal() {
+        assertEquals("403", normalize("/.."));
+        assertEquals("403", normalize("/../index.html"));
+        assertEquals("403", normalize("/subfolder/../../unreachable.html"));
+        assertEquals("403", normalize("/a/./../b/../../c"));
+    }
+
+    /**
+     * Prozentkodierte Punkte werden vor der Auflösung dekodiert
+     */
+    public void testEncodedTraversal() {
+        assertEquals("403", normalize("/%2e%2e/unreachable.html"));
+        assertEquals("403", normalize("/%2E%2E/unreachable.html"));
+        assertEquals("403", normalize("/.%2e/unreachable.html"));
+        assertEquals("403", normalize("/%2e./unreachable.html"));
+        assertEquals("403", normalize("/subfolder/%2e%2e/%2e%2e/unreachable.html"));
+        assertEquals("/unreachable.html", normalize("/subfolder/%2e%2e/unreachable.html"));
+        assertEquals("/a", normalize("/a/%2e"));
+    }
+
+    /**
+     * "\" und prozentkodierte Trennzeichen trennen Segmente wie "/"
+     */
+    public void testBackslashAndEncodedSeparators() {
+        assertEquals("403", normalize("/..\\unreachable.html"));
+        assertEquals("403", normalize("/\\..\\unreachable.html"));
+        assertEquals("403", normalize("/subfolder\\..\\..\\unreachable.html"));
+        assertEquals("403", normalize("/..%5cunreachable.html"));
+        assertEquals("403", normalize("/..%5Cunreachable.html"));
+        assertEquals("403", normalize("/..%2funreachable.html"));
+        assertEquals("403", normalize("/%2e%2e%5cunreachable.html"));
+        assertEquals("/a/b", normalize("/a\\b"));
+    }
+
+    /**
+     * Query und Fragment werden vor der Auflösung abgeschnitten
+     */
+    public void testQueryAndFragment() {
+        assertEquals("/a", normalize("/a?x=/../.."));
+        assertEquals("/a", normalize("/a#/../.."));
+        assertEquals("/a?b", normalize("/a%3fb"));
+    }
+
+    /**
+     * Die absolute Form wird auf den Pfad reduziert und danach genauso geprüft
+     */
+    public void testAbsoluteForm() {
+        assertEquals("/index.html", normalize("http://localhost/index.html"));
+        assertEquals("/", normalize("http://localhost"));
+        assertEquals("403", normalize("http://localhost/../unreachable.html"));
+        assertEquals("400", normalize("*"));
+        assertEquals("400", normalize("index.html"));
+    }
+
+    /**
+     * Fehlerhafte Prozentkodierungen, Nullbytes und Steuerzeichen werden mit 400 abgelehnt
+     */
+    public void testInvalidTargets() {
+        assertEquals("400", normalize("/a%"));
+        assertEquals("400", normalize("/a%2"));
+        assertEquals("400", normalize("/a%zz"));
+        assertEquals("400", normalize("/a%00.html"));
+        assertEquals("400", normalize("/a%0a"));
+        assertEquals("400", normalize("/a%7f"));
+        assertEquals("400", normalize("/a\tb"));
+    }
+
+    /**
+     * Prozentkodierte UTF-8 Bytes werden unverändert übernommen
+     */
+    public void testUtf8() {
+        assertEquals("/aufgabe stellung.pdf", normalize("/aufgabe%20stellung.pdf"));
+        assertEquals("/ärger", normalize("/%C3%A4rger"));
+    }
+}
@@ -0,0 +1,112 @@
+package edu.udo.cs.rvs.test;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Prüfungen für die Tests. Eine fehlgeschlagene Prüfung wirft einen {@link AssertionError}, welcher vom
+ * {@link TestRunner} als Fehlschlag des Tests gemeldet wird.
+ */
+public final class Assert {
+
+    /**
+     * Keine Instanzen
+     */
+    private Assert() {
+    }
+
+    /**
+     * Operation welche eine Ausnahme werfen soll
+     */
+    @FunctionalInterface
+    public interface Action {
+
+        /**
+         * Führt die Operation aus
+         *
+         * @throws Throwable Erwartete Ausnahme
+         */
+        void run() throws Throwable;
+    }
+
+    /**
+     * Prüft ob zwei Werte gleich sind
+     *
+     * @param expected Erwarteter Wert
+     * @param actual Tatsächlicher Wert
+     */
+    public static void assertEquals(Object expected, Object actual) {
+        if (!Objects.equals(expected, actual)){
+            throw new AssertionError("Expected <" + expected + "> but was <" + actual + ">");
+        }
+    }
+
+    /**
+     * Prüft ob zwei Zahlen gleich sind
+     *
+     * @param expected Erwarteter Wert
+     * @param actual Tatsächlicher Wert
+     */
+    public static void assertEquals(long expected, long actual) {
+        if (expected != actual){
+            throw new AssertionError("Expected <" + expected + "> but was <" + actual + ">");
+        }
+    }
+
+    /**
+     * Prüft ob zwei Byte Arrays den gleichen Inhalt haben
+     *
+     * @param expected Erwartete Bytes
+     * @param actual Tatsächliche Bytes
+     */
+    public static void assertArrayEquals(byte[] expected, byte[] actual) {
+        if (!Arrays.equals(expected, actual)){
+            throw new AssertionError("Expected <" + Arrays.toString(expected) + "> but was <" + Arrays.toString(actual) + ">");
+        }
+    }
+
+    /**
+     * Prüft ob eine Bedingung wahr ist
+     *
+     * @param message Beschreibung der Bedingung
+     * @param condition Bedingung
+     */
+    public static void assertTrue(String message, boolean condition) {
+        if (!condition){
+            throw new AssertionError(message);
+        }
+    }
+
+    /**
+     * Prüft ob eine Bedingung falsch ist
+     *
+     * @param message Beschreibung der Bedingung
+     * @param condition Bedingung
+     */
+    public static void assertFalse(String message, boolean condition) {
+        assertTrue(message, !condition);
+    }
+
+    /**
+     * Prüft ob eine Operation eine Ausnahme eines Typs wirft
+     *
+     * @param type Erwarteter Typ der Ausnahme
+     * @param action Operation
+     * @param <T> Typ der Ausnahme
+     *
+     * @return Geworfene Ausnahme für weitere Prüfungen
+     */
+    public static <T extends Throwable> T assertThrows(Class<T> type, Action action) {
+        try {
+            action.run();
+        } catch (Throwable t) {
+            if (type.isInstance(t)){
+                return type.cast(t);
+            }
+
+            throw new AssertionError("Expected " + type.getSimpleName() + " but was " + t, t);
+        }
+
+        throw new AssertionError("Expected " + type.getSimpleName() + " but nothing was thrown");
+    }
+}
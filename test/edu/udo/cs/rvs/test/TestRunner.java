@@ -0,0 +1,94 @@
+package edu.udo.cs.rvs.test;
+
+import edu.udo.cs.rvs.handler.RouterTest;
+import edu.udo.cs.rvs.http2.HeaderTableTest;
+import edu.udo.cs.rvs.http2.HpackDecoderTest;
+import edu.udo.cs.rvs.http2.Http2ConnectionTest;
+import edu.udo.cs.rvs.http2.HuffmanTest;
+import edu.udo.cs.rvs.request.BodyDecoderTest;
+import edu.udo.cs.rvs.request.PathNormalizerTest;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Startet die Tests. Ein Test ist jede öffentliche Methode ohne Parameter, deren Name mit "test" beginnt, in den
+ * Klassen aus {@link #createTests()}. Für jede Methode wird eine neue Instanz der Klasse erstellt. Das optionale
+ * Argument ist ein regulärer Ausdruck für die Namen der auszuführenden Tests ("Klasse.methode").
+ * Schlägt ein Test fehl, so endet der Prozess mit Status 1.
+ */
+public class TestRunner {
+
+    /**
+     * Startet die Tests
+     *
+     * @param arguments Optionaler regulärer Ausdruck für die Namen der Tests
+     *
+     * @throws Exception Wird geworfen falls eine Testklasse nicht erstellt werden kann
+     */
+    public static void main(String[] arguments) throws Exception {
+        Pattern filter = Pattern.compile(arguments.length > 0 ? arguments[0] : ".*");
+
+        int passed = 0;
+        List<String> failures = new ArrayList<>();
+
+        for (Class<?> testClass : createTests()){
+            Method[] methods = testClass.getMethods();
+            Arrays.sort(methods, Comparator.comparing(Method::getName));
+
+            for (Method method : methods){
+                String name = testClass.getSimpleName() + "." + method.getName();
+
+                if (!method.getName().startsWith("test") || method.getParameterCount() != 0
+                        || Modifier.isStatic(method.getModifiers()) || !filter.matcher(name).find()){
+                    continue;
+                }
+
+                try {
+                    method.invoke(testClass.getConstructor().newInstance());
+
+                    passed++;
+                    System.out.println("PASS " + name);
+                } catch (InvocationTargetException e) {
+                    failures.add(name);
+                    System.out.println("FAIL " + name + ": " + e.getCause());
+
+                    if (!(e.getCause() instanceof AssertionError)){
+                        e.getCause().printStackTrace(System.out);
+                    }
+                }
+            }
+        }
+
+        System.out.println(passed + " passed, " + failures.size() + " failed" + (failures.isEmpty() ? "" : ": " + failures));
+
+        if (!failures.isEmpty()){
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Gibt alle Testklassen zurück
+     *
+     * @return Testklassen in der Reihenfolge der Ausführung
+     */
+    private static List<Class<?>> createTests() {
+        List<Class<?>> tests = new ArrayList<>();
+
+        tests.add(BodyDecoderTest.class);
+        tests.add(PathNormalizerTest.class);
+        tests.add(RouterTest.class);
+        tests.add(HuffmanTest.class);
+        tests.add(HeaderTableTest.class);
+        tests.add(HpackDecoderTest.class);
+        tests.add(Http2ConnectionTest.class);
+
+        return tests;
+    }
+}